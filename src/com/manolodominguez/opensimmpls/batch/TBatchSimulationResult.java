@@ -0,0 +1,434 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.batch;
+
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TScenario;
+import com.manolodominguez.opensimmpls.scenario.TStats;
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventCounter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+/**
+ * This class implements the result of a batch simulation. It contains the
+ * parameters the simulation was run with, the simulation events counted
+ * during the simulation and the statistics collected by the nodes of the
+ * scenario. It can be written to disk as a CSV file.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TBatchSimulationResult {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TBatchSimulationResult.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scenario the scenario that has been simulated.
+     * @param schedulingMode the scheduling mode of the timer used to simulate
+     * the scenario.
+     * @param simulationLengthInNs the simulated time, in nanoseconds.
+     * @param tickDurationInNs the duration of the timer tick, in nanoseconds.
+     * @param wallClockTimeInMs the real time the simulation has taken, in
+     * milliseconds.
+     * @param eventCounter the simulation events counted during the
+     * simulation.
+     * @since 2.0
+     */
+    public TBatchSimulationResult(TScenario scenario, int schedulingMode, long simulationLengthInNs, int tickDurationInNs, long wallClockTimeInMs, TSimulationEventCounter eventCounter) {
+        this.scenario = scenario;
+        this.schedulingMode = schedulingMode;
+        this.simulationLengthInNs = simulationLengthInNs;
+        this.tickDurationInNs = tickDurationInNs;
+        this.wallClockTimeInMs = wallClockTimeInMs;
+        this.eventCounter = eventCounter;
+    }
+
+    /**
+     * This method gets the scenario that has been simulated.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the scenario that has been simulated.
+     * @since 2.0
+     */
+    public TScenario getScenario() {
+        return this.scenario;
+    }
+
+    /**
+     * This method gets the scheduling mode of the timer used to simulate the
+     * scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the scheduling mode. One of the scheduling constants defined in
+     * TTimer.
+     * @since 2.0
+     */
+    public int getSchedulingMode() {
+        return this.schedulingMode;
+    }
+
+    /**
+     * This method gets the simulated time.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulated time, in nanoseconds.
+     * @since 2.0
+     */
+    public long getSimulationLengthInNs() {
+        return this.simulationLengthInNs;
+    }
+
+    /**
+     * This method gets the duration of the timer tick used to simulate the
+     * scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the duration of the timer tick, in nanoseconds.
+     * @since 2.0
+     */
+    public int getTickDurationInNs() {
+        return this.tickDurationInNs;
+    }
+
+    /**
+     * This method gets the real time the simulation has taken.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the real time the simulation has taken, in milliseconds.
+     * @since 2.0
+     */
+    public long getWallClockTimeInMs() {
+        return this.wallClockTimeInMs;
+    }
+
+    /**
+     * This method gets the simulation events counted during the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulation events counted during the simulation.
+     * @since 2.0
+     */
+    public TSimulationEventCounter getEventCounter() {
+        return this.eventCounter;
+    }
+
+    /**
+     * This method writes this result to the specified file, as CSV.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param outputFile the file where the result will be written.
+     * @throws IOException if the file cannot be written.
+     * @since 2.0
+     */
+    public void write(File outputFile) throws IOException {
+        try (PrintWriter output = new PrintWriter(outputFile, StandardCharsets.UTF_8.name())) {
+            write(output);
+        }
+    }
+
+    /**
+     * This method writes this result to the specified writer, as CSV. There
+     * is a header with the simulation parameters, a section with the number
+     * of simulation events of each type generated by each topology element
+     * and a section with every point of every statistics dataset of each node
+     * that generates statistics.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param output the writer where the result will be written.
+     * @since 2.0
+     */
+    public void write(PrintWriter output) {
+        output.println("# scenario," + toCSV(this.scenario.getTitle()));
+        if (this.scenario.getScenarioFile() != null) {
+            output.println("# file," + toCSV(this.scenario.getScenarioFile().getPath()));
+        }
+        output.println("# scheduling mode," + this.schedulingMode);
+        output.println("# simulation length (ns)," + this.simulationLengthInNs);
+        output.println("# tick (ns)," + this.tickDurationInNs);
+        output.println("# wall clock time (ms)," + this.wallClockTimeInMs);
+        output.println("# events," + this.eventCounter.getNumberOfEvents());
+        output.println("# routing algorithm," + this.scenario.getTopology().getRoutingAlgorithm());
+        output.println("# routing table computations," + this.scenario.getTopology().getRoutingTableComputations());
+        output.println("# routing table computation time (ns)," + this.scenario.getTopology().getRoutingTableComputationTimeInNs());
+        output.println();
+        output.println("element type,element ID,element name,event,count");
+        writeEventCounters(output, true);
+        output.println();
+        output.println("node ID,node name,dataset,series,x,y");
+        writeStatistics(output);
+        output.flush();
+    }
+
+    /**
+     * This method compares this result with the result of another simulation
+     * of the same scenario. The number of simulation events of each type
+     * generated by each topology element and every point of every statistics
+     * dataset are compared. Simulation events generated once per simulated
+     * tick (packets on fly and congested nodes) are not, as they depend on
+     * the number of ticks actually simulated and not on the behaviour of the
+     * scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param otherResult the result to be compared with this one.
+     * @return the CSV lines that are not in both results, preceded by "-" if
+     * they are only in this result or by "+" if they are only in the other
+     * one. The list is empty if both results are equivalent.
+     * @since 2.0
+     */
+    public List<String> getDifferences(TBatchSimulationResult otherResult) {
+        List<String> lines = getComparableLines();
+        List<String> otherResultLines = otherResult.getComparableLines();
+        HashMap<String, Integer> otherLines = new HashMap<>();
+        for (String line : otherResultLines) {
+            otherLines.merge(line, 1, Integer::sum);
+        }
+        ArrayList<String> differences = new ArrayList<>();
+        for (String line : lines) {
+            Integer occurrences = otherLines.get(line);
+            if (occurrences == null) {
+                differences.add("-" + line);
+            } else if (occurrences == 1) {
+                otherLines.remove(line);
+            } else {
+                otherLines.put(line, occurrences - 1);
+            }
+        }
+        for (String line : otherResultLines) {
+            if (otherLines.containsKey(line)) {
+                differences.add("+" + line);
+                otherLines.remove(line);
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * This method gets the lines of the CSV output of this result that are
+     * compared by getDifferences(...).
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the event counters, except those of simulation events generated
+     * once per tick, and the statistics of this result, as CSV lines.
+     * @since 2.0
+     */
+    private List<String> getComparableLines() {
+        StringWriter buffer = new StringWriter();
+        PrintWriter output = new PrintWriter(buffer);
+        writeEventCounters(output, false);
+        writeStatistics(output);
+        output.flush();
+        return Arrays.asList(buffer.toString().split("\\R"));
+    }
+
+    /**
+     * This method writes the number of simulation events of each type, first
+     * for the whole scenario and then for each topology element, one per
+     * line.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param output the writer where the event counters will be written.
+     * @param includeTickSampledEvents true, if simulation events generated
+     * once per simulated tick (packets on fly and congested nodes) have to be
+     * written. Otherwise, false.
+     * @since 2.0
+     */
+    private void writeEventCounters(PrintWriter output, boolean includeTickSampledEvents) {
+        List<Integer> subtypes = this.eventCounter.getCapturedSubtypes();
+        if (!includeTickSampledEvents) {
+            subtypes.remove(Integer.valueOf(TSimulationEvent.PACKET_ON_FLY));
+            subtypes.remove(Integer.valueOf(TSimulationEvent.NODE_CONGESTED));
+        }
+        for (int subtype : subtypes) {
+            output.println("all,,," + toCSV(this.eventCounter.getSubtypeName(subtype)) + "," + this.eventCounter.getNumberOfEvents(subtype));
+        }
+        for (TTopologyElement element : this.eventCounter.getCapturedElements()) {
+            String elementColumns = getElementTypeAsString(element) + "," + TSimulationEventCounter.getElementID(element) + "," + toCSV(TSimulationEventCounter.getElementName(element));
+            for (int subtype : subtypes) {
+                long numberOfEvents = this.eventCounter.getNumberOfEvents(element, subtype);
+                if (numberOfEvents > 0) {
+                    output.println(elementColumns + "," + toCSV(this.eventCounter.getSubtypeName(subtype)) + "," + numberOfEvents);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method writes every point of every statistics dataset of each node
+     * that generates statistics, one per line. Nodes are sorted by their
+     * identifiers.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param output the writer where the statistics will be written.
+     * @since 2.0
+     */
+    private void writeStatistics(PrintWriter output) {
+        TNode[] nodes = this.scenario.getTopology().getNodesAsArray();
+        Arrays.sort(nodes, Comparator.comparingInt(TNode::getNodeID));
+        for (TNode node : nodes) {
+            TStats stats = node.getStats();
+            if (node.isGeneratingStats() && (stats != null)) {
+                for (int i = 1; i <= stats.getNumberOfAvailableDatasets(); i++) {
+                    String datasetColumns = node.getNodeID() + "," + toCSV(node.getName()) + "," + toCSV(getDatasetTitle(stats, i));
+                    writeDataset(output, datasetColumns, getDataset(stats, i));
+                }
+            }
+        }
+    }
+
+    /**
+     * This method writes every point of a statistics dataset, one per line,
+     * preceded by the specified columns.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param output the writer where the dataset will be written.
+     * @param datasetColumns the columns that identify the dataset.
+     * @param dataset the dataset to be written.
+     * @since 2.0
+     */
+    private void writeDataset(PrintWriter output, String datasetColumns, AbstractDataset dataset) {
+        if (dataset instanceof XYSeriesCollection) {
+            XYSeriesCollection xyDataset = (XYSeriesCollection) dataset;
+            for (int i = 0; i < xyDataset.getSeriesCount(); i++) {
+                XYSeries series = xyDataset.getSeries(i);
+                for (int j = 0; j < series.getItemCount(); j++) {
+                    output.println(datasetColumns + "," + toCSV(String.valueOf(series.getKey())) + "," + series.getX(j) + "," + series.getY(j));
+                }
+            }
+        } else if (dataset instanceof CategoryDataset) {
+            CategoryDataset categoryDataset = (CategoryDataset) dataset;
+            for (int i = 0; i < categoryDataset.getRowCount(); i++) {
+                for (int j = 0; j < categoryDataset.getColumnCount(); j++) {
+                    Number value = categoryDataset.getValue(i, j);
+                    if (value != null) {
+                        output.println(datasetColumns + "," + toCSV(String.valueOf(categoryDataset.getRowKey(i))) + "," + toCSV(String.valueOf(categoryDataset.getColumnKey(j))) + "," + value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method gets the statistics dataset with the specified index.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param stats the statistics of a node.
+     * @param datasetIndex the index of the dataset, from 1 to 6.
+     * @return the dataset with the specified index.
+     * @since 2.0
+     */
+    private AbstractDataset getDataset(TStats stats, int datasetIndex) {
+        switch (datasetIndex) {
+            case 1:
+                return stats.getDataset1();
+            case 2:
+                return stats.getDataset2();
+            case 3:
+                return stats.getDataset3();
+            case 4:
+                return stats.getDataset4();
+            case 5:
+                return stats.getDataset5();
+            case 6:
+                return stats.getDataset6();
+        }
+        return null;
+    }
+
+    /**
+     * This method gets the title of the statistics dataset with the specified
+     * index.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param stats the statistics of a node.
+     * @param datasetIndex the index of the dataset, from 1 to 6.
+     * @return the title of the dataset with the specified index.
+     * @since 2.0
+     */
+    private String getDatasetTitle(TStats stats, int datasetIndex) {
+        switch (datasetIndex) {
+            case 1:
+                return stats.getTitleOfDataset1();
+            case 2:
+                return stats.getTitleOfDataset2();
+            case 3:
+                return stats.getTitleOfDataset3();
+            case 4:
+                return stats.getTitleOfDataset4();
+            case 5:
+                return stats.getTitleOfDataset5();
+            case 6:
+                return stats.getTitleOfDataset6();
+        }
+        return "";
+    }
+
+    /**
+     * This method gets the type of a topology element as a string to be
+     * written in the CSV file.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topologyElement the topology element.
+     * @return "node" or "link".
+     * @since 2.0
+     */
+    private String getElementTypeAsString(TTopologyElement topologyElement) {
+        if (topologyElement.getElementType() == TTopologyElement.NODE) {
+            return "node";
+        }
+        return "link";
+    }
+
+    /**
+     * This method escapes a value so that it can be written as a CSV field.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param value the value to be escaped.
+     * @return the value, quoted if it contains commas, quotes or line breaks.
+     * @since 2.0
+     */
+    public static String toCSV(String value) {
+        if (value == null) {
+            return "";
+        }
+        if ((value.indexOf(',') >= 0) || (value.indexOf('"') >= 0) || (value.indexOf('\n') >= 0) || (value.indexOf('\r') >= 0)) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private TScenario scenario;
+    private int schedulingMode;
+    private long simulationLengthInNs;
+    private int tickDurationInNs;
+    private long wallClockTimeInMs;
+    private TSimulationEventCounter eventCounter;
+}
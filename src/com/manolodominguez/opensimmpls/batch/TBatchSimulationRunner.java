@@ -0,0 +1,622 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.batch;
+
+import com.manolodominguez.opensimmpls.hardware.timer.TPooledExecutionEngine;
+import com.manolodominguez.opensimmpls.hardware.timer.TTimer;
+import com.manolodominguez.opensimmpls.hardware.timer.TTimestamp;
+import com.manolodominguez.opensimmpls.io.osm.TOSMLoader;
+import com.manolodominguez.opensimmpls.io.trace.TTraceWriter;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TScenario;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.ISimulationEventListener;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventAggregator;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventCounter;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements a runner that simulates a scenario without any
+ * graphical user interface. The scenario is loaded from an OSM file and
+ * simulated as fast as possible; simulation events are not displayed but
+ * counted and returned, with the statistics of the scenario, as a
+ * TBatchSimulationResult.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TBatchSimulationRunner {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TBatchSimulationRunner that will use the simulation length and tick
+     * stored in each scenario, phased time-driven scheduling and as many
+     * worker threads as available processors.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TBatchSimulationRunner() {
+        this.schedulingMode = TTimer.PHASED_TIME_DRIVEN_SCHEDULING;
+        this.numberOfThreads = Runtime.getRuntime().availableProcessors();
+        this.numberOfPartitions = Runtime.getRuntime().availableProcessors();
+        this.idleTicksFastForward = false;
+        this.simulationLengthInNs = TBatchSimulationRunner.FROM_SCENARIO;
+        this.tickDurationInNs = TBatchSimulationRunner.FROM_SCENARIO;
+        this.routingAlgorithm = TBatchSimulationRunner.FROM_SCENARIO;
+        this.queueSchedulingDiscipline = TBatchSimulationRunner.FROM_SCENARIO;
+        this.portWeights = new ArrayList<>();
+        this.batchSwitching = false;
+        this.subscribedSimulationEvents = TSimulationEvent.ALL_SIMULATION_EVENTS;
+        this.traceFile = null;
+        this.eventAggregation = false;
+        this.routingTableSource = null;
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TBatchSimulationRunner with the same configuration as the specified
+     * one. Later changes to either runner do not affect the other one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param runner the runner whose configuration will be copied.
+     * @since 2.0
+     */
+    public TBatchSimulationRunner(TBatchSimulationRunner runner) {
+        this.schedulingMode = runner.schedulingMode;
+        this.numberOfThreads = runner.numberOfThreads;
+        this.numberOfPartitions = runner.numberOfPartitions;
+        this.idleTicksFastForward = runner.idleTicksFastForward;
+        this.simulationLengthInNs = runner.simulationLengthInNs;
+        this.tickDurationInNs = runner.tickDurationInNs;
+        this.routingAlgorithm = runner.routingAlgorithm;
+        this.queueSchedulingDiscipline = runner.queueSchedulingDiscipline;
+        this.portWeights = new ArrayList<>(runner.portWeights);
+        this.batchSwitching = runner.batchSwitching;
+        this.subscribedSimulationEvents = runner.subscribedSimulationEvents;
+        this.traceFile = runner.traceFile;
+        this.eventAggregation = runner.eventAggregation;
+        this.routingTableSource = runner.routingTableSource;
+    }
+
+    /**
+     * This method sets the scheduling mode of the timer that will be used to
+     * simulate scenarios.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param schedulingMode one of the scheduling constants defined in TTimer.
+     * @since 2.0
+     */
+    public void setSchedulingMode(int schedulingMode) {
+        this.schedulingMode = schedulingMode;
+    }
+
+    /**
+     * This method gets the scheduling mode of the timer that will be used to
+     * simulate scenarios.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return one of the scheduling constants defined in TTimer.
+     * @since 2.0
+     */
+    public int getSchedulingMode() {
+        return this.schedulingMode;
+    }
+
+    /**
+     * This method sets the number of worker threads that will run the work of
+     * topology elements on each tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfThreads the number of worker threads. If zero or less,
+     * the legacy behaviour (a new thread per element and tick) is used.
+     * @since 2.0
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * This method gets the number of worker threads that will run the work of
+     * topology elements on each tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of worker threads. Zero or less means a new thread
+     * per element and tick.
+     * @since 2.0
+     */
+    public int getNumberOfThreads() {
+        return this.numberOfThreads;
+    }
+
+    /**
+     * This method sets the number of partitions the topology will be split
+     * into when the partitioned scheduling mode is used.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfPartitions the number of partitions.
+     * @since 2.0
+     */
+    public void setNumberOfPartitions(int numberOfPartitions) {
+        this.numberOfPartitions = numberOfPartitions;
+    }
+
+    /**
+     * This method gets the number of partitions the topology will be split
+     * into when the partitioned scheduling mode is used.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of partitions.
+     * @since 2.0
+     */
+    public int getNumberOfPartitions() {
+        return this.numberOfPartitions;
+    }
+
+    /**
+     * This method sets whether the timer should fast-forward idle ticks.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param idleTicksFastForward TRUE, if idle ticks should be fast-forwarded.
+     * Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setIdleTicksFastForward(boolean idleTicksFastForward) {
+        this.idleTicksFastForward = idleTicksFastForward;
+    }
+
+    /**
+     * This method checks whether the timer will fast-forward idle ticks.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if idle ticks will be fast-forwarded. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isIdleTicksFastForward() {
+        return this.idleTicksFastForward;
+    }
+
+    /**
+     * This method sets the simulated time, overriding the one stored in each
+     * scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationLengthInNs the simulated time, in nanoseconds, or
+     * TBatchSimulationRunner.FROM_SCENARIO to use the one stored in each
+     * scenario.
+     * @since 2.0
+     */
+    public void setSimulationLengthInNs(long simulationLengthInNs) {
+        this.simulationLengthInNs = simulationLengthInNs;
+    }
+
+    /**
+     * This method gets the simulated time that overrides the one stored in
+     * each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulated time, in nanoseconds, or
+     * TBatchSimulationRunner.FROM_SCENARIO if the one stored in each scenario
+     * is used.
+     * @since 2.0
+     */
+    public long getSimulationLengthInNs() {
+        return this.simulationLengthInNs;
+    }
+
+    /**
+     * This method sets the duration of the timer tick, overriding the one
+     * stored in each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param tickDurationInNs the duration of the timer tick, in nanoseconds,
+     * or TBatchSimulationRunner.FROM_SCENARIO to use the one stored in each
+     * scenario.
+     * @since 2.0
+     */
+    public void setTickDurationInNs(int tickDurationInNs) {
+        this.tickDurationInNs = tickDurationInNs;
+    }
+
+    /**
+     * This method gets the duration of the timer tick that overrides the one
+     * stored in each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the duration of the timer tick, in nanoseconds, or
+     * TBatchSimulationRunner.FROM_SCENARIO if the one stored in each scenario
+     * is used.
+     * @since 2.0
+     */
+    public int getTickDurationInNs() {
+        return this.tickDurationInNs;
+    }
+
+    /**
+     * This method sets the routing algorithm, overriding the one stored in
+     * each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param routingAlgorithm TTopology.FLOYD_WARSHALL_ROUTING,
+     * TTopology.DIJKSTRA_ROUTING or TBatchSimulationRunner.FROM_SCENARIO to
+     * use the one stored in each scenario.
+     * @since 2.0
+     */
+    public void setRoutingAlgorithm(int routingAlgorithm) {
+        this.routingAlgorithm = routingAlgorithm;
+    }
+
+    /**
+     * This method gets the routing algorithm that overrides the one stored in
+     * each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TTopology.FLOYD_WARSHALL_ROUTING, TTopology.DIJKSTRA_ROUTING or
+     * TBatchSimulationRunner.FROM_SCENARIO if the one stored in each scenario
+     * is used.
+     * @since 2.0
+     */
+    public int getRoutingAlgorithm() {
+        return this.routingAlgorithm;
+    }
+
+    /**
+     * This method sets the queue scheduling discipline of every LER and LSR,
+     * active or not, overriding the one stored in each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param queueSchedulingDiscipline One of the scheduling disciplines
+     * defined in TPortSet or TBatchSimulationRunner.FROM_SCENARIO to use the
+     * one stored in each node of each scenario.
+     * @since 2.0
+     */
+    public void setQueueSchedulingDiscipline(int queueSchedulingDiscipline) {
+        this.queueSchedulingDiscipline = queueSchedulingDiscipline;
+    }
+
+    /**
+     * This method gets the queue scheduling discipline that overrides the one
+     * stored in each LER and LSR of each scenario.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return One of the scheduling disciplines defined in TPortSet or
+     * TBatchSimulationRunner.FROM_SCENARIO if the one stored in each node of
+     * each scenario is used.
+     * @since 2.0
+     */
+    public int getQueueSchedulingDiscipline() {
+        return this.queueSchedulingDiscipline;
+    }
+
+    /**
+     * This method adds the weight of a port of a node, to be given to the
+     * queue scheduling discipline of the node before each simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portWeight the weight of the port.
+     * @since 2.0
+     */
+    public void addPortWeight(TPortWeight portWeight) {
+        this.portWeights.add(portWeight);
+    }
+
+    /**
+     * This method gets the weights of ports that will be given to the queue
+     * scheduling discipline of nodes before each simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the weights of ports.
+     * @since 2.0
+     */
+    public List<TPortWeight> getPortWeights() {
+        return this.portWeights;
+    }
+
+    /**
+     * This method sets whether nodes have to switch incoming packets in
+     * batches instead of packet by packet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param batchSwitching TRUE, if nodes have to switch packets in batches.
+     * Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setBatchSwitching(boolean batchSwitching) {
+        this.batchSwitching = batchSwitching;
+    }
+
+    /**
+     * This method checks whether nodes will switch incoming packets in
+     * batches instead of packet by packet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if nodes will switch packets in batches. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isBatchSwitching() {
+        return this.batchSwitching;
+    }
+
+    /**
+     * This method sets the simulation event subtypes that will be counted
+     * during the simulation, as a bit mask built with
+     * TSimulationEvent.getSubscriptionMask(). Event subtypes that are not
+     * subscribed are neither counted nor, when no other listener subscribes
+     * to them, generated by the elements of the topology.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subscribedSimulationEvents the bit mask of simulation event
+     * subtypes to be counted.
+     * @since 2.0
+     */
+    public void setSubscribedSimulationEvents(long subscribedSimulationEvents) {
+        this.subscribedSimulationEvents = subscribedSimulationEvents;
+    }
+
+    /**
+     * This method gets the simulation event subtypes that will be counted
+     * during the simulation, as a bit mask.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the bit mask of simulation event subtypes to be counted.
+     * @since 2.0
+     */
+    public long getSubscribedSimulationEvents() {
+        return this.subscribedSimulationEvents;
+    }
+
+    /**
+     * This method sets the file where simulation events will be recorded as a
+     * binary trace, that can be read later with TTraceReader. The simulation
+     * event subtypes recorded are those to be counted, so that packets on fly
+     * are recorded, and the trace can be replayed, unless they are excluded.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceFile the file where simulation events will be recorded, or
+     * null to record no trace.
+     * @since 2.0
+     */
+    public void setTraceFile(File traceFile) {
+        this.traceFile = traceFile;
+    }
+
+    /**
+     * This method gets the file where simulation events will be recorded as a
+     * binary trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the file where simulation events will be recorded, or null if no
+     * trace will be recorded.
+     * @since 2.0
+     */
+    public File getTraceFile() {
+        return this.traceFile;
+    }
+
+    /**
+     * This method sets whether per-packet simulation events are collapsed into
+     * per-tick, per-element and per-packet-type summaries before being
+     * counted. Totals are the same, but the counter is updated once per
+     * summary instead of once per packet. The trace, if any, still records
+     * every simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param eventAggregation TRUE, if per-packet simulation events have to be
+     * aggregated before being counted. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setEventAggregation(boolean eventAggregation) {
+        this.eventAggregation = eventAggregation;
+    }
+
+    /**
+     * This method checks whether per-packet simulation events are collapsed
+     * into per-tick summaries before being counted.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if per-packet simulation events are aggregated before
+     * being counted. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isEventAggregationEnabled() {
+        return this.eventAggregation;
+    }
+
+    /**
+     * This method sets a topology whose Floyd-Warshall routing table will be
+     * used by simulated scenarios instead of computing their own one, as long
+     * as they have the same nodes and links. Scenarios whose routes would be
+     * different must not be simulated with a routing table source.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param routingTableSource the topology whose routing table will be used,
+     * or null to let every scenario compute its own one.
+     * @since 2.0
+     */
+    public void setRoutingTableSource(TTopology routingTableSource) {
+        this.routingTableSource = routingTableSource;
+    }
+
+    /**
+     * This method gets the topology whose Floyd-Warshall routing table is used
+     * by simulated scenarios instead of computing their own one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the topology whose routing table is used, or null if every
+     * scenario computes its own one.
+     * @since 2.0
+     */
+    public TTopology getRoutingTableSource() {
+        return this.routingTableSource;
+    }
+
+    /**
+     * This method loads a scenario from an OSM file.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scenarioFile the OSM file where the scenario is stored.
+     * @return the scenario loaded from the file, or null if the file cannot be
+     * loaded.
+     * @since 2.0
+     */
+    public TScenario loadScenario(File scenarioFile) {
+        TOSMLoader loader = new TOSMLoader();
+        if (loader.cargar(scenarioFile)) {
+            return loader.getScenario();
+        }
+        return null;
+    }
+
+    /**
+     * This method loads a scenario from an OSM file and simulates it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scenarioFile the OSM file where the scenario is stored.
+     * @return the result of the simulation, or null if the file cannot be
+     * loaded.
+     * @since 2.0
+     */
+    public TBatchSimulationResult simulate(File scenarioFile) {
+        TScenario scenario = loadScenario(scenarioFile);
+        if (scenario == null) {
+            return null;
+        }
+        return simulate(scenario);
+    }
+
+    /**
+     * This method simulates a scenario and waits until the simulation
+     * finishes. The scenario must not be attached to a simulation panel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scenario the scenario to be simulated.
+     * @return the result of the simulation.
+     * @since 2.0
+     */
+    public TBatchSimulationResult simulate(TScenario scenario) {
+        long length = this.simulationLengthInNs;
+        if (length == TBatchSimulationRunner.FROM_SCENARIO) {
+            length = scenario.getSimulation().getSimulationLengthInNs();
+        }
+        int tick = this.tickDurationInNs;
+        if (tick == TBatchSimulationRunner.FROM_SCENARIO) {
+            tick = (int) scenario.getSimulation().getSimulationTickDurationInNs();
+        }
+        // As the GUI does, the tick cannot be longer than the shortest link
+        // delay.
+        int minimumDelay = scenario.getTopology().getMinimumDelay();
+        if ((minimumDelay > 0) && (tick > minimumDelay)) {
+            tick = minimumDelay;
+        }
+        if (this.routingAlgorithm != TBatchSimulationRunner.FROM_SCENARIO) {
+            scenario.getTopology().setRoutingAlgorithm(this.routingAlgorithm);
+        }
+        if (this.queueSchedulingDiscipline != TBatchSimulationRunner.FROM_SCENARIO) {
+            // As in the GUI, only LERs and LSRs can choose their discipline.
+            for (TNode node : scenario.getTopology().getNodesAsArray()) {
+                switch (node.getNodeType()) {
+                    case TNode.LER:
+                    case TNode.ACTIVE_LER:
+                    case TNode.LSR:
+                    case TNode.ACTIVE_LSR:
+                        node.setSchedulingDiscipline(this.queueSchedulingDiscipline);
+                        break;
+                }
+            }
+        }
+        for (TPortWeight portWeight : this.portWeights) {
+            portWeight.apply(scenario.getTopology());
+        }
+        for (TNode node : scenario.getTopology().getNodesAsArray()) {
+            node.setBatchSwitching(this.batchSwitching);
+        }
+        TSimulationEventCounter eventCounter = new TSimulationEventCounter();
+        eventCounter.setSubscribedSimulationEvents(this.subscribedSimulationEvents);
+        ISimulationEventListener eventCounterStage = eventCounter;
+        TSimulationEventAggregator eventAggregator = null;
+        if (this.eventAggregation) {
+            eventAggregator = new TSimulationEventAggregator(eventCounter);
+            eventCounterStage = eventAggregator;
+        }
+        scenario.getSimulation().getSimulationEventListener().addSimulationEventListener(eventCounterStage);
+        TTraceWriter traceWriter = null;
+        if (this.traceFile != null) {
+            try {
+                traceWriter = new TTraceWriter(this.traceFile);
+                traceWriter.setSubscribedSimulationEvents(this.subscribedSimulationEvents);
+                scenario.getSimulation().getSimulationEventListener().addSimulationEventListener(traceWriter);
+            } catch (IOException e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+            }
+        }
+        TTimer timer = scenario.getTopology().getTimer();
+        if (this.numberOfThreads > 0) {
+            timer.setExecutionEngine(new TPooledExecutionEngine(this.numberOfThreads));
+        }
+        timer.setNumberOfPartitions(this.numberOfPartitions);
+        timer.setSchedulingMode(this.schedulingMode);
+        timer.setIdleTicksFastForward(this.idleTicksFastForward);
+        scenario.reset();
+        if (this.routingTableSource != null) {
+            scenario.getTopology().copyFloydWarshallRoutingTable(this.routingTableSource);
+        }
+        timer.setFinishTimestamp(new TTimestamp(length / NS_PER_MS, (int) (length % NS_PER_MS)));
+        timer.setTick(tick);
+        long wallClockStart = System.currentTimeMillis();
+        scenario.simulate();
+        timer.waitForCompletion();
+        long wallClockTimeInMs = System.currentTimeMillis() - wallClockStart;
+        scenario.getSimulation().getSimulationEventListener().removeSimulationEventListener(eventCounterStage);
+        if (eventAggregator != null) {
+            eventAggregator.flush();
+        }
+        if (traceWriter != null) {
+            scenario.getSimulation().getSimulationEventListener().removeSimulationEventListener(traceWriter);
+            try {
+                traceWriter.close();
+            } catch (IOException e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+            }
+        }
+        timer.getExecutionEngine().shutdown();
+        return new TBatchSimulationResult(scenario, this.schedulingMode, length, tick, wallClockTimeInMs, eventCounter);
+    }
+
+    public static final int FROM_SCENARIO = -1;
+
+    private static final long NS_PER_MS = 1000000L;
+
+    private int schedulingMode;
+    private int numberOfThreads;
+    private int numberOfPartitions;
+    private boolean idleTicksFastForward;
+    private long simulationLengthInNs;
+    private int tickDurationInNs;
+    private int routingAlgorithm;
+    private int queueSchedulingDiscipline;
+    private ArrayList<TPortWeight> portWeights;
+    private boolean batchSwitching;
+    private long subscribedSimulationEvents;
+    private File traceFile;
+    private boolean eventAggregation;
+    private TTopology routingTableSource;
+}
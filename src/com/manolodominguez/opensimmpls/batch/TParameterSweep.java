@@ -0,0 +1,368 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.batch;
+
+import com.manolodominguez.opensimmpls.io.osm.TOSMSaver;
+import com.manolodominguez.opensimmpls.scenario.TScenario;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventCounter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This class implements a parameter sweep: the same scenario is simulated once
+ * per point of a grid of parameter values, and several points are simulated
+ * concurrently. The base scenario is serialized only once; each point loads
+ * its own copy of the topology from that snapshot, applies its parameter
+ * values and is simulated by a TBatchSimulationRunner. Sweep parameters do not
+ * change links, so every point uses the Floyd-Warshall routing table of the
+ * base scenario instead of computing its own one. Results of all points are
+ * consolidated in a single table.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TParameterSweep {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TParameterSweep that will simulate as many points concurrently as
+     * available processors, each one of them using a single worker thread.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param baseScenario the scenario whose variants will be simulated. It is
+     * not modified.
+     * @since 2.0
+     */
+    public TParameterSweep(TScenario baseScenario) {
+        this(baseScenario, TParameterSweep.createDefaultRunner());
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TParameterSweep that will simulate every point with the configuration
+     * of the specified runner, and as many points concurrently as available
+     * processors. The runner is copied, so later changes to it do not affect
+     * the sweep.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param baseScenario the scenario whose variants will be simulated. It is
+     * not modified.
+     * @param runner the runner whose configuration every point will use. It
+     * cannot record a trace, as every point would write the same file.
+     * @throws IllegalArgumentException if the runner records a trace.
+     * @since 2.0
+     */
+    public TParameterSweep(TScenario baseScenario, TBatchSimulationRunner runner) {
+        if (runner.getTraceFile() != null) {
+            throw new IllegalArgumentException("A parameter sweep cannot record a trace");
+        }
+        this.baseScenario = baseScenario;
+        this.parameters = new ArrayList<>();
+        this.runner = new TBatchSimulationRunner(runner);
+        this.runner.setRoutingTableSource(baseScenario.getTopology());
+        this.numberOfConcurrentSimulations = Runtime.getRuntime().availableProcessors();
+        this.eventCounters = null;
+        this.wallClockTimesInMs = null;
+        this.simulationLengthInNs = 0;
+        this.tickDurationInNs = 0;
+    }
+
+    /**
+     * This method creates the runner used when none is specified: it simulates
+     * each point with a single worker thread, as several points are simulated
+     * at the same time.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the default runner.
+     * @since 2.0
+     */
+    private static TBatchSimulationRunner createDefaultRunner() {
+        TBatchSimulationRunner defaultRunner = new TBatchSimulationRunner();
+        defaultRunner.setNumberOfThreads(1);
+        return defaultRunner;
+    }
+
+    /**
+     * This method adds a new dimension to the grid of parameter values.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param parameter the parameter and the values it has to take.
+     * @since 2.0
+     */
+    public void addParameter(TSweepParameter parameter) {
+        this.parameters.add(parameter);
+    }
+
+    /**
+     * This method gets the runner that simulates each point of the grid. It
+     * can be used to configure the scheduling mode, number of threads per
+     * point, simulation length, etc. It must not be set to record a trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the runner that simulates each point of the grid.
+     * @since 2.0
+     */
+    public TBatchSimulationRunner getRunner() {
+        return this.runner;
+    }
+
+    /**
+     * This method sets how many points of the grid are simulated at the same
+     * time.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfConcurrentSimulations the number of points simulated at
+     * the same time.
+     * @since 2.0
+     */
+    public void setNumberOfConcurrentSimulations(int numberOfConcurrentSimulations) {
+        if (numberOfConcurrentSimulations < 1) {
+            numberOfConcurrentSimulations = 1;
+        }
+        this.numberOfConcurrentSimulations = numberOfConcurrentSimulations;
+    }
+
+    /**
+     * This method gets how many points of the grid are simulated at the same
+     * time.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of points simulated at the same time.
+     * @since 2.0
+     */
+    public int getNumberOfConcurrentSimulations() {
+        return this.numberOfConcurrentSimulations;
+    }
+
+    /**
+     * This method gets the number of points of the grid.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of points of the grid, that is, the product of the
+     * number of values of every parameter.
+     * @since 2.0
+     */
+    public int getNumberOfPoints() {
+        int numberOfPoints = 1;
+        for (TSweepParameter parameter : this.parameters) {
+            numberOfPoints *= parameter.getNumberOfValues();
+        }
+        return numberOfPoints;
+    }
+
+    /**
+     * This method gets the parameter values of a point of the grid. The last
+     * parameter added is the one that changes faster.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param pointIndex the index of the point, from zero to
+     * getNumberOfPoints() - 1.
+     * @return the values of every parameter, in the same order parameters
+     * were added.
+     * @since 2.0
+     */
+    public int[] getParameterValues(int pointIndex) {
+        int[] parameterValues = new int[this.parameters.size()];
+        for (int i = this.parameters.size() - 1; i >= 0; i--) {
+            TSweepParameter parameter = this.parameters.get(i);
+            parameterValues[i] = parameter.getValue(pointIndex % parameter.getNumberOfValues());
+            pointIndex /= parameter.getNumberOfValues();
+        }
+        return parameterValues;
+    }
+
+    /**
+     * This method simulates every point of the grid and waits until all of
+     * them have finished.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if every point has been simulated. FALSE if the base
+     * scenario could not be copied or some point could not be simulated.
+     * @since 2.0
+     */
+    public boolean run() {
+        int numberOfPoints = getNumberOfPoints();
+        this.eventCounters = new TSimulationEventCounter[numberOfPoints];
+        this.wallClockTimesInMs = new long[numberOfPoints];
+        File snapshot = null;
+        ExecutorService simulations = null;
+        boolean success = true;
+        try {
+            // The base scenario is serialized only once. Every point parses
+            // its own topology from this snapshot, as simulation modifies it.
+            snapshot = File.createTempFile("opensimmpls-sweep-", ".osm");
+            snapshot.deleteOnExit();
+            TOSMSaver saver = new TOSMSaver(this.baseScenario);
+            if (!saver.save(snapshot, false)) {
+                return false;
+            }
+            final File scenarioSnapshot = snapshot;
+            simulations = Executors.newFixedThreadPool(this.numberOfConcurrentSimulations);
+            List<Future<TBatchSimulationResult>> pendingResults = new ArrayList<>();
+            for (int i = 0; i < numberOfPoints; i++) {
+                final int[] parameterValues = getParameterValues(i);
+                pendingResults.add(simulations.submit((Callable<TBatchSimulationResult>) () -> simulatePoint(scenarioSnapshot, parameterValues)));
+            }
+            for (int i = 0; i < numberOfPoints; i++) {
+                TBatchSimulationResult result = pendingResults.get(i).get();
+                if (result == null) {
+                    success = false;
+                } else {
+                    this.eventCounters[i] = result.getEventCounter();
+                    this.wallClockTimesInMs[i] = result.getWallClockTimeInMs();
+                    this.simulationLengthInNs = result.getSimulationLengthInNs();
+                    this.tickDurationInNs = result.getTickDurationInNs();
+                }
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            e.printStackTrace();
+            success = false;
+        } finally {
+            if (simulations != null) {
+                simulations.shutdownNow();
+            }
+            if (snapshot != null) {
+                snapshot.delete();
+            }
+        }
+        return success;
+    }
+
+    /**
+     * This method loads a copy of the base scenario, applies the parameter
+     * values of a point of the grid and simulates it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scenarioSnapshot the file where the base scenario was serialized.
+     * @param parameterValues the values of every parameter for this point.
+     * @return the result of the simulation, or null if the scenario could not
+     * be loaded.
+     * @since 2.0
+     */
+    private TBatchSimulationResult simulatePoint(File scenarioSnapshot, int[] parameterValues) {
+        TScenario variant = this.runner.loadScenario(scenarioSnapshot);
+        if (variant == null) {
+            return null;
+        }
+        for (int i = 0; i < parameterValues.length; i++) {
+            this.parameters.get(i).apply(variant.getTopology(), parameterValues[i]);
+        }
+        return this.runner.simulate(variant);
+    }
+
+    /**
+     * This method gets the simulation events counted when simulating a point
+     * of the grid.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param pointIndex the index of the point.
+     * @return the simulation events counted, or null if the point has not been
+     * simulated.
+     * @since 2.0
+     */
+    public TSimulationEventCounter getEventCounter(int pointIndex) {
+        if (this.eventCounters == null) {
+            return null;
+        }
+        return this.eventCounters[pointIndex];
+    }
+
+    /**
+     * This method writes the consolidated results table to the specified
+     * file, as CSV.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param outputFile the file where the results will be written.
+     * @throws IOException if the file cannot be written.
+     * @since 2.0
+     */
+    public void writeResults(File outputFile) throws IOException {
+        try (PrintWriter output = new PrintWriter(outputFile, StandardCharsets.UTF_8.name())) {
+            writeResults(output);
+        }
+    }
+
+    /**
+     * This method writes the consolidated results table to the specified
+     * writer, as CSV. There is a row per point of the grid, with the value of
+     * every parameter, the real time the simulation took and the number of
+     * simulation events of each type.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param output the writer where the results will be written.
+     * @since 2.0
+     */
+    public void writeResults(PrintWriter output) {
+        output.println("# scenario," + TBatchSimulationResult.toCSV(this.baseScenario.getTitle()));
+        output.println("# simulation length (ns)," + this.simulationLengthInNs);
+        output.println("# tick (ns)," + this.tickDurationInNs);
+        // Every event type that has happened in any point gets a column.
+        TreeMap<Integer, String> subtypes = new TreeMap<>();
+        if (this.eventCounters != null) {
+            for (TSimulationEventCounter eventCounter : this.eventCounters) {
+                if (eventCounter != null) {
+                    for (int subtype : eventCounter.getCapturedSubtypes()) {
+                        subtypes.put(subtype, eventCounter.getSubtypeName(subtype));
+                    }
+                }
+            }
+        }
+        StringBuilder header = new StringBuilder("point");
+        for (TSweepParameter parameter : this.parameters) {
+            header.append(',').append(TBatchSimulationResult.toCSV(parameter.getName()));
+        }
+        header.append(",wall clock time (ms),events");
+        for (String subtypeName : subtypes.values()) {
+            header.append(',').append(TBatchSimulationResult.toCSV(subtypeName));
+        }
+        output.println(header);
+        for (int i = 0; i < getNumberOfPoints(); i++) {
+            StringBuilder row = new StringBuilder(String.valueOf(i));
+            for (int parameterValue : getParameterValues(i)) {
+                row.append(',').append(parameterValue);
+            }
+            TSimulationEventCounter eventCounter = getEventCounter(i);
+            if (eventCounter != null) {
+                row.append(',').append(this.wallClockTimesInMs[i]);
+                row.append(',').append(eventCounter.getNumberOfEvents());
+                for (int subtype : subtypes.keySet()) {
+                    row.append(',').append(eventCounter.getNumberOfEvents(subtype));
+                }
+            }
+            output.println(row);
+        }
+        output.flush();
+    }
+
+    private TScenario baseScenario;
+    private ArrayList<TSweepParameter> parameters;
+    private TBatchSimulationRunner runner;
+    private int numberOfConcurrentSimulations;
+    private TSimulationEventCounter[] eventCounters;
+    private long[] wallClockTimesInMs;
+    private long simulationLengthInNs;
+    private int tickDurationInNs;
+}
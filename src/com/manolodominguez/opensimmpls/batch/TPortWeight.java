@@ -0,0 +1,139 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.batch;
+
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
+import com.manolodominguez.opensimmpls.scenario.TLink;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
+
+/**
+ * This class implements the weight of a port of a node for the queue
+ * scheduling discipline of the node. The port is the one connected to the
+ * link that leads to a given neighbour, so that it can be identified by the
+ * names shown in the scenario. The meaning of the weight depends on the
+ * discipline: it is the share of the capacity in DRR and WFQ and the priority
+ * in strict priority scheduling.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TPortWeight {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TPortWeight.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param nodeName the name of the node whose port has to be weighted.
+     * @param neighbourName the name of the node at the other end of the link
+     * connected to the port.
+     * @param weight the weight of the port. It has to be greater than 0.
+     * @since 2.0
+     */
+    public TPortWeight(String nodeName, String neighbourName, int weight) {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("The weight of a port has to be greater than 0");
+        }
+        this.nodeName = nodeName;
+        this.neighbourName = neighbourName;
+        this.weight = weight;
+    }
+
+    /**
+     * This method gets the name of the node whose port is weighted.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the name of the node.
+     * @since 2.0
+     */
+    public String getNodeName() {
+        return this.nodeName;
+    }
+
+    /**
+     * This method gets the name of the node at the other end of the link
+     * connected to the weighted port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the name of the neighbour.
+     * @since 2.0
+     */
+    public String getNeighbourName() {
+        return this.neighbourName;
+    }
+
+    /**
+     * This method gets the weight of the port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the weight of the port.
+     * @since 2.0
+     */
+    public int getWeight() {
+        return this.weight;
+    }
+
+    /**
+     * This method gives the weight to the port of every node of the topology
+     * this port weight applies to. It has to be called once the scheduling
+     * discipline of the nodes has been set, as changing the discipline
+     * discards the weights. Nodes using the default discipline ignore it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topology the topology to be modified.
+     * @return the number of ports that have been weighted.
+     * @since 2.0
+     */
+    public int apply(TTopology topology) {
+        int weightedPorts = 0;
+        for (TNode node : topology.getNodesAsArray()) {
+            if (this.nodeName.equals(node.getName())) {
+                TPortSet ports = node.getPorts();
+                for (int i = 0; i < ports.getNumberOfPorts(); i++) {
+                    TLink link = ports.getLinkConnectedToPort(i);
+                    if ((link != null) && (this.neighbourName.equals(getNeighbour(node, link).getName()))) {
+                        if (ports.setPortWeight(i, this.weight)) {
+                            weightedPorts++;
+                        }
+                    }
+                }
+            }
+        }
+        return weightedPorts;
+    }
+
+    /**
+     * This method gets the node at the other end of a link connected to a
+     * node.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node a node.
+     * @param link a link connected to the node.
+     * @return the node at the other end of the link.
+     * @since 2.0
+     */
+    private TNode getNeighbour(TNode node, TLink link) {
+        if (link.getHeadEndNode() == node) {
+            return link.getTailEndNode();
+        }
+        return link.getHeadEndNode();
+    }
+
+    private String nodeName;
+    private String neighbourName;
+    private int weight;
+}
@@ -0,0 +1,250 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.batch;
+
+import com.manolodominguez.opensimmpls.scenario.TActiveLERNode;
+import com.manolodominguez.opensimmpls.scenario.TActiveLSRNode;
+import com.manolodominguez.opensimmpls.scenario.TLERNode;
+import com.manolodominguez.opensimmpls.scenario.TLSRNode;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
+import com.manolodominguez.opensimmpls.scenario.TTrafficGeneratorNode;
+
+/**
+ * This class implements a parameter of a parameter sweep: a node attribute
+ * and the list of values it has to take. The attribute can be modified in a
+ * single node, selected by name, or in every node that supports it.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TSweepParameter {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSweepParameter that applies to every node that supports the attribute.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param parameterType the node attribute. One of the constants of this
+     * class.
+     * @param values the values the attribute has to take.
+     * @since 2.0
+     */
+    public TSweepParameter(int parameterType, int[] values) {
+        this(parameterType, null, values);
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSweepParameter that applies to the node with the specified name.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param parameterType the node attribute. One of the constants of this
+     * class.
+     * @param nodeName the name of the node whose attribute has to be modified,
+     * or null to modify every node that supports the attribute.
+     * @param values the values the attribute has to take.
+     * @since 2.0
+     */
+    public TSweepParameter(int parameterType, String nodeName, int[] values) {
+        if ((parameterType < TSweepParameter.BUFFER_SIZE) || (parameterType > TSweepParameter.TRAFFIC_GENERATION_RATE)) {
+            throw new IllegalArgumentException("Unknown parameter type: " + parameterType);
+        }
+        if ((values == null) || (values.length == 0)) {
+            throw new IllegalArgumentException("A sweep parameter needs at least one value");
+        }
+        this.parameterType = parameterType;
+        this.nodeName = nodeName;
+        this.values = values.clone();
+    }
+
+    /**
+     * This method gets the node attribute this parameter modifies.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return one of the constants of this class.
+     * @since 2.0
+     */
+    public int getParameterType() {
+        return this.parameterType;
+    }
+
+    /**
+     * This method gets the name of the node whose attribute this parameter
+     * modifies.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the name of the node, or null if every node that supports the
+     * attribute is modified.
+     * @since 2.0
+     */
+    public String getNodeName() {
+        return this.nodeName;
+    }
+
+    /**
+     * This method gets the number of values this parameter has to take.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of values.
+     * @since 2.0
+     */
+    public int getNumberOfValues() {
+        return this.values.length;
+    }
+
+    /**
+     * This method gets one of the values this parameter has to take.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param index the index of the value.
+     * @return the value with the specified index.
+     * @since 2.0
+     */
+    public int getValue(int index) {
+        return this.values[index];
+    }
+
+    /**
+     * This method gets a name for this parameter, to be used as the header of
+     * the column of results tables.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return a name for this parameter.
+     * @since 2.0
+     */
+    public String getName() {
+        String name = "";
+        switch (this.parameterType) {
+            case TSweepParameter.BUFFER_SIZE:
+                name = "buffer size (MB)";
+                break;
+            case TSweepParameter.SWITCHING_POWER:
+                name = "switching power (Mbps)";
+                break;
+            case TSweepParameter.DMGP_SIZE:
+                name = "DMGP size (KB)";
+                break;
+            case TSweepParameter.TRAFFIC_GENERATION_RATE:
+                name = "traffic generation rate (Mbps)";
+                break;
+        }
+        if (this.nodeName != null) {
+            name = this.nodeName + " " + name;
+        }
+        return name;
+    }
+
+    /**
+     * This method sets the specified value to the attribute of every node of
+     * the topology this parameter applies to.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topology the topology to be modified.
+     * @param value the value to be set.
+     * @return the number of nodes that have been modified.
+     * @since 2.0
+     */
+    public int apply(TTopology topology, int value) {
+        int modifiedNodes = 0;
+        for (TNode node : topology.getNodesAsArray()) {
+            if ((this.nodeName == null) || (this.nodeName.equals(node.getName()))) {
+                if (apply(node, value)) {
+                    modifiedNodes++;
+                }
+            }
+        }
+        return modifiedNodes;
+    }
+
+    /**
+     * This method sets the specified value to the attribute of a node, if the
+     * node supports it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node the node to be modified.
+     * @param value the value to be set.
+     * @return TRUE, if the node supports the attribute and has been modified.
+     * Otherwise, FALSE.
+     * @since 2.0
+     */
+    private boolean apply(TNode node, int value) {
+        switch (this.parameterType) {
+            case TSweepParameter.BUFFER_SIZE: {
+                switch (node.getNodeType()) {
+                    case TNode.LER:
+                        ((TLERNode) node).setBufferSizeInMBytes(value);
+                        return true;
+                    case TNode.ACTIVE_LER:
+                        ((TActiveLERNode) node).setBufferSizeInMBytes(value);
+                        return true;
+                    case TNode.LSR:
+                        ((TLSRNode) node).setBufferSizeInMBytes(value);
+                        return true;
+                    case TNode.ACTIVE_LSR:
+                        ((TActiveLSRNode) node).setBufferSizeInMBytes(value);
+                        return true;
+                }
+                return false;
+            }
+            case TSweepParameter.SWITCHING_POWER: {
+                switch (node.getNodeType()) {
+                    case TNode.LER:
+                        ((TLERNode) node).setRoutingPowerInMbps(value);
+                        return true;
+                    case TNode.ACTIVE_LER:
+                        ((TActiveLERNode) node).setRoutingPowerInMbps(value);
+                        return true;
+                    case TNode.LSR:
+                        ((TLSRNode) node).setSwitchingPowerInMbps(value);
+                        return true;
+                    case TNode.ACTIVE_LSR:
+                        ((TActiveLSRNode) node).setSwitchingPowerInMbps(value);
+                        return true;
+                }
+                return false;
+            }
+            case TSweepParameter.DMGP_SIZE: {
+                switch (node.getNodeType()) {
+                    case TNode.ACTIVE_LER:
+                        ((TActiveLERNode) node).setDMGPSizeInKB(value);
+                        return true;
+                    case TNode.ACTIVE_LSR:
+                        ((TActiveLSRNode) node).setDMGPSizeInKB(value);
+                        return true;
+                }
+                return false;
+            }
+            case TSweepParameter.TRAFFIC_GENERATION_RATE: {
+                if (node.getNodeType() == TNode.TRAFFIC_GENERATOR) {
+                    ((TTrafficGeneratorNode) node).setTrafficGenerationRate(value);
+                    return true;
+                }
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public static final int BUFFER_SIZE = 0;
+    public static final int SWITCHING_POWER = 1;
+    public static final int DMGP_SIZE = 2;
+    public static final int TRAFFIC_GENERATION_RATE = 3;
+
+    private int parameterType;
+    private String nodeName;
+    private int[] values;
+}
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.gui.dialogs;
 
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.resources.images.AvailableImages;
 import com.manolodominguez.opensimmpls.resources.translations.AvailableBundles;
 import com.manolodominguez.opensimmpls.scenario.TActiveLERNode;
@@ -121,6 +122,8 @@ public class JActiveLERWindow extends JDialog {
         this.sliderDMGPSize = new JSlider();
         this.labelDMGPSizeKB = new JLabel();
         this.labelDMGPSize = new JLabel();
+        this.labelSchedulingDiscipline = new JLabel();
+        this.comboBoxSchedulingDiscipline = new JComboBox<>();
         this.panelButtons = new JPanel();
         this.buttonOK = new JButton();
         this.buttonCancel = new JButton();
@@ -213,7 +216,7 @@ public class JActiveLERWindow extends JDialog {
                 handleClickOnAdvancedGenerateStatistics(evt);
             }
         });
-        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 180, -1, -1));
+        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 210, -1, -1));
         this.labelAdvancedConfiguration.setIcon(this.imageBroker.getImageIcon(AvailableImages.ADVANCED));
         this.labelAdvancedConfiguration.setText(translations.getString("VentanaLERA.ConfiguracionAvanzada"));
         this.panelAdvancedConfiguration.add(this.labelAdvancedConfiguration, new AbsoluteConstraints(15, 20, 335, -1));
@@ -280,8 +283,14 @@ public class JActiveLERWindow extends JDialog {
         this.labelDMGPSize.setHorizontalAlignment(SwingConstants.RIGHT);
         this.labelDMGPSize.setText(translations.getString("JVentanaLERA.DMGP_size"));
         this.panelAdvancedConfiguration.add(this.labelDMGPSize, new AbsoluteConstraints(10, 150, 150, -1));
+        this.labelSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.labelSchedulingDiscipline.setHorizontalAlignment(SwingConstants.RIGHT);
+        this.labelSchedulingDiscipline.setText(this.translations.getString("VentanaNodo.Planificacion"));
+        this.panelAdvancedConfiguration.add(this.labelSchedulingDiscipline, new AbsoluteConstraints(10, 183, 140, -1));
+        this.comboBoxSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.panelAdvancedConfiguration.add(this.comboBoxSchedulingDiscipline, new AbsoluteConstraints(155, 180, 200, -1));
         this.panelTabs.addTab(translations.getString("VentanaLER.tabs.Advanced"), this.panelAdvancedConfiguration);
-        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 240));
+        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 270));
         this.panelButtons.setLayout(new AbsoluteLayout());
         this.buttonOK.setFont(new Font("Dialog", 0, 12));
         this.buttonOK.setIcon(this.imageBroker.getImageIcon(AvailableImages.ACCEPT));
@@ -305,8 +314,8 @@ public class JActiveLERWindow extends JDialog {
             }
         });
         this.panelButtons.add(this.buttonCancel, new AbsoluteConstraints(140, 15, 115, -1));
-        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 260, 400, 50));
-        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 310));
+        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 290, 400, 50));
+        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 340));
         pack();
     }
 
@@ -329,6 +338,13 @@ public class JActiveLERWindow extends JDialog {
         this.currentConfigName = "";
         this.currentConfigRoutingPower = 0;
         this.currentConfigBufferSize = 0;
+        this.currentConfigSchedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+        this.comboBoxSchedulingDiscipline.removeAllItems();
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PorDefecto"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.DRR"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.WFQ"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PrioridadEstricta"));
+        this.comboBoxSchedulingDiscipline.setSelectedIndex(TPortSet.DEFAULT_SCHEDULING);
         this.reconguration = false;
         this.currentConfigGenerateStatistics = false;
         this.comboBoxPredefinedOptions.removeAllItems();
@@ -456,6 +472,7 @@ public class JActiveLERWindow extends JDialog {
             this.activeLERNode.setName(this.currentConfigName);
             this.activeLERNode.setWellConfigured(true);
             this.activeLERNode.setBufferSizeInMBytes(this.currentConfigBufferSize);
+            this.activeLERNode.setSchedulingDiscipline(this.currentConfigSchedulingDiscipline);
             this.activeLERNode.setRoutingPowerInMbps(this.currentConfigRoutingPower);
             this.activeLERNode.setGenerateStats(this.currentConfigGenerateStatistics);
             this.activeLERNode.setDMGPSizeInKB(this.currentConfigDMGPSize);
@@ -481,6 +498,9 @@ public class JActiveLERWindow extends JDialog {
         }
         this.activeLERNode.setDMGPSizeInKB(this.sliderDMGPSize.getValue());
         this.activeLERNode.setBufferSizeInMBytes(this.sliderBufferSize.getValue());
+        if (this.comboBoxSchedulingDiscipline.getSelectedIndex() != this.currentConfigSchedulingDiscipline) {
+            this.activeLERNode.setSchedulingDiscipline(this.comboBoxSchedulingDiscipline.getSelectedIndex());
+        }
         this.activeLERNode.setRoutingPowerInMbps(this.sliderRoutingPower.getValue());
         this.activeLERNode.setGenerateStats(this.checkBoxQuickGenerateStatistics.isSelected());
         this.activeLERNode.setName(this.textFieldName.getText());
@@ -574,12 +594,16 @@ public class JActiveLERWindow extends JDialog {
             this.currentConfigName = activeLERNode.getName();
             this.currentConfigRoutingPower = activeLERNode.getRoutingPowerInMbps();
             this.currentConfigBufferSize = activeLERNode.getBufferSizeInMBytes();
+            this.currentConfigSchedulingDiscipline = activeLERNode.getSchedulingDiscipline();
             this.currentConfigDMGPSize = activeLERNode.getDMGPSizeInKB();
             this.sliderDMGPSize.setValue(this.currentConfigDMGPSize);
             this.checkBoxAdvancedGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.checkBoxQuickGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.sliderRoutingPower.setValue(this.currentConfigRoutingPower);
             this.sliderBufferSize.setValue(this.currentConfigBufferSize);
+            if (this.currentConfigSchedulingDiscipline <= TPortSet.STRICT_PRIORITY_SCHEDULING) {
+                this.comboBoxSchedulingDiscipline.setSelectedIndex(this.currentConfigSchedulingDiscipline);
+            }
             this.textFieldName.setText(this.currentConfigName);
             this.checkBoxShowName.setSelected(this.currentConfigShowName);
         }
@@ -594,6 +618,7 @@ public class JActiveLERWindow extends JDialog {
     private String currentConfigName;
     private int currentConfigRoutingPower;
     private int currentConfigBufferSize;
+    private int currentConfigSchedulingDiscipline;
     private boolean currentConfigGenerateStatistics;
     private int currentConfigDMGPSize;
     private boolean reconguration;
@@ -628,5 +653,7 @@ public class JActiveLERWindow extends JDialog {
     private JSlider sliderDMGPSize;
     private JComboBox comboBoxPredefinedOptions;
     private JCheckBox checkBoxShowName;
+    private JLabel labelSchedulingDiscipline;
+    private JComboBox<String> comboBoxSchedulingDiscipline;
     private ResourceBundle translations;
 }
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.gui.dialogs;
 
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.resources.images.AvailableImages;
 import com.manolodominguez.opensimmpls.resources.translations.AvailableBundles;
 import com.manolodominguez.opensimmpls.scenario.TActiveLSRNode;
@@ -121,6 +122,8 @@ public class JActiveLSRWindow extends JDialog {
         this.labelDMGPSize = new JLabel();
         this.sliderDMGPSize = new JSlider();
         this.labelDMGPSizeKB = new JLabel();
+        this.labelSchedulingDiscipline = new JLabel();
+        this.comboBoxSchedulingDiscipline = new JComboBox<>();
         this.panelButtons = new JPanel();
         this.buttonOK = new JButton();
         this.buttonCancel = new JButton();
@@ -216,7 +219,7 @@ public class JActiveLSRWindow extends JDialog {
                 handleClickOnAdvancedGenerateStatistics(evt);
             }
         });
-        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 180, -1, -1));
+        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 210, -1, -1));
         this.labelSwitchingPower.setFont(new Font("Dialog", 0, 12));
         this.labelSwitchingPower.setHorizontalAlignment(SwingConstants.RIGHT);
         this.labelSwitchingPower.setText(this.translations.getString("VentanaLSR.PotenciaConmutacion"));
@@ -280,8 +283,14 @@ public class JActiveLSRWindow extends JDialog {
         this.labelDMGPSizeKB.setHorizontalAlignment(SwingConstants.LEFT);
         this.labelDMGPSizeKB.setText(this.translations.getString("JVentanaLSRA.1_KB"));
         this.panelAdvancedConfiguration.add(this.labelDMGPSizeKB, new AbsoluteConstraints(300, 150, 60, 20));
+        this.labelSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.labelSchedulingDiscipline.setHorizontalAlignment(SwingConstants.RIGHT);
+        this.labelSchedulingDiscipline.setText(this.translations.getString("VentanaNodo.Planificacion"));
+        this.panelAdvancedConfiguration.add(this.labelSchedulingDiscipline, new AbsoluteConstraints(10, 183, 140, -1));
+        this.comboBoxSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.panelAdvancedConfiguration.add(this.comboBoxSchedulingDiscipline, new AbsoluteConstraints(155, 180, 200, -1));
         this.panelTabs.addTab(this.translations.getString("VentanaLSR.tabs.Advanced"), this.panelAdvancedConfiguration);
-        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 240));
+        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 270));
         this.panelButtons.setLayout(new AbsoluteLayout());
         this.buttonOK.setFont(new Font("Dialog", 0, 12));
         this.buttonOK.setIcon(this.imageBroker.getImageIcon(AvailableImages.ACCEPT));
@@ -305,8 +314,8 @@ public class JActiveLSRWindow extends JDialog {
             }
         });
         this.panelButtons.add(this.buttonCancel, new AbsoluteConstraints(140, 10, 105, -1));
-        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 260, 400, 60));
-        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 310));
+        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 290, 400, 60));
+        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 340));
         pack();
     }
 
@@ -329,6 +338,13 @@ public class JActiveLSRWindow extends JDialog {
         this.currentConfigName = "";
         this.currentConfigSwitchingPower = 0;
         this.currentConfigBufferSize = 0;
+        this.currentConfigSchedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+        this.comboBoxSchedulingDiscipline.removeAllItems();
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PorDefecto"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.DRR"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.WFQ"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PrioridadEstricta"));
+        this.comboBoxSchedulingDiscipline.setSelectedIndex(TPortSet.DEFAULT_SCHEDULING);
         this.currentConfigGenerateStatistics = false;
         this.reconguration = false;
         this.comboBoxPredefinedOptions.removeAllItems();
@@ -457,6 +473,7 @@ public class JActiveLSRWindow extends JDialog {
             this.activeLSRNode.setName(this.currentConfigName);
             this.activeLSRNode.setWellConfigured(true);
             this.activeLSRNode.setBufferSizeInMBytes(this.currentConfigBufferSize);
+            this.activeLSRNode.setSchedulingDiscipline(this.currentConfigSchedulingDiscipline);
             this.activeLSRNode.setGenerateStats(this.currentConfigGenerateStatistics);
             this.activeLSRNode.setSwitchingPowerInMbps(this.currentConfigSwitchingPower);
             this.activeLSRNode.setDMGPSizeInKB(this.currentConfigDMGPSize);
@@ -482,6 +499,9 @@ public class JActiveLSRWindow extends JDialog {
         }
         this.activeLSRNode.setDMGPSizeInKB(this.sliderDMGPSize.getValue());
         this.activeLSRNode.setBufferSizeInMBytes(this.sliderBufferSize.getValue());
+        if (this.comboBoxSchedulingDiscipline.getSelectedIndex() != this.currentConfigSchedulingDiscipline) {
+            this.activeLSRNode.setSchedulingDiscipline(this.comboBoxSchedulingDiscipline.getSelectedIndex());
+        }
         this.activeLSRNode.setSwitchingPowerInMbps(this.sliderSwitchingPower.getValue());
         this.activeLSRNode.setName(this.textFieldName.getText());
         this.activeLSRNode.setGenerateStats(this.checkBoxQuickGenerateStatistics.isSelected());
@@ -574,12 +594,16 @@ public class JActiveLSRWindow extends JDialog {
             this.currentConfigName = activeLSRNode.getName();
             this.currentConfigSwitchingPower = activeLSRNode.getSwitchingPowerInMbps();
             this.currentConfigBufferSize = activeLSRNode.getBufferSizeInMBytes();
+            this.currentConfigSchedulingDiscipline = activeLSRNode.getSchedulingDiscipline();
             this.currentConfigDMGPSize = activeLSRNode.getDMGPSizeInKB();
             this.sliderDMGPSize.setValue(this.currentConfigDMGPSize);
             this.checkBoxAdvancedGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.checkBoxQuickGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.sliderSwitchingPower.setValue(this.currentConfigSwitchingPower);
             this.sliderBufferSize.setValue(this.currentConfigBufferSize);
+            if (this.currentConfigSchedulingDiscipline <= TPortSet.STRICT_PRIORITY_SCHEDULING) {
+                this.comboBoxSchedulingDiscipline.setSelectedIndex(this.currentConfigSchedulingDiscipline);
+            }
             this.textFieldName.setText(this.currentConfigName);
             this.checkBoxShowName.setSelected(this.currentConfigShowName);
         }
@@ -594,6 +618,7 @@ public class JActiveLSRWindow extends JDialog {
     private String currentConfigName;
     private int currentConfigSwitchingPower;
     private int currentConfigBufferSize;
+    private int currentConfigSchedulingDiscipline;
     private boolean currentConfigGenerateStatistics;
     private int currentConfigDMGPSize;
     private boolean reconguration;
@@ -628,5 +653,7 @@ public class JActiveLSRWindow extends JDialog {
     private JSlider sliderDMGPSize;
     private JComboBox comboBoxPredefinedOptions;
     private JCheckBox checkBoxShowName;
+    private JLabel labelSchedulingDiscipline;
+    private JComboBox<String> comboBoxSchedulingDiscipline;
     private ResourceBundle translations;
 }
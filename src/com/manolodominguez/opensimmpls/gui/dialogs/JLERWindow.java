@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.gui.dialogs;
 
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.resources.images.AvailableImages;
 import com.manolodominguez.opensimmpls.resources.translations.AvailableBundles;
 import com.manolodominguez.opensimmpls.scenario.TLERNode;
@@ -118,6 +119,8 @@ public class JLERWindow extends JDialog {
         this.labelBufferSize = new JLabel();
         this.sliderBufferSize = new JSlider();
         this.labelBufferSizeMB = new JLabel();
+        this.labelSchedulingDiscipline = new JLabel();
+        this.comboBoxSchedulingDiscipline = new JComboBox<>();
         this.panelButtons = new JPanel();
         this.buttonOK = new JButton();
         this.buttonCancel = new JButton();
@@ -209,7 +212,7 @@ public class JLERWindow extends JDialog {
                 handleClickOnAdvancedGenerateStatistics(evt);
             }
         });
-        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 160, -1, -1));
+        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 190, -1, -1));
         this.labelAdvancedConfiguration.setIcon(this.imageBroker.getImageIcon(AvailableImages.ADVANCED));
         this.labelAdvancedConfiguration.setText(this.translations.getString("VentanaLER.ConfiguracionAvanzada"));
         this.panelAdvancedConfiguration.add(labelAdvancedConfiguration, new AbsoluteConstraints(15, 20, 335, -1));
@@ -255,8 +258,14 @@ public class JLERWindow extends JDialog {
         this.labelBufferSizeMB.setHorizontalAlignment(SwingConstants.LEFT);
         this.labelBufferSizeMB.setText(this.translations.getString("VentanaLER.1_MB"));
         this.panelAdvancedConfiguration.add(this.labelBufferSizeMB, new AbsoluteConstraints(300, 120, 60, 20));
+        this.labelSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.labelSchedulingDiscipline.setHorizontalAlignment(SwingConstants.RIGHT);
+        this.labelSchedulingDiscipline.setText(this.translations.getString("VentanaNodo.Planificacion"));
+        this.panelAdvancedConfiguration.add(this.labelSchedulingDiscipline, new AbsoluteConstraints(10, 163, 140, -1));
+        this.comboBoxSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.panelAdvancedConfiguration.add(this.comboBoxSchedulingDiscipline, new AbsoluteConstraints(155, 160, 200, -1));
         this.panelTabs.addTab(this.translations.getString("VentanaLER.tabs.Advanced"), this.panelAdvancedConfiguration);
-        this.panelPrincipal.add(panelTabs, new AbsoluteConstraints(15, 15, 370, 240));
+        this.panelPrincipal.add(panelTabs, new AbsoluteConstraints(15, 15, 370, 270));
         this.panelButtons.setLayout(new AbsoluteLayout());
         this.buttonOK.setFont(new Font("Dialog", 0, 12));
         this.buttonOK.setIcon(imageBroker.getImageIcon(AvailableImages.ACCEPT));
@@ -280,8 +289,8 @@ public class JLERWindow extends JDialog {
             }
         });
         this.panelButtons.add(this.buttonCancel, new AbsoluteConstraints(140, 15, 115, -1));
-        this.panelPrincipal.add(this.panelButtons, new AbsoluteConstraints(0, 255, 400, 55));
-        getContentPane().add(this.panelPrincipal, new AbsoluteConstraints(0, 0, -1, 310));
+        this.panelPrincipal.add(this.panelButtons, new AbsoluteConstraints(0, 285, 400, 55));
+        getContentPane().add(this.panelPrincipal, new AbsoluteConstraints(0, 0, -1, 340));
         pack();
     }
 
@@ -304,6 +313,13 @@ public class JLERWindow extends JDialog {
         this.currentConfigName = "";
         this.currentConfigRoutingPower = 0;
         this.currentConfigBufferSize = 0;
+        this.currentConfigSchedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+        this.comboBoxSchedulingDiscipline.removeAllItems();
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PorDefecto"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.DRR"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.WFQ"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PrioridadEstricta"));
+        this.comboBoxSchedulingDiscipline.setSelectedIndex(TPortSet.DEFAULT_SCHEDULING);
         this.reconguration = false;
         this.currentConfigGenerateStatistics = false;
         this.comboBoxPredefinedOptions.removeAllItems();
@@ -415,6 +431,7 @@ public class JLERWindow extends JDialog {
             this.lerNode.setName(this.currentConfigName);
             this.lerNode.setWellConfigured(true);
             this.lerNode.setBufferSizeInMBytes(this.currentConfigBufferSize);
+            this.lerNode.setSchedulingDiscipline(this.currentConfigSchedulingDiscipline);
             this.lerNode.setRoutingPowerInMbps(this.currentConfigRoutingPower);
             this.lerNode.setGenerateStats(this.currentConfigGenerateStatistics);
             this.reconguration = false;
@@ -438,6 +455,9 @@ public class JLERWindow extends JDialog {
             this.lerNode.setScreenPosition(new Point(this.coordinatesPanel.getRealX(), this.coordinatesPanel.getRealY()));
         }
         this.lerNode.setBufferSizeInMBytes(this.sliderBufferSize.getValue());
+        if (this.comboBoxSchedulingDiscipline.getSelectedIndex() != this.currentConfigSchedulingDiscipline) {
+            this.lerNode.setSchedulingDiscipline(this.comboBoxSchedulingDiscipline.getSelectedIndex());
+        }
         this.lerNode.setRoutingPowerInMbps(this.sliderRoutingPower.getValue());
         this.lerNode.setGenerateStats(this.checkBoxQuickGenerateStatistics.isSelected());
         this.lerNode.setName(this.textFieldName.getText());
@@ -529,10 +549,14 @@ public class JLERWindow extends JDialog {
             this.currentConfigName = lerNode.getName();
             this.currentConfigRoutingPower = lerNode.getRoutingPowerInMbps();
             this.currentConfigBufferSize = lerNode.getBufferSizeInMBytes();
+            this.currentConfigSchedulingDiscipline = lerNode.getSchedulingDiscipline();
             this.checkBoxAdvancedGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.checkBoxQuickGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.sliderRoutingPower.setValue(this.currentConfigRoutingPower);
             this.sliderBufferSize.setValue(this.currentConfigBufferSize);
+            if (this.currentConfigSchedulingDiscipline <= TPortSet.STRICT_PRIORITY_SCHEDULING) {
+                this.comboBoxSchedulingDiscipline.setSelectedIndex(this.currentConfigSchedulingDiscipline);
+            }
             this.textFieldName.setText(this.currentConfigName);
             this.checkBoxShowName.setSelected(this.currentConfigShowName);
         }
@@ -547,6 +571,7 @@ public class JLERWindow extends JDialog {
     private String currentConfigName;
     private int currentConfigRoutingPower;
     private int currentConfigBufferSize;
+    private int currentConfigSchedulingDiscipline;
     private boolean currentConfigGenerateStatistics;
     private boolean reconguration;
     private JLabel labelCoordinateX;
@@ -577,5 +602,7 @@ public class JLERWindow extends JDialog {
     private JSlider sliderBufferSize;
     private JComboBox comboBoxPredefinedOptions;
     private JCheckBox checkBoxShowName;
+    private JLabel labelSchedulingDiscipline;
+    private JComboBox<String> comboBoxSchedulingDiscipline;
     private ResourceBundle translations;
 }
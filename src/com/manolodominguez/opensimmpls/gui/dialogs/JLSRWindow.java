@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.gui.dialogs;
 
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.resources.images.AvailableImages;
 import com.manolodominguez.opensimmpls.resources.translations.AvailableBundles;
 import com.manolodominguez.opensimmpls.scenario.TLSRNode;
@@ -118,6 +119,8 @@ public class JLSRWindow extends JDialog {
         this.sliderBufferSize = new JSlider();
         this.labelSwitchingPowerMbps = new JLabel();
         this.labelBufferSizeMB = new JLabel();
+        this.labelSchedulingDiscipline = new JLabel();
+        this.comboBoxSchedulingDiscipline = new JComboBox<>();
         this.panelButtons = new JPanel();
         this.buttonOK = new JButton();
         this.buttonCancel = new JButton();
@@ -212,7 +215,7 @@ public class JLSRWindow extends JDialog {
                 handleClickOnAdvancedGenerateStatistics(evt);
             }
         });
-        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 160, -1, -1));
+        this.panelAdvancedConfiguration.add(this.checkBoxAdvancedGenerateStatistics, new AbsoluteConstraints(70, 190, -1, -1));
         this.labelSwitchingPower.setFont(new Font("Dialog", 0, 12));
         this.labelSwitchingPower.setHorizontalAlignment(SwingConstants.RIGHT);
         this.labelSwitchingPower.setText(this.translations.getString("VentanaLSR.PotenciaConmutacion"));
@@ -255,8 +258,14 @@ public class JLSRWindow extends JDialog {
         this.labelBufferSizeMB.setHorizontalAlignment(SwingConstants.LEFT);
         this.labelBufferSizeMB.setText(this.translations.getString("VentanaLSR.1_MB"));
         this.panelAdvancedConfiguration.add(this.labelBufferSizeMB, new AbsoluteConstraints(300, 120, 60, 20));
+        this.labelSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.labelSchedulingDiscipline.setHorizontalAlignment(SwingConstants.RIGHT);
+        this.labelSchedulingDiscipline.setText(this.translations.getString("VentanaNodo.Planificacion"));
+        this.panelAdvancedConfiguration.add(this.labelSchedulingDiscipline, new AbsoluteConstraints(10, 163, 140, -1));
+        this.comboBoxSchedulingDiscipline.setFont(new Font("Dialog", 0, 12));
+        this.panelAdvancedConfiguration.add(this.comboBoxSchedulingDiscipline, new AbsoluteConstraints(155, 160, 200, -1));
         this.panelTabs.addTab(this.translations.getString("VentanaLSR.tabs.Advanced"), this.panelAdvancedConfiguration);
-        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 240));
+        this.mainPanel.add(this.panelTabs, new AbsoluteConstraints(15, 15, 370, 270));
         this.panelButtons.setLayout(new AbsoluteLayout());
         this.buttonOK.setFont(new Font("Dialog", 0, 12));
         this.buttonOK.setIcon(this.imageBroker.getImageIcon(AvailableImages.ACCEPT));
@@ -280,8 +289,8 @@ public class JLSRWindow extends JDialog {
             }
         });
         this.panelButtons.add(this.buttonCancel, new AbsoluteConstraints(135, 15, 105, -1));
-        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 255, 400, 55));
-        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 310));
+        this.mainPanel.add(this.panelButtons, new AbsoluteConstraints(0, 285, 400, 55));
+        getContentPane().add(this.mainPanel, new AbsoluteConstraints(0, 0, -1, 340));
         pack();
     }
 
@@ -304,6 +313,13 @@ public class JLSRWindow extends JDialog {
         this.currentConfigName = "";
         this.currentConfigSwitchingPower = 0;
         this.currentConfigBufferSize = 0;
+        this.currentConfigSchedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+        this.comboBoxSchedulingDiscipline.removeAllItems();
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PorDefecto"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.DRR"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.WFQ"));
+        this.comboBoxSchedulingDiscipline.addItem(this.translations.getString("VentanaNodo.Planificacion.PrioridadEstricta"));
+        this.comboBoxSchedulingDiscipline.setSelectedIndex(TPortSet.DEFAULT_SCHEDULING);
         this.currentConfigGenerateStatistics = false;
         this.reconfiguration = false;
         this.comboBoxPredefinedOptions.removeAllItems();
@@ -415,6 +431,7 @@ public class JLSRWindow extends JDialog {
             this.lsrNode.setName(this.currentConfigName);
             this.lsrNode.setWellConfigured(true);
             this.lsrNode.setBufferSizeInMBytes(this.currentConfigBufferSize);
+            this.lsrNode.setSchedulingDiscipline(this.currentConfigSchedulingDiscipline);
             this.lsrNode.setGenerateStats(this.currentConfigGenerateStatistics);
             this.lsrNode.setSwitchingPowerInMbps(this.currentConfigSwitchingPower);
             this.reconfiguration = false;
@@ -438,6 +455,9 @@ public class JLSRWindow extends JDialog {
             this.lsrNode.setScreenPosition(new Point(this.coordinatesPanel.getRealX(), this.coordinatesPanel.getRealY()));
         }
         this.lsrNode.setBufferSizeInMBytes(this.sliderBufferSize.getValue());
+        if (this.comboBoxSchedulingDiscipline.getSelectedIndex() != this.currentConfigSchedulingDiscipline) {
+            this.lsrNode.setSchedulingDiscipline(this.comboBoxSchedulingDiscipline.getSelectedIndex());
+        }
         this.lsrNode.setSwitchingPowerInMbps(this.sliderSwitchingPower.getValue());
         this.lsrNode.setName(this.textFieldName.getText());
         this.lsrNode.setGenerateStats(this.checkBoxQuickGenerateStatistics.isSelected());
@@ -528,10 +548,14 @@ public class JLSRWindow extends JDialog {
             this.currentConfigName = lsrNode.getName();
             this.currentConfigSwitchingPower = lsrNode.getSwitchingPowerInMbps();
             this.currentConfigBufferSize = lsrNode.getBufferSizeInMBytes();
+            this.currentConfigSchedulingDiscipline = lsrNode.getSchedulingDiscipline();
             this.checkBoxAdvancedGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.checkBoxQuickGenerateStatistics.setSelected(this.currentConfigGenerateStatistics);
             this.sliderSwitchingPower.setValue(this.currentConfigSwitchingPower);
             this.sliderBufferSize.setValue(this.currentConfigBufferSize);
+            if (this.currentConfigSchedulingDiscipline <= TPortSet.STRICT_PRIORITY_SCHEDULING) {
+                this.comboBoxSchedulingDiscipline.setSelectedIndex(this.currentConfigSchedulingDiscipline);
+            }
             this.textFieldName.setText(this.currentConfigName);
             this.checkBoxShowName.setSelected(this.currentConfigShowName);
         }
@@ -546,6 +570,7 @@ public class JLSRWindow extends JDialog {
     private String currentConfigName;
     private int currentConfigSwitchingPower;
     private int currentConfigBufferSize;
+    private int currentConfigSchedulingDiscipline;
     private boolean currentConfigGenerateStatistics;
     private boolean reconfiguration;
     private JLabel labelCoordinateX;
@@ -576,5 +601,7 @@ public class JLSRWindow extends JDialog {
     private JSlider sliderBufferSize;
     private JComboBox comboBoxPredefinedOptions;
     private JCheckBox checkBoxShowName;
+    private JLabel labelSchedulingDiscipline;
+    private JComboBox<String> comboBoxSchedulingDiscipline;
     private ResourceBundle translations;
 }
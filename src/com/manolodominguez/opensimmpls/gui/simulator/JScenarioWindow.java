@@ -16,6 +16,8 @@
 package com.manolodominguez.opensimmpls.gui.simulator;
 
 import com.manolodominguez.opensimmpls.hardware.timer.EProgressEventGeneratorOnlyAllowASingleListener;
+import com.manolodominguez.opensimmpls.hardware.timer.IProgressEventListener;
+import com.manolodominguez.opensimmpls.hardware.timer.TProgressEvent;
 import com.manolodominguez.opensimmpls.hardware.timer.TTimestamp;
 import com.manolodominguez.opensimmpls.io.osm.TOSMSaver;
 import com.manolodominguez.opensimmpls.resources.images.AvailableImages;
@@ -49,6 +51,7 @@ import com.manolodominguez.opensimmpls.gui.utils.TImageBroker;
 import com.manolodominguez.opensimmpls.gui.utils.JOSMFilter;
 import com.manolodominguez.opensimmpls.gui.utils.TProgressEventListener;
 import com.manolodominguez.opensimmpls.gui.utils.JScrollablePanel;
+import com.manolodominguez.opensimmpls.io.trace.TTraceReader;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Cursor;
@@ -67,6 +70,7 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.io.File;
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.ResourceBundle;
 import javax.swing.DefaultComboBoxModel;
@@ -86,6 +90,7 @@ import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.border.BevelBorder;
 import javax.swing.border.EtchedBorder;
 import javax.swing.border.TitledBorder;
@@ -163,7 +168,9 @@ public class JScenarioWindow extends JInternalFrame {
         this.iconContainerStopSimulation = new JLabel();
         this.iconContainerResumeSimulation = new JLabel();
         this.iconContainerPauseSimulation = new JLabel();
+        this.iconContainerReplayTrace = new JLabel();
         this.progressBarSimulation = new JProgressBar();
+        this.sliderReplayPosition = new JSlider();
         this.sliderSimulationSpeedInMsPerTick = new JSlider();
         this.labelSimulationSpeedFaster = new JLabel();
         this.labelSimulationSpeedSlower = new JLabel();
@@ -871,11 +878,34 @@ public class JScenarioWindow extends JInternalFrame {
             }
         });
         this.simulationToolbarPanel.add(this.iconContainerPauseSimulation);
+        this.iconContainerReplayTrace.setIcon(this.imageBroker.getImageIcon(AvailableImages.OPEN_MENU_COLOR));
+        this.iconContainerReplayTrace.setToolTipText(this.translations.getString("VentanaHija.Topic.ReproducirTraza"));
+        this.iconContainerReplayTrace.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent evt) {
+                handleClickOnReplayTraceIcon(evt);
+            }
+        });
+        this.simulationToolbarPanel.add(this.iconContainerReplayTrace);
         // FIX: Do not use harcoded values. Use class constants instead
         this.progressBarSimulation.setFont(new Font("Dialog", 0, 12));
         this.progressBarSimulation.setToolTipText(this.translations.getString("VentanaHija.BarraProgreso.tooltip"));
         this.progressBarSimulation.setStringPainted(true);
         this.simulationToolbarPanel.add(this.progressBarSimulation);
+        this.sliderReplayPosition.setMinimum(0);
+        this.sliderReplayPosition.setMaximum(REPLAY_POSITION_STEPS);
+        this.sliderReplayPosition.setValue(0);
+        this.sliderReplayPosition.setEnabled(false);
+        this.sliderReplayPosition.setToolTipText(this.translations.getString("VentanaHija.Simulacion.PosicionReproduccion.tooltip"));
+        // FIX: Do not use harcoded values. Use class constants instead
+        this.sliderReplayPosition.setPreferredSize(new Dimension(100, 20));
+        this.sliderReplayPosition.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent evt) {
+                handleChangeOnReplayPosition(evt);
+            }
+        });
+        this.simulationToolbarPanel.add(this.sliderReplayPosition);
         // FIX: Do not use harcoded values. Use class constants instead
         this.labelSimulationSpeedFaster.setFont(new Font("Dialog", 0, 10));
         // FIX: Do not use harcoded values. Use class constants instead
@@ -1332,7 +1362,125 @@ public class JScenarioWindow extends JInternalFrame {
      */
     private void handelChangeInSimulationSpeedInMsPerTick(ChangeEvent evt) {
         this.labelSimulationSpeedFaster.setText(this.translations.getString("VentanaHija.Simulacion.etiquetaMsTic"));
-        this.simulationPanel.setSimulationSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
+        this.scenario.getSimulation().setVisualizationSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
+        if (this.tracePlayer != null) {
+            this.tracePlayer.setPlaybackSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
+        }
+    }
+
+    /**
+     * This method is called when the user moves the replay position slider in
+     * the simulation panel. It moves the replay of the trace to the
+     * corresponding time instant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param evt The event that triggers this method
+     * @since 2.0
+     */
+    private void handleChangeOnReplayPosition(ChangeEvent evt) {
+        if ((this.tracePlayer != null) && !this.sliderReplayPosition.getValueIsAdjusting() && !this.showingReplayPosition) {
+            long firstInstant = this.tracePlayer.getFirstInstant();
+            long lastInstant = this.tracePlayer.getLastInstant();
+            this.tracePlayer.seek(firstInstant + (((lastInstant - firstInstant) * this.sliderReplayPosition.getValue()) / REPLAY_POSITION_STEPS));
+        }
+    }
+
+    /**
+     * This method moves the replay position slider to the position of the
+     * trace being replayed, without moving the replay. It has to be called
+     * from the event dispatch thread. The slider is not moved while the user
+     * is dragging it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param progressPercentage the percentage of the time span of the trace
+     * that has been replayed.
+     * @since 2.0
+     */
+    private void showReplayPosition(int progressPercentage) {
+        if ((this.tracePlayer != null) && !this.sliderReplayPosition.getValueIsAdjusting()) {
+            this.showingReplayPosition = true;
+            this.sliderReplayPosition.setValue((progressPercentage * REPLAY_POSITION_STEPS) / 100);
+            this.showingReplayPosition = false;
+        }
+    }
+
+    /**
+     * This method is called when the user does click on the "Replay trace"
+     * icon in the simulation panel. It asks for a trace recorded from this
+     * scenario and replays it in the simulation panel, without simulating.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param evt The event that triggers this method
+     * @since 2.0
+     */
+    private void handleClickOnReplayTraceIcon(MouseEvent evt) {
+        if (!this.iconContainterStartSimulation.isEnabled()) {
+            return;
+        }
+        JFileChooser openDialog = new JFileChooser();
+        openDialog.setDialogType(JFileChooser.CUSTOM_DIALOG);
+        openDialog.setApproveButtonText(this.translations.getString("JVentanaHija.DialogoReproducir.OK"));
+        openDialog.setDialogTitle(this.translations.getString("VentanaHija.Topic.ReproducirTraza"));
+        openDialog.setFileSelectionMode(JFileChooser.FILES_ONLY);
+        if (openDialog.showOpenDialog(this.parent) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        try {
+            this.traceReader = new TTraceReader(openDialog.getSelectedFile());
+        } catch (IOException e) {
+            JErrorWindow errorWindow = new JErrorWindow(this.parent, true, this.imageBroker);
+            errorWindow.setErrorMessage(this.translations.getString("VentanaHija.TrazaNoValida") + e.getMessage());
+            errorWindow.setVisible(true);
+            return;
+        }
+        // The scenario is not simulated while the trace is replayed, so the
+        // simulation panel is fed only by the trace player.
+        this.scenario.getSimulation().setSimulationPanel(null);
+        this.simulationPanel.reset();
+        this.simulationPanel.repaint();
+        this.tracePlayer = new TTracePlayer(this.traceReader, this.scenario.getTopology(), this.simulationPanel);
+        this.tracePlayer.setPlaybackSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
+        this.tracePlayer.setProgressEventListener(new IProgressEventListener() {
+            @Override
+            public void receiveProgressEvent(TProgressEvent progressEvent) {
+                SwingUtilities.invokeLater(() -> showReplayPosition(progressEvent.getProgressPercentage()));
+            }
+        });
+        this.showingReplayPosition = true;
+        this.sliderReplayPosition.setValue(0);
+        this.showingReplayPosition = false;
+        this.sliderReplayPosition.setEnabled(true);
+        this.iconContainerReplayTrace.setEnabled(false);
+        this.tracePlayer.start();
+        activeOptionsAfterStart();
+    }
+
+    /**
+     * This method stops the replay of a trace, if any, and connects the
+     * simulation panel to the simulation of the scenario again. The trace is
+     * closed once the thread of the player has finished.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void stopReplay() {
+        if (this.tracePlayer != null) {
+            this.tracePlayer.stop();
+            this.tracePlayer = null;
+            try {
+                this.traceReader.close();
+            } catch (IOException e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+            }
+            this.traceReader = null;
+            this.sliderReplayPosition.setEnabled(false);
+            this.iconContainerReplayTrace.setEnabled(true);
+            this.simulationPanel.reset();
+            this.simulationPanel.repaint();
+            this.scenario.getSimulation().setSimulationPanel(this.simulationPanel);
+            this.scenario.getSimulation().setVisualizationSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
+        }
     }
 
     /**
@@ -1447,6 +1595,10 @@ public class JScenarioWindow extends JInternalFrame {
         this.timingControlDisabled = true;
         long simulationLength = scenario.getSimulation().getSimulationLengthInNs();
         long simulationTickDurationInNs = scenario.getSimulation().getSimulationTickDurationInNs();
+        if (this.scenario != null) {
+            stopReplay();
+            this.scenario.getSimulation().setSimulationPanel(null);
+        }
         this.scenario = scenario;
         this.designPanel.setTopology(scenario.getTopology());
         this.simulationPanel.setTopology(scenario.getTopology());
@@ -1479,6 +1631,7 @@ public class JScenarioWindow extends JInternalFrame {
         this.textAreaOptionsScenarioDescription.setCaretPosition(1);
         this.timingControlDisabled = false;
         this.scenario.getSimulation().setSimulationPanel(this.simulationPanel);
+        this.scenario.getSimulation().setVisualizationSpeedInMsPerTick(this.sliderSimulationSpeedInMsPerTick.getValue());
         this.controlTimingOptions();
     }
 
@@ -2319,7 +2472,11 @@ public class JScenarioWindow extends JInternalFrame {
      */
     private void handleClickOnPauseIcon(MouseEvent evt) {
         if (this.iconContainerPauseSimulation.isEnabled()) {
-            this.scenario.getTopology().getTimer().setPaused(true);
+            if (this.tracePlayer != null) {
+                this.tracePlayer.pause();
+            } else {
+                this.scenario.getTopology().getTimer().setPaused(true);
+            }
             activeOptionsAfterPause();
         }
     }
@@ -2334,7 +2491,11 @@ public class JScenarioWindow extends JInternalFrame {
      */
     private void handleClickOnStopIcon(MouseEvent evt) {
         if (this.iconContainerStopSimulation.isEnabled()) {
-            this.scenario.getTopology().getTimer().reset();
+            if (this.tracePlayer != null) {
+                stopReplay();
+            } else {
+                this.scenario.getTopology().getTimer().reset();
+            }
             activeOptionsAfterStop();
         }
     }
@@ -2350,8 +2511,12 @@ public class JScenarioWindow extends JInternalFrame {
     private void handleClickOnResumeIcon(MouseEvent evt) {
         if (this.iconContainerResumeSimulation.isEnabled()) {
             activeOptionsAfterResume();
-            this.scenario.getTopology().getTimer().setPaused(false);
-            this.scenario.getTopology().getTimer().restart();
+            if (this.tracePlayer != null) {
+                this.tracePlayer.resume();
+            } else {
+                this.scenario.getTopology().getTimer().setPaused(false);
+                this.scenario.getTopology().getTimer().restart();
+            }
         }
     }
 
@@ -2375,6 +2540,7 @@ public class JScenarioWindow extends JInternalFrame {
             this.scenario.getTopology().getTimer().reset();
             this.simulationPanel.reset();
             this.simulationPanel.repaint();
+            this.scenario.getSimulation().setEventAggregation(this.scenario.getTopology().getNumberOfNodes() >= JScenarioWindow.EVENT_AGGREGATION_MINIMUM_NUMBER_OF_NODES);
             this.scenario.simulate();
             int minimumDelay = this.scenario.getTopology().getMinimumDelay();
             int currentTickDurationInNs = this.sliderOptionsTickDurationInNs.getValue();
@@ -2471,6 +2637,8 @@ public class JScenarioWindow extends JInternalFrame {
      * @since 2.0
      */
     public void close() {
+        stopReplay();
+        this.scenario.getSimulation().setSimulationPanel(null);
         this.setVisible(false);
         this.dispose();
     }
@@ -2757,8 +2925,14 @@ public class JScenarioWindow extends JInternalFrame {
         this.scenario.setDescription(this.textAreaOptionsScenarioDescription.getText());
     }
 
+    private static final int REPLAY_POSITION_STEPS = 1000;
+    private static final int EVENT_AGGREGATION_MINIMUM_NUMBER_OF_NODES = 100;
+
     private TProgressEventListener progressEventListener;
     private TScenario scenario;
+    private TTracePlayer tracePlayer;
+    private boolean showingReplayPosition;
+    private TTraceReader traceReader;
     private TNode selectedNode;
     private TImageBroker imageBroker;
     private JOpenSimMPLS parent;
@@ -2801,6 +2975,7 @@ public class JScenarioWindow extends JInternalFrame {
     private JLabel iconContainerLSR;
     private JLabel iconContainerActiveLSR;
     private JLabel iconContainerPauseSimulation;
+    private JLabel iconContainerReplayTrace;
     private JLabel iconContainerResumeSimulation;
     private JLabel iconContainerTrafficSink;
     private JLabel labelSelectANodeToAnalyze;
@@ -2818,6 +2993,7 @@ public class JScenarioWindow extends JInternalFrame {
     private JSeparator separatorPopupMenuBackgroundDesignPanel;
     private JTabbedPane tabsPanel;
     private JSlider sliderSimulationSpeedInMsPerTick;
+    private JSlider sliderReplayPosition;
     private JTextField textFieldOptionsScenarioAuthorName;
     private JTextField textFieldOptionsScenarioTitle;
     private JScrollablePanel analysisPanel;
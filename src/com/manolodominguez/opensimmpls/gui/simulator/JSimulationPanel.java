@@ -27,6 +27,7 @@ import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEven
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketRouted;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSwitched;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketsAggregated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.TTopology;
 import com.manolodominguez.opensimmpls.scenario.TLink;
@@ -102,8 +103,6 @@ public class JSimulationPanel extends JPanel {
         this.simulationBuffer = new TreeSet();
         // FIX: Do not use harcoded values. Use class constants instead.
         this.currentTick = 0;
-        // FIX: Do not use harcoded values. Use class constants instead.
-        this.simulationSpeedInMsPerTick = 0;
         this.showLegend = false;
         this.eventsBuffersLock = new TLock();
     }
@@ -446,24 +445,11 @@ public class JSimulationPanel extends JPanel {
         }
     }
 
-    /**
-     * This method set the number of Ms between subsequents repaints of the
-     * simulation. In fact this allow the user to set the simulation speed that,
-     * by default is too fast as to see something clearly in the simulation
-     * panel.
-     *
-     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
-     * @param simulationSpeedInMsPerTick The number of Ms that the simulation
-     * will wait until next tick is painted in the panel.
-     * @since 2.0
-     */
-    public void setSimulationSpeedInMsPerTick(int simulationSpeedInMsPerTick) {
-        this.simulationSpeedInMsPerTick = simulationSpeedInMsPerTick;
-    }
-
     /**
      * This method queues a new simulation event to be painted in the simulation
-     * panel when needed.
+     * panel when needed. It is called from a single thread, the consumer of
+     * the simulation event bus, that is also in charge of waiting between
+     * subsequent ticks, so it never waits.
      *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @param simulationEvent a new simulation event to be painted in the
@@ -493,13 +479,6 @@ public class JSimulationPanel extends JPanel {
             this.eventsBuffersLock.unLock();
             repaint();
             this.eventsBuffer.add(simulationEvent);
-            try {
-                // FIX: Do not use static access to sleep() method
-                Thread.currentThread().sleep(this.simulationSpeedInMsPerTick);
-            } catch (Exception e) {
-                // FIX: This is ugly.
-                e.printStackTrace();
-            }
         }
     }
 
@@ -597,6 +576,8 @@ public class JSimulationPanel extends JPanel {
                         Point nodePosition = node.getScreenPosition();
                         // FIX: Do not use harcoded values. Use class constants instead.
                         graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_SWITCHED), nodePosition.x + 40, nodePosition.y - 16, null);
+                    } else if (event.getSubtype() == TSimulationEvent.PACKETS_AGGREGATED) {
+                        paintAggregatedPacketsEvent(graphics2D, (TSimulationEventPacketsAggregated) event);
                     }
                 }
             }
@@ -607,6 +588,136 @@ public class JSimulationPanel extends JPanel {
         this.eventsBuffersLock.unLock();
     }
 
+    /**
+     * This method paints a summary of the packets a topology element has
+     * handled in the current tick. The same icon used for a single packet is
+     * painted together with the number of packets. Counters of different
+     * packet types are painted one above the other.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param graphics2D the place where the topology is going to be painted.
+     * @param simulationEventPacketsAggregated the summary to be painted.
+     * @since 2.0
+     */
+    private void paintAggregatedPacketsEvent(Graphics2D graphics2D, TSimulationEventPacketsAggregated simulationEventPacketsAggregated) {
+        String numberOfPackets = String.valueOf(simulationEventPacketsAggregated.getNumberOfPackets());
+        int packetType = simulationEventPacketsAggregated.getPacketType();
+        if (simulationEventPacketsAggregated.getAggregatedSubtype() == TSimulationEvent.PACKET_ON_FLY) {
+            TLink link = (TLink) simulationEventPacketsAggregated.getSource();
+            // FIX: Do not use harcoded values. Use class constants instead.
+            Point packetPosition = link.getScreenPacketPosition(20 + (10 * packetType));
+            switch (packetType) {
+                case TAbstractPDU.GPSRP: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_GOS), packetPosition.x - 14, packetPosition.y - 14, null);
+                    break;
+                }
+                case TAbstractPDU.TLDP: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_LDP), packetPosition.x - 8, packetPosition.y - 8, null);
+                    break;
+                }
+                case TAbstractPDU.IPV4: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_IPV4), packetPosition.x - 8, packetPosition.y - 8, null);
+                    break;
+                }
+                case TAbstractPDU.IPV4_GOS: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_IPV4_GOS), packetPosition.x - 8, packetPosition.y - 8, null);
+                    break;
+                }
+                case TAbstractPDU.MPLS: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_MPLS), packetPosition.x - 8, packetPosition.y - 8, null);
+                    break;
+                }
+                case TAbstractPDU.MPLS_GOS: {
+                    // FIX: Do not use harcoded values. Use class constants instead.
+                    graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_MPLS_GOS), packetPosition.x - 8, packetPosition.y - 8, null);
+                    break;
+                }
+            }
+            graphics2D.setColor(Color.BLACK);
+            // FIX: Do not use harcoded values. Use class constants instead.
+            graphics2D.drawString(numberOfPackets, packetPosition.x + 10, packetPosition.y + 4);
+            return;
+        }
+        TNode node = (TNode) simulationEventPacketsAggregated.getSource();
+        Point nodePosition = node.getScreenPosition();
+        // FIX: Do not use harcoded values. Use class constants instead.
+        int iconX = nodePosition.x + 40;
+        switch (simulationEventPacketsAggregated.getAggregatedSubtype()) {
+            case TSimulationEvent.PACKET_GENERATED: {
+                // FIX: Do not use harcoded values. Use class constants instead.
+                iconX = nodePosition.x + 8;
+                graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_GENERATED), iconX, nodePosition.y - 16, null);
+                break;
+            }
+            case TSimulationEvent.PACKET_SENT: {
+                // FIX: Do not use harcoded values. Use class constants instead.
+                iconX = nodePosition.x + 24;
+                graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_SENT), iconX, nodePosition.y - 16, null);
+                break;
+            }
+            case TSimulationEvent.PACKET_RECEIVED: {
+                // FIX: Do not use harcoded values. Use class constants instead.
+                iconX = nodePosition.x - 8;
+                graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_RECEIVED), iconX, nodePosition.y - 16, null);
+                break;
+            }
+            case TSimulationEvent.PACKET_SWITCHED: {
+                graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_SWITCHED), iconX, nodePosition.y - 16, null);
+                break;
+            }
+            case TSimulationEvent.PACKET_ROUTED: {
+                graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PACKET_SWITCHED), iconX, nodePosition.y - 16, null);
+                break;
+            }
+            case TSimulationEvent.PACKET_DISCARDED: {
+                switch (packetType) {
+                    case TAbstractPDU.GPSRP: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_GOS_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                    case TAbstractPDU.TLDP: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_LDP_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                    case TAbstractPDU.IPV4: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_IPV4_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                    case TAbstractPDU.IPV4_GOS: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_IPV4_GOS_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                    case TAbstractPDU.MPLS: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_MPLS_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                    case TAbstractPDU.MPLS_GOS: {
+                        // FIX: Do not use harcoded values. Use class constants instead.
+                        graphics2D.drawImage(this.imageBroker.getImage(AvailableImages.PDU_MPLS_GOS_DISCARDED), nodePosition.x, nodePosition.y + 24, null);
+                        break;
+                    }
+                }
+                graphics2D.setColor(Color.RED);
+                // FIX: Do not use harcoded values. Use class constants instead.
+                graphics2D.drawString(numberOfPackets, nodePosition.x + 24, nodePosition.y + 36 + (10 * packetType));
+                return;
+            }
+        }
+        graphics2D.setColor(Color.BLACK);
+        // FIX: Do not use harcoded values. Use class constants instead.
+        graphics2D.drawString(numberOfPackets, iconX, nodePosition.y - 18 - (10 * packetType));
+    }
+
     /**
      * This method paints events related to the nodes of the topology.
      *
@@ -977,7 +1088,6 @@ public class JSimulationPanel extends JPanel {
     private TreeSet simulationBuffer;
     private long currentTick;
     private TLock eventsBuffersLock;
-    private int simulationSpeedInMsPerTick;
     private boolean showLegend;
     private ResourceBundle translations;
 
@@ -0,0 +1,447 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.gui.simulator;
+
+import com.manolodominguez.opensimmpls.commons.EIDGeneratorOverflow;
+import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
+import com.manolodominguez.opensimmpls.hardware.timer.IProgressEventListener;
+import com.manolodominguez.opensimmpls.hardware.timer.TProgressEvent;
+import com.manolodominguez.opensimmpls.io.trace.TTraceReader;
+import com.manolodominguez.opensimmpls.io.trace.TTraceRecord;
+import com.manolodominguez.opensimmpls.io.trace.TTraceTimeIndex;
+import com.manolodominguez.opensimmpls.scenario.TLink;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import java.util.HashMap;
+
+/**
+ * This class implements a player that replays a binary trace, recorded by
+ * TTraceWriter, in a simulation panel. Simulation events are read from the
+ * trace file and delivered to the panel as if the scenario was being
+ * simulated, but without simulating anything. The replay can be paused,
+ * resumed and moved to any time instant of the trace, and its speed can be
+ * changed at any moment. Seeking uses a binary search if the trace is sorted
+ * by time instant or, otherwise, a sparse time index that the player builds
+ * the first time it is needed. Either way, it is done by the thread of the
+ * player, not by the caller of seek().
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTracePlayer implements Runnable {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTracePlayer. The replay does not start until start() is called.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceReader the reader of the trace to be replayed.
+     * @param topology the topology of the scenario the trace was recorded
+     * from. Records of elements that are not in this topology are skipped.
+     * @param simulationPanel the simulation panel where the trace will be
+     * replayed.
+     * @since 2.0
+     */
+    public TTracePlayer(TTraceReader traceReader, TTopology topology, JSimulationPanel simulationPanel) {
+        this.traceReader = traceReader;
+        this.timeIndex = null;
+        this.simulationPanel = simulationPanel;
+        this.nodes = new HashMap<>();
+        for (TNode node : topology.getNodesAsArray()) {
+            this.nodes.put(node.getNodeID(), node);
+        }
+        this.links = new HashMap<>();
+        for (TLink link : topology.getLinksAsArray()) {
+            this.links.put(link.getID(), link);
+        }
+        this.nextRecord = 0;
+        this.currentInstant = NO_INSTANT;
+        this.pendingSeekInstant = NO_INSTANT;
+        this.playbackSpeedInMsPerTick = 0;
+        this.numberOfSkippedRecords = 0;
+        this.progressEventListener = null;
+        this.progressIdentifierGenerator = new TLongIDGenerator();
+        this.progressPercentage = NO_PROGRESS;
+        this.paused = false;
+        this.steppingOneInstant = false;
+        this.running = false;
+        this.thread = null;
+    }
+
+    /**
+     * This method starts replaying the trace from its current position.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void start() {
+        if (this.thread == null) {
+            this.running = true;
+            this.thread = new Thread(this);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+    }
+
+    /**
+     * This method stops the replay and waits for the thread of the player to
+     * finish, so that the trace reader can be closed safely afterwards. Once
+     * stopped, the player cannot be started again.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void stop() {
+        Thread playerThread;
+        synchronized (this) {
+            this.running = false;
+            playerThread = this.thread;
+            this.thread = null;
+            notifyAll();
+        }
+        if ((playerThread != null) && (playerThread != Thread.currentThread())) {
+            playerThread.interrupt();
+            try {
+                playerThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * This method sets the listener that will receive the progress of the
+     * replay, as the percentage of the time span of the trace that has been
+     * replayed. A progress event is sent each time that percentage changes.
+     * It is sent from the thread of the player.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param progressEventListener the listener of the progress of the
+     * replay, or null to remove it.
+     * @since 2.0
+     */
+    public void setProgressEventListener(IProgressEventListener progressEventListener) {
+        this.progressEventListener = progressEventListener;
+    }
+
+    /**
+     * This method pauses the replay. The simulation panel keeps showing the
+     * current time instant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void pause() {
+        this.paused = true;
+    }
+
+    /**
+     * This method resumes the replay after a pause.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void resume() {
+        this.paused = false;
+        this.steppingOneInstant = false;
+        notifyAll();
+    }
+
+    /**
+     * This method checks whether the replay is paused.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if the replay is paused. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public synchronized boolean isPaused() {
+        return this.paused;
+    }
+
+    /**
+     * This method moves the replay to the specified time instant. The
+     * simulation panel is cleared and the replay continues from the first
+     * record of that time instant or later. If the replay is paused, only
+     * that time instant is replayed, so that it is displayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the time instant where the replay has to continue.
+     * @since 2.0
+     */
+    public synchronized void seek(long instant) {
+        if (instant < 0) {
+            instant = 0;
+        }
+        this.pendingSeekInstant = instant;
+        this.steppingOneInstant = this.paused;
+        notifyAll();
+    }
+
+    /**
+     * This method sets the number of milliseconds each time instant of the
+     * trace is displayed before the next one is replayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param playbackSpeedInMsPerTick the number of milliseconds each time
+     * instant is displayed. 0 replays the trace as fast as possible.
+     * @since 2.0
+     */
+    public void setPlaybackSpeedInMsPerTick(int playbackSpeedInMsPerTick) {
+        this.playbackSpeedInMsPerTick = playbackSpeedInMsPerTick;
+    }
+
+    /**
+     * This method gets the time instant being replayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the time instant being replayed, or -1 if nothing has been
+     * replayed since the start or the last seek.
+     * @since 2.0
+     */
+    public long getCurrentInstant() {
+        return this.currentInstant;
+    }
+
+    /**
+     * This method gets the first time instant of the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the first time instant of the trace.
+     * @since 2.0
+     */
+    public long getFirstInstant() {
+        return this.traceReader.getFirstInstant();
+    }
+
+    /**
+     * This method gets the last time instant of the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the last time instant of the trace.
+     * @since 2.0
+     */
+    public long getLastInstant() {
+        return this.traceReader.getLastInstant();
+    }
+
+    /**
+     * This method checks whether every record of the trace has been replayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if the end of the trace has been reached. Otherwise,
+     * FALSE.
+     * @since 2.0
+     */
+    public synchronized boolean isFinished() {
+        return this.nextRecord >= this.traceReader.getNumberOfRecords();
+    }
+
+    /**
+     * This method gets the number of records that have been skipped because
+     * their topology element is not in the topology or their simulation event
+     * cannot be rebuilt.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of records skipped.
+     * @since 2.0
+     */
+    public long getNumberOfSkippedRecords() {
+        return this.numberOfSkippedRecords;
+    }
+
+    /**
+     * This method is the thread of the player. It reads records of the trace
+     * one by one and delivers the corresponding simulation events to the
+     * simulation panel, waiting the playback time each time the time instant
+     * advances.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void run() {
+        long numberOfRecords = this.traceReader.getNumberOfRecords();
+        while (true) {
+            long recordIndex = 0;
+            boolean stepping = false;
+            long seekInstant;
+            synchronized (this) {
+                while (this.running && (this.pendingSeekInstant == NO_INSTANT) && ((this.paused && !this.steppingOneInstant) || (this.nextRecord >= numberOfRecords))) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // stop() interrupts the player. The loop condition
+                        // checks whether it is still running.
+                    }
+                }
+                if (!this.running) {
+                    return;
+                }
+                seekInstant = this.pendingSeekInstant;
+                this.pendingSeekInstant = NO_INSTANT;
+                if (seekInstant == NO_INSTANT) {
+                    recordIndex = this.nextRecord;
+                    this.nextRecord++;
+                    stepping = this.steppingOneInstant;
+                }
+            }
+            if (seekInstant != NO_INSTANT) {
+                // Searching the trace may take a while, so it is done without
+                // holding the monitor that pause() and seek() need.
+                long firstRecord = this.findFirstRecordFrom(seekInstant);
+                synchronized (this) {
+                    if (this.pendingSeekInstant == NO_INSTANT) {
+                        this.nextRecord = firstRecord;
+                    }
+                }
+                this.currentInstant = NO_INSTANT;
+                this.progressPercentage = NO_PROGRESS;
+                this.simulationPanel.reset();
+                this.simulationPanel.repaint();
+                continue;
+            }
+            TTraceRecord record = this.traceReader.getRecord(recordIndex);
+            TSimulationEvent simulationEvent = null;
+            TTopologyElement source = this.getElement(record);
+            if (source != null) {
+                simulationEvent = record.toSimulationEvent(source);
+            }
+            if (simulationEvent == null) {
+                this.numberOfSkippedRecords++;
+                continue;
+            }
+            if (record.getInstant() > this.currentInstant) {
+                if (stepping && (this.currentInstant != NO_INSTANT)) {
+                    // The simulation panel displays a time instant when it
+                    // receives the first simulation event of the next one.
+                    this.simulationPanel.addEvent(simulationEvent);
+                    synchronized (this) {
+                        this.steppingOneInstant = false;
+                    }
+                    this.currentInstant = record.getInstant();
+                    this.generateProgressEvent();
+                    continue;
+                }
+                if ((this.currentInstant != NO_INSTANT) && (this.playbackSpeedInMsPerTick > 0) && !stepping) {
+                    try {
+                        Thread.sleep(this.playbackSpeedInMsPerTick);
+                    } catch (InterruptedException e) {
+                        // stop() interrupts the player.
+                        continue;
+                    }
+                }
+                this.currentInstant = record.getInstant();
+                this.generateProgressEvent();
+            }
+            this.simulationPanel.addEvent(simulationEvent);
+        }
+    }
+
+    /**
+     * This method finds the first record whose time instant is equal or later
+     * than the specified one. A binary search is used if the trace is sorted
+     * by time instant. Otherwise, the sparse time index of the trace is used,
+     * building it if this is the first seek.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the time instant to search for.
+     * @return the position of the first record whose time instant is equal or
+     * later than the specified one, or the number of records if there is not
+     * such record.
+     * @since 2.0
+     */
+    private long findFirstRecordFrom(long instant) {
+        if (this.traceReader.isSortedByInstant()) {
+            return this.traceReader.findFirstRecordFrom(instant);
+        }
+        if (this.timeIndex == null) {
+            this.timeIndex = new TTraceTimeIndex(this.traceReader);
+        }
+        return this.timeIndex.seek(instant);
+    }
+
+    /**
+     * This method sends a progress event to the progress listener, if any,
+     * when the percentage of the time span of the trace that has been
+     * replayed changes.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void generateProgressEvent() {
+        IProgressEventListener progressEventListenerAux = this.progressEventListener;
+        if (progressEventListenerAux == null) {
+            return;
+        }
+        long firstInstant = this.traceReader.getFirstInstant();
+        long lastInstant = this.traceReader.getLastInstant();
+        int computedProgress = 100;
+        if (lastInstant > firstInstant) {
+            computedProgress = (int) (((this.currentInstant - firstInstant) * 100) / (lastInstant - firstInstant));
+        }
+        if (computedProgress != this.progressPercentage) {
+            this.progressPercentage = computedProgress;
+            try {
+                progressEventListenerAux.receiveProgressEvent(new TProgressEvent(this, this.progressIdentifierGenerator.getNextIdentifier(), computedProgress));
+            } catch (EIDGeneratorOverflow e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * This method gets the topology element a record of the trace refers to.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param record the record of the trace.
+     * @return the topology element of the record, or null if it is not in the
+     * topology.
+     * @since 2.0
+     */
+    private TTopologyElement getElement(TTraceRecord record) {
+        if (record.getElementType() == TTopologyElement.NODE) {
+            return this.nodes.get(record.getElementID());
+        }
+        if (record.getElementType() == TTopologyElement.LINK) {
+            return this.links.get(record.getElementID());
+        }
+        return null;
+    }
+
+    private static final long NO_INSTANT = -1L;
+    private static final int NO_PROGRESS = -1;
+
+    private final TTraceReader traceReader;
+    private TTraceTimeIndex timeIndex;
+    private final JSimulationPanel simulationPanel;
+    private final HashMap<Integer, TNode> nodes;
+    private final HashMap<Integer, TLink> links;
+    private long nextRecord;
+    private volatile long currentInstant;
+    private long pendingSeekInstant;
+    private volatile int playbackSpeedInMsPerTick;
+    private volatile long numberOfSkippedRecords;
+    private volatile IProgressEventListener progressEventListener;
+    private final TLongIDGenerator progressIdentifierGenerator;
+    private int progressPercentage;
+    private boolean paused;
+    private boolean steppingOneInstant;
+    private boolean running;
+    private Thread thread;
+}
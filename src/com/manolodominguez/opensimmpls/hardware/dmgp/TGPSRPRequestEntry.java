@@ -156,6 +156,17 @@ public class TGPSRPRequestEntry implements Comparable {
         return null;
     }
 
+    /**
+     * This method gets the remaining retransmission TimeOut.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the remaining retransmission TimeOut, in nanoseconds.
+     * @since 2.0
+     */
+    public int getTimeout() {
+        return this.timeout;
+    }
+
     /**
      * This method decreases the retransmission TimeOut.
      *
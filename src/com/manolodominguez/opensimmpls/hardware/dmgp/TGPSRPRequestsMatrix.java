@@ -223,6 +223,29 @@ public class TGPSRPRequestsMatrix {
         this.monitor.unLock();
     }
 
+    /**
+     * This method computes how many nanoseconds have to elapse until the
+     * timeout of any entry of the table expires.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nanoseconds until the nearest timeout expires, or
+     * Long.MAX_VALUE if the table is empty.
+     * @since 2.0
+     */
+    public long getNanosecondsToNextTimeout() {
+        long nanosecondsToNextTimeout = Long.MAX_VALUE;
+        this.monitor.lock();
+        TGPSRPRequestEntry gpsrpRequestEntry = null;
+        for (Object entry : this.entries) {
+            gpsrpRequestEntry = (TGPSRPRequestEntry) entry;
+            if (gpsrpRequestEntry.getTimeout() < nanosecondsToNextTimeout) {
+                nanosecondsToNextTimeout = gpsrpRequestEntry.getTimeout();
+            }
+        }
+        this.monitor.unLock();
+        return nanosecondsToNextTimeout;
+    }
+
     /**
      * This method obtains the outgoing port of a specific entry.
      *
@@ -0,0 +1,83 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+/**
+ * This interface has to be implemented by any queue scheduling discipline that
+ * decides which port of a port set has to be read next. Ports notify the
+ * scheduler when a packet has been queued and the port set notifies it when a
+ * packet has been read, so implementations can keep track of backlogged ports
+ * without checking every port on each dequeue. Implementations have to be
+ * thread safe, as packets are queued and read from different threads.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public interface IPortSetScheduler {
+
+    /**
+     * This method, when implemented, will be notified each time a packet has
+     * been queued in a port of the port set.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port where the packet has been queued.
+     * @since 2.0
+     */
+    public void packetQueued(int portID);
+
+    /**
+     * This method, when implemented, will select the port whose next packet
+     * has to be read. Calling it several times without reading a packet in
+     * between has to return the same port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The selected port, or -1 if there is no packet waiting in any
+     * port.
+     * @since 2.0
+     */
+    public int selectPort();
+
+    /**
+     * This method, when implemented, will be notified each time a packet has
+     * been read from the port previously returned by selectPort().
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port the packet has been read from.
+     * @param packetSize The size of the packet, in octets.
+     * @since 2.0
+     */
+    public void packetRead(int portID, int packetSize);
+
+    /**
+     * This method, when implemented, will set the weight of a given port. The
+     * meaning of the weight depends on the scheduling discipline.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose weight is being set.
+     * @param weight The new weight of the port. It has to be greater than 0.
+     * @since 2.0
+     */
+    public void setPortWeight(int portID, int weight);
+
+    /**
+     * This method, when implemented, will reset the scheduler to the state it
+     * had just after being created, keeping port weights.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void reset();
+}
@@ -15,15 +15,13 @@
  */
 package com.manolodominguez.opensimmpls.hardware.ports;
 
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.Arrays;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketReceived;
 import com.manolodominguez.opensimmpls.scenario.TStats;
 import com.manolodominguez.opensimmpls.scenario.TNode;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
 import com.manolodominguez.opensimmpls.protocols.TMPLSPDU;
-import com.manolodominguez.opensimmpls.commons.TRotaryIDGenerator;
-import com.manolodominguez.opensimmpls.commons.TLock;
 
 /**
  * This class implements an active port. Active ports will be available in
@@ -49,37 +47,19 @@ public class TActivePort extends TPort {
         super(parentSetOfActivePorts, portID);
         this.packetRead = null;
         this.isUnlimitedBuffer = false;
-        this.rotaryIdentifierGenerator = new TRotaryIDGenerator();
-        this.priority0Monitor = new TLock();
-        this.priority1Monitor = new TLock();
-        this.priority2Monitor = new TLock();
-        this.priority3Monitor = new TLock();
-        this.priority4Monitor = new TLock();
-        this.priority5Monitor = new TLock();
-        this.priority6Monitor = new TLock();
-        this.priority7Monitor = new TLock();
-        this.priority8Monitor = new TLock();
-        this.priority9Monitor = new TLock();
-        this.priority10Monitor = new TLock();
-
-        this.priority0Buffer = new TreeSet();
-        this.priority1Buffer = new TreeSet();
-        this.priority2Buffer = new TreeSet();
-        this.priority3Buffer = new TreeSet();
-        this.priority4Buffer = new TreeSet();
-        this.priority5Buffer = new TreeSet();
-        this.priority6Buffer = new TreeSet();
-        this.priority7Buffer = new TreeSet();
-        this.priority8Buffer = new TreeSet();
-        this.priority9Buffer = new TreeSet();
-        this.priority10Buffer = new TreeSet();
-
+        this.prioritizedBuffers = new TPacketQueue[NUMBER_OF_PRIORITIES];
+        int i;
+        for (i = 0; i < NUMBER_OF_PRIORITIES; i++) {
+            this.prioritizedBuffers[i] = new TPacketQueue();
+        }
+        this.nonEmptyBuffers = 0;
+        this.exhaustedBuffers = 0;
+        this.numberOfBufferedPackets = 0;
         this.selectedBuffer = 0;
         this.nextPacketToBeRead = null;
-        this.maxReadsOfBuffer = new int[11];
-        this.currentReadsOfBuffer = new int[11];
-        int i;
-        for (i = 0; i < 11; i++) {
+        this.maxReadsOfBuffer = new int[NUMBER_OF_PRIORITIES];
+        this.currentReadsOfBuffer = new int[NUMBER_OF_PRIORITIES];
+        for (i = 0; i < NUMBER_OF_PRIORITIES; i++) {
             this.maxReadsOfBuffer[i] = i + 1;
             this.currentReadsOfBuffer[i] = 0;
         }
@@ -116,258 +96,128 @@ public class TActivePort extends TPort {
      * port works as a traditional one, dispatching one packet per cicle
      * followin a FIFO paradigm.
      *
+     * The round robin is driven by two bitmasks, one for non empty buffers and
+     * another one for buffers that have already consumed their reads in the
+     * current cicle, so consecutive buffers that cannot be read are skipped at
+     * once instead of being visited one by one.
+     *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      */
     private void doPrioritizedRoundRobinPacketSelection() {
-        boolean end = false;
+        if (this.nextPacketToBeRead != null) {
+            return;
+        }
         int numberOfEmptyBuffers = 0;
         int numberOfBuffersAlreadyRead = 0;
-        Iterator iterator = null;
-        TActivePortBufferEntry activePortBufferEntry = null;
-        if (this.nextPacketToBeRead == null) {
-            while ((!end) && (numberOfEmptyBuffers < 12)) {
-                if (this.selectedBuffer == 10) {
-                    if (this.priority10Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[10] < this.maxReadsOfBuffer[10]) {
-                            this.priority10Monitor.lock();
-                            iterator = priority10Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority10Monitor.unLock();
-                            this.currentReadsOfBuffer[10]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[10] = this.maxReadsOfBuffer[10];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 9) {
-                    if (this.priority9Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[9] < this.maxReadsOfBuffer[9]) {
-                            this.priority9Monitor.lock();
-                            iterator = this.priority9Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority9Monitor.unLock();
-                            this.currentReadsOfBuffer[9]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[9] = this.maxReadsOfBuffer[9];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 8) {
-                    if (this.priority8Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[8] < this.maxReadsOfBuffer[8]) {
-                            this.priority8Monitor.lock();
-                            iterator = this.priority8Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority8Monitor.unLock();
-                            this.currentReadsOfBuffer[8]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[8] = this.maxReadsOfBuffer[8];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 7) {
-                    if (this.priority7Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[7] < this.maxReadsOfBuffer[7]) {
-                            this.priority7Monitor.lock();
-                            iterator = this.priority7Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority7Monitor.unLock();
-                            this.currentReadsOfBuffer[7]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[7] = this.maxReadsOfBuffer[7];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 6) {
-                    if (this.priority6Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[6] < this.maxReadsOfBuffer[6]) {
-                            this.priority6Monitor.lock();
-                            iterator = this.priority6Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority6Monitor.unLock();
-                            this.currentReadsOfBuffer[6]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[6] = this.maxReadsOfBuffer[6];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 5) {
-                    if (this.priority5Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[5] < this.maxReadsOfBuffer[5]) {
-                            this.priority5Monitor.lock();
-                            iterator = this.priority5Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority5Monitor.unLock();
-                            this.currentReadsOfBuffer[5]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[5] = this.maxReadsOfBuffer[5];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 4) {
-                    if (this.priority4Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[4] < this.maxReadsOfBuffer[4]) {
-                            this.priority4Monitor.lock();
-                            iterator = this.priority4Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority4Monitor.unLock();
-                            this.currentReadsOfBuffer[4]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[4] = this.maxReadsOfBuffer[4];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 3) {
-                    if (this.priority3Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[3] < this.maxReadsOfBuffer[3]) {
-                            this.priority3Monitor.lock();
-                            iterator = this.priority3Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority3Monitor.unLock();
-                            this.currentReadsOfBuffer[3]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[3] = this.maxReadsOfBuffer[3];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 2) {
-                    if (this.priority2Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[2] < this.maxReadsOfBuffer[2]) {
-                            this.priority2Monitor.lock();
-                            iterator = this.priority2Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority2Monitor.unLock();
-                            this.currentReadsOfBuffer[2]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[2] = this.maxReadsOfBuffer[2];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 1) {
-                    if (this.priority1Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[1] < this.maxReadsOfBuffer[1]) {
-                            this.priority1Monitor.lock();
-                            iterator = this.priority1Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority1Monitor.unLock();
-                            this.currentReadsOfBuffer[1]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[1] = this.maxReadsOfBuffer[1];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
-                } else if (this.selectedBuffer == 0) {
-                    if (this.priority0Buffer.size() > 0) {
-                        if (this.currentReadsOfBuffer[0] < this.maxReadsOfBuffer[0]) {
-                            this.priority0Monitor.lock();
-                            iterator = this.priority0Buffer.iterator();
-                            if (iterator.hasNext()) {
-                                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                                this.nextPacketToBeRead = activePortBufferEntry.getPacket();
-                                iterator.remove();
-                            }
-                            this.priority0Monitor.unLock();
-                            this.currentReadsOfBuffer[0]++;
-                            end = true;
-                        } else {
-                            numberOfBuffersAlreadyRead++;
-                        }
-                    } else {
-                        this.currentReadsOfBuffer[0] = this.maxReadsOfBuffer[0];
-                        numberOfBuffersAlreadyRead++;
-                        numberOfEmptyBuffers++;
-                    }
+        while (numberOfEmptyBuffers < MAX_EMPTY_BUFFERS_VISITED) {
+            int readableBuffers = this.nonEmptyBuffers & ~this.exhaustedBuffers;
+            int distance = this.getDistanceToNextBuffer(readableBuffers);
+            if (distance == 0) {
+                this.nextPacketToBeRead = this.removeFirstPacket(this.selectedBuffer);
+                this.currentReadsOfBuffer[this.selectedBuffer]++;
+                if (this.currentReadsOfBuffer[this.selectedBuffer] >= this.maxReadsOfBuffer[this.selectedBuffer]) {
+                    this.exhaustedBuffers |= (1 << this.selectedBuffer);
                 }
-                this.selectedBuffer = ((this.selectedBuffer + 1) % 11);
-                if (numberOfBuffersAlreadyRead >= 11) {
-                    int i;
-                    for (i = 0; i < 11; i++) {
-                        this.currentReadsOfBuffer[i] = 0;
-                    }
+                this.selectedBuffer = (this.selectedBuffer + 1) % NUMBER_OF_PRIORITIES;
+                if (numberOfBuffersAlreadyRead >= NUMBER_OF_PRIORITIES) {
+                    this.restartRoundRobinCicle();
                 }
+                return;
             }
+            int skippedBuffers;
+            if (numberOfBuffersAlreadyRead < NUMBER_OF_PRIORITIES) {
+                // Buffers being skipped are either empty or have consumed all
+                // their reads for this cicle. Empty ones are marked as
+                // exhausted too, so that they wait for the next cicle even if
+                // a packet arrives meanwhile.
+                skippedBuffers = Math.min(distance, NUMBER_OF_PRIORITIES - numberOfBuffersAlreadyRead);
+                int skippedMask = this.getBufferRangeMask(skippedBuffers);
+                int skippedEmptyMask = skippedMask & ~this.nonEmptyBuffers;
+                this.exhaustedBuffers |= skippedEmptyMask;
+                numberOfEmptyBuffers += Integer.bitCount(skippedEmptyMask);
+                numberOfBuffersAlreadyRead += skippedBuffers;
+                if (numberOfBuffersAlreadyRead >= NUMBER_OF_PRIORITIES) {
+                    this.restartRoundRobinCicle();
+                }
+            } else {
+                // Once a complete cicle has been checked, the cicle restarts
+                // after each visited buffer, so every non empty buffer is
+                // readable and all skipped buffers are empty ones.
+                skippedBuffers = Math.min(distance, MAX_EMPTY_BUFFERS_VISITED - numberOfEmptyBuffers);
+                numberOfEmptyBuffers += skippedBuffers;
+                numberOfBuffersAlreadyRead += skippedBuffers;
+            }
+            this.selectedBuffer = (this.selectedBuffer + skippedBuffers) % NUMBER_OF_PRIORITIES;
+        }
+    }
+
+    /**
+     * This method computes how many buffers, starting from the currently
+     * selected one and following the round robin order, have to be skipped to
+     * reach the first buffer included in the specified mask.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param buffersMask Bitmask of buffers, where bit i represents the buffer
+     * of priority i.
+     * @return The number of buffers to be skipped, from 0 to 10, or 11 if the
+     * mask does not include any buffer.
+     * @since 2.0
+     */
+    private int getDistanceToNextBuffer(int buffersMask) {
+        int rotatedMask = ((buffersMask >>> this.selectedBuffer) | (buffersMask << (NUMBER_OF_PRIORITIES - this.selectedBuffer))) & ALL_BUFFERS_MASK;
+        if (rotatedMask == 0) {
+            return NUMBER_OF_PRIORITIES;
         }
+        return Integer.numberOfTrailingZeros(rotatedMask);
+    }
+
+    /**
+     * This method computes the bitmask of the specified number of consecutive
+     * buffers, starting from the currently selected one and following the
+     * round robin order.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfBuffers The number of consecutive buffers, from 0 to 11.
+     * @return Bitmask of buffers, where bit i represents the buffer of priority
+     * i.
+     * @since 2.0
+     */
+    private int getBufferRangeMask(int numberOfBuffers) {
+        int rangeMask = (1 << numberOfBuffers) - 1;
+        return ((rangeMask << this.selectedBuffer) | (rangeMask >>> (NUMBER_OF_PRIORITIES - this.selectedBuffer))) & ALL_BUFFERS_MASK;
+    }
+
+    /**
+     * This method starts a new cicle of the prioritized round robin, so that
+     * every buffer can be read again as many times as allowed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void restartRoundRobinCicle() {
+        Arrays.fill(this.currentReadsOfBuffer, 0);
+        this.exhaustedBuffers = 0;
+    }
+
+    /**
+     * This method removes and returns the first packet of the buffer having
+     * the specified priority, keeping up to date the mask of non empty
+     * buffers.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param priority The priority of the buffer.
+     * @return The first packet of the buffer.
+     * @since 2.0
+     */
+    private TAbstractPDU removeFirstPacket(int priority) {
+        TPacketQueue prioritizedBuffer = this.prioritizedBuffers[priority];
+        TAbstractPDU packet = prioritizedBuffer.removeFirst();
+        if (prioritizedBuffer.isEmpty()) {
+            this.nonEmptyBuffers &= ~(1 << priority);
+        }
+        this.numberOfBufferedPackets--;
+        return packet;
     }
 
     /**
@@ -435,31 +285,38 @@ public class TActivePort extends TPort {
         monitor.lock();
         TNode parentNode = this.parentPortSet.getParentNode();
         long eventID = 0;
-        int packetOrder = 0;
         int priority = this.loadPacketPriority(packet);
-        try {
-            eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
-            packetOrder = this.rotaryIdentifierGenerator.getNextIdentifier();
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        boolean packetReceivedEventSubscribed = parentNode.isSubscribedTo(TSimulationEvent.PACKET_RECEIVED);
+        if (packetReceivedEventSubscribed) {
+            try {
+                eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
         }
         int packetSubtype = packet.getSubtype();
+        boolean packetQueued = true;
         if (this.isUnlimitedBuffer) {
-            TActivePortBufferEntry activePortBufferEntry = new TActivePortBufferEntry(priority, packetOrder, packet);
-            this.addPrioritizedBufferEntry(activePortBufferEntry);
+            this.addPrioritizedPacket(packet, priority);
             parentPortSetAux.increasePortSetOccupancy(packet.getSize());
-            TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
-            parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            if (packetReceivedEventSubscribed) {
+                TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
+                parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            }
             if (this.getPortSet().getParentNode().getStats() != null) {
                 this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.INCOMING);
             }
         } else {
             if (!this.runEarlyPacketCatchAndDiscard(packet)) {
                 this.discardPacket(packet);
+                packetQueued = false;
             }
         }
         monitor.unLock();
         parentPortSetAux.portSetMonitor.unLock();
+        if (packetQueued) {
+            this.parentPortSet.notifyPacketQueued(this.portID);
+        }
     }
 
     /**
@@ -488,22 +345,24 @@ public class TActivePort extends TPort {
     public boolean runEarlyPacketCatchAndDiscard(TAbstractPDU packet) {
         TActivePortSet parentPortSetAux = (TActivePortSet) parentPortSet;
         long eventID = 0;
-        int packetOrder = 0;
         int packetPriority = this.loadPacketPriority(packet);
         TNode parentNode = this.parentPortSet.getParentNode();
-        try {
-            eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
-            packetOrder = this.rotaryIdentifierGenerator.getNextIdentifier();
-        } catch (Exception ex) {
-            ex.printStackTrace();
+        boolean packetReceivedEventSubscribed = parentNode.isSubscribedTo(TSimulationEvent.PACKET_RECEIVED);
+        if (packetReceivedEventSubscribed) {
+            try {
+                eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
         }
         int packetSubtype = packet.getSubtype();
         if ((parentPortSetAux.getPortSetOccupancy() + packet.getSize()) <= ((parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024) - EPCD_THRESHOLD)) {
-            TActivePortBufferEntry activePortBufferEntry = new TActivePortBufferEntry(packetPriority, packetOrder, packet);
-            this.addPrioritizedBufferEntry(activePortBufferEntry);
+            this.addPrioritizedPacket(packet, packetPriority);
             parentPortSetAux.increasePortSetOccupancy(packet.getSize());
-            TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
-            parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            if (packetReceivedEventSubscribed) {
+                TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
+                parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            }
             if (this.getPortSet().getParentNode().getStats() != null) {
                 this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.INCOMING);
             }
@@ -516,53 +375,19 @@ public class TActivePort extends TPort {
         return false;
     }
 
-    private void addPrioritizedBufferEntry(TActivePortBufferEntry activePortBufferEntry) {
-        int priorityAux = activePortBufferEntry.getPriority();
-        if (priorityAux == TActivePort.PRIORITY_10) {
-            this.priority10Monitor.lock();
-            this.priority10Buffer.add(activePortBufferEntry);
-            this.priority10Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_9) {
-            this.priority9Monitor.lock();
-            this.priority9Buffer.add(activePortBufferEntry);
-            this.priority9Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_8) {
-            this.priority8Monitor.lock();
-            this.priority8Buffer.add(activePortBufferEntry);
-            this.priority8Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_7) {
-            this.priority7Monitor.lock();
-            this.priority7Buffer.add(activePortBufferEntry);
-            this.priority7Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_6) {
-            this.priority6Monitor.lock();
-            this.priority6Buffer.add(activePortBufferEntry);
-            this.priority6Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_5) {
-            this.priority5Monitor.lock();
-            this.priority5Buffer.add(activePortBufferEntry);
-            this.priority5Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_4) {
-            this.priority4Monitor.lock();
-            this.priority4Buffer.add(activePortBufferEntry);
-            this.priority4Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_3) {
-            this.priority3Monitor.lock();
-            this.priority3Buffer.add(activePortBufferEntry);
-            this.priority3Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_2) {
-            this.priority2Monitor.lock();
-            this.priority2Buffer.add(activePortBufferEntry);
-            this.priority2Monitor.unLock();
-        } else if (priorityAux == TActivePort.PRIORITY_1) {
-            this.priority1Monitor.lock();
-            this.priority1Buffer.add(activePortBufferEntry);
-            this.priority1Monitor.unLock();
-        } else if (priorityAux == TActivePort.WITHOUT_PRIORITY) {
-            this.priority0Monitor.lock();
-            this.priority0Buffer.add(activePortBufferEntry);
-            this.priority0Monitor.unLock();
-        }
+    /**
+     * This method inserts a packet at the end of the buffer that corresponds
+     * to the specified priority.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param packet The packet to be inserted.
+     * @param priority The priority of the packet, from 0 to 10.
+     * @since 2.0
+     */
+    private void addPrioritizedPacket(TAbstractPDU packet, int priority) {
+        this.prioritizedBuffers[priority].addLast(packet);
+        this.nonEmptyBuffers |= (1 << priority);
+        this.numberOfBufferedPackets++;
     }
 
     private int loadPacketPriority(TAbstractPDU packet) {
@@ -657,30 +482,31 @@ public class TActivePort extends TPort {
         this.monitor.lock();
         TNode parentNode = this.parentPortSet.getParentNode();
         long eventID = 0;
-        int packetOrder = 0;
         int packetPriority = this.loadPacketPriority(packet);
         try {
             eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
-            packetOrder = this.rotaryIdentifierGenerator.getNextIdentifier();
         } catch (Exception e) {
             e.printStackTrace();
         }
         int packetSubtype = packet.getSubtype();
+        boolean packetQueued = true;
         if (this.isUnlimitedBuffer) {
-            TActivePortBufferEntry activePortBufferEntry = new TActivePortBufferEntry(packetPriority, packetOrder, packet);
-            this.addPrioritizedBufferEntry(activePortBufferEntry);
+            this.addPrioritizedPacket(packet, packetPriority);
             parentPortSetAux.increasePortSetOccupancy(packet.getSize());
         } else {
             if ((parentPortSetAux.getPortSetOccupancy() + packet.getSize()) <= (parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024)) {
-                TActivePortBufferEntry activePortBufferEntry = new TActivePortBufferEntry(packetPriority, packetOrder, packet);
-                this.addPrioritizedBufferEntry(activePortBufferEntry);
+                this.addPrioritizedPacket(packet, packetPriority);
                 parentPortSetAux.increasePortSetOccupancy(packet.getSize());
             } else {
                 this.discardPacket(packet);
+                packetQueued = false;
             }
         }
         this.monitor.unLock();
         parentPortSetAux.portSetMonitor.unLock();
+        if (packetQueued) {
+            this.parentPortSet.notifyPacketQueued(this.portID);
+        }
     }
 
     /**
@@ -736,6 +562,28 @@ public class TActivePort extends TPort {
         return false;
     }
 
+    /**
+     * This method returns the size of the next packet that will be read from
+     * the active port, according to the prioritized round robin, without
+     * reading it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The size of the next packet, in octets, or -1 if there is no
+     * packet waiting in the active port.
+     * @since 2.0
+     */
+    @Override
+    public int getNextPacketSize() {
+        int packetSize = -1;
+        this.monitor.lock();
+        this.doPrioritizedRoundRobinPacketSelection();
+        if (this.nextPacketToBeRead != null) {
+            packetSize = this.nextPacketToBeRead.getSize();
+        }
+        this.monitor.unLock();
+        return packetSize;
+    }
+
     /**
      * This method computes the congestion level of the active port.
      *
@@ -765,37 +613,7 @@ public class TActivePort extends TPort {
      */
     @Override
     public boolean thereIsAPacketWaiting() {
-        if (this.priority10Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority9Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority8Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority7Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority6Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority5Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority4Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority3Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority2Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority1Buffer.size() > 0) {
-            return true;
-        }
-        if (this.priority0Buffer.size() > 0) {
+        if (this.nonEmptyBuffers != 0) {
             return true;
         }
         if (this.nextPacketToBeRead != null) {
@@ -817,120 +635,11 @@ public class TActivePort extends TPort {
     public long getOccupancy() {
         if (this.isUnlimitedBuffer) {
             this.monitor.lock();
-            int occupancyAux = 0;
-            TAbstractPDU packet = null;
-            TActivePortBufferEntry activePortBufferEntry = null;
-
-            this.priority10Monitor.lock();
-            Iterator iterator = this.priority10Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority10Monitor.unLock();
-            this.priority9Monitor.lock();
-            iterator = this.priority9Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority9Monitor.unLock();
-            this.priority8Monitor.lock();
-            iterator = this.priority8Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
+            long occupancyAux = 0;
+            int i;
+            for (i = 0; i < NUMBER_OF_PRIORITIES; i++) {
+                occupancyAux += this.prioritizedBuffers[i].getSizeInOctets();
             }
-            this.priority8Monitor.unLock();
-            this.priority7Monitor.lock();
-            iterator = this.priority7Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority7Monitor.unLock();
-            this.priority6Monitor.lock();
-            iterator = this.priority6Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority6Monitor.unLock();
-            this.priority5Monitor.lock();
-            iterator = this.priority5Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority5Monitor.unLock();
-            this.priority4Monitor.lock();
-            iterator = this.priority4Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority4Monitor.unLock();
-            this.priority3Monitor.lock();
-            iterator = this.priority3Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority3Monitor.unLock();
-            this.priority2Monitor.lock();
-            iterator = this.priority2Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority2Monitor.unLock();
-            this.priority1Monitor.lock();
-            iterator = this.priority1Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority1Monitor.unLock();
-            this.priority0Monitor.lock();
-            iterator = this.priority0Buffer.iterator();
-            while (iterator.hasNext()) {
-                activePortBufferEntry = (TActivePortBufferEntry) iterator.next();
-                packet = activePortBufferEntry.getPacket();
-                if (packet != null) {
-                    occupancyAux += packet.getSize();
-                }
-            }
-            this.priority0Monitor.unLock();
             if (this.nextPacketToBeRead != null) {
                 occupancyAux += this.nextPacketToBeRead.getSize();
             }
@@ -952,18 +661,7 @@ public class TActivePort extends TPort {
      */
     @Override
     public int getNumberOfPackets() {
-        int numPackets = 0;
-        numPackets += this.priority10Buffer.size();
-        numPackets += this.priority9Buffer.size();
-        numPackets += this.priority8Buffer.size();
-        numPackets += this.priority7Buffer.size();
-        numPackets += this.priority6Buffer.size();
-        numPackets += this.priority5Buffer.size();
-        numPackets += this.priority4Buffer.size();
-        numPackets += this.priority3Buffer.size();
-        numPackets += this.priority2Buffer.size();
-        numPackets += this.priority1Buffer.size();
-        numPackets += this.priority0Buffer.size();
+        int numPackets = this.numberOfBufferedPackets;
         if (this.nextPacketToBeRead != null) {
             numPackets++;
         }
@@ -980,92 +678,17 @@ public class TActivePort extends TPort {
     @Override
     public void reset() {
         this.monitor.lock();
-
-        this.priority10Monitor.lock();
-        Iterator iterator = this.priority10Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority10Monitor.unLock();
-        this.priority9Monitor.lock();
-        iterator = this.priority9Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority9Monitor.unLock();
-        this.priority8Monitor.lock();
-        iterator = this.priority8Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority8Monitor.unLock();
-        this.priority7Monitor.lock();
-        iterator = this.priority7Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority7Monitor.unLock();
-        this.priority6Monitor.lock();
-        iterator = this.priority6Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority6Monitor.unLock();
-        this.priority5Monitor.lock();
-        iterator = this.priority5Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority5Monitor.unLock();
-        this.priority4Monitor.lock();
-        iterator = this.priority4Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority4Monitor.unLock();
-        this.priority3Monitor.lock();
-        iterator = this.priority3Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority3Monitor.unLock();
-        this.priority2Monitor.lock();
-        iterator = this.priority2Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority2Monitor.unLock();
-        this.priority1Monitor.lock();
-        iterator = this.priority1Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
-        this.priority1Monitor.unLock();
-        this.priority0Monitor.lock();
-        iterator = this.priority0Buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
+        int i;
+        for (i = 0; i < NUMBER_OF_PRIORITIES; i++) {
+            this.prioritizedBuffers[i].clear();
         }
-        this.priority0Monitor.unLock();
+        this.nonEmptyBuffers = 0;
+        this.numberOfBufferedPackets = 0;
         this.monitor.unLock();
         this.packetRead = null;
         this.selectedBuffer = 0;
         this.nextPacketToBeRead = null;
-        int i;
-        for (i = 0; i < 11; i++) {
-            this.currentReadsOfBuffer[i] = 0;
-        }
+        this.restartRoundRobinCicle();
     }
 
     private static final int PRIORITY_10 = 10;
@@ -1081,34 +704,17 @@ public class TActivePort extends TPort {
     private static final int WITHOUT_PRIORITY = 0;
 
     private static final int EPCD_THRESHOLD = 100;
+    private static final int NUMBER_OF_PRIORITIES = 11;
+    private static final int ALL_BUFFERS_MASK = (1 << NUMBER_OF_PRIORITIES) - 1;
+    private static final int MAX_EMPTY_BUFFERS_VISITED = 12;
 
-    private TLock priority0Monitor;
-    private TLock priority1Monitor;
-    private TLock priority2Monitor;
-    private TLock priority3Monitor;
-    private TLock priority4Monitor;
-    private TLock priority5Monitor;
-    private TLock priority6Monitor;
-    private TLock priority7Monitor;
-    private TLock priority8Monitor;
-    private TLock priority9Monitor;
-    private TLock priority10Monitor;
-    private TreeSet priority0Buffer;
-    private TreeSet priority1Buffer;
-    private TreeSet priority2Buffer;
-    private TreeSet priority3Buffer;
-    private TreeSet priority4Buffer;
-    private TreeSet priority5Buffer;
-    private TreeSet priority6Buffer;
-    private TreeSet priority7Buffer;
-    private TreeSet priority8Buffer;
-    private TreeSet priority9Buffer;
-    private TreeSet priority10Buffer;
-
+    private TPacketQueue[] prioritizedBuffers;
+    private volatile int nonEmptyBuffers;
+    private int exhaustedBuffers;
+    private int numberOfBufferedPackets;
     private int selectedBuffer;
     private TAbstractPDU packetRead;
     private boolean isUnlimitedBuffer;
-    private TRotaryIDGenerator rotaryIdentifierGenerator;
     private int[] maxReadsOfBuffer;
     private int[] currentReadsOfBuffer;
     private TAbstractPDU nextPacketToBeRead;
@@ -272,6 +272,17 @@ public class TActivePortSet extends TPortSet {
      */
     @Override
     public TAbstractPDU getNextPacket() {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            int selectedPort = schedulerAux.selectPort();
+            if (selectedPort < 0) {
+                return null;
+            }
+            this.readPort = selectedPort;
+            TAbstractPDU selectedPacket = this.ports[selectedPort].getPacket();
+            schedulerAux.packetRead(selectedPort, selectedPacket.getSize());
+            return selectedPacket;
+        }
         TAbstractPDU packetAux = null;
         // This modifies de value of this.nextPacketToBeRead
         // It also changes this.readPort and this.currentPriority
@@ -328,6 +339,14 @@ public class TActivePortSet extends TPortSet {
      */
     @Override
     public boolean canSwitchPacket(int maxSwitchableOctects) {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            int selectedPort = schedulerAux.selectPort();
+            if (selectedPort < 0) {
+                return false;
+            }
+            return this.ports[selectedPort].canSwitchPacket(maxSwitchableOctects);
+        }
         TAbstractPDU auxPacket = null;
         // This modifies de value of this.nextPacketToBeRead
         // It also changes this.readPort and this.currentPriority
@@ -464,6 +483,9 @@ public class TActivePortSet extends TPortSet {
         }
         this.artificiallyCongested = false;
         this.occupancy = 0;
+        if (this.scheduler != null) {
+            this.scheduler.reset();
+        }
         this.portSetMonitor.unLock();
     }
 
@@ -0,0 +1,194 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+/**
+ * This class implements the Deficit Round Robin (DRR) queue scheduling
+ * discipline over the ports of a port set. Backlogged ports are kept in a
+ * circular list. Each time a port reaches the head of the list, its deficit
+ * counter is increased by its quantum (its weight multiplied by
+ * QUANTUM_IN_OCTETS) and it is served while its next packet fits in the
+ * deficit. So every port gets a share of the switching capacity proportional
+ * to its weight, measured in octets, at O(1) cost per read packet.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TDeficitRoundRobinScheduler implements IPortSetScheduler {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TDeficitRoundRobinScheduler for the specified port set, with the same
+     * weight for every port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portSet The port set whose ports are going to be scheduled.
+     * @since 2.0
+     */
+    public TDeficitRoundRobinScheduler(TPortSet portSet) {
+        this.portSet = portSet;
+        int numberOfPorts = portSet.getNumberOfPorts();
+        this.quantums = new long[numberOfPorts];
+        this.deficits = new long[numberOfPorts];
+        this.activePorts = new int[numberOfPorts];
+        this.isActive = new boolean[numberOfPorts];
+        for (int i = 0; i < numberOfPorts; i++) {
+            this.quantums[i] = QUANTUM_IN_OCTETS;
+        }
+        this.reset();
+    }
+
+    /**
+     * This method appends the port to the list of backlogged ports, if it is
+     * not already there.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port where a packet has been queued.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetQueued(int portID) {
+        if (!this.isActive[portID]) {
+            this.activePorts[(this.firstActivePort + this.numberOfActivePorts) % this.activePorts.length] = portID;
+            this.numberOfActivePorts++;
+            this.isActive[portID] = true;
+        }
+    }
+
+    /**
+     * This method selects the port whose next packet has to be read, following
+     * the DRR discipline.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The selected port, or -1 if there is no packet waiting in any
+     * port.
+     * @since 2.0
+     */
+    @Override
+    public synchronized int selectPort() {
+        while (this.numberOfActivePorts > 0) {
+            int portID = this.activePorts[this.firstActivePort];
+            int packetSize = this.portSet.getPort(portID).getNextPacketSize();
+            if (packetSize < 0) {
+                this.removeFirstActivePort();
+                continue;
+            }
+            if (!this.quantumGranted) {
+                this.deficits[portID] += this.quantums[portID];
+                this.quantumGranted = true;
+            }
+            if (packetSize <= this.deficits[portID]) {
+                return portID;
+            }
+            this.moveFirstActivePortToTheEnd();
+        }
+        return -1;
+    }
+
+    /**
+     * This method updates the deficit of the port a packet has been read from
+     * and, if the port has no more packets, removes it from the list of
+     * backlogged ports.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port the packet has been read from.
+     * @param packetSize The size of the packet, in octets.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetRead(int portID, int packetSize) {
+        this.deficits[portID] -= packetSize;
+        if ((this.numberOfActivePorts > 0) && (this.activePorts[this.firstActivePort] == portID)) {
+            if (!this.portSet.getPort(portID).thereIsAPacketWaiting()) {
+                this.removeFirstActivePort();
+            }
+        }
+    }
+
+    /**
+     * This method sets the weight of a given port. The quantum of the port is
+     * its weight multiplied by QUANTUM_IN_OCTETS.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose weight is being set.
+     * @param weight The new weight of the port. It has to be greater than 0.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void setPortWeight(int portID, int weight) {
+        if (weight > 0) {
+            this.quantums[portID] = weight * QUANTUM_IN_OCTETS;
+        }
+    }
+
+    /**
+     * This method empties the list of backlogged ports and their deficits.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public synchronized void reset() {
+        for (int i = 0; i < this.isActive.length; i++) {
+            this.isActive[i] = false;
+            this.deficits[i] = 0;
+        }
+        this.firstActivePort = 0;
+        this.numberOfActivePorts = 0;
+        this.quantumGranted = false;
+    }
+
+    /**
+     * This method removes the port at the head of the list of backlogged ports.
+     * As in DRR, its remaining deficit is lost.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void removeFirstActivePort() {
+        int portID = this.activePorts[this.firstActivePort];
+        this.isActive[portID] = false;
+        this.deficits[portID] = 0;
+        this.firstActivePort = (this.firstActivePort + 1) % this.activePorts.length;
+        this.numberOfActivePorts--;
+        this.quantumGranted = false;
+    }
+
+    /**
+     * This method moves the port at the head of the list of backlogged ports
+     * to the end of the list, keeping its deficit for the next round.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void moveFirstActivePortToTheEnd() {
+        int portID = this.activePorts[this.firstActivePort];
+        this.firstActivePort = (this.firstActivePort + 1) % this.activePorts.length;
+        this.activePorts[(this.firstActivePort + this.numberOfActivePorts - 1) % this.activePorts.length] = portID;
+        this.quantumGranted = false;
+    }
+
+    public static final long QUANTUM_IN_OCTETS = 1500;
+
+    private TPortSet portSet;
+    private long[] quantums;
+    private long[] deficits;
+    private int[] activePorts;
+    private boolean[] isActive;
+    private int firstActivePort;
+    private int numberOfActivePorts;
+    private boolean quantumGranted;
+}
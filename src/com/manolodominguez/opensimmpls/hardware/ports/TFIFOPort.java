@@ -15,8 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.hardware.ports;
 
-import java.util.Iterator;
-import java.util.LinkedList;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketReceived;
 import com.manolodominguez.opensimmpls.scenario.TStats;
 import com.manolodominguez.opensimmpls.scenario.TNode;
@@ -44,7 +43,7 @@ public class TFIFOPort extends TPort {
      */
     public TFIFOPort(TPortSet parentPortSet, int portID) {
         super(parentPortSet, portID);
-        this.buffer = new LinkedList();
+        this.buffer = new TPacketQueue();
         this.packetRead = null;
         this.isUnlimitedBuffer = false;
     }
@@ -84,39 +83,50 @@ public class TFIFOPort extends TPort {
     @Override
     public void addPacket(TAbstractPDU packet) {
         TFIFOPortSet parentPortSetAux = (TFIFOPortSet) this.parentPortSet;
-        parentPortSetAux.portSetMonitor.lock();
+        // Buffer space is reserved atomically on the port set, so the
+        // port monitor is the only lock needed here.
         this.monitor.lock();
         TNode parentNode = this.parentPortSet.getParentNode();
         long eventID = 0;
-        try {
-            eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
-        } catch (Exception e) {
-            e.printStackTrace();
+        boolean packetReceivedEventSubscribed = parentNode.isSubscribedTo(TSimulationEvent.PACKET_RECEIVED);
+        if (packetReceivedEventSubscribed) {
+            try {
+                eventID = parentNode.eventIdentifierGenerator.getNextIdentifier();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
         }
         int packetSubtype = packet.getSubtype();
+        boolean packetQueued = true;
         if (this.isUnlimitedBuffer) {
             this.buffer.addLast(packet);
             parentPortSetAux.increasePortSetOccupancy(packet.getSize());
-            TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
-            parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            if (packetReceivedEventSubscribed) {
+                TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
+                parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+            }
             if (this.getPortSet().getParentNode().getStats() != null) {
                 this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.INCOMING);
             }
         } else {
-            if ((parentPortSetAux.getPortSetOccupancy() + packet.getSize()) <= (parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024)) {
+            if (parentPortSetAux.tryToIncreasePortSetOccupancy(packet.getSize(), parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024)) {
                 this.buffer.addLast(packet);
-                parentPortSetAux.increasePortSetOccupancy(packet.getSize());
-                TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
-                parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+                if (packetReceivedEventSubscribed) {
+                    TSimulationEventPacketReceived packetReceivedEvent = new TSimulationEventPacketReceived(parentNode, eventID, this.getPortSet().getParentNode().getCurrentTimeInstant(), packetSubtype, packet.getSize());
+                    parentNode.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+                }
                 if (this.getPortSet().getParentNode().getStats() != null) {
                     this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.INCOMING);
                 }
             } else {
                 this.discardPacket(packet);
+                packetQueued = false;
             }
         }
         this.monitor.unLock();
-        parentPortSetAux.portSetMonitor.unLock();
+        if (packetQueued) {
+            this.parentPortSet.notifyPacketQueued(this.portID);
+        }
     }
 
     /**
@@ -131,7 +141,6 @@ public class TFIFOPort extends TPort {
     @Override
     public void reEnqueuePacket(TAbstractPDU packet) {
         TFIFOPortSet parentPortSetAux = (TFIFOPortSet) this.parentPortSet;
-        parentPortSetAux.portSetMonitor.lock();
         this.monitor.lock();
         TNode parentNode = this.parentPortSet.getParentNode();
         long eventID = 0;
@@ -141,19 +150,22 @@ public class TFIFOPort extends TPort {
             e.printStackTrace();
         }
         int packetSubtype = packet.getSubtype();
+        boolean packetQueued = true;
         if (this.isUnlimitedBuffer) {
             this.buffer.addLast(packet);
             parentPortSetAux.increasePortSetOccupancy(packet.getSize());
         } else {
-            if ((parentPortSetAux.getPortSetOccupancy() + packet.getSize()) <= (parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024)) {
+            if (parentPortSetAux.tryToIncreasePortSetOccupancy(packet.getSize(), parentPortSetAux.getBufferSizeInMBytes() * 1024 * 1024)) {
                 this.buffer.addLast(packet);
-                parentPortSetAux.increasePortSetOccupancy(packet.getSize());
             } else {
                 this.discardPacket(packet);
+                packetQueued = false;
             }
         }
         this.monitor.unLock();
-        parentPortSetAux.portSetMonitor.unLock();
+        if (packetQueued) {
+            this.parentPortSet.notifyPacketQueued(this.portID);
+        }
     }
 
     /**
@@ -167,17 +179,43 @@ public class TFIFOPort extends TPort {
     @Override
     public TAbstractPDU getPacket() {
         TFIFOPortSet parentPortSetAux = (TFIFOPortSet) this.parentPortSet;
-        parentPortSetAux.portSetMonitor.lock();
         this.monitor.lock();
-        this.packetRead = (TAbstractPDU) this.buffer.removeFirst();
+        this.packetRead = this.buffer.removeFirst();
         if (!this.isUnlimitedBuffer) {
             parentPortSetAux.decreasePortSetOccupancySize(this.packetRead.getSize());
         }
         this.monitor.unLock();
-        parentPortSetAux.portSetMonitor.unLock();
         return this.packetRead;
     }
 
+    /**
+     * This method reads and returns the next packet of the buffer according to
+     * FIFO policy, but only if it can be switched with the specified number of
+     * octets. It does the same than canSwitchPacket() followed by getPacket()
+     * but locking the port only once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param octets The number of octets that the port can switch in this
+     * moment.
+     * @return The read packet, or null if the buffer is empty or the next
+     * packet cannot be switched at this moment.
+     * @since 2.0
+     */
+    public TAbstractPDU getPacketIfFits(int octets) {
+        TFIFOPortSet parentPortSetAux = (TFIFOPortSet) this.parentPortSet;
+        TAbstractPDU packet = null;
+        this.monitor.lock();
+        if ((!this.buffer.isEmpty()) && (this.buffer.getFirst().getSize() <= octets)) {
+            packet = this.buffer.removeFirst();
+            this.packetRead = packet;
+            if (!this.isUnlimitedBuffer) {
+                parentPortSetAux.decreasePortSetOccupancySize(packet.getSize());
+            }
+        }
+        this.monitor.unLock();
+        return packet;
+    }
+
     /**
      * This method compute whether it is possible or not to switch the
      * next packet in the buffer having the number of octets (specified as an
@@ -193,7 +231,7 @@ public class TFIFOPort extends TPort {
     @Override
     public boolean canSwitchPacket(int octets) {
         this.monitor.lock();
-        this.packetRead = (TAbstractPDU) this.buffer.getFirst();
+        this.packetRead = this.buffer.getFirst();
         this.monitor.unLock();
         if (this.packetRead.getSize() <= octets) {
             return true;
@@ -201,6 +239,26 @@ public class TFIFOPort extends TPort {
         return false;
     }
 
+    /**
+     * This method returns the size of the next packet of the buffer according
+     * to FIFO policy, without reading it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The size of the next packet, in octets, or -1 if the buffer is
+     * empty.
+     * @since 2.0
+     */
+    @Override
+    public int getNextPacketSize() {
+        int packetSize = -1;
+        this.monitor.lock();
+        if (!this.buffer.isEmpty()) {
+            packetSize = this.buffer.getFirst().getSize();
+        }
+        this.monitor.unLock();
+        return packetSize;
+    }
+
     /**
      * This method computes the congestion level of the port.
      *
@@ -230,10 +288,7 @@ public class TFIFOPort extends TPort {
      */
     @Override
     public boolean thereIsAPacketWaiting() {
-        if (this.buffer.size() > 0) {
-            return true;
-        }
-        return false;
+        return !this.buffer.isEmpty();
     }
 
     /**
@@ -247,18 +302,7 @@ public class TFIFOPort extends TPort {
     @Override
     public long getOccupancy() {
         if (this.isUnlimitedBuffer) {
-            this.monitor.lock();
-            int occupancy = 0;
-            TAbstractPDU packet = null;
-            Iterator iterator = this.buffer.iterator();
-            while (iterator.hasNext()) {
-                packet = (TAbstractPDU) iterator.next();
-                if (packet != null) {
-                    occupancy += packet.getSize();
-                }
-            }
-            this.monitor.unLock();
-            return occupancy;
+            return this.buffer.getSizeInOctets();
         }
         TFIFOPortSet parentPortSetAux = (TFIFOPortSet) parentPortSet;
         return parentPortSetAux.getPortSetOccupancy();
@@ -287,15 +331,11 @@ public class TFIFOPort extends TPort {
     @Override
     public void reset() {
         this.monitor.lock();
-        Iterator iterator = this.buffer.iterator();
-        while (iterator.hasNext()) {
-            iterator.next();
-            iterator.remove();
-        }
+        this.buffer.clear();
         this.monitor.unLock();
     }
 
-    private LinkedList buffer;
+    private TPacketQueue buffer;
     private TAbstractPDU packetRead;
     private boolean isUnlimitedBuffer;
 }
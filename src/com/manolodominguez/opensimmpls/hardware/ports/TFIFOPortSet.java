@@ -209,6 +209,17 @@ public class TFIFOPortSet extends TPortSet {
      */
     @Override
     public TAbstractPDU getNextPacket() {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            int selectedPort = schedulerAux.selectPort();
+            if (selectedPort < 0) {
+                return null;
+            }
+            this.readPort = selectedPort;
+            TAbstractPDU selectedPacket = this.ports[selectedPort].getPacket();
+            schedulerAux.packetRead(selectedPort, selectedPacket.getSize());
+            return selectedPacket;
+        }
         for (int i = 0; i < this.numberOfPorts; i++) {
             this.readPort = (this.readPort + 1) % this.numberOfPorts;
             if (this.ports[this.readPort].thereIsAPacketWaiting()) {
@@ -218,6 +229,53 @@ public class TFIFOPortSet extends TPortSet {
         return null;
     }
 
+    /**
+     * This method reads, in a single call, as many packets as the parent node
+     * is able to switch with the specified number of octets. When no
+     * scheduler is set, ports are visited in the same round robin order used
+     * by canSwitchPacket() and getNextPacket(), but each packet is checked and
+     * read locking its port only once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param maxSwitchableOctects the max. number of octects the parent node
+     * is able to switch a this moment.
+     * @param packets array where read packets will be stored.
+     * @param incomingPortIDs array where the port each packet has been read
+     * from will be stored, at the same index than the packet.
+     * @return the number of packets that have been read.
+     * @since 2.0
+     */
+    @Override
+    public int getNextPackets(int maxSwitchableOctects, TAbstractPDU[] packets, int[] incomingPortIDs) {
+        if (this.scheduler != null) {
+            return super.getNextPackets(maxSwitchableOctects, packets, incomingPortIDs);
+        }
+        int numberOfReadPackets = 0;
+        int remainingOctects = maxSwitchableOctects;
+        while (numberOfReadPackets < packets.length) {
+            int numberOfEmptyPorts = 0;
+            int candidatePort = (this.readPort + 1) % this.numberOfPorts;
+            while ((numberOfEmptyPorts < this.numberOfPorts) && (!this.ports[candidatePort].thereIsAPacketWaiting())) {
+                numberOfEmptyPorts++;
+                this.readPort = candidatePort;
+                candidatePort = (this.readPort + 1) % this.numberOfPorts;
+            }
+            if (numberOfEmptyPorts == this.numberOfPorts) {
+                break;
+            }
+            TAbstractPDU packet = ((TFIFOPort) this.ports[candidatePort]).getPacketIfFits(remainingOctects);
+            if (packet == null) {
+                break;
+            }
+            this.readPort = candidatePort;
+            packets[numberOfReadPackets] = packet;
+            incomingPortIDs[numberOfReadPackets] = candidatePort;
+            remainingOctects -= packet.getSize();
+            numberOfReadPackets++;
+        }
+        return numberOfReadPackets;
+    }
+
     /**
      * This method check whether there are packets waiting in the incoming
      * buffer to be switched or not.
@@ -264,6 +322,14 @@ public class TFIFOPortSet extends TPortSet {
      */
     @Override
     public boolean canSwitchPacket(int maxSwitchableOctects) {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            int selectedPort = schedulerAux.selectPort();
+            if (selectedPort < 0) {
+                return false;
+            }
+            return this.ports[selectedPort].canSwitchPacket(maxSwitchableOctects);
+        }
         int numberOfEmptyPorts = 0;
         while (numberOfEmptyPorts < this.numberOfPorts) {
             if (this.ports[((this.readPort + 1) % this.numberOfPorts)].thereIsAPacketWaiting()) {
@@ -394,6 +460,9 @@ public class TFIFOPortSet extends TPortSet {
         this.setPortSetOccupancySize(0);
         this.artificiallyCongested = false;
         this.occupancy = 0;
+        if (this.scheduler != null) {
+            this.scheduler.reset();
+        }
         this.portSetMonitor.unLock();
     }
 
@@ -0,0 +1,216 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+import java.util.NoSuchElementException;
+import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
+
+/**
+ * This class implements a FIFO queue of packets backed by a growable circular
+ * array. It keeps running counters of the number of packets and of the octets
+ * they use, so that both values can be queried in constant time regardless of
+ * how congested the port is. This class is not synchronized; the port owning
+ * the queue is responsible of serializing accesses.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TPacketQueue {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TPacketQueue with the default initial capacity.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TPacketQueue() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TPacketQueue able to store the specified number of packets before
+     * growing.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param initialCapacity Number of packets the queue can store before
+     * growing. It is rounded up to the next power of two.
+     * @since 2.0
+     */
+    public TPacketQueue(int initialCapacity) {
+        int capacity = MINIMUM_CAPACITY;
+        while ((capacity < initialCapacity) && (capacity < MAXIMUM_CAPACITY)) {
+            capacity <<= 1;
+        }
+        this.initialCapacity = capacity;
+        this.packets = new TAbstractPDU[capacity];
+        this.packetSizes = new int[capacity];
+        this.head = 0;
+        this.numberOfPackets = 0;
+        this.sizeInOctets = 0;
+    }
+
+    /**
+     * This method inserts a packet at the end of the queue, growing the
+     * underlying array if needed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param packet The packet to be inserted at the end of the queue.
+     * @since 2.0
+     */
+    public void addLast(TAbstractPDU packet) {
+        if (this.numberOfPackets == this.packets.length) {
+            this.resize(this.packets.length << 1);
+        }
+        int packetSize = packet.getSize();
+        int tail = (this.head + this.numberOfPackets) & (this.packets.length - 1);
+        this.packets[tail] = packet;
+        this.packetSizes[tail] = packetSize;
+        this.sizeInOctets += packetSize;
+        this.numberOfPackets++;
+    }
+
+    /**
+     * This method removes and returns the packet at the beginning of the
+     * queue.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The packet that was at the beginning of the queue.
+     * @throws NoSuchElementException if the queue is empty.
+     * @since 2.0
+     */
+    public TAbstractPDU removeFirst() {
+        if (this.numberOfPackets == 0) {
+            throw new NoSuchElementException();
+        }
+        TAbstractPDU packet = this.packets[this.head];
+        this.packets[this.head] = null;
+        this.sizeInOctets -= this.packetSizes[this.head];
+        this.head = (this.head + 1) & (this.packets.length - 1);
+        this.numberOfPackets--;
+        // Give memory back once a congestion peak has been drained. Only
+        // arrays well above the initial capacity are shrunk, and only when
+        // they are almost empty, so that a queue that is filled and drained
+        // on every tick does not keep reallocating its arrays.
+        if ((this.packets.length >= (this.initialCapacity << 2)) && (this.numberOfPackets < (this.packets.length >> 3))) {
+            this.resize(this.packets.length >> 1);
+        }
+        return packet;
+    }
+
+    /**
+     * This method returns, without removing it, the packet at the beginning of
+     * the queue.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The packet that is at the beginning of the queue.
+     * @throws NoSuchElementException if the queue is empty.
+     * @since 2.0
+     */
+    public TAbstractPDU getFirst() {
+        if (this.numberOfPackets == 0) {
+            throw new NoSuchElementException();
+        }
+        return this.packets[this.head];
+    }
+
+    /**
+     * This method returns the number of packets stored in the queue.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The number of packets stored in the queue.
+     * @since 2.0
+     */
+    public int size() {
+        return this.numberOfPackets;
+    }
+
+    /**
+     * This method checks whether the queue is empty or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if there is no packet in the queue. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isEmpty() {
+        return this.numberOfPackets == 0;
+    }
+
+    /**
+     * This method returns the number of octets used by the packets stored in
+     * the queue, as they were when inserted.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The number of octets used by the packets stored in the queue.
+     * @since 2.0
+     */
+    public long getSizeInOctets() {
+        return this.sizeInOctets;
+    }
+
+    /**
+     * This method removes all packets from the queue and shrinks it back to
+     * its initial capacity.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void clear() {
+        this.packets = new TAbstractPDU[this.initialCapacity];
+        this.packetSizes = new int[this.initialCapacity];
+        this.head = 0;
+        this.numberOfPackets = 0;
+        this.sizeInOctets = 0;
+    }
+
+    /**
+     * This method moves the packets of the queue to new arrays of the
+     * specified capacity, leaving the first packet at position 0.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param newCapacity The capacity of the new arrays. It must be a power of
+     * two not lower than the current number of packets.
+     * @since 2.0
+     */
+    private void resize(int newCapacity) {
+        if (newCapacity <= 0) {
+            throw new IllegalStateException("The packet queue cannot grow any more");
+        }
+        TAbstractPDU[] newPackets = new TAbstractPDU[newCapacity];
+        int[] newPacketSizes = new int[newCapacity];
+        int firstChunk = Math.min(this.numberOfPackets, this.packets.length - this.head);
+        System.arraycopy(this.packets, this.head, newPackets, 0, firstChunk);
+        System.arraycopy(this.packetSizes, this.head, newPacketSizes, 0, firstChunk);
+        System.arraycopy(this.packets, 0, newPackets, firstChunk, this.numberOfPackets - firstChunk);
+        System.arraycopy(this.packetSizes, 0, newPacketSizes, firstChunk, this.numberOfPackets - firstChunk);
+        this.packets = newPackets;
+        this.packetSizes = newPacketSizes;
+        this.head = 0;
+    }
+
+    public static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private static final int MINIMUM_CAPACITY = 2;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+    private TAbstractPDU[] packets;
+    private int[] packetSizes;
+    private int head;
+    private int initialCapacity;
+    private volatile int numberOfPackets;
+    private volatile long sizeInOctets;
+}
@@ -19,6 +19,7 @@ import com.manolodominguez.opensimmpls.scenario.TLink;
 import com.manolodominguez.opensimmpls.scenario.TStats;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
 import com.manolodominguez.opensimmpls.commons.TLock;
+import java.util.ArrayList;
 
 /**
  * This abstract class will be implemented to have an I/O port of a port set.
@@ -44,6 +45,9 @@ public abstract class TPort {
         this.parentPortSet = parentPortSet;
         this.monitor = new TLock();
         this.portID = portID;
+        this.holdingOutgoingPackets = false;
+        this.heldOutgoingPackets = new ArrayList<TAbstractPDU>();
+        this.heldOutgoingPacketsEndNode = 0;
     }
 
     /**
@@ -147,12 +151,12 @@ public abstract class TPort {
         if (this.link != null) {
             if (!this.link.isBroken()) {
                 if (this.link.getLinkType() == TLink.INTERNAL_LINK) {
-                    this.link.deliverPacketToNode(packet, endNode);
+                    this.deliverPacketToLink(packet, endNode);
                     if (this.getPortSet().getParentNode().getStats() != null) {
                         this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.OUTGOING);
                     }
                 } else if ((packet.getType() != TAbstractPDU.GPSRP) && (packet.getType() != TAbstractPDU.TLDP)) {
-                    this.link.deliverPacketToNode(packet, endNode);
+                    this.deliverPacketToLink(packet, endNode);
                     if (this.getPortSet().getParentNode().getStats() != null) {
                         this.getPortSet().getParentNode().getStats().addStatEntry(packet, TStats.OUTGOING);
                     }
@@ -163,6 +167,62 @@ public abstract class TPort {
         }
     }
 
+    /**
+     * This method hands a packet over to the link connected to this port. If
+     * outgoing packets are being held, the packet is kept in the port instead
+     * and will be handed over, together with the rest of held packets, when
+     * releaseOutgoingPackets() is called.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param packet Packet to be put on the link.
+     * @param endNode TLink.HEAD_END_NODE or TLink.TAIL_END_NODE, depending on
+     * the end of the link the target node is connected to.
+     * @since 2.0
+     */
+    private void deliverPacketToLink(TAbstractPDU packet, int endNode) {
+        if (!this.holdingOutgoingPackets) {
+            this.link.deliverPacketToNode(packet, endNode);
+            return;
+        }
+        if ((!this.heldOutgoingPackets.isEmpty()) && (this.heldOutgoingPacketsEndNode != endNode)) {
+            this.link.deliverPacketsToNode(this.heldOutgoingPackets, this.heldOutgoingPacketsEndNode);
+            this.heldOutgoingPackets.clear();
+        }
+        this.heldOutgoingPacketsEndNode = endNode;
+        this.heldOutgoingPackets.add(packet);
+    }
+
+    /**
+     * This method makes the port keep the packets put on the link instead of
+     * handing them over to the link one by one. This way, when a node
+     * switches a batch of packets, the ones sent through this port are put on
+     * the link at once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void holdOutgoingPackets() {
+        this.holdingOutgoingPackets = true;
+    }
+
+    /**
+     * This method hands over to the link, at once, the packets that have been
+     * held since holdOutgoingPackets() was called, and makes the port hand
+     * over next packets one by one again.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void releaseOutgoingPackets() {
+        this.holdingOutgoingPackets = false;
+        if (!this.heldOutgoingPackets.isEmpty()) {
+            if (this.link != null) {
+                this.link.deliverPacketsToNode(this.heldOutgoingPackets, this.heldOutgoingPacketsEndNode);
+            }
+            this.heldOutgoingPackets.clear();
+        }
+    }
+
     /**
      * This method, when implemente, will discard the packet passed as an
      * argument from the buffer.
@@ -219,6 +279,18 @@ public abstract class TPort {
      */
     public abstract boolean canSwitchPacket(int octets);
 
+    /**
+     * This method, when implemented, will return the size of the next packet
+     * that will be read from the buffer according to the port management
+     * policy, without reading it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The size of the next packet, in octets, or -1 if there is no
+     * packet waiting in the buffer.
+     * @since 2.0
+     */
+    public abstract int getNextPacketSize();
+
     /**
      * This method, when implemented, will compute the congestion level of the
      * port.
@@ -285,4 +357,7 @@ public abstract class TPort {
     protected TPortSet parentPortSet;
     protected TLock monitor;
     protected int portID;
+    private boolean holdingOutgoingPackets;
+    private ArrayList<TAbstractPDU> heldOutgoingPackets;
+    private int heldOutgoingPacketsEndNode;
 }
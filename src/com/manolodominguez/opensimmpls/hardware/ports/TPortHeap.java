@@ -0,0 +1,243 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+/**
+ * This class implements an indexed binary min-heap of port identifiers, sorted
+ * by a key that is assigned to each port. Ties are broken by a secondary key,
+ * also assigned to each port, and then by port identifier.
+ * It is used by scheduling disciplines that need the backlogged port with the
+ * lowest key in O(log n). This class is not synchronized.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TPortHeap {
+
+    /**
+     * This method is the constructor of the class. It creates a new empty
+     * instance of TPortHeap able to hold the specified number of ports.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfPorts Number of ports of the port set. Port identifiers
+     * go from 0 to numberOfPorts-1.
+     * @since 2.0
+     */
+    public TPortHeap(int numberOfPorts) {
+        this.heap = new int[numberOfPorts];
+        this.positions = new int[numberOfPorts];
+        this.keys = new long[numberOfPorts];
+        this.secondaryKeys = new long[numberOfPorts];
+        this.size = 0;
+        for (int i = 0; i < numberOfPorts; i++) {
+            this.positions[i] = NOT_IN_HEAP;
+        }
+    }
+
+    /**
+     * This method inserts a port in the heap with the specified key. If the
+     * port is already in the heap, its key is updated.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port to be inserted.
+     * @param key The key of the port.
+     * @since 2.0
+     */
+    public void insert(int portID, long key) {
+        this.insert(portID, key, 0);
+    }
+
+    /**
+     * This method inserts a port in the heap with the specified key and
+     * secondary key. If the port is already in the heap, its keys are
+     * updated.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port to be inserted.
+     * @param key The key of the port.
+     * @param secondaryKey The key used to sort ports having the same key.
+     * @since 2.0
+     */
+    public void insert(int portID, long key, long secondaryKey) {
+        if (this.positions[portID] != NOT_IN_HEAP) {
+            this.remove(portID);
+        }
+        this.keys[portID] = key;
+        this.secondaryKeys[portID] = secondaryKey;
+        this.heap[this.size] = portID;
+        this.positions[portID] = this.size;
+        this.size++;
+        this.siftUp(this.size - 1);
+    }
+
+    /**
+     * This method removes a port from the heap. Nothing is done if the port is
+     * not in the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port to be removed.
+     * @since 2.0
+     */
+    public void remove(int portID) {
+        int position = this.positions[portID];
+        if (position == NOT_IN_HEAP) {
+            return;
+        }
+        this.size--;
+        this.positions[portID] = NOT_IN_HEAP;
+        if (position != this.size) {
+            int lastPortID = this.heap[this.size];
+            this.heap[position] = lastPortID;
+            this.positions[lastPortID] = position;
+            this.siftDown(position);
+            this.siftUp(this.positions[lastPortID]);
+        }
+    }
+
+    /**
+     * This method checks whether a port is in the heap or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port to be checked.
+     * @return TRUE, if the port is in the heap. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean contains(int portID) {
+        return this.positions[portID] != NOT_IN_HEAP;
+    }
+
+    /**
+     * This method returns, without removing it, the port with the lowest key.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The port with the lowest key, or -1 if the heap is empty.
+     * @since 2.0
+     */
+    public int peek() {
+        if (this.size == 0) {
+            return -1;
+        }
+        return this.heap[0];
+    }
+
+    /**
+     * This method returns the key of a port that is in the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose key is requested.
+     * @return The key of the port.
+     * @since 2.0
+     */
+    public long getKey(int portID) {
+        return this.keys[portID];
+    }
+
+    /**
+     * This method removes every port from the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void clear() {
+        for (int i = 0; i < this.size; i++) {
+            this.positions[this.heap[i]] = NOT_IN_HEAP;
+        }
+        this.size = 0;
+    }
+
+    /**
+     * This method moves up the port at the specified position of the heap
+     * until the heap property is restored.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param position The position of the port in the heap.
+     * @since 2.0
+     */
+    private void siftUp(int position) {
+        int portID = this.heap[position];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parentPortID = this.heap[parentPosition];
+            if (!this.isLower(portID, parentPortID)) {
+                break;
+            }
+            this.heap[position] = parentPortID;
+            this.positions[parentPortID] = position;
+            position = parentPosition;
+        }
+        this.heap[position] = portID;
+        this.positions[portID] = position;
+    }
+
+    /**
+     * This method moves down the port at the specified position of the heap
+     * until the heap property is restored.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param position The position of the port in the heap.
+     * @since 2.0
+     */
+    private void siftDown(int position) {
+        int portID = this.heap[position];
+        int half = this.size >>> 1;
+        while (position < half) {
+            int childPosition = (position << 1) + 1;
+            int childPortID = this.heap[childPosition];
+            int rightPosition = childPosition + 1;
+            if ((rightPosition < this.size) && this.isLower(this.heap[rightPosition], childPortID)) {
+                childPosition = rightPosition;
+                childPortID = this.heap[childPosition];
+            }
+            if (!this.isLower(childPortID, portID)) {
+                break;
+            }
+            this.heap[position] = childPortID;
+            this.positions[childPortID] = position;
+            position = childPosition;
+        }
+        this.heap[position] = portID;
+        this.positions[portID] = position;
+    }
+
+    /**
+     * This method checks whether a port goes before another one in the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID A port of the heap.
+     * @param anotherPortID Another port of the heap.
+     * @return TRUE, if portID has a lower key, the same key and a lower
+     * secondary key or the same keys and a lower identifier than
+     * anotherPortID. Otherwise, FALSE.
+     * @since 2.0
+     */
+    private boolean isLower(int portID, int anotherPortID) {
+        if (this.keys[portID] != this.keys[anotherPortID]) {
+            return this.keys[portID] < this.keys[anotherPortID];
+        }
+        if (this.secondaryKeys[portID] != this.secondaryKeys[anotherPortID]) {
+            return this.secondaryKeys[portID] < this.secondaryKeys[anotherPortID];
+        }
+        return portID < anotherPortID;
+    }
+
+    private static final int NOT_IN_HEAP = -1;
+
+    private int[] heap;
+    private int[] positions;
+    private long[] keys;
+    private long[] secondaryKeys;
+    private int size;
+}
@@ -46,6 +46,126 @@ public abstract class TPortSet {
         this.portSetMonitor = new TLock();
         this.artificiallyCongested = false;
         this.occupancy = 0;
+        this.scheduler = null;
+        this.schedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+    }
+
+    /**
+     * This method sets the queue scheduling discipline that decides which
+     * port has to be read next.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param schedulingDiscipline TPortSet.DEFAULT_SCHEDULING, to use the
+     * round robin built in the port set, TPortSet.DEFICIT_ROUND_ROBIN_SCHEDULING,
+     * TPortSet.WEIGHTED_FAIR_QUEUEING_SCHEDULING or
+     * TPortSet.STRICT_PRIORITY_SCHEDULING. Any other value is ignored.
+     * @since 2.0
+     */
+    public void setSchedulingDiscipline(int schedulingDiscipline) {
+        switch (schedulingDiscipline) {
+            case TPortSet.DEFAULT_SCHEDULING:
+                this.setScheduler(null);
+                break;
+            case TPortSet.DEFICIT_ROUND_ROBIN_SCHEDULING:
+                this.setScheduler(new TDeficitRoundRobinScheduler(this));
+                break;
+            case TPortSet.WEIGHTED_FAIR_QUEUEING_SCHEDULING:
+                this.setScheduler(new TWeightedFairQueueingScheduler(this));
+                break;
+            case TPortSet.STRICT_PRIORITY_SCHEDULING:
+                this.setScheduler(new TStrictPriorityScheduler(this));
+                break;
+            default:
+                return;
+        }
+        this.schedulingDiscipline = schedulingDiscipline;
+    }
+
+    /**
+     * This method gets the queue scheduling discipline that decides which port
+     * has to be read next.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TPortSet.DEFAULT_SCHEDULING,
+     * TPortSet.DEFICIT_ROUND_ROBIN_SCHEDULING,
+     * TPortSet.WEIGHTED_FAIR_QUEUEING_SCHEDULING,
+     * TPortSet.STRICT_PRIORITY_SCHEDULING or TPortSet.CUSTOM_SCHEDULING if a
+     * scheduler has been plugged using setScheduler().
+     * @since 2.0
+     */
+    public int getSchedulingDiscipline() {
+        return this.schedulingDiscipline;
+    }
+
+    /**
+     * This method plugs a queue scheduler in the port set. Packets already
+     * waiting in the ports are notified to the new scheduler.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param scheduler The scheduler that will decide which port has to be
+     * read next, or null to use the round robin built in the port set.
+     * @since 2.0
+     */
+    public void setScheduler(IPortSetScheduler scheduler) {
+        if (scheduler != null) {
+            for (int i = 0; i < this.numberOfPorts; i++) {
+                if (this.getPort(i).thereIsAPacketWaiting()) {
+                    scheduler.packetQueued(i);
+                }
+            }
+            this.schedulingDiscipline = TPortSet.CUSTOM_SCHEDULING;
+        } else {
+            this.schedulingDiscipline = TPortSet.DEFAULT_SCHEDULING;
+        }
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * This method gets the queue scheduler plugged in the port set.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The scheduler that decides which port has to be read next, or
+     * null if the round robin built in the port set is being used.
+     * @since 2.0
+     */
+    public IPortSetScheduler getScheduler() {
+        return this.scheduler;
+    }
+
+    /**
+     * This method sets the weight of a port for the queue scheduler plugged in
+     * the port set. The meaning of the weight depends on the scheduling
+     * discipline. It is ignored by the round robin built in the port set.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose weight is being set.
+     * @param weight The new weight of the port. It has to be greater than 0.
+     * @return TRUE, if a scheduler has been given the weight. Otherwise,
+     * FALSE.
+     * @since 2.0
+     */
+    public boolean setPortWeight(int portID, int weight) {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            schedulerAux.setPortWeight(portID, weight);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * This method is called by ports of this port set each time a packet has
+     * been queued on them, to keep the scheduler up to date.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port where the packet has been queued.
+     * @since 2.0
+     */
+    public void notifyPacketQueued(int portID) {
+        IPortSetScheduler schedulerAux = this.scheduler;
+        if (schedulerAux != null) {
+            schedulerAux.packetQueued(portID);
+        }
     }
 
     /**
@@ -59,6 +179,29 @@ public abstract class TPortSet {
         this.portSetBufferOccupancy += occupancyIncrement;
     }
 
+    /**
+     * This method increases the amount of buffer memory that is occuped, but
+     * only if the resulting occupancy does not exceed the specified limit. The
+     * check and the increment are done atomically so that several ports of the
+     * same port set can reserve buffer space concurrently without taking the
+     * port set monitor.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param occupancyIncrement Size (in octets) that should be added to the
+     * current occupancy.
+     * @param occupancyLimit Maximum occupancy (in octets) allowed after the
+     * increment.
+     * @return TRUE, if the occupancy has been increased. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public synchronized boolean tryToIncreasePortSetOccupancy(long occupancyIncrement, long occupancyLimit) {
+        if ((this.portSetBufferOccupancy + occupancyIncrement) <= occupancyLimit) {
+            this.portSetBufferOccupancy += occupancyIncrement;
+            return true;
+        }
+        return false;
+    }
+
     /**
      * This method decreases the amount of buffer memory that is occuped.
      *
@@ -158,6 +301,65 @@ public abstract class TPortSet {
      */
     public abstract TAbstractPDU getNextPacket();
 
+    /**
+     * This method reads, in a single call, as many packets as the parent node
+     * is able to switch with the specified number of octets, following the
+     * same order getNextPacket() would follow. It stops when the next packet
+     * does not fit in the remaining octets, when there are no more packets
+     * waiting or when the specified array is full.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param maxSwitchableOctects the max. number of octects the parent node
+     * is able to switch a this moment.
+     * @param packets array where read packets will be stored.
+     * @param incomingPortIDs array where the port each packet has been read
+     * from will be stored, at the same index than the packet.
+     * @return the number of packets that have been read.
+     * @since 2.0
+     */
+    public int getNextPackets(int maxSwitchableOctects, TAbstractPDU[] packets, int[] incomingPortIDs) {
+        int numberOfReadPackets = 0;
+        int remainingOctects = maxSwitchableOctects;
+        while ((numberOfReadPackets < packets.length) && this.canSwitchPacket(remainingOctects)) {
+            TAbstractPDU packet = this.getNextPacket();
+            if (packet == null) {
+                break;
+            }
+            packets[numberOfReadPackets] = packet;
+            incomingPortIDs[numberOfReadPackets] = this.getReadPort();
+            remainingOctects -= packet.getSize();
+            numberOfReadPackets++;
+        }
+        return numberOfReadPackets;
+    }
+
+    /**
+     * This method makes every port of the port set keep the packets put on
+     * their links until releaseOutgoingPackets() is called, so that packets
+     * sent through the same link during a batch are put on it at once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void holdOutgoingPackets() {
+        for (int i = 0; i < this.numberOfPorts; i++) {
+            this.getPort(i).holdOutgoingPackets();
+        }
+    }
+
+    /**
+     * This method puts on their links the packets held by every port of the
+     * port set since holdOutgoingPackets() was called.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void releaseOutgoingPackets() {
+        for (int i = 0; i < this.numberOfPorts; i++) {
+            this.getPort(i).releaseOutgoingPackets();
+        }
+    }
+
     /**
      * This method, when implemented, will check whether there are packets
      * waiting in the incoming buffer to be switched or not.
@@ -357,6 +559,12 @@ public abstract class TPortSet {
      */
     public abstract boolean hasAvailablePorts();
 
+    public static final int DEFAULT_SCHEDULING = 0;
+    public static final int DEFICIT_ROUND_ROBIN_SCHEDULING = 1;
+    public static final int WEIGHTED_FAIR_QUEUEING_SCHEDULING = 2;
+    public static final int STRICT_PRIORITY_SCHEDULING = 3;
+    public static final int CUSTOM_SCHEDULING = 4;
+
     protected int numberOfPorts;
     protected TNode parentNode;
     protected int portSetBufferSize;
@@ -364,4 +572,6 @@ public abstract class TPortSet {
     public TLock portSetMonitor;
     protected boolean artificiallyCongested;
     protected long occupancy;
+    protected volatile IPortSetScheduler scheduler;
+    private int schedulingDiscipline;
 }
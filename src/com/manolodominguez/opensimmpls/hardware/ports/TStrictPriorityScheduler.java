@@ -0,0 +1,140 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+/**
+ * This class implements strict priority queue scheduling over the ports of a
+ * port set. The weight of a port is its priority: packets are always read from
+ * the backlogged port with the highest weight. Lower priority ports are served
+ * only when every higher priority port is empty. Ports with the same weight
+ * are served round robin, one packet each, so that packets a node puts back
+ * in its incoming port while waiting for a LSP do not block the signalling
+ * that arrives through other ports. Backlogged ports are kept in a heap, so
+ * each read packet costs O(log n).
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TStrictPriorityScheduler implements IPortSetScheduler {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TStrictPriorityScheduler for the specified port set. Initially every
+     * port has the same weight, so every port is served round robin.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portSet The port set whose ports are going to be scheduled.
+     * @since 2.0
+     */
+    public TStrictPriorityScheduler(TPortSet portSet) {
+        this.portSet = portSet;
+        int numberOfPorts = portSet.getNumberOfPorts();
+        this.weights = new int[numberOfPorts];
+        this.backloggedPorts = new TPortHeap(numberOfPorts);
+        this.turn = 0;
+        for (int i = 0; i < numberOfPorts; i++) {
+            this.weights[i] = 1;
+        }
+    }
+
+    /**
+     * This method inserts the port in the heap of backlogged ports, behind the
+     * ports with the same priority, if it is not already there.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port where a packet has been queued.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetQueued(int portID) {
+        if (!this.backloggedPorts.contains(portID)) {
+            this.backloggedPorts.insert(portID, -this.weights[portID], this.turn++);
+        }
+    }
+
+    /**
+     * This method selects the backlogged port having the highest priority.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The selected port, or -1 if there is no packet waiting in any
+     * port.
+     * @since 2.0
+     */
+    @Override
+    public synchronized int selectPort() {
+        int portID = this.backloggedPorts.peek();
+        while ((portID >= 0) && (!this.portSet.getPort(portID).thereIsAPacketWaiting())) {
+            this.backloggedPorts.remove(portID);
+            portID = this.backloggedPorts.peek();
+        }
+        return portID;
+    }
+
+    /**
+     * This method removes the port from the heap of backlogged ports if it has
+     * no more packets. Otherwise, the port is moved behind the rest of ports
+     * with the same priority.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port the packet has been read from.
+     * @param packetSize The size of the packet, in octets.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetRead(int portID, int packetSize) {
+        if (!this.portSet.getPort(portID).thereIsAPacketWaiting()) {
+            this.backloggedPorts.remove(portID);
+        } else {
+            this.backloggedPorts.insert(portID, -this.weights[portID], this.turn++);
+        }
+    }
+
+    /**
+     * This method sets the priority of a given port. The higher the weight,
+     * the higher the priority.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose weight is being set.
+     * @param weight The new weight of the port. It has to be greater than 0.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void setPortWeight(int portID, int weight) {
+        if (weight > 0) {
+            this.weights[portID] = weight;
+            if (this.backloggedPorts.contains(portID)) {
+                this.backloggedPorts.insert(portID, -weight, this.turn++);
+            }
+        }
+    }
+
+    /**
+     * This method empties the heap of backlogged ports.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public synchronized void reset() {
+        this.backloggedPorts.clear();
+        this.turn = 0;
+    }
+
+    private TPortSet portSet;
+    private int[] weights;
+    private TPortHeap backloggedPorts;
+    private long turn;
+}
@@ -0,0 +1,176 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.ports;
+
+/**
+ * This class implements Weighted Fair Queueing (WFQ) over the ports of a port
+ * set, using the self-clocked approximation (SCFQ): the system virtual time is
+ * the finish tag of the last read packet. The next packet of every backlogged
+ * port gets a virtual finish tag and ports are kept in a heap sorted by that
+ * tag, so the port whose packet would finish first in an ideal fluid system is
+ * served first, at O(log n) cost per read packet.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TWeightedFairQueueingScheduler implements IPortSetScheduler {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TWeightedFairQueueingScheduler for the specified port set, with the same
+     * weight for every port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portSet The port set whose ports are going to be scheduled.
+     * @since 2.0
+     */
+    public TWeightedFairQueueingScheduler(TPortSet portSet) {
+        this.portSet = portSet;
+        int numberOfPorts = portSet.getNumberOfPorts();
+        this.weights = new int[numberOfPorts];
+        this.startTags = new long[numberOfPorts];
+        this.finishTags = new long[numberOfPorts];
+        this.backloggedPorts = new TPortHeap(numberOfPorts);
+        for (int i = 0; i < numberOfPorts; i++) {
+            this.weights[i] = 1;
+        }
+        this.reset();
+    }
+
+    /**
+     * This method assigns a virtual finish tag to the next packet of the port
+     * and inserts the port in the heap, if it is not already there.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port where a packet has been queued.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetQueued(int portID) {
+        if (!this.backloggedPorts.contains(portID)) {
+            this.startTags[portID] = Math.max(this.virtualTime, this.finishTags[portID]);
+            this.scheduleNextPacket(portID);
+        }
+    }
+
+    /**
+     * This method selects the port whose next packet has the lowest virtual
+     * finish tag.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The selected port, or -1 if there is no packet waiting in any
+     * port.
+     * @since 2.0
+     */
+    @Override
+    public synchronized int selectPort() {
+        int portID = this.backloggedPorts.peek();
+        while ((portID >= 0) && (!this.portSet.getPort(portID).thereIsAPacketWaiting())) {
+            this.backloggedPorts.remove(portID);
+            portID = this.backloggedPorts.peek();
+        }
+        return portID;
+    }
+
+    /**
+     * This method advances the virtual time to the finish tag of the read
+     * packet and reschedules the port if it has more packets.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port the packet has been read from.
+     * @param packetSize The size of the packet, in octets.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void packetRead(int portID, int packetSize) {
+        this.finishTags[portID] = this.startTags[portID] + this.getVirtualLength(portID, packetSize);
+        this.virtualTime = this.finishTags[portID];
+        this.backloggedPorts.remove(portID);
+        this.startTags[portID] = this.finishTags[portID];
+        this.scheduleNextPacket(portID);
+    }
+
+    /**
+     * This method sets the weight of a given port. The share of the switching
+     * capacity a backlogged port gets is proportional to its weight.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port whose weight is being set.
+     * @param weight The new weight of the port. It has to be greater than 0.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void setPortWeight(int portID, int weight) {
+        if (weight > 0) {
+            this.weights[portID] = weight;
+        }
+    }
+
+    /**
+     * This method empties the heap of backlogged ports and restarts the
+     * virtual time.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public synchronized void reset() {
+        this.backloggedPorts.clear();
+        for (int i = 0; i < this.weights.length; i++) {
+            this.startTags[i] = 0;
+            this.finishTags[i] = 0;
+        }
+        this.virtualTime = 0;
+    }
+
+    /**
+     * This method inserts the port in the heap using the virtual finish tag of
+     * its next packet, if it has any.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port to be scheduled.
+     * @since 2.0
+     */
+    private void scheduleNextPacket(int portID) {
+        int packetSize = this.portSet.getPort(portID).getNextPacketSize();
+        if (packetSize >= 0) {
+            this.backloggedPorts.insert(portID, this.startTags[portID] + this.getVirtualLength(portID, packetSize));
+        }
+    }
+
+    /**
+     * This method computes the virtual time a packet of the specified size
+     * needs to be transmitted from a given port.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portID The port of the packet.
+     * @param packetSize The size of the packet, in octets.
+     * @return The virtual transmission time of the packet.
+     * @since 2.0
+     */
+    private long getVirtualLength(int portID, int packetSize) {
+        return (packetSize * VIRTUAL_TIME_UNITS_PER_OCTET) / this.weights[portID];
+    }
+
+    private static final long VIRTUAL_TIME_UNITS_PER_OCTET = 1024;
+
+    private TPortSet portSet;
+    private int[] weights;
+    private long[] startTags;
+    private long[] finishTags;
+    private long virtualTime;
+    private TPortHeap backloggedPorts;
+}
@@ -0,0 +1,57 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+/**
+ * This interface has to be implemented by classes that execute the work that
+ * topology elements do during a timer tick. The timer hands over the tasks of
+ * each tick to an execution engine and waits until all of them have finished
+ * before generating the next timer event.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public interface IExecutionEngine {
+
+    /**
+     * This method, when implemented, will schedule the specified task to be
+     * executed during the current timer tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param task the task to be executed. Usually, a topology element.
+     * @since 2.0
+     */
+    public void execute(Runnable task);
+
+    /**
+     * This method, when implemented, will block the caller until all tasks
+     * scheduled since the last call to this method have finished.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void waitForCompletion();
+
+    /**
+     * This method, when implemented, will release every resource held by the
+     * execution engine. The engine should not be used after this method is
+     * called.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void shutdown();
+}
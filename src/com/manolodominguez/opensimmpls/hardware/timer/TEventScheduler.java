@@ -0,0 +1,234 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.PriorityQueue;
+
+/**
+ * This class implements the priority queue of timestamped events used by the
+ * timer when it works in event-driven mode. Topology elements schedule here
+ * the instants at which they have something to do (a packet arriving at a
+ * port, a packet reaching the end of a link, a protocol timeout expiring, a
+ * packet to be generated...) and the timer jumps directly from one of these
+ * instants to the next one. Each element has, at most, one pending wake-up:
+ * scheduling it again only has effect if the new instant is earlier, and the
+ * wake-up it replaces is discarded when it reaches the head of the queue.
+ * Instants are rounded up to whole ticks, as in time-driven mode.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TEventScheduler {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TEventScheduler.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TEventScheduler() {
+        this.events = new PriorityQueue<>();
+        this.pendingInstants = new IdentityHashMap<>();
+        this.sequence = 0;
+        this.currentInstant = 0;
+        this.minimumDelay = 1;
+    }
+
+    /**
+     * This method removes every pending event and resets the current instant
+     * to the start of the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void reset() {
+        this.events.clear();
+        this.pendingInstants.clear();
+        this.sequence = 0;
+        this.currentInstant = 0;
+    }
+
+    /**
+     * This method sets the minimum delay, in nanoseconds, between the current
+     * instant and any event scheduled through scheduleAfter(...). It is the
+     * time resolution of the event-driven simulation: every event is
+     * rounded up to a multiple of it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param minimumDelay the minimum delay, in nanoseconds.
+     * @since 2.0
+     */
+    public synchronized void setMinimumDelay(long minimumDelay) {
+        if (minimumDelay < 1) {
+            minimumDelay = 1;
+        }
+        this.minimumDelay = minimumDelay;
+    }
+
+    /**
+     * This method sets the simulated instant, in nanoseconds, that is being
+     * processed at this moment.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param currentInstant the simulated instant being processed.
+     * @since 2.0
+     */
+    public synchronized void setCurrentInstant(long currentInstant) {
+        this.currentInstant = currentInstant;
+    }
+
+    /**
+     * This method gets the simulated instant, in nanoseconds, that is being
+     * processed at this moment.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulated instant being processed.
+     * @since 2.0
+     */
+    public synchronized long getCurrentInstant() {
+        return this.currentInstant;
+    }
+
+    /**
+     * This method schedules the specified topology element to be woken up at
+     * the specified instant, rounded up to a multiple of the minimum delay. If
+     * the element is already going to be woken up at that instant or before,
+     * it has no effect; otherwise, the new instant replaces the pending one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param target the topology element to be woken up.
+     * @param instant the simulated instant, in nanoseconds.
+     * @since 2.0
+     */
+    public synchronized void schedule(TTopologyElement target, long instant) {
+        long remainder = instant % this.minimumDelay;
+        if (remainder != 0) {
+            if (instant > (Long.MAX_VALUE - this.minimumDelay)) {
+                return;
+            }
+            instant += this.minimumDelay - remainder;
+        }
+        Long pendingInstant = this.pendingInstants.get(target);
+        if ((pendingInstant == null) || (instant < pendingInstant)) {
+            this.pendingInstants.put(target, instant);
+            this.events.add(new TScheduledEvent(instant, this.sequence++, target));
+        }
+    }
+
+    /**
+     * This method schedules the specified topology element to be woken up
+     * after the specified number of nanoseconds, counted from the current
+     * instant. Delays lower than the minimum delay are rounded up to it.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param target the topology element to be woken up.
+     * @param delay the number of nanoseconds from the current instant.
+     * @since 2.0
+     */
+    public synchronized void scheduleAfter(TTopologyElement target, long delay) {
+        if (delay < this.minimumDelay) {
+            delay = this.minimumDelay;
+        }
+        if (delay > (Long.MAX_VALUE - this.currentInstant)) {
+            return;
+        }
+        schedule(target, this.currentInstant + delay);
+    }
+
+    /**
+     * This method gets the instant of the earliest pending event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the instant of the earliest pending event, in nanoseconds, or
+     * TEventScheduler.NO_PENDING_EVENTS if there is not any pending event.
+     * @since 2.0
+     */
+    public synchronized long getNextEventInstant() {
+        this.discardReplacedEvents();
+        TScheduledEvent nextEvent = this.events.peek();
+        if (nextEvent == null) {
+            return TEventScheduler.NO_PENDING_EVENTS;
+        }
+        return nextEvent.getInstant();
+    }
+
+    /**
+     * This method removes from the queue every event happening at or before
+     * the specified instant and returns the topology elements to be woken up,
+     * without duplicates and in scheduling order.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the simulated instant, in nanoseconds.
+     * @return the topology elements that have to be woken up.
+     * @since 2.0
+     */
+    public synchronized LinkedHashSet<TTopologyElement> pollEventsUntil(long instant) {
+        LinkedHashSet<TTopologyElement> targets = new LinkedHashSet<>();
+        this.discardReplacedEvents();
+        TScheduledEvent nextEvent = this.events.peek();
+        while ((nextEvent != null) && (nextEvent.getInstant() <= instant)) {
+            this.events.poll();
+            this.pendingInstants.remove(nextEvent.getTarget());
+            targets.add(nextEvent.getTarget());
+            this.discardReplacedEvents();
+            nextEvent = this.events.peek();
+        }
+        return targets;
+    }
+
+    /**
+     * This method removes from the head of the queue the events that have
+     * been replaced by an earlier wake-up of the same topology element.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void discardReplacedEvents() {
+        TScheduledEvent nextEvent = this.events.peek();
+        while (nextEvent != null) {
+            Long pendingInstant = this.pendingInstants.get(nextEvent.getTarget());
+            if ((pendingInstant != null) && (pendingInstant == nextEvent.getInstant())) {
+                return;
+            }
+            this.events.poll();
+            nextEvent = this.events.peek();
+        }
+    }
+
+    /**
+     * This method checks whether there is any pending event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if there is not any pending event. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public synchronized boolean isEmpty() {
+        this.discardReplacedEvents();
+        return this.events.isEmpty();
+    }
+
+    public static final long NO_PENDING_EVENTS = Long.MAX_VALUE;
+
+    private final PriorityQueue<TScheduledEvent> events;
+    private final IdentityHashMap<TTopologyElement, Long> pendingInstants;
+    private long sequence;
+    private long currentInstant;
+    private long minimumDelay;
+}
@@ -0,0 +1,76 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+/**
+ * This class implements an execution engine that runs each task immediately,
+ * in the thread that schedules it. It is used when a whole set of topology
+ * elements is already being simulated by a single thread, as the logical
+ * processes of a partitioned simulation do.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TInlineExecutionEngine implements IExecutionEngine {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TInlineExecutionEngine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TInlineExecutionEngine() {
+        // Nothing to initialize.
+    }
+
+    /**
+     * This method executes the specified task and returns when it has
+     * finished.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param task the task to be executed. Usually, a topology element.
+     * @since 2.0
+     */
+    @Override
+    public void execute(Runnable task) {
+        task.run();
+    }
+
+    /**
+     * This method returns immediately because every task has already finished
+     * when execute() returns.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void waitForCompletion() {
+        // Nothing to wait for.
+    }
+
+    /**
+     * This method does nothing because this execution engine does not use any
+     * thread of its own.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void shutdown() {
+        // Nothing to release.
+    }
+}
@@ -0,0 +1,139 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+import com.manolodominguez.opensimmpls.commons.EIDGeneratorOverflow;
+import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
+import com.manolodominguez.opensimmpls.scenario.TLink;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopologyPartition;
+
+/**
+ * This class implements a logical process of a partitioned simulation. It
+ * simulates, tick by tick and in a single thread, the nodes and links of a
+ * partition of the topology from one synchronization instant to the next one.
+ * Each tick is executed in the same phases used by TTimer in phased mode.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TLogicalProcess implements Runnable {
+
+    /**
+     * This method is the constructor of the class. It creates a new logical
+     * process for the specified partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param timer the timer that generates the timer events.
+     * @param identifierGenerator the identifier generator for timer events.
+     * @param partition the partition of the topology simulated by this logical
+     * process.
+     * @since 2.0
+     */
+    public TLogicalProcess(TTimer timer, TLongIDGenerator identifierGenerator, TTopologyPartition partition) {
+        this.timer = timer;
+        this.identifierGenerator = identifierGenerator;
+        this.partition = partition;
+        this.windowStart = 0;
+        this.windowEnd = 0;
+        this.tick = 1;
+    }
+
+    /**
+     * This method sets the interval of simulated time that this logical
+     * process has to simulate the next time it runs.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param windowStart the start of the interval, in nanoseconds.
+     * @param windowEnd the end of the interval, in nanoseconds.
+     * @param tick the duration of each tick, in nanoseconds.
+     * @since 2.0
+     */
+    public void setWindow(long windowStart, long windowEnd, int tick) {
+        this.windowStart = windowStart;
+        this.windowEnd = windowEnd;
+        this.tick = tick;
+    }
+
+    /**
+     * This method gets the partition of the topology simulated by this logical
+     * process.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the partition simulated by this logical process.
+     * @since 2.0
+     */
+    public TTopologyPartition getPartition() {
+        return this.partition;
+    }
+
+    /**
+     * This method simulates every tick of the current interval.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void run() {
+        long startOfTick = this.windowStart;
+        while (startOfTick < this.windowEnd) {
+            long endOfTick = Math.min(startOfTick + this.tick, this.windowEnd);
+            runTick(startOfTick, endOfTick);
+            startOfTick = endOfTick;
+        }
+    }
+
+    /**
+     * This method simulates a single tick: links advance, nodes receive, nodes
+     * switch or route and links accept the packets put on them. Topology
+     * elements of a partition use an inline execution engine, so every phase
+     * has finished when the corresponding loop ends.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param startOfTick the start of the tick, in nanoseconds.
+     * @param endOfTick the end of the tick, in nanoseconds.
+     * @since 2.0
+     */
+    private void runTick(long startOfTick, long endOfTick) {
+        TTimestamp startOfSimulationInterval = new TTimestamp(0, 0);
+        startOfSimulationInterval.setTotalAsNanoseconds(startOfTick);
+        TTimestamp endOfSimulationInterval = new TTimestamp(0, 0);
+        endOfSimulationInterval.setTotalAsNanoseconds(endOfTick);
+        try {
+            for (TLink link : this.partition.getLinks()) {
+                link.receiveTimerEvent(new TTimerEvent(this.timer, this.identifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval));
+            }
+            for (TNode node : this.partition.getNodes()) {
+                node.receivePacketsFromLinks(endOfTick);
+            }
+            for (TNode node : this.partition.getNodes()) {
+                node.receiveTimerEvent(new TTimerEvent(this.timer, this.identifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval));
+            }
+            for (TLink link : this.partition.getLinks()) {
+                link.acceptPacketsFromNodes();
+            }
+        } catch (EIDGeneratorOverflow e) {
+            e.printStackTrace();
+        }
+    }
+
+    private final TTimer timer;
+    private final TLongIDGenerator identifierGenerator;
+    private final TTopologyPartition partition;
+    private long windowStart;
+    private long windowEnd;
+    private int tick;
+}
@@ -0,0 +1,148 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class implements an execution engine that keeps a fixed pool of
+ * long-lived worker threads. Tasks of a timer tick are handed to the workers
+ * and a counter of pending tasks, guarded by a monitor, is used to know when
+ * all of them have finished, so no thread is created or joined per topology
+ * element and per tick. Unlike a phaser, the counter does not limit the number
+ * of tasks that can be scheduled in a single tick.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TPooledExecutionEngine implements IExecutionEngine {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TPooledExecutionEngine using as many workers as available processors.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TPooledExecutionEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TPooledExecutionEngine using the specified number of workers.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfWorkers the number of long-lived worker threads.
+     * @since 2.0
+     */
+    public TPooledExecutionEngine(int numberOfWorkers) {
+        if (numberOfWorkers < MINIMUM_NUMBER_OF_WORKERS) {
+            numberOfWorkers = MINIMUM_NUMBER_OF_WORKERS;
+        }
+        this.numberOfWorkers = numberOfWorkers;
+        this.pendingTasksMonitor = new Object();
+        this.pendingTasks = 0;
+        this.workers = Executors.newFixedThreadPool(numberOfWorkers, (Runnable runnable) -> {
+            Thread worker = new Thread(runnable);
+            worker.setDaemon(true);
+            return worker;
+        });
+    }
+
+    /**
+     * This method hands the specified task to the pool of workers.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param task the task to be executed. Usually, a topology element.
+     * @since 2.0
+     */
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this.pendingTasksMonitor) {
+            this.pendingTasks++;
+        }
+        this.workers.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                synchronized (this.pendingTasksMonitor) {
+                    this.pendingTasks--;
+                    if (this.pendingTasks == 0) {
+                        this.pendingTasksMonitor.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * This method waits until all tasks scheduled during the current timer
+     * tick have finished. Then, the counter of pending tasks is zero again and
+     * ready to be used in the next timer tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void waitForCompletion() {
+        boolean interrupted = false;
+        synchronized (this.pendingTasksMonitor) {
+            while (this.pendingTasks > 0) {
+                try {
+                    this.pendingTasksMonitor.wait();
+                } catch (InterruptedException e) {
+                    // The next phase cannot start until every task of this
+                    // one has finished, so the interruption is kept for later.
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * This method stops all worker threads of the pool.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void shutdown() {
+        this.workers.shutdown();
+    }
+
+    /**
+     * This method gets the number of worker threads of the pool.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of worker threads of the pool.
+     * @since 2.0
+     */
+    public int getNumberOfWorkers() {
+        return this.numberOfWorkers;
+    }
+
+    private static final int MINIMUM_NUMBER_OF_WORKERS = 1;
+
+    private final int numberOfWorkers;
+    private final Object pendingTasksMonitor;
+    private int pendingTasks;
+    private final ExecutorService workers;
+}
@@ -0,0 +1,108 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+
+/**
+ * This class implements an entry of the event-driven scheduler of the timer.
+ * It tells the timer that a given topology element has something to do at a
+ * given simulated instant.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TScheduledEvent implements Comparable<TScheduledEvent> {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TScheduledEvent.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the simulated instant, in nanoseconds, the event happens
+     * at.
+     * @param sequence a sequence number used to keep the insertion order of
+     * events that happen at the same instant.
+     * @param target the topology element that has to be woken up at that
+     * instant.
+     * @since 2.0
+     */
+    public TScheduledEvent(long instant, long sequence, TTopologyElement target) {
+        this.instant = instant;
+        this.sequence = sequence;
+        this.target = target;
+    }
+
+    /**
+     * This method gets the simulated instant, in nanoseconds, the event
+     * happens at.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulated instant, in nanoseconds, the event happens at.
+     * @since 2.0
+     */
+    public long getInstant() {
+        return this.instant;
+    }
+
+    /**
+     * This method gets the topology element that has to be woken up when the
+     * event happens.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the topology element that has to be woken up.
+     * @since 2.0
+     */
+    public TTopologyElement getTarget() {
+        return this.target;
+    }
+
+    /**
+     * This method compares this event with another one to know which one
+     * happens first. Events happening at the same instant are sorted by
+     * insertion order.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param anotherEvent the event to be compared with this one.
+     * @return -1, 0 or 1 depending on whether this event happens before, at
+     * the same time or after the one specified as an argument.
+     * @since 2.0
+     */
+    @Override
+    public int compareTo(TScheduledEvent anotherEvent) {
+        if (this.instant < anotherEvent.instant) {
+            return TScheduledEvent.THIS_LOWER;
+        }
+        if (this.instant > anotherEvent.instant) {
+            return TScheduledEvent.THIS_GREATER;
+        }
+        if (this.sequence < anotherEvent.sequence) {
+            return TScheduledEvent.THIS_LOWER;
+        }
+        if (this.sequence > anotherEvent.sequence) {
+            return TScheduledEvent.THIS_GREATER;
+        }
+        return TScheduledEvent.THIS_EQUAL;
+    }
+
+    private static final int THIS_LOWER = -1;
+    private static final int THIS_EQUAL = 0;
+    private static final int THIS_GREATER = 1;
+
+    private final long instant;
+    private final long sequence;
+    private final TTopologyElement target;
+}
@@ -0,0 +1,93 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.timer;
+
+import java.util.ArrayList;
+
+/**
+ * This class implements the legacy execution engine: a new thread is created
+ * for each task of each timer tick and all of them are joined, one after
+ * another, at the end of the tick.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TThreadPerTaskExecutionEngine implements IExecutionEngine {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TThreadPerTaskExecutionEngine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TThreadPerTaskExecutionEngine() {
+        this.runningThreads = new ArrayList<>();
+    }
+
+    /**
+     * This method starts a new thread that executes the specified task.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param task the task to be executed. Usually, a topology element.
+     * @since 2.0
+     */
+    @Override
+    public void execute(Runnable task) {
+        Thread thread = new Thread(task);
+        synchronized (this.runningThreads) {
+            this.runningThreads.add(thread);
+        }
+        thread.start();
+    }
+
+    /**
+     * This method joins every thread started since the last call to this
+     * method.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void waitForCompletion() {
+        Thread[] threads;
+        synchronized (this.runningThreads) {
+            threads = this.runningThreads.toArray(new Thread[this.runningThreads.size()]);
+            this.runningThreads.clear();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                System.out.println(java.util.ResourceBundle.getBundle("com/manolodominguez/opensimmpls/resources/translations/translations").getString("TElementoTopologia.ErrorFinReloj") + e.toString());
+            }
+        }
+    }
+
+    /**
+     * This method does nothing because this execution engine does not keep
+     * any thread alive between timer ticks.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void shutdown() {
+        // Nothing to release.
+    }
+
+    private final ArrayList<Thread> runningThreads;
+}
@@ -15,8 +15,11 @@
  */
 package com.manolodominguez.opensimmpls.hardware.timer;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.TreeSet;
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.scenario.TExternalLink;
 import com.manolodominguez.opensimmpls.scenario.TInternalLink;
 import com.manolodominguez.opensimmpls.scenario.TActiveLERNode;
@@ -28,6 +31,9 @@ import com.manolodominguez.opensimmpls.scenario.TNode;
 import com.manolodominguez.opensimmpls.scenario.TTrafficSinkNode;
 import com.manolodominguez.opensimmpls.scenario.TTrafficGeneratorNode;
 import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import com.manolodominguez.opensimmpls.scenario.TTopologyPartition;
+import com.manolodominguez.opensimmpls.scenario.TTopologyPartitioner;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventListener;
 import com.manolodominguez.opensimmpls.commons.EIDGeneratorOverflow;
 import com.manolodominguez.opensimmpls.gui.utils.TProgressEventListener;
 import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
@@ -52,9 +58,10 @@ public class TTimer implements Runnable {
      */
     public TTimer() {
         this.thread = null;
-        this.timerEventListenerNodes = new TreeSet();
-        this.timerEventListenerLInks = new TreeSet();
+        this.timerEventListenerNodes = new TreeSet<>();
+        this.timerEventListenerLInks = new TreeSet<>();
         this.progressEventListener = null;
+        this.simulationEventListener = null;
         this.longIdentifierGenerator = new TLongIDGenerator();
         this.currentTimestamp = new TTimestamp(0, 0);
         this.previousTimestamp = new TTimestamp(0, 0);
@@ -66,6 +73,13 @@ public class TTimer implements Runnable {
         this.running = false;
         this.isFinished = true;
         this.paused = false;
+        this.executionEngine = new TThreadPerTaskExecutionEngine();
+        this.schedulingMode = TTimer.TIME_DRIVEN_SCHEDULING;
+        this.eventScheduler = new TEventScheduler();
+        this.eventSchedulerSeeded = false;
+        this.idleTicksFastForward = false;
+        this.inlineExecutionEngine = new TInlineExecutionEngine();
+        this.numberOfPartitions = Runtime.getRuntime().availableProcessors();
     }
 
     /**
@@ -82,6 +96,8 @@ public class TTimer implements Runnable {
         this.longIdentifierGenerator.reset();
         this.isFinished = true;
         this.paused = false;
+        this.eventScheduler.reset();
+        this.eventSchedulerSeeded = false;
         generateProgressEvent();
     }
 
@@ -113,6 +129,186 @@ public class TTimer implements Runnable {
         this.tick = tick;
     }
 
+    /**
+     * This method sets the execution engine that will run the work of every
+     * topology element on each timer tick. The previous execution engine is
+     * shut down and every subscribed topology element starts using the new
+     * one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param executionEngine the execution engine to be used from now on. For
+     * instance, a TThreadPerTaskExecutionEngine (legacy behaviour, one thread
+     * per element and tick) or a TPooledExecutionEngine.
+     * @since 2.0
+     */
+    public synchronized void setExecutionEngine(IExecutionEngine executionEngine) {
+        if (this.executionEngine != executionEngine) {
+            this.executionEngine.shutdown();
+            this.executionEngine = executionEngine;
+            Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+            while (nodesIterator.hasNext()) {
+                ((TTopologyElement) nodesIterator.next()).setExecutionEngine(getElementsExecutionEngine());
+            }
+            Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+            while (linksIterator.hasNext()) {
+                ((TTopologyElement) linksIterator.next()).setExecutionEngine(getElementsExecutionEngine());
+            }
+        }
+    }
+
+    /**
+     * This method gets the execution engine that runs the work of every
+     * topology element on each timer tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the execution engine currently in use.
+     * @since 2.0
+     */
+    public IExecutionEngine getExecutionEngine() {
+        return this.executionEngine;
+    }
+
+    /**
+     * This method sets the way the timer advances the simulation. In
+     * time-driven mode the timer advances in fixed ticks and wakes up every
+     * topology element on each tick. In event-driven mode the timer jumps
+     * directly to the next instant at which a topology element has something
+     * to do and only wakes up those elements. In phased time-driven mode the
+     * timer advances in fixed ticks, but each tick is split into phases (links
+     * advance, nodes receive, nodes switch, links accept) separated by
+     * barriers, so that results do not depend on threads interleaving. Traffic
+     * generators also produce the same variable traffic on every simulation.
+     * In partitioned mode the topology is split into regions, each one
+     * simulated in phases by its own logical process, and regions only
+     * synchronize as often as the delay of the links between them requires.
+     * If there are active nodes, which route using the RABAN weights of the
+     * whole topology, partitioned mode works as the phased one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param schedulingMode TTimer.TIME_DRIVEN_SCHEDULING,
+     * TTimer.EVENT_DRIVEN_SCHEDULING, TTimer.PHASED_TIME_DRIVEN_SCHEDULING or
+     * TTimer.PARTITIONED_SCHEDULING.
+     * @since 2.0
+     */
+    public synchronized void setSchedulingMode(int schedulingMode) {
+        this.schedulingMode = schedulingMode;
+        TEventScheduler elementsEventScheduler = null;
+        if (this.schedulingMode == TTimer.EVENT_DRIVEN_SCHEDULING) {
+            elementsEventScheduler = this.eventScheduler;
+        }
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+        while (nodesIterator.hasNext()) {
+            TNode nodeAux = nodesIterator.next();
+            nodeAux.setEventScheduler(elementsEventScheduler);
+            nodeAux.setExecutionEngine(getElementsExecutionEngine());
+            if (nodeAux.getNodeType() == TNode.TRAFFIC_GENERATOR) {
+                ((TTrafficGeneratorNode) nodeAux).setReproducible(isPhasedScheduling());
+            }
+        }
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        while (linksIterator.hasNext()) {
+            TLink linkAux = linksIterator.next();
+            linkAux.setEventScheduler(elementsEventScheduler);
+            linkAux.setExecutionEngine(getElementsExecutionEngine());
+            linkAux.setPhasedOperation(isPhasedScheduling());
+            linkAux.setBoundaryLink(false);
+        }
+    }
+
+    /**
+     * This method checks whether the current scheduling mode executes each
+     * tick in phases or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, in phased, partitioned and event-driven modes. Otherwise,
+     * FALSE.
+     * @since 2.0
+     */
+    private boolean isPhasedScheduling() {
+        return (this.schedulingMode != TTimer.TIME_DRIVEN_SCHEDULING);
+    }
+
+    /**
+     * This method gets the execution engine topology elements have to use. In
+     * partitioned mode each logical process runs its elements in its own
+     * thread, so they use an inline execution engine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the execution engine topology elements have to use.
+     * @since 2.0
+     */
+    private IExecutionEngine getElementsExecutionEngine() {
+        if (this.schedulingMode == TTimer.PARTITIONED_SCHEDULING) {
+            return this.inlineExecutionEngine;
+        }
+        return this.executionEngine;
+    }
+
+    /**
+     * This method sets the number of partitions the topology is split into in
+     * partitioned mode. Each partition is simulated by its own logical process,
+     * so it is usually the number of available cores.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfPartitions the wanted number of partitions.
+     * @since 2.0
+     */
+    public void setNumberOfPartitions(int numberOfPartitions) {
+        this.numberOfPartitions = Math.max(1, numberOfPartitions);
+    }
+
+    /**
+     * This method gets the number of partitions the topology is split into in
+     * partitioned mode.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the wanted number of partitions.
+     * @since 2.0
+     */
+    public int getNumberOfPartitions() {
+        return this.numberOfPartitions;
+    }
+
+    /**
+     * This method gets the way the timer advances the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TTimer.TIME_DRIVEN_SCHEDULING, TTimer.EVENT_DRIVEN_SCHEDULING,
+     * TTimer.PHASED_TIME_DRIVEN_SCHEDULING or TTimer.PARTITIONED_SCHEDULING.
+     * @since 2.0
+     */
+    public int getSchedulingMode() {
+        return this.schedulingMode;
+    }
+
+    /**
+     * This method enables or disables the fast-forward of idle ticks in
+     * time-driven mode. When enabled, after each tick the timer asks every
+     * topology element for the time remaining to its next interesting instant
+     * and, if all of them are idle for several ticks, covers that idle stretch
+     * with a single timer event instead of stepping tick by tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param idleTicksFastForward TRUE, if idle ticks have to be skipped.
+     * Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setIdleTicksFastForward(boolean idleTicksFastForward) {
+        this.idleTicksFastForward = idleTicksFastForward;
+    }
+
+    /**
+     * This method checks whether the fast-forward of idle ticks is enabled or
+     * not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if idle ticks are being skipped. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isIdleTicksFastForward() {
+        return this.idleTicksFastForward;
+    }
+
     /**
      * This method let a topology element (nodes and/or links) to subscribe the
      * timer to receive timer events.
@@ -122,10 +318,20 @@ public class TTimer implements Runnable {
      * @since 2.0
      */
     public void addTimerEventListener(TTopologyElement timerEventListener) {
+        timerEventListener.setExecutionEngine(getElementsExecutionEngine());
+        if (this.schedulingMode == TTimer.EVENT_DRIVEN_SCHEDULING) {
+            timerEventListener.setEventScheduler(this.eventScheduler);
+        } else {
+            timerEventListener.setEventScheduler(null);
+        }
         if (timerEventListener.getElementType() == TTopologyElement.LINK) {
-            this.timerEventListenerLInks.add(timerEventListener);
+            ((TLink) timerEventListener).setPhasedOperation(isPhasedScheduling());
+            this.timerEventListenerLInks.add((TLink) timerEventListener);
         } else {
-            this.timerEventListenerNodes.add(timerEventListener);
+            if (((TNode) timerEventListener).getNodeType() == TNode.TRAFFIC_GENERATOR) {
+                ((TTrafficGeneratorNode) timerEventListener).setReproducible(isPhasedScheduling());
+            }
+            this.timerEventListenerNodes.add((TNode) timerEventListener);
         }
     }
 
@@ -140,21 +346,21 @@ public class TTimer implements Runnable {
      */
     public void removeTimerEventListener(TTopologyElement timerEventListener) {
         if (timerEventListener.getElementType() == TTopologyElement.LINK) {
-            Iterator iterator = this.timerEventListenerLInks.iterator();
+            Iterator<TLink> iterator = this.timerEventListenerLInks.iterator();
             TLink linkAux;
             TLink timerEventListenerAux = (TLink) timerEventListener;
             while (iterator.hasNext()) {
-                linkAux = (TLink) iterator.next();
+                linkAux = iterator.next();
                 if (linkAux.getID() == timerEventListenerAux.getID()) {
                     iterator.remove();
                 }
             }
         } else {
-            Iterator iterator = this.timerEventListenerNodes.iterator();
+            Iterator<TNode> iterator = this.timerEventListenerNodes.iterator();
             TNode nodeAux;
             TNode timerEventListenerAux = (TNode) timerEventListener;
             while (iterator.hasNext()) {
-                nodeAux = (TNode) iterator.next();
+                nodeAux = iterator.next();
                 if (nodeAux.getNodeID() == timerEventListenerAux.getNodeID()) {
                     iterator.remove();
                 }
@@ -170,18 +376,18 @@ public class TTimer implements Runnable {
      * @since 2.0
      */
     public void purgeTimerEventListenersMarkedForDeletion() {
-        Iterator linksIterator = this.timerEventListenerLInks.iterator();
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
         TLink linkAux;
         while (linksIterator.hasNext()) {
-            linkAux = (TLink) linksIterator.next();
+            linkAux = linksIterator.next();
             if (linkAux.isMarkedForDeletionAsTimerEventListener()) {
                 linksIterator.remove();
             }
         }
-        Iterator nodesIterator = this.timerEventListenerNodes.iterator();
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
         TNode nodeAux;
         while (nodesIterator.hasNext()) {
-            nodeAux = (TNode) nodesIterator.next();
+            nodeAux = nodesIterator.next();
             if (nodeAux.isMarkedForDeletionAsTimerEventListener()) {
                 nodesIterator.remove();
             }
@@ -220,6 +426,22 @@ public class TTimer implements Runnable {
         this.progressEventListener = null;
     }
 
+    /**
+     * This method sets the simulation event listener that collects the
+     * simulation events of the topology elements. It is flushed every time the
+     * thread of this timer finishes, that is, when the simulation ends, is
+     * paused or is stopped, so that simulation events it may be holding back
+     * are delivered without waiting for the next tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventListener the simulation event listener that
+     * collects the simulation events of the topology elements.
+     * @since 2.0
+     */
+    public void setSimulationEventListener(TSimulationEventListener simulationEventListener) {
+        this.simulationEventListener = simulationEventListener;
+    }
+
     /**
      * This method generates a new timer event an sends it to all topology
      * elements that are subscribed to receive timer events.
@@ -228,14 +450,14 @@ public class TTimer implements Runnable {
      * @since 2.0
      */
     private void generateTimerEvent() {
-        Iterator linksIterator = this.timerEventListenerLInks.iterator();
-        Iterator nodesIterator = this.timerEventListenerNodes.iterator();
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
         TNode nodeAux;
         TLink linkAux;
         TTimestamp startOfSimulationInterval = new TTimestamp(this.previousTimestamp.getMillisecond(), this.previousTimestamp.getNanosecond());
         TTimestamp endOfSimulationInterval = new TTimestamp(this.currentTimestamp.getMillisecond(), this.currentTimestamp.getNanosecond());
         while (nodesIterator.hasNext()) {
-            nodeAux = (TNode) nodesIterator.next();
+            nodeAux = nodesIterator.next();
             switch (nodeAux.getNodeType()) {
                 case TNode.TRAFFIC_GENERATOR: {
                     nodeAux = (TTrafficGeneratorNode) nodeAux;
@@ -263,14 +485,14 @@ public class TTimer implements Runnable {
                 }
             }
             try {
-                TTimerEvent timerEvent = new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval);
+                TTimerEvent timerEvent = new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval, this.tick);
                 nodeAux.receiveTimerEvent(timerEvent);
             } catch (EIDGeneratorOverflow e) {
                 e.printStackTrace();
             }
         }
         while (linksIterator.hasNext()) {
-            linkAux = (TLink) linksIterator.next();
+            linkAux = linksIterator.next();
             switch (linkAux.getLinkType()) {
                 case TLink.EXTERNAL_LINK: {
                     linkAux = (TExternalLink) linkAux;
@@ -282,11 +504,81 @@ public class TTimer implements Runnable {
                 }
             }
             try {
-                linkAux.receiveTimerEvent(new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval));
+                linkAux.receiveTimerEvent(new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval, this.tick));
+            } catch (EIDGeneratorOverflow e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * This method sends the timer event of the current tick to every topology
+     * element, either all at once or phase by phase, depending on the
+     * scheduling mode.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void generateTickTimerEvent() {
+        if (isPhasedScheduling()) {
+            generatePhasedTimerEvent();
+        } else {
+            generateTimerEvent();
+        }
+    }
+
+    /**
+     * This method executes the current tick in four phases: links advance the
+     * packets in transit, nodes receive the packets that have reached them,
+     * nodes switch or route packets and links accept the packets nodes have
+     * put on them. Each phase is executed in parallel by the execution engine
+     * and the next one does not start until all elements have finished. As
+     * each element only modifies its own state within a phase, the outcome of
+     * a tick is the same regardless of the number of threads used.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void generatePhasedTimerEvent() {
+        TTimestamp startOfSimulationInterval = new TTimestamp(this.previousTimestamp.getMillisecond(), this.previousTimestamp.getNanosecond());
+        TTimestamp endOfSimulationInterval = new TTimestamp(this.currentTimestamp.getMillisecond(), this.currentTimestamp.getNanosecond());
+        // Phase 1: links advance.
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        while (linksIterator.hasNext()) {
+            TLink linkAux = linksIterator.next();
+            try {
+                linkAux.receiveTimerEvent(new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval, this.tick));
+            } catch (EIDGeneratorOverflow e) {
+                e.printStackTrace();
+            }
+        }
+        waitUntilTimerEventListenersFinishTheirWork();
+        // Phase 2: nodes receive.
+        long endOfTick = endOfSimulationInterval.getTotalAsNanoseconds();
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+        while (nodesIterator.hasNext()) {
+            TNode nodeAux = nodesIterator.next();
+            this.executionEngine.execute(() -> nodeAux.receivePacketsFromLinks(endOfTick));
+        }
+        waitUntilTimerEventListenersFinishTheirWork();
+        // Phase 3: nodes switch or route.
+        nodesIterator = this.timerEventListenerNodes.iterator();
+        while (nodesIterator.hasNext()) {
+            TNode nodeAux = nodesIterator.next();
+            try {
+                nodeAux.receiveTimerEvent(new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval, this.tick));
             } catch (EIDGeneratorOverflow e) {
                 e.printStackTrace();
             }
         }
+        waitUntilTimerEventListenersFinishTheirWork();
+        // Phase 4: links accept.
+        linksIterator = this.timerEventListenerLInks.iterator();
+        while (linksIterator.hasNext()) {
+            TLink linkAux = linksIterator.next();
+            this.executionEngine.execute(linkAux::acceptPacketsFromNodes);
+        }
+        waitUntilTimerEventListenersFinishTheirWork();
     }
 
     /**
@@ -401,6 +693,32 @@ public class TTimer implements Runnable {
      * @since 2.0
      */
     public void run() {
+        if (this.schedulingMode == TTimer.EVENT_DRIVEN_SCHEDULING) {
+            runEventDriven();
+        } else if (this.schedulingMode == TTimer.PARTITIONED_SCHEDULING) {
+            if (isAnyActiveNodeSubscribed()) {
+                runPartitionedInPhases();
+            } else {
+                runPartitioned();
+            }
+        } else {
+            runTimeDriven();
+        }
+        TSimulationEventListener simulationEventListenerAux = this.simulationEventListener;
+        if (simulationEventListenerAux != null) {
+            simulationEventListenerAux.flush();
+        }
+    }
+
+    /**
+     * This method is the time-driven version of run(). It advances the
+     * simulation tick by tick, sending a timer event to every topology element
+     * each tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void runTimeDriven() {
         this.running = true;
         long currentSimulatedTime;
         long previousSimulatedTime;
@@ -416,7 +734,7 @@ public class TTimer implements Runnable {
         while ((this.currentTimestamp.compareTo(this.finishTimestamp) != TTimestamp.ARGUMENT_IS_LOWER) && (!this.isFinished)) {
             // Let's simulate
             generateProgressEvent();
-            generateTimerEvent();
+            generateTickTimerEvent();
             // ------------------
             this.previousTimestamp.setMillisecond(this.currentTimestamp.getMillisecond());
             this.previousTimestamp.setNanosecond(this.currentTimestamp.getNanosecond());
@@ -439,44 +757,422 @@ public class TTimer implements Runnable {
                 this.isFinished = true;
             }
             waitUntilTimerEventListenersFinishTheirWork();
+            if ((this.idleTicksFastForward) && (!simulationFinished) && (!this.isFinished)) {
+                fastForwardIdleTicks();
+            }
         }
         this.running = false;
     }
 
     /**
-     * This method wait until all element that received a timer event have
-     * consumed them. This is the way to synchronize al topology elements
-     * between timer events. This method is a synchronized one.
+     * This method skips the ticks in which no topology element has anything
+     * to do. It computes the number of whole ticks that will elapse before the
+     * next interesting instant of any element and, if there are at least two
+     * of them, sends a single timer event covering all of them. Then, the
+     * normal tick by tick operation continues from the tick containing that
+     * interesting instant. That timer event carries the nominal tick, so that
+     * nodes get the switching time of a single idle tick instead of that of
+     * the whole interval, and every element ends up in the same state as if
+     * it had received all the idle ticks one by one. Only the simulation
+     * events generated once per simulated tick are fewer.
      *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      */
-    private synchronized void waitUntilTimerEventListenersFinishTheirWork() {
-        Iterator nodesIterator = this.timerEventListenerNodes.iterator();
-        Iterator linksIterator = this.timerEventListenerLInks.iterator();
-        TNode nodeAux;
-        TLink linkAux;
+    private void fastForwardIdleTicks() {
+        long previousSimulatedTime = this.previousTimestamp.getTotalAsNanoseconds();
+        long simulationDuration = this.finishTimestamp.getTotalAsNanoseconds();
+        long nanosecondsToNextEvent = getNanosecondsToNextEvent();
+        long idleTicks;
+        if (nanosecondsToNextEvent == TTopologyElement.NO_PENDING_EVENTS) {
+            idleTicks = Long.MAX_VALUE;
+        } else if (nanosecondsToNextEvent <= this.tick) {
+            return;
+        } else {
+            idleTicks = (nanosecondsToNextEvent - 1) / this.tick;
+        }
+        // The last tick of the simulation is always simulated normally.
+        idleTicks = Math.min(idleTicks, ((simulationDuration - previousSimulatedTime) / this.tick) - 1);
+        // Timer events carry their duration as an int.
+        idleTicks = Math.min(idleTicks, Integer.MAX_VALUE / this.tick);
+        if (idleTicks < 2) {
+            return;
+        }
+        this.currentTimestamp.setTotalAsNanoseconds(previousSimulatedTime + (idleTicks * this.tick));
+        generateTickTimerEvent();
+        waitUntilTimerEventListenersFinishTheirWork();
+        this.previousTimestamp.setTimestamp(this.currentTimestamp);
+        this.currentTimestamp.increaseNanoseconds(this.tick);
+    }
+
+    /**
+     * This method asks every topology element subscribed to the timer for the
+     * time remaining to its next interesting instant and returns the lowest
+     * one. The search stops as soon as an element needs the next tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nanoseconds until any topology element has
+     * something to do, or TTopologyElement.NO_PENDING_EVENTS if none of them
+     * has any pending work.
+     * @since 2.0
+     */
+    private long getNanosecondsToNextEvent() {
+        long nanosecondsToNextEvent = TTopologyElement.NO_PENDING_EVENTS;
+        TTopologyElement element;
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        while ((linksIterator.hasNext()) && (nanosecondsToNextEvent > this.tick)) {
+            element = (TTopologyElement) linksIterator.next();
+            if (!element.isMarkedForDeletionAsTimerEventListener()) {
+                nanosecondsToNextEvent = Math.min(nanosecondsToNextEvent, element.getNanosecondsToNextEvent());
+            }
+        }
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+        while ((nodesIterator.hasNext()) && (nanosecondsToNextEvent > this.tick)) {
+            element = (TTopologyElement) nodesIterator.next();
+            if (!element.isMarkedForDeletionAsTimerEventListener()) {
+                nanosecondsToNextEvent = Math.min(nanosecondsToNextEvent, element.getNanosecondsToNextEvent());
+            }
+        }
+        return nanosecondsToNextEvent;
+    }
+
+    /**
+     * This method is the event-driven version of run(). Instead of advancing
+     * the simulation in fixed ticks, it takes from the event scheduler the
+     * next instant at which a topology element has something to do, jumps
+     * directly to it and wakes up only the elements involved. Each of them
+     * receives a timer event covering the time elapsed since it was woken up
+     * for the last time; nodes only get one tick of switching time out of it,
+     * as they would in time-driven mode. Each instant is executed in the same
+     * four phases as a phased tick, so that its outcome does not depend on
+     * the order in which the woken up elements run: woken up links advance,
+     * the nodes at their ends collect the packets that have reached them,
+     * those nodes and the woken up ones switch or route and, finally, the
+     * links of the nodes that have worked accept the packets put on them.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void runEventDriven() {
+        this.running = true;
+        this.isFinished = false;
+        long finishInstant = this.finishTimestamp.getTotalAsNanoseconds();
+        this.eventScheduler.setMinimumDelay(this.tick);
+        if (!this.eventSchedulerSeeded) {
+            // Every element is woken up on the first tick so that it can
+            // start working and schedule its own events.
+            this.eventScheduler.setCurrentInstant(this.currentTimestamp.getTotalAsNanoseconds());
+            Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+            while (linksIterator.hasNext()) {
+                this.eventScheduler.scheduleAfter((TTopologyElement) linksIterator.next(), this.tick);
+            }
+            Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+            while (nodesIterator.hasNext()) {
+                this.eventScheduler.scheduleAfter((TTopologyElement) nodesIterator.next(), this.tick);
+            }
+            this.eventSchedulerSeeded = true;
+        }
+        long nextInstant = this.eventScheduler.getNextEventInstant();
+        while ((!this.isFinished) && (nextInstant != TEventScheduler.NO_PENDING_EVENTS) && (nextInstant <= finishInstant)) {
+            this.previousTimestamp.setTimestamp(this.currentTimestamp);
+            this.currentTimestamp.setTotalAsNanoseconds(nextInstant);
+            this.eventScheduler.setCurrentInstant(nextInstant);
+            generateProgressEvent();
+            LinkedHashSet<TTopologyElement> wokenUpElements = this.eventScheduler.pollEventsUntil(nextInstant);
+            // Elements are sorted, instead of being taken in the order they
+            // were scheduled, because they are scheduled concurrently.
+            TreeSet<TLink> wokenUpLinks = new TreeSet<>();
+            TreeSet<TNode> workingNodes = new TreeSet<>();
+            for (TTopologyElement element : wokenUpElements) {
+                if (!element.isMarkedForDeletionAsTimerEventListener()) {
+                    if (element.getElementType() == TTopologyElement.LINK) {
+                        wokenUpLinks.add((TLink) element);
+                    } else {
+                        workingNodes.add((TNode) element);
+                    }
+                }
+            }
+            // Phase 1: woken up links advance.
+            for (TLink link : wokenUpLinks) {
+                sendTimerEvent(link, nextInstant);
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            // Links not woken up have not refreshed their RABAN weight, but
+            // the nodes at their ends could have changed since then.
+            Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+            while (linksIterator.hasNext()) {
+                linksIterator.next().updateRABANWeightSnapshot();
+            }
+            // Phase 2: nodes receive.
+            for (TLink link : wokenUpLinks) {
+                if (!link.getHeadEndNode().isMarkedForDeletionAsTimerEventListener()) {
+                    workingNodes.add(link.getHeadEndNode());
+                }
+                if (!link.getTailEndNode().isMarkedForDeletionAsTimerEventListener()) {
+                    workingNodes.add(link.getTailEndNode());
+                }
+            }
+            long endOfInstant = nextInstant;
+            for (TNode node : workingNodes) {
+                this.executionEngine.execute(() -> node.receivePacketsFromLinks(endOfInstant));
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            // Phase 3: nodes switch or route.
+            for (TNode node : workingNodes) {
+                sendTimerEvent(node, nextInstant);
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            // Phase 4: links accept.
+            TreeSet<TLink> acceptingLinks = new TreeSet<>();
+            for (TNode node : workingNodes) {
+                TPortSet portSet = node.getPorts();
+                if (portSet != null) {
+                    for (int portID = 0; portID < portSet.getNumberOfPorts(); portID++) {
+                        TLink link = portSet.getPort(portID).getLink();
+                        if (link != null) {
+                            acceptingLinks.add(link);
+                        }
+                    }
+                }
+            }
+            for (TLink link : acceptingLinks) {
+                this.executionEngine.execute(link::acceptPacketsFromNodes);
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            for (TLink link : wokenUpLinks) {
+                scheduleNextEvent(link);
+            }
+            for (TNode node : workingNodes) {
+                scheduleNextEvent(node);
+            }
+            nextInstant = this.eventScheduler.getNextEventInstant();
+        }
+        if (!this.isFinished) {
+            // Nothing else to do before the end of the simulation.
+            this.previousTimestamp.setTimestamp(this.currentTimestamp);
+            this.currentTimestamp.setTimestamp(this.finishTimestamp);
+            generateProgressEvent();
+            this.isFinished = true;
+        }
+        this.running = false;
+    }
+
+    /**
+     * This method asks the event scheduler to wake up the specified topology
+     * element when it has something to do again, if any.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param element the topology element that has just been woken up.
+     * @since 2.0
+     */
+    private void scheduleNextEvent(TTopologyElement element) {
+        long nanosecondsToNextEvent = element.getNanosecondsToNextEvent();
+        if (nanosecondsToNextEvent != TTopologyElement.NO_PENDING_EVENTS) {
+            this.eventScheduler.scheduleAfter(element, nanosecondsToNextEvent);
+        }
+    }
+
+    /**
+     * This method is the partitioned version of run(). The topology is split
+     * into partitions, favouring high-delay links as the links between them,
+     * and each partition is simulated tick by tick by its own logical process.
+     * Logical processes only synchronize every lookahead, that is, the minimum
+     * delay of the links between partitions rounded up to whole ticks: a
+     * packet put on such a link cannot reach the other partition before the
+     * next synchronization, so partitions can advance independently until
+     * then (YAWNS-like conservative synchronization).
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void runPartitioned() {
+        this.running = true;
+        this.isFinished = false;
+        TTopologyPartitioner partitioner = new TTopologyPartitioner();
+        partitioner.partition(this.timerEventListenerNodes, this.timerEventListenerLInks, this.numberOfPartitions);
+        ArrayList<TLogicalProcess> logicalProcesses = new ArrayList<>();
+        for (TTopologyPartition partition : partitioner.getPartitions()) {
+            logicalProcesses.add(new TLogicalProcess(this, this.longIdentifierGenerator, partition));
+        }
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        while (linksIterator.hasNext()) {
+            linksIterator.next().setBoundaryLink(false);
+        }
+        ArrayList<TLink> boundaryLinks = partitioner.getCutLinks();
+        for (TLink link : boundaryLinks) {
+            link.setBoundaryLink(true);
+        }
+        long lookahead = partitioner.getMinimumCutLinkDelay();
+        long windowLength;
+        if (lookahead == TTopologyPartitioner.NO_CUT_LINKS) {
+            windowLength = Long.MAX_VALUE;
+        } else {
+            windowLength = Math.max(1, (lookahead + this.tick - 1) / this.tick) * this.tick;
+        }
+        long finishInstant = this.finishTimestamp.getTotalAsNanoseconds();
+        long currentInstant = this.currentTimestamp.getTotalAsNanoseconds();
+        long windowEnd = getEndOfPartitionedWindow(currentInstant, windowLength, finishInstant);
+        for (TLink link : boundaryLinks) {
+            link.synchronizeBoundary(currentInstant, windowEnd);
+        }
+        while ((!this.isFinished) && (currentInstant < finishInstant)) {
+            for (TLogicalProcess logicalProcess : logicalProcesses) {
+                logicalProcess.setWindow(currentInstant, windowEnd, this.tick);
+                this.executionEngine.execute(logicalProcess);
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            long synchronizationInstant = windowEnd;
+            long nextWindowEnd = getEndOfPartitionedWindow(synchronizationInstant, windowLength, finishInstant);
+            for (TLink link : boundaryLinks) {
+                this.executionEngine.execute(() -> link.synchronizeBoundary(synchronizationInstant, nextWindowEnd));
+            }
+            waitUntilTimerEventListenersFinishTheirWork();
+            this.previousTimestamp.setTimestamp(this.currentTimestamp);
+            this.currentTimestamp.setTotalAsNanoseconds(synchronizationInstant);
+            generateProgressEvent();
+            currentInstant = synchronizationInstant;
+            windowEnd = nextWindowEnd;
+        }
+        if (currentInstant >= finishInstant) {
+            this.isFinished = true;
+        }
+        this.running = false;
+    }
+
+    /**
+     * This method checks whether any active LER or active LSR is subscribed
+     * to the timer. These nodes compute RABAN routes from the RABAN weights
+     * of every link of the topology, not only of those of their partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if any active node is subscribed. Otherwise, FALSE.
+     * @since 2.0
+     */
+    private boolean isAnyActiveNodeSubscribed() {
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
+        while (nodesIterator.hasNext()) {
+            int nodeType = nodesIterator.next().getNodeType();
+            if ((nodeType == TNode.ACTIVE_LER) || (nodeType == TNode.ACTIVE_LSR)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This method runs a partitioned simulation as a phased one. Logical
+     * processes advance through the ticks of a window independently, so an
+     * active node would read the RABAN weights of links of other partitions
+     * as they are at a different tick, and RABAN routes would depend on
+     * threads interleaving. So, while there are active nodes, every tick is
+     * executed in phases over the whole topology, using the execution engine
+     * of the timer, and results are those of the phased mode.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void runPartitionedInPhases() {
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
+        while (linksIterator.hasNext()) {
+            linksIterator.next().setBoundaryLink(false);
+        }
+        setElementsExecutionEngine(this.executionEngine);
+        runTimeDriven();
+        setElementsExecutionEngine(getElementsExecutionEngine());
+    }
+
+    /**
+     * This method sets the execution engine used by every topology element
+     * subscribed to the timer.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param elementsExecutionEngine the execution engine topology elements
+     * have to use.
+     * @since 2.0
+     */
+    private void setElementsExecutionEngine(IExecutionEngine elementsExecutionEngine) {
+        Iterator<TNode> nodesIterator = this.timerEventListenerNodes.iterator();
         while (nodesIterator.hasNext()) {
-            nodeAux = (TNode) nodesIterator.next();
-            nodeAux.waitForCompletion();
+            nodesIterator.next().setExecutionEngine(elementsExecutionEngine);
         }
+        Iterator<TLink> linksIterator = this.timerEventListenerLInks.iterator();
         while (linksIterator.hasNext()) {
-            linkAux = (TLink) linksIterator.next();
-            linkAux.waitForCompletion();
+            linksIterator.next().setExecutionEngine(elementsExecutionEngine);
+        }
+    }
+
+    /**
+     * This method computes the end of a synchronization window of a
+     * partitioned simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param windowStart the start of the window, in nanoseconds.
+     * @param windowLength the lookahead, in nanoseconds.
+     * @param finishInstant the end of the simulation, in nanoseconds.
+     * @return the end of the window, in nanoseconds.
+     * @since 2.0
+     */
+    private long getEndOfPartitionedWindow(long windowStart, long windowLength, long finishInstant) {
+        if (windowLength > (finishInstant - windowStart)) {
+            return finishInstant;
+        }
+        return windowStart + windowLength;
+    }
+
+    /**
+     * This method sends a timer event to a single topology element. The timer
+     * event covers the time elapsed since the element received its previous
+     * timer event up to the specified instant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param element the topology element that will receive the timer event.
+     * @param instant the end of the interval covered by the timer event, in
+     * nanoseconds.
+     * @since 2.0
+     */
+    private void sendTimerEvent(TTopologyElement element, long instant) {
+        long lowerLimit = element.getCurrentTimeInstant();
+        // Timer events carry their duration as an int.
+        if ((instant - lowerLimit) > Integer.MAX_VALUE) {
+            lowerLimit = instant - Integer.MAX_VALUE;
         }
+        TTimestamp startOfSimulationInterval = new TTimestamp(0, 0);
+        startOfSimulationInterval.setTotalAsNanoseconds(lowerLimit);
+        TTimestamp endOfSimulationInterval = new TTimestamp(0, 0);
+        endOfSimulationInterval.setTotalAsNanoseconds(instant);
+        try {
+            element.receiveTimerEvent(new TTimerEvent(this, this.longIdentifierGenerator.getNextIdentifier(), startOfSimulationInterval, endOfSimulationInterval, this.tick));
+        } catch (EIDGeneratorOverflow e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method wait until all element that received a timer event have
+     * consumed them. This is the way to synchronize al topology elements
+     * between timer events. This method is a synchronized one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private synchronized void waitUntilTimerEventListenersFinishTheirWork() {
+        this.executionEngine.waitForCompletion();
     }
 
     /**
      * This method is used by any simulator object to wait for the timer finish
-     * before doing a new operation. This method is a synchronized one.
+     * before doing a new operation. It is not synchronized on purpose: the
+     * timer thread needs the monitor of this instance to finish each tick, so
+     * joining it while holding the monitor would deadlock.
      *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      */
-    public synchronized void waitForCompletion() {
-        if (this.thread != null) {
+    public void waitForCompletion() {
+        Thread timerThread = this.thread;
+        if (timerThread != null) {
             try {
-                this.thread.join();
+                timerThread.join();
             } catch (Exception e) {
                 System.out.println(java.util.ResourceBundle.getBundle("com/manolodominguez/opensimmpls/resources/translations/translations").getString("TReloj.ErrorAlEsperarFinalizacionDelReloj") + e.toString());
             };
@@ -495,9 +1191,15 @@ public class TTimer implements Runnable {
         return this.running;
     }
 
-    private TreeSet timerEventListenerNodes;
-    private TreeSet timerEventListenerLInks;
+    public static final int TIME_DRIVEN_SCHEDULING = 0;
+    public static final int EVENT_DRIVEN_SCHEDULING = 1;
+    public static final int PHASED_TIME_DRIVEN_SCHEDULING = 2;
+    public static final int PARTITIONED_SCHEDULING = 3;
+
+    private TreeSet<TNode> timerEventListenerNodes;
+    private TreeSet<TLink> timerEventListenerLInks;
     private TProgressEventListener progressEventListener;
+    private volatile TSimulationEventListener simulationEventListener;
     private TLongIDGenerator longIdentifierGenerator;
     private int tick;
     private Thread thread;
@@ -510,4 +1212,11 @@ public class TTimer implements Runnable {
     private TTimestamp currentTimestampAux;
     private TTimestamp previousTimestampAux;
     private TTimestamp finishTimestampAux;
+    private IExecutionEngine executionEngine;
+    private int schedulingMode;
+    private TEventScheduler eventScheduler;
+    private boolean eventSchedulerSeeded;
+    private boolean idleTicksFastForward;
+    private IExecutionEngine inlineExecutionEngine;
+    private int numberOfPartitions;
 }
@@ -42,6 +42,29 @@ public class TTimerEvent extends TOpenSimMPLSEvent {
         super(eventGenerator, eventID, upperEndOfInterval.getTotalAsNanoseconds());
         this.lowerEndOfInterval = lowerEndOfInterval;
         this.upperEndOfInterval = upperEndOfInterval;
+        this.nominalTickDurationInNs = this.getTickDurationInNs();
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTimerEvent that may cover several ticks at once, as it happens when the
+     * timer skips idle ticks or works in event-driven mode.
+     *
+     * @param eventID The unique event identifier.
+     * @param eventGenerator The object that generates the event.
+     * @param lowerEndOfInterval The start of the period of time (simulation
+     * step) carried out by this event.
+     * @param upperEndOfInterval The end of the period of time (simulation step)
+     * carried out by this event.
+     * @param nominalTickDurationInNs The duration of a single tick of the
+     * timer, in nanoseconds.
+     * @since 2.0
+     */
+    public TTimerEvent(Object eventGenerator, long eventID, TTimestamp lowerEndOfInterval, TTimestamp upperEndOfInterval, int nominalTickDurationInNs) {
+        super(eventGenerator, eventID, upperEndOfInterval.getTotalAsNanoseconds());
+        this.lowerEndOfInterval = lowerEndOfInterval;
+        this.upperEndOfInterval = upperEndOfInterval;
+        this.nominalTickDurationInNs = nominalTickDurationInNs;
     }
 
     /**
@@ -57,6 +80,19 @@ public class TTimerEvent extends TOpenSimMPLSEvent {
         return (int) ((this.upperEndOfInterval.getTotalAsNanoseconds()) - (this.lowerEndOfInterval.getTotalAsNanoseconds()));
     }
 
+    /**
+     * This method returns the duration of a single tick of the timer, in
+     * nanoseconds. It is lower than the duration of the simulation step when
+     * this event covers several ticks whose work has been skipped because
+     * nothing happened in them.
+     *
+     * @return The duration of a single tick of the timer, in nanoseconds.
+     * @since 2.0
+     */
+    public int getNominalTickDurationInNs() {
+        return this.nominalTickDurationInNs;
+    }
+
     /**
      * This method get the end of the interval according to the values included
      * in the event, in nanoseconds.
@@ -84,4 +120,5 @@ public class TTimerEvent extends TOpenSimMPLSEvent {
 
     private final TTimestamp lowerEndOfInterval;
     private final TTimestamp upperEndOfInterval;
+    private final int nominalTickDurationInNs;
 }
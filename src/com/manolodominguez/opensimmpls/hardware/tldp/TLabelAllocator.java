@@ -0,0 +1,161 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.hardware.tldp;
+
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * This class implements the label space of a switching matrix. It keeps a
+ * bitmap with the labels that are in use and a hint pointing to the lowest
+ * label that could be free, so getting a new label does not require checking
+ * every label, nor every switching entry, from the beginning of the label
+ * space. A label can be used by several entries; it is not free again until
+ * all of them have released it.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TLabelAllocator {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TLabelAllocator covering labels from
+     * TSwitchingMatrixEntry.FIRST_UNRESERVED_LABEL to
+     * TSwitchingMatrixEntry.LABEL_SPACE.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TLabelAllocator() {
+        this.usedLabels = new BitSet();
+        this.additionalReferences = new HashMap<>();
+        this.lowestFreeLabelHint = TSwitchingMatrixEntry.FIRST_UNRESERVED_LABEL;
+    }
+
+    /**
+     * This method marks a label as used by one more switching entry.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param label the label. Values out of the label space are ignored.
+     * @since 2.0
+     */
+    public void use(int label) {
+        if (isInLabelSpace(label)) {
+            if (this.usedLabels.get(label)) {
+                Integer references = this.additionalReferences.get(label);
+                if (references == null) {
+                    this.additionalReferences.put(label, 1);
+                } else {
+                    this.additionalReferences.put(label, references + 1);
+                }
+            } else {
+                this.usedLabels.set(label);
+            }
+        }
+    }
+
+    /**
+     * This method marks a label as no longer used by one switching entry. If
+     * no other entry uses it, the label becomes free.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param label the label. Values out of the label space are ignored.
+     * @since 2.0
+     */
+    public void release(int label) {
+        if (isInLabelSpace(label)) {
+            Integer references = this.additionalReferences.get(label);
+            if (references != null) {
+                if (references > 1) {
+                    this.additionalReferences.put(label, references - 1);
+                } else {
+                    this.additionalReferences.remove(label);
+                }
+            } else {
+                this.usedLabels.clear(label);
+                if (label < this.lowestFreeLabelHint) {
+                    this.lowestFreeLabelHint = label;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method checks whether a label is used by any switching entry.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param label the label.
+     * @return TRUE, if the label is used. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isUsed(int label) {
+        if (isInLabelSpace(label)) {
+            return this.usedLabels.get(label);
+        }
+        return false;
+    }
+
+    /**
+     * This method gets the lowest label that is not used by any switching
+     * entry. The label is not marked as used; that will happen when it is
+     * assigned to an entry.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the lowest free label, or TSwitchingMatrixEntry.LABEL_UNAVAILABLE
+     * if the label space is exhausted.
+     * @since 2.0
+     */
+    public int getLowestFreeLabel() {
+        // Every label below the hint is used, so the search starts there.
+        this.lowestFreeLabelHint = this.usedLabels.nextClearBit(this.lowestFreeLabelHint);
+        if (this.lowestFreeLabelHint > TSwitchingMatrixEntry.LABEL_SPACE) {
+            return TSwitchingMatrixEntry.LABEL_UNAVAILABLE;
+        }
+        return this.lowestFreeLabelHint;
+    }
+
+    /**
+     * This method frees every label, as in the moment of the creation of the
+     * instance.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void reset() {
+        this.usedLabels.clear();
+        this.additionalReferences.clear();
+        this.lowestFreeLabelHint = TSwitchingMatrixEntry.FIRST_UNRESERVED_LABEL;
+    }
+
+    /**
+     * This method checks whether a value belongs to the label space managed
+     * by this allocator.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param label the value to be checked.
+     * @return TRUE, if the value is a label of the label space. Otherwise,
+     * FALSE.
+     * @since 2.0
+     */
+    private boolean isInLabelSpace(int label) {
+        return (label >= TSwitchingMatrixEntry.FIRST_UNRESERVED_LABEL) && (label <= TSwitchingMatrixEntry.LABEL_SPACE);
+    }
+
+    private BitSet usedLabels;
+    private HashMap<Integer, Integer> additionalReferences;
+    private int lowestFreeLabelHint;
+}
@@ -15,13 +15,20 @@
  */
 package com.manolodominguez.opensimmpls.hardware.tldp;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import com.manolodominguez.opensimmpls.commons.TLock;
 
 /**
  * This class implements a switching matrix to be used within each node of the
- * topology.
+ * topology. Entries are indexed by (incoming port, label or FEC, entry type),
+ * by local TLDP session and by (upstream TLDP session, incoming port), so
+ * per-packet lookups do not depend on the number of entries. When several
+ * entries share the same key, the oldest one is returned, as a sequential
+ * search would do. Labels in use are tracked by a TLabelAllocator, so
+ * getting a new label does not require scanning the entries either.
  *
  * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
  * @version 2.0
@@ -36,7 +43,12 @@ public class TSwitchingMatrix {
      * @since 2.0
      */
     public TSwitchingMatrix() {
-        this.switchingMatrix = new LinkedList();
+        this.switchingMatrix = new LinkedHashSet<>();
+        this.entriesIndex = new HashMap<>();
+        this.localTLDPSessionsIndex = new HashMap<>();
+        this.upstreamTLDPSessionsIndex = new HashMap<>();
+        this.labelAllocator = new TLabelAllocator();
+        this.nextInsertionOrder = 0;
         this.monitor = new TLock();
     }
 
@@ -62,7 +74,10 @@ public class TSwitchingMatrix {
      */
     public void addEntry(TSwitchingMatrixEntry switchingMatrixEntry) {
         this.monitor.lock();
-        this.switchingMatrix.addLast(switchingMatrixEntry);
+        if (this.switchingMatrix.add(switchingMatrixEntry)) {
+            switchingMatrixEntry.setSwitchingMatrix(this, this.nextInsertionOrder++);
+            addToIndexes(switchingMatrixEntry);
+        }
         this.monitor.unLock();
     }
 
@@ -82,21 +97,9 @@ public class TSwitchingMatrix {
      */
     public TSwitchingMatrixEntry getEntry(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        this.monitor.unLock();
-                        return switchingMatrixEntryAux;
-                    }
-                }
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType));
         this.monitor.unLock();
-        return null;
+        return switchingMatrixEntryAux;
     }
 
     /**
@@ -112,17 +115,9 @@ public class TSwitchingMatrix {
      */
     public TSwitchingMatrixEntry getEntry(int localTLDPSessionID) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLocalTLDPSessionID() == localTLDPSessionID) {
-                this.monitor.unLock();
-                return switchingMatrixEntryAux;
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(this.localTLDPSessionsIndex.get(localTLDPSessionID));
         this.monitor.unLock();
-        return null;
+        return switchingMatrixEntryAux;
     }
 
     /**
@@ -140,19 +135,9 @@ public class TSwitchingMatrix {
      */
     public TSwitchingMatrixEntry getEntry(int upstreamTLDPSessionID, int incomingPortID) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getUpstreamTLDPSessionID() == upstreamTLDPSessionID) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    this.monitor.unLock();
-                    return switchingMatrixEntryAux;
-                }
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(this.upstreamTLDPSessionsIndex.get(toKey(upstreamTLDPSessionID, incomingPortID)));
         this.monitor.unLock();
-        return null;
+        return switchingMatrixEntryAux;
     }
 
     /**
@@ -171,21 +156,9 @@ public class TSwitchingMatrix {
      */
     public boolean existsEntry(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        this.monitor.unLock();
-                        return true;
-                    }
-                }
-            }
-        }
+        boolean exists = (getFirstEntry(getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType)) != null);
         this.monitor.unLock();
-        return false;
+        return exists;
     }
 
     /**
@@ -203,16 +176,10 @@ public class TSwitchingMatrix {
      */
     public void removeEntry(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        iterator.remove();
-                    }
-                }
+        ArrayList<TSwitchingMatrixEntry> bucket = getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType);
+        if (bucket != null) {
+            for (TSwitchingMatrixEntry switchingMatrixEntryAux : new ArrayList<>(bucket)) {
+                removeFromMatrix(switchingMatrixEntryAux);
             }
         }
         this.monitor.unLock();
@@ -231,13 +198,11 @@ public class TSwitchingMatrix {
      */
     public void removeEntry(int localTLDPSessionID, int incomingPortID) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLocalTLDPSessionID() == localTLDPSessionID) {
+        ArrayList<TSwitchingMatrixEntry> bucket = this.localTLDPSessionsIndex.get(localTLDPSessionID);
+        if (bucket != null) {
+            for (TSwitchingMatrixEntry switchingMatrixEntryAux : new ArrayList<>(bucket)) {
                 if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    iterator.remove();
+                    removeFromMatrix(switchingMatrixEntryAux);
                 }
             }
         }
@@ -265,20 +230,11 @@ public class TSwitchingMatrix {
      */
     public int getLabelStackOperation(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        this.monitor.unLock();
-                        return switchingMatrixEntryAux.getLabelStackOperation();
-                    }
-                }
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType));
         this.monitor.unLock();
+        if (switchingMatrixEntryAux != null) {
+            return switchingMatrixEntryAux.getLabelStackOperation();
+        }
         return TSwitchingMatrixEntry.UNDEFINED;
     }
 
@@ -301,20 +257,11 @@ public class TSwitchingMatrix {
      */
     public int getOutgoingLabel(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        this.monitor.unLock();
-                        return switchingMatrixEntryAux.getOutgoingLabel();
-                    }
-                }
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType));
         this.monitor.unLock();
+        if (switchingMatrixEntryAux != null) {
+            return switchingMatrixEntryAux.getOutgoingLabel();
+        }
         return TSwitchingMatrixEntry.UNDEFINED;
     }
 
@@ -337,20 +284,11 @@ public class TSwitchingMatrix {
      */
     public int getOutgoingPortID(int incomingPortID, int labelOrFEC, int entryType) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux = null;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == labelOrFEC) {
-                if (switchingMatrixEntryAux.getIncomingPortID() == incomingPortID) {
-                    if (switchingMatrixEntryAux.getEntryType() == entryType) {
-                        this.monitor.unLock();
-                        return switchingMatrixEntryAux.getOutgoingPortID();
-                    }
-                }
-            }
-        }
+        TSwitchingMatrixEntry switchingMatrixEntryAux = getFirstEntry(getEntriesIndexBucket(incomingPortID, labelOrFEC, entryType));
         this.monitor.unLock();
+        if (switchingMatrixEntryAux != null) {
+            return switchingMatrixEntryAux.getOutgoingPortID();
+        }
         return TSwitchingMatrixEntry.UNDEFINED;
     }
 
@@ -366,19 +304,9 @@ public class TSwitchingMatrix {
      */
     public boolean labelIsAlreadyUsed(int label) {
         this.monitor.lock();
-        Iterator iterator = this.switchingMatrix.iterator();
-        TSwitchingMatrixEntry switchingMatrixEntryAux;
-        while (iterator.hasNext()) {
-            switchingMatrixEntryAux = (TSwitchingMatrixEntry) iterator.next();
-            if (switchingMatrixEntryAux.getLabelOrFEC() == label) {
-                if (switchingMatrixEntryAux.getEntryType() == TSwitchingMatrixEntry.LABEL_ENTRY) {
-                    this.monitor.unLock();
-                    return true;
-                }
-            }
-        }
+        boolean used = this.labelAllocator.isUsed(label);
         this.monitor.unLock();
-        return false;
+        return used;
     }
 
     /**
@@ -393,15 +321,42 @@ public class TSwitchingMatrix {
      * @since 2.0
      */
     public int getNewLabel() {
-        int labelAux = TSwitchingMatrixEntry.FIRST_UNRESERVED_LABEL;
-        while (labelAux <= TSwitchingMatrixEntry.LABEL_SPACE) {
-            if (!labelIsAlreadyUsed(labelAux)) {
-                return labelAux;
-            } else {
-                labelAux++;
+        this.monitor.lock();
+        int newLabel = this.labelAllocator.getLowestFreeLabel();
+        this.monitor.unLock();
+        return newLabel;
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse until the
+     * timeout of a pending TLDP operation (a label request or a label
+     * withdrawal) of any switching entry expires. A label withdrawal that has
+     * no attempts left is due immediately, as the entry has to be removed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nanoseconds until the nearest pending TLDP timeout
+     * expires, or Long.MAX_VALUE if there is not any pending TLDP operation.
+     * @since 2.0
+     */
+    public long getNanosecondsToNextTimeOut() {
+        long nanosecondsToNextTimeOut = Long.MAX_VALUE;
+        this.monitor.lock();
+        for (TSwitchingMatrixEntry switchingMatrixEntryAux : this.switchingMatrix) {
+            if (switchingMatrixEntryAux.getOutgoingLabel() == TSwitchingMatrixEntry.REMOVING_LABEL) {
+                if (!switchingMatrixEntryAux.areThereAvailableAttempts()) {
+                    // The entry will be removed as soon as possible.
+                    nanosecondsToNextTimeOut = 0;
+                } else if (switchingMatrixEntryAux.getTimeOut() < nanosecondsToNextTimeOut) {
+                    nanosecondsToNextTimeOut = switchingMatrixEntryAux.getTimeOut();
+                }
+            } else if ((switchingMatrixEntryAux.getOutgoingLabel() == TSwitchingMatrixEntry.LABEL_REQUESTED) && (switchingMatrixEntryAux.areThereAvailableAttempts())) {
+                if (switchingMatrixEntryAux.getTimeOut() < nanosecondsToNextTimeOut) {
+                    nanosecondsToNextTimeOut = switchingMatrixEntryAux.getTimeOut();
+                }
             }
         }
-        return TSwitchingMatrixEntry.LABEL_UNAVAILABLE;
+        this.monitor.unLock();
+        return nanosecondsToNextTimeOut;
     }
 
     /**
@@ -413,7 +368,31 @@ public class TSwitchingMatrix {
      * @since 2.0
      */
     public Iterator getEntriesIterator() {
-        return this.switchingMatrix.iterator();
+        final Iterator<TSwitchingMatrixEntry> iterator = this.switchingMatrix.iterator();
+        // Entries removed through this iterator have to leave the indexes too.
+        // Callers already hold the monitor while iterating, so it is not
+        // locked here.
+        return new Iterator<TSwitchingMatrixEntry>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public TSwitchingMatrixEntry next() {
+                this.current = iterator.next();
+                return this.current;
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                removeFromIndexes(this.current);
+                this.current.setSwitchingMatrix(null, 0);
+            }
+
+            private TSwitchingMatrixEntry current;
+        };
     }
 
     /**
@@ -438,14 +417,203 @@ public class TSwitchingMatrix {
      */
     public void reset() {
         this.monitor.lock();
-        Iterator it = this.switchingMatrix.iterator();
-        while (it.hasNext()) {
-            it.next();
-            it.remove();
+        for (TSwitchingMatrixEntry switchingMatrixEntryAux : this.switchingMatrix) {
+            switchingMatrixEntryAux.setSwitchingMatrix(null, 0);
         }
+        this.switchingMatrix.clear();
+        this.entriesIndex.clear();
+        this.localTLDPSessionsIndex.clear();
+        this.upstreamTLDPSessionsIndex.clear();
+        this.labelAllocator.reset();
+        this.nextInsertionOrder = 0;
+        this.monitor.unLock();
+    }
+
+    /**
+     * This method is called by a switching matrix entry of this matrix before
+     * one of the fields that are used as index keys is modified.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrixEntry the entry that is going to be modified.
+     * @since 2.0
+     */
+    void entryKeyWillChange(TSwitchingMatrixEntry switchingMatrixEntry) {
+        this.monitor.lock();
+        removeFromIndexes(switchingMatrixEntry);
+        this.monitor.unLock();
+    }
+
+    /**
+     * This method is called by a switching matrix entry of this matrix after
+     * one of the fields that are used as index keys has been modified.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrixEntry the entry that has been modified.
+     * @since 2.0
+     */
+    void entryKeyChanged(TSwitchingMatrixEntry switchingMatrixEntry) {
+        this.monitor.lock();
+        addToIndexes(switchingMatrixEntry);
         this.monitor.unLock();
     }
 
-    private LinkedList switchingMatrix;
+    /**
+     * This method removes an entry from the switching matrix and from every
+     * index. The monitor must be held by the caller.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrixEntry the entry to be removed.
+     * @since 2.0
+     */
+    private void removeFromMatrix(TSwitchingMatrixEntry switchingMatrixEntry) {
+        this.switchingMatrix.remove(switchingMatrixEntry);
+        removeFromIndexes(switchingMatrixEntry);
+        switchingMatrixEntry.setSwitchingMatrix(null, 0);
+    }
+
+    /**
+     * This method adds an entry to every index. The monitor must be held by
+     * the caller.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrixEntry the entry to be indexed.
+     * @since 2.0
+     */
+    private void addToIndexes(TSwitchingMatrixEntry switchingMatrixEntry) {
+        HashMap<Long, ArrayList<TSwitchingMatrixEntry>> entriesOfType = this.entriesIndex.get(switchingMatrixEntry.getEntryType());
+        if (entriesOfType == null) {
+            entriesOfType = new HashMap<>();
+            this.entriesIndex.put(switchingMatrixEntry.getEntryType(), entriesOfType);
+        }
+        addToBucket(entriesOfType, toKey(switchingMatrixEntry.getIncomingPortID(), switchingMatrixEntry.getLabelOrFEC()), switchingMatrixEntry);
+        addToBucket(this.localTLDPSessionsIndex, switchingMatrixEntry.getLocalTLDPSessionID(), switchingMatrixEntry);
+        addToBucket(this.upstreamTLDPSessionsIndex, toKey(switchingMatrixEntry.getUpstreamTLDPSessionID(), switchingMatrixEntry.getIncomingPortID()), switchingMatrixEntry);
+        if (switchingMatrixEntry.getEntryType() == TSwitchingMatrixEntry.LABEL_ENTRY) {
+            this.labelAllocator.use(switchingMatrixEntry.getLabelOrFEC());
+        }
+    }
+
+    /**
+     * This method removes an entry from every index. The monitor must be held
+     * by the caller.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrixEntry the entry to be removed from indexes.
+     * @since 2.0
+     */
+    private void removeFromIndexes(TSwitchingMatrixEntry switchingMatrixEntry) {
+        HashMap<Long, ArrayList<TSwitchingMatrixEntry>> entriesOfType = this.entriesIndex.get(switchingMatrixEntry.getEntryType());
+        if (entriesOfType != null) {
+            removeFromBucket(entriesOfType, toKey(switchingMatrixEntry.getIncomingPortID(), switchingMatrixEntry.getLabelOrFEC()), switchingMatrixEntry);
+        }
+        removeFromBucket(this.localTLDPSessionsIndex, switchingMatrixEntry.getLocalTLDPSessionID(), switchingMatrixEntry);
+        removeFromBucket(this.upstreamTLDPSessionsIndex, toKey(switchingMatrixEntry.getUpstreamTLDPSessionID(), switchingMatrixEntry.getIncomingPortID()), switchingMatrixEntry);
+        if (switchingMatrixEntry.getEntryType() == TSwitchingMatrixEntry.LABEL_ENTRY) {
+            this.labelAllocator.release(switchingMatrixEntry.getLabelOrFEC());
+        }
+    }
+
+    /**
+     * This method adds an entry to the bucket of an index, keeping the bucket
+     * sorted by insertion order in the switching matrix.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param <K> the type of the key of the index.
+     * @param index the index.
+     * @param key the key of the entry.
+     * @param switchingMatrixEntry the entry to be added.
+     * @since 2.0
+     */
+    private <K> void addToBucket(HashMap<K, ArrayList<TSwitchingMatrixEntry>> index, K key, TSwitchingMatrixEntry switchingMatrixEntry) {
+        ArrayList<TSwitchingMatrixEntry> bucket = index.get(key);
+        if (bucket == null) {
+            bucket = new ArrayList<>(1);
+            index.put(key, bucket);
+        }
+        int position = bucket.size();
+        while ((position > 0) && (bucket.get(position - 1).getInsertionOrder() > switchingMatrixEntry.getInsertionOrder())) {
+            position--;
+        }
+        bucket.add(position, switchingMatrixEntry);
+    }
+
+    /**
+     * This method removes an entry from the bucket of an index.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param <K> the type of the key of the index.
+     * @param index the index.
+     * @param key the key of the entry.
+     * @param switchingMatrixEntry the entry to be removed.
+     * @since 2.0
+     */
+    private <K> void removeFromBucket(HashMap<K, ArrayList<TSwitchingMatrixEntry>> index, K key, TSwitchingMatrixEntry switchingMatrixEntry) {
+        ArrayList<TSwitchingMatrixEntry> bucket = index.get(key);
+        if (bucket != null) {
+            for (int i = 0; i < bucket.size(); i++) {
+                if (bucket.get(i) == switchingMatrixEntry) {
+                    bucket.remove(i);
+                    break;
+                }
+            }
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    /**
+     * This method gets the bucket of the main index that contains entries
+     * with the specified incoming port, label or FEC and entry type.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param incomingPortID the incoming port.
+     * @param labelOrFEC the label or FEC.
+     * @param entryType the entry type.
+     * @return the bucket, or null if there is no such entry.
+     * @since 2.0
+     */
+    private ArrayList<TSwitchingMatrixEntry> getEntriesIndexBucket(int incomingPortID, int labelOrFEC, int entryType) {
+        HashMap<Long, ArrayList<TSwitchingMatrixEntry>> entriesOfType = this.entriesIndex.get(entryType);
+        if (entriesOfType == null) {
+            return null;
+        }
+        return entriesOfType.get(toKey(incomingPortID, labelOrFEC));
+    }
+
+    /**
+     * This method gets the oldest entry of a bucket.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param bucket the bucket.
+     * @return the oldest entry of the bucket, or null if the bucket is null.
+     * @since 2.0
+     */
+    private TSwitchingMatrixEntry getFirstEntry(ArrayList<TSwitchingMatrixEntry> bucket) {
+        if (bucket == null) {
+            return null;
+        }
+        return bucket.get(0);
+    }
+
+    /**
+     * This method combines two integer values in a single index key.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param high the first value.
+     * @param low the second value.
+     * @return a key that is different for each pair of values.
+     * @since 2.0
+     */
+    private static long toKey(int high, int low) {
+        return (((long) high) << 32) | (low & 0xFFFFFFFFL);
+    }
+
+    private LinkedHashSet<TSwitchingMatrixEntry> switchingMatrix;
+    private HashMap<Integer, HashMap<Long, ArrayList<TSwitchingMatrixEntry>>> entriesIndex;
+    private HashMap<Integer, ArrayList<TSwitchingMatrixEntry>> localTLDPSessionsIndex;
+    private HashMap<Long, ArrayList<TSwitchingMatrixEntry>> upstreamTLDPSessionsIndex;
+    private TLabelAllocator labelAllocator;
+    private long nextInsertionOrder;
     private TLock monitor;
 }
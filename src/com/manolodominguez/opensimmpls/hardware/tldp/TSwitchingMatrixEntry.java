@@ -46,6 +46,8 @@ public class TSwitchingMatrixEntry {
         this.timeout = TSwitchingMatrixEntry.TIMEOUT;
         this.labelRequestAttempts = TSwitchingMatrixEntry.LABEL_REQUEST_ATTEMPTS;
         this.isRequestForBackupLSP = false;
+        this.switchingMatrix = null;
+        this.insertionOrder = 0;
     }
 
     /**
@@ -208,6 +210,17 @@ public class TSwitchingMatrixEntry {
         this.timeout = TSwitchingMatrixEntry.TIMEOUT;
     }
 
+    /**
+     * This method gets the remaining communication timeout for this entry.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the remaining communication timeout, in nanoseconds.
+     * @since 2.0
+     */
+    public int getTimeOut() {
+        return this.timeout;
+    }
+
     /**
      * This method decreases the communication timeout.
      *
@@ -255,7 +268,14 @@ public class TSwitchingMatrixEntry {
      * @since 2.0
      */
     public void setIncomingPortID(int incomingPortID) {
+        TSwitchingMatrix owner = this.switchingMatrix;
+        if (owner != null) {
+            owner.entryKeyWillChange(this);
+        }
         this.incomingPortID = incomingPortID;
+        if (owner != null) {
+            owner.entryKeyChanged(this);
+        }
     }
 
     /**
@@ -277,7 +297,14 @@ public class TSwitchingMatrixEntry {
      * @since 2.0
      */
     public void setLabelOrFEC(int labelOrFEC) {
+        TSwitchingMatrix owner = this.switchingMatrix;
+        if (owner != null) {
+            owner.entryKeyWillChange(this);
+        }
         this.labelOrFEC = labelOrFEC;
+        if (owner != null) {
+            owner.entryKeyChanged(this);
+        }
     }
 
     /**
@@ -432,7 +459,14 @@ public class TSwitchingMatrixEntry {
      * @since 2.0
      */
     public void setEntryType(int entryType) {
+        TSwitchingMatrix owner = this.switchingMatrix;
+        if (owner != null) {
+            owner.entryKeyWillChange(this);
+        }
         this.entryType = entryType;
+        if (owner != null) {
+            owner.entryKeyChanged(this);
+        }
     }
 
     /**
@@ -482,7 +516,14 @@ public class TSwitchingMatrixEntry {
      * @since 2.0
      */
     public void setLocalTLDPSessionID(int localTLDPSessionID) {
+        TSwitchingMatrix owner = this.switchingMatrix;
+        if (owner != null) {
+            owner.entryKeyWillChange(this);
+        }
         this.localTLDPSessionID = localTLDPSessionID;
+        if (owner != null) {
+            owner.entryKeyChanged(this);
+        }
     }
 
     /**
@@ -507,7 +548,14 @@ public class TSwitchingMatrixEntry {
      * @since 2.0
      */
     public void setUpstreamTLDPSessionID(int upstreamTLDPSessionID) {
+        TSwitchingMatrix owner = this.switchingMatrix;
+        if (owner != null) {
+            owner.entryKeyWillChange(this);
+        }
         this.upstreamTLDPSessionID = upstreamTLDPSessionID;
+        if (owner != null) {
+            owner.entryKeyChanged(this);
+        }
     }
 
     /**
@@ -560,6 +608,36 @@ public class TSwitchingMatrixEntry {
     }
 
     // Entry types
+
+    /**
+     * This method sets the switching matrix this entry belongs to, so that
+     * the matrix can keep its indexes updated when the fields used as keys
+     * are modified. It is used only by TSwitchingMatrix.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param switchingMatrix the switching matrix this entry belongs to, or
+     * null if the entry has been removed from it.
+     * @param insertionOrder the position of this entry in the insertion order
+     * of the switching matrix.
+     * @since 2.0
+     */
+    void setSwitchingMatrix(TSwitchingMatrix switchingMatrix, long insertionOrder) {
+        this.switchingMatrix = switchingMatrix;
+        this.insertionOrder = insertionOrder;
+    }
+
+    /**
+     * This method gets the position of this entry in the insertion order of
+     * the switching matrix it belongs to.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the position of this entry in the insertion order.
+     * @since 2.0
+     */
+    long getInsertionOrder() {
+        return this.insertionOrder;
+    }
+
     public static final int FEC_ENTRY = 0;
     public static final int LABEL_ENTRY = 1;
     public static final int UNDEFINED = -1;
@@ -600,4 +678,6 @@ public class TSwitchingMatrixEntry {
     private boolean isRequestForBackupLSP;
     private int timeout;
     private int labelRequestAttempts;
+    private TSwitchingMatrix switchingMatrix;
+    private long insertionOrder;
 }
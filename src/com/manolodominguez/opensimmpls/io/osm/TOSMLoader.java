@@ -30,6 +30,7 @@ import com.manolodominguez.opensimmpls.scenario.TTrafficSinkNode;
 import com.manolodominguez.opensimmpls.scenario.TActiveLSRNode;
 import com.manolodominguez.opensimmpls.scenario.TLSRNode;
 import com.manolodominguez.opensimmpls.scenario.TActiveLERNode;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
 
 /**
  * This class implements a class that loads a scenario from disk in OSM (Open
@@ -199,6 +200,10 @@ public class TOSMLoader {
                 this.scenario.getSimulation().setSimulationLengthInNs(500);
                 this.scenario.getSimulation().setSimulationTickDurationInNs(1);
             }
+        } else if (scenarioString.startsWith("#Encaminamiento#")) {
+            if (!this.scenario.getTopology().unmarshallRoutingParameters(scenarioString)) {
+                this.scenario.getTopology().setRoutingAlgorithm(TTopology.FLOYD_WARSHALL_ROUTING);
+            }
         }
     }
 
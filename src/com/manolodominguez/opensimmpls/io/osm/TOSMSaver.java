@@ -92,6 +92,8 @@ public class TOSMSaver {
             this.scenarioCRC.update(this.scenario.marshallDescription().getBytes());
             this.output.println(this.scenario.getSimulation().marshallTimeParameters());
             this.scenarioCRC.update(this.scenario.getSimulation().marshallTimeParameters().getBytes());
+            this.output.println(this.scenario.getTopology().marshallRoutingParameters());
+            this.scenarioCRC.update(this.scenario.getTopology().marshallRoutingParameters().getBytes());
             this.output.println();
             this.output.println("@!Escenario");
             this.scenarioCRC.update("@!Escenario".getBytes());
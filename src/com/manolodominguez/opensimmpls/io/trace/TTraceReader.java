@@ -0,0 +1,295 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.io.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+/**
+ * This class implements a reader of the binary traces recorded by
+ * TTraceWriter. The trace file is memory-mapped in read-only segments that
+ * are mapped the first time they are needed, so traces larger than the
+ * available memory can be iterated sequentially or by time range.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTraceReader implements Iterable<TTraceRecord>, Closeable {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceReader and reads the header of the specified trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceFile the trace file to be read.
+     * @throws IOException if the file cannot be opened or it is not a trace
+     * recorded by TTraceWriter.
+     * @since 2.0
+     */
+    public TTraceReader(File traceFile) throws IOException {
+        this.channel = FileChannel.open(traceFile.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(TTraceWriter.HEADER_SIZE).order(TTraceWriter.BYTE_ORDER);
+            long position = 0;
+            while (header.hasRemaining()) {
+                int bytesRead = this.channel.read(header, position);
+                if (bytesRead < 0) {
+                    throw new IOException("Truncated trace header");
+                }
+                position += bytesRead;
+            }
+            header.flip();
+            if ((header.getInt() != TTraceWriter.MAGIC) || (header.getInt() != TTraceWriter.VERSION)) {
+                throw new IOException("Not a trace file");
+            }
+            if ((header.getInt() != TTraceWriter.HEADER_SIZE) || (header.getInt() != TTraceWriter.RECORD_SIZE)) {
+                throw new IOException("Unsupported trace layout");
+            }
+            long numberOfRecordsAux = header.getLong();
+            this.firstInstant = header.getLong();
+            this.lastInstant = header.getLong();
+            int flags = header.getInt();
+            this.sortedByInstant = (flags & TTraceWriter.SORTED_BY_INSTANT_FLAG) != 0;
+            this.complete = (flags & TTraceWriter.COMPLETE_FLAG) != 0;
+            // A trace that was not closed may have less records than the
+            // file could hold; never read beyond the end of the file.
+            long recordsInFile = (this.channel.size() - TTraceWriter.HEADER_SIZE) / TTraceWriter.RECORD_SIZE;
+            this.numberOfRecords = Math.min(numberOfRecordsAux, recordsInFile);
+            long numberOfSegments = (this.numberOfRecords + SEGMENT_SIZE_IN_RECORDS - 1) / SEGMENT_SIZE_IN_RECORDS;
+            this.segments = new MappedByteBuffer[(int) numberOfSegments];
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * This method gets the number of records in the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of records in the trace.
+     * @since 2.0
+     */
+    public long getNumberOfRecords() {
+        return this.numberOfRecords;
+    }
+
+    /**
+     * This method gets the time instant of the first record of the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the time instant of the first record of the trace.
+     * @since 2.0
+     */
+    public long getFirstInstant() {
+        return this.firstInstant;
+    }
+
+    /**
+     * This method gets the latest time instant recorded in the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the latest time instant recorded in the trace.
+     * @since 2.0
+     */
+    public long getLastInstant() {
+        return this.lastInstant;
+    }
+
+    /**
+     * This method checks whether records of the trace are sorted by time
+     * instant. It is the case of traces recorded with time-driven scheduling
+     * modes, where ticks are completed before the next one starts.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if records are sorted by time instant. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isSortedByInstant() {
+        return this.sortedByInstant;
+    }
+
+    /**
+     * This method checks whether the trace was closed properly by the writer.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if the trace is complete. FALSE, if it was not closed and,
+     * hence, the records of the last segment are missing.
+     * @since 2.0
+     */
+    public boolean isComplete() {
+        return this.complete;
+    }
+
+    /**
+     * This method reads a record of the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param index the position of the record in the trace, from 0.
+     * @return the record at the specified position.
+     * @since 2.0
+     */
+    public TTraceRecord getRecord(long index) {
+        if ((index < 0) || (index >= this.numberOfRecords)) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + this.numberOfRecords);
+        }
+        MappedByteBuffer segment = this.getSegment((int) (index / SEGMENT_SIZE_IN_RECORDS));
+        int offset = (int) (index % SEGMENT_SIZE_IN_RECORDS) * TTraceWriter.RECORD_SIZE;
+        return new TTraceRecord(segment.getLong(offset), segment.getLong(offset + 8), segment.get(offset + 16), segment.get(offset + 17), segment.getInt(offset + 20), segment.getShort(offset + 18), segment.getLong(offset + 24));
+    }
+
+    /**
+     * This method gets the time instant of a record of the trace without
+     * decoding the rest of the record.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param index the position of the record in the trace, from 0.
+     * @return the time instant of the record at the specified position.
+     * @since 2.0
+     */
+    public long getInstant(long index) {
+        MappedByteBuffer segment = this.getSegment((int) (index / SEGMENT_SIZE_IN_RECORDS));
+        return segment.getLong((int) (index % SEGMENT_SIZE_IN_RECORDS) * TTraceWriter.RECORD_SIZE);
+    }
+
+    /**
+     * This method finds the first record whose time instant is equal or later
+     * than the specified one. If records are sorted by time instant, a binary
+     * search is used.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the time instant to search for.
+     * @return the position of the first record whose time instant is equal or
+     * later than the specified one, or the number of records if there is not
+     * such record.
+     * @since 2.0
+     */
+    public long findFirstRecordFrom(long instant) {
+        if (!this.sortedByInstant) {
+            for (long i = 0; i < this.numberOfRecords; i++) {
+                if (this.getInstant(i) >= instant) {
+                    return i;
+                }
+            }
+            return this.numberOfRecords;
+        }
+        long low = 0;
+        long high = this.numberOfRecords;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (this.getInstant(middle) < instant) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * This method returns an iterator over every record of the trace.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return an iterator over every record of the trace.
+     * @since 2.0
+     */
+    @Override
+    public Iterator<TTraceRecord> iterator() {
+        return this.iterator(Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * This method returns an iterator over the records of the trace whose
+     * time instant is in the specified range, both ends included, in the
+     * order they were recorded.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param fromInstant the first time instant of the range.
+     * @param toInstant the last time instant of the range.
+     * @return an iterator over the records in the specified time range.
+     * @since 2.0
+     */
+    public Iterator<TTraceRecord> iterator(long fromInstant, long toInstant) {
+        return new TTraceRecordIterator(this, fromInstant, toInstant);
+    }
+
+    /**
+     * This method returns the records of the trace whose time instant is in
+     * the specified range, both ends included, to be used in a for-each loop.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param fromInstant the first time instant of the range.
+     * @param toInstant the last time instant of the range.
+     * @return the records in the specified time range.
+     * @since 2.0
+     */
+    public Iterable<TTraceRecord> getRecords(long fromInstant, long toInstant) {
+        return () -> this.iterator(fromInstant, toInstant);
+    }
+
+    /**
+     * This method closes the trace file.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @throws IOException if the trace file cannot be closed.
+     * @since 2.0
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * This method gets a segment of the trace, mapping it if it is the first
+     * time it is needed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param segmentIndex the position of the segment in the trace.
+     * @return the memory-mapped segment.
+     * @since 2.0
+     */
+    private synchronized MappedByteBuffer getSegment(int segmentIndex) {
+        MappedByteBuffer segment = this.segments[segmentIndex];
+        if (segment == null) {
+            long firstRecord = (long) segmentIndex * SEGMENT_SIZE_IN_RECORDS;
+            long recordsInSegment = Math.min(SEGMENT_SIZE_IN_RECORDS, this.numberOfRecords - firstRecord);
+            try {
+                segment = this.channel.map(FileChannel.MapMode.READ_ONLY, TTraceWriter.HEADER_SIZE + (firstRecord * TTraceWriter.RECORD_SIZE), recordsInSegment * TTraceWriter.RECORD_SIZE);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map trace segment " + segmentIndex, e);
+            }
+            segment.order(TTraceWriter.BYTE_ORDER);
+            this.segments[segmentIndex] = segment;
+        }
+        return segment;
+    }
+
+    private static final long SEGMENT_SIZE_IN_RECORDS = 1L << 22;
+
+    private final FileChannel channel;
+    private final long numberOfRecords;
+    private final long firstInstant;
+    private final long lastInstant;
+    private final boolean sortedByInstant;
+    private final boolean complete;
+    private final MappedByteBuffer[] segments;
+}
@@ -0,0 +1,236 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.io.trace;
+
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLSPEstablished;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLSPRemoved;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLabelAssigned;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLabelDenied;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLabelReceived;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLabelRemoved;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLabelRequested;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLinkBroken;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLinkRecovered;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventNodeCongested;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketOnFly;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketReceived;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketRouted;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSwitched;
+
+/**
+ * This class implements a simulation event read from a binary trace. It only
+ * keeps what is stored in the trace: identifiers and numbers, not references
+ * to the topology elements.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTraceRecord {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceRecord.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the time instant of the simulation event.
+     * @param eventID the identifier of the simulation event.
+     * @param subtype the subtype of the simulation event. One of the constants
+     * defined in TSimulationEvent.
+     * @param elementType the type of the topology element that generated the
+     * simulation event. One of the constants defined in TTopologyElement.
+     * @param elementID the identifier of the topology element that generated
+     * the simulation event.
+     * @param packetType the type of the packet the simulation event refers
+     * to, or TTraceWriter.NO_PACKET_TYPE.
+     * @param value the value associated to the simulation event: the packet
+     * size, the transit percentage or the congestion level, depending on the
+     * subtype; or 0.
+     * @since 2.0
+     */
+    public TTraceRecord(long instant, long eventID, int subtype, int elementType, int elementID, int packetType, long value) {
+        this.instant = instant;
+        this.eventID = eventID;
+        this.subtype = subtype;
+        this.elementType = elementType;
+        this.elementID = elementID;
+        this.packetType = packetType;
+        this.value = value;
+    }
+
+    /**
+     * This method gets the time instant of the simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the time instant of the simulation event.
+     * @since 2.0
+     */
+    public long getInstant() {
+        return this.instant;
+    }
+
+    /**
+     * This method gets the identifier of the simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the identifier of the simulation event.
+     * @since 2.0
+     */
+    public long getEventID() {
+        return this.eventID;
+    }
+
+    /**
+     * This method gets the subtype of the simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the subtype of the simulation event. One of the constants
+     * defined in TSimulationEvent.
+     * @since 2.0
+     */
+    public int getSubtype() {
+        return this.subtype;
+    }
+
+    /**
+     * This method gets the type of the topology element that generated the
+     * simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the type of the topology element. One of the constants defined
+     * in TTopologyElement.
+     * @since 2.0
+     */
+    public int getElementType() {
+        return this.elementType;
+    }
+
+    /**
+     * This method gets the identifier of the topology element that generated
+     * the simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the identifier of the topology element.
+     * @since 2.0
+     */
+    public int getElementID() {
+        return this.elementID;
+    }
+
+    /**
+     * This method gets the type of the packet the simulation event refers to.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the type of the packet, one of the constants defined in
+     * TAbstractPDU, or TTraceWriter.NO_PACKET_TYPE if the simulation event
+     * does not refer to a packet.
+     * @since 2.0
+     */
+    public int getPacketType() {
+        return this.packetType;
+    }
+
+    /**
+     * This method gets the value associated to the simulation event: the size
+     * of the packet for packets generated and received, the transit
+     * percentage for packets on fly and the congestion level for congested
+     * nodes.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the value associated to the simulation event, or 0.
+     * @since 2.0
+     */
+    public long getValue() {
+        return this.value;
+    }
+
+    /**
+     * This method rebuilds the simulation event this record was recorded
+     * from, so that it can be displayed again.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source the topology element of the scenario whose type and
+     * identifier are those of the record.
+     * @return the simulation event, or null if simulation events of the
+     * subtype of the record cannot be rebuilt.
+     * @since 2.0
+     */
+    public TSimulationEvent toSimulationEvent(TTopologyElement source) {
+        switch (this.subtype) {
+            case TSimulationEvent.PACKET_GENERATED:
+                return new TSimulationEventPacketGenerated(source, this.eventID, this.instant, this.packetType, (int) this.value);
+            case TSimulationEvent.PACKET_SENT:
+                return new TSimulationEventPacketSent(source, this.eventID, this.instant, this.packetType);
+            case TSimulationEvent.PACKET_RECEIVED:
+                return new TSimulationEventPacketReceived(source, this.eventID, this.instant, this.packetType, (int) this.value);
+            case TSimulationEvent.PACKET_SWITCHED:
+                return new TSimulationEventPacketSwitched(source, this.eventID, this.instant, this.packetType);
+            case TSimulationEvent.PACKET_ROUTED:
+                return new TSimulationEventPacketRouted(source, this.eventID, this.instant, this.packetType);
+            case TSimulationEvent.PACKET_DISCARDED:
+                return new TSimulationEventPacketDiscarded(source, this.eventID, this.instant, this.packetType);
+            case TSimulationEvent.PACKET_ON_FLY:
+                return new TSimulationEventPacketOnFly(source, this.eventID, this.instant, this.packetType, this.value);
+            case TSimulationEvent.NODE_CONGESTED:
+                return new TSimulationEventNodeCongested(source, this.eventID, this.instant, this.value);
+            case TSimulationEvent.LSP_ESTABLISHED:
+                return new TSimulationEventLSPEstablished(source, this.eventID, this.instant);
+            case TSimulationEvent.LSP_REMOVED:
+                return new TSimulationEventLSPRemoved(source, this.eventID, this.instant);
+            case TSimulationEvent.LABEL_ASSIGNED:
+                return new TSimulationEventLabelAssigned(source, this.eventID, this.instant);
+            case TSimulationEvent.LABEL_DENIED:
+                return new TSimulationEventLabelDenied(source, this.eventID, this.instant);
+            case TSimulationEvent.LABEL_RECEIVED:
+                return new TSimulationEventLabelReceived(source, this.eventID, this.instant);
+            case TSimulationEvent.LABEL_REMOVED:
+                return new TSimulationEventLabelRemoved(source, this.eventID, this.instant);
+            case TSimulationEvent.LABEL_REQUESTED:
+                return new TSimulationEventLabelRequested(source, this.eventID, this.instant);
+            case TSimulationEvent.LINK_BROKEN:
+                return new TSimulationEventLinkBroken(source, this.eventID, this.instant);
+            case TSimulationEvent.LINK_RECOVERED:
+                return new TSimulationEventLinkRecovered(source, this.eventID, this.instant);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * This method returns a textual representation of the record, with its
+     * fields separated by commas.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return a textual representation of the record.
+     * @since 2.0
+     */
+    @Override
+    public String toString() {
+        return this.instant + "," + this.eventID + "," + this.subtype + "," + this.elementType + "," + this.elementID + "," + this.packetType + "," + this.value;
+    }
+
+    private final long instant;
+    private final long eventID;
+    private final int subtype;
+    private final int elementType;
+    private final int elementID;
+    private final int packetType;
+    private final long value;
+}
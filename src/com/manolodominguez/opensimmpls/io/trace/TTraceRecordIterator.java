@@ -0,0 +1,106 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.io.trace;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements an iterator over the records of a binary trace whose
+ * time instant is in a given range. If records of the trace are sorted by
+ * time instant, iteration starts at the first record of the range, found by
+ * binary search, and stops at the first record after it.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTraceRecordIterator implements Iterator<TTraceRecord> {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceRecordIterator.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceReader the reader of the trace to be iterated.
+     * @param fromInstant the first time instant of the range.
+     * @param toInstant the last time instant of the range.
+     * @since 2.0
+     */
+    public TTraceRecordIterator(TTraceReader traceReader, long fromInstant, long toInstant) {
+        this.traceReader = traceReader;
+        this.fromInstant = fromInstant;
+        this.toInstant = toInstant;
+        this.numberOfRecords = traceReader.getNumberOfRecords();
+        this.nextIndex = traceReader.findFirstRecordFrom(fromInstant);
+        this.advance();
+    }
+
+    /**
+     * This method checks whether there are more records in the time range.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if there are more records. Otherwise, FALSE.
+     * @since 2.0
+     */
+    @Override
+    public boolean hasNext() {
+        return this.nextIndex < this.numberOfRecords;
+    }
+
+    /**
+     * This method returns the next record in the time range.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the next record in the time range.
+     * @since 2.0
+     */
+    @Override
+    public TTraceRecord next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        TTraceRecord record = this.traceReader.getRecord(this.nextIndex);
+        this.nextIndex++;
+        this.advance();
+        return record;
+    }
+
+    /**
+     * This method moves to the next record in the time range, if any.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void advance() {
+        while (this.nextIndex < this.numberOfRecords) {
+            long instant = this.traceReader.getInstant(this.nextIndex);
+            if ((instant >= this.fromInstant) && (instant <= this.toInstant)) {
+                return;
+            }
+            if (this.traceReader.isSortedByInstant() && (instant > this.toInstant)) {
+                break;
+            }
+            this.nextIndex++;
+        }
+        this.nextIndex = this.numberOfRecords;
+    }
+
+    private final TTraceReader traceReader;
+    private final long fromInstant;
+    private final long toInstant;
+    private final long numberOfRecords;
+    private long nextIndex;
+}
@@ -0,0 +1,139 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.io.trace;
+
+/**
+ * This class implements a sparse time index over a binary trace. Every a
+ * fixed number of records, it stores the latest time instant recorded up to
+ * that point. These instants never decrease, so the block where a given time
+ * instant starts is found by binary search, even if the trace is not sorted
+ * by time instant, and only that block has to be scanned to seek to any
+ * instant of the trace.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTraceTimeIndex {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceTimeIndex with the default density, reading the time instant of
+     * every record of the specified trace once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceReader the reader of the trace to be indexed.
+     * @since 2.0
+     */
+    public TTraceTimeIndex(TTraceReader traceReader) {
+        this(traceReader, TTraceTimeIndex.DEFAULT_RECORDS_PER_ENTRY);
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceTimeIndex, reading the time instant of every record of the
+     * specified trace once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceReader the reader of the trace to be indexed.
+     * @param recordsPerEntry the number of records covered by each entry of
+     * the index.
+     * @since 2.0
+     */
+    public TTraceTimeIndex(TTraceReader traceReader, int recordsPerEntry) {
+        if (recordsPerEntry < 1) {
+            recordsPerEntry = 1;
+        }
+        this.traceReader = traceReader;
+        this.recordsPerEntry = recordsPerEntry;
+        long numberOfRecords = traceReader.getNumberOfRecords();
+        int numberOfEntries = (int) ((numberOfRecords + recordsPerEntry - 1) / recordsPerEntry);
+        this.latestInstants = new long[numberOfEntries];
+        long latestInstant = Long.MIN_VALUE;
+        for (long i = 0; i < numberOfRecords; i++) {
+            long instant = traceReader.getInstant(i);
+            if (instant > latestInstant) {
+                latestInstant = instant;
+            }
+            if (((i + 1) % recordsPerEntry == 0) || (i == numberOfRecords - 1)) {
+                this.latestInstants[(int) (i / recordsPerEntry)] = latestInstant;
+            }
+        }
+    }
+
+    /**
+     * This method finds the position from where the trace has to be read to
+     * find every record whose time instant is equal or later than the
+     * specified one. Records before that position are all earlier than the
+     * specified time instant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the time instant to seek.
+     * @return the position of the first record whose time instant is equal or
+     * later than the specified one, or the number of records of the trace if
+     * there is not such record.
+     * @since 2.0
+     */
+    public long seek(long instant) {
+        int low = 0;
+        int high = this.latestInstants.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.latestInstants[middle] < instant) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        long numberOfRecords = this.traceReader.getNumberOfRecords();
+        long index = (long) low * this.recordsPerEntry;
+        if (index > numberOfRecords) {
+            index = numberOfRecords;
+        }
+        while ((index < numberOfRecords) && (this.traceReader.getInstant(index) < instant)) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * This method gets the number of records covered by each entry of the
+     * index.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of records covered by each entry of the index.
+     * @since 2.0
+     */
+    public int getRecordsPerEntry() {
+        return this.recordsPerEntry;
+    }
+
+    /**
+     * This method gets the number of entries of the index.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of entries of the index.
+     * @since 2.0
+     */
+    public int getNumberOfEntries() {
+        return this.latestInstants.length;
+    }
+
+    public static final int DEFAULT_RECORDS_PER_ENTRY = 4096;
+
+    private final TTraceReader traceReader;
+    private final int recordsPerEntry;
+    private final long[] latestInstants;
+}
@@ -0,0 +1,441 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.io.trace;
+
+import com.manolodominguez.opensimmpls.scenario.TLink;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.ISimulationEventListener;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventNodeCongested;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketOnFly;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketReceived;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketRouted;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSwitched;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a simulation event listener that records simulation
+ * events in a binary trace file. Each simulation event is encoded in a fixed
+ * size record and written to a memory-mapped segment of the file. Simulation
+ * threads claim the position of their records with an atomic counter and
+ * write them without holding any lock, so recording a simulation event is
+ * just a few memory writes; the lock is only taken when a new segment has to
+ * be mapped. The header of the trace is updated each time a segment is
+ * mapped and when the writer is closed, so the trace can be read with
+ * TTraceReader.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTraceWriter implements ISimulationEventListener, Closeable {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceWriter that records simulation events in the specified file, that
+     * is overwritten if it exists, using segments of the default size.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceFile the file where simulation events will be recorded.
+     * @throws IOException if the file cannot be created.
+     * @since 2.0
+     */
+    public TTraceWriter(File traceFile) throws IOException {
+        this(traceFile, TTraceWriter.DEFAULT_SEGMENT_SIZE_IN_RECORDS);
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TTraceWriter that records simulation events in the specified file, that
+     * is overwritten if it exists.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param traceFile the file where simulation events will be recorded.
+     * @param segmentSizeInRecords the number of records of each memory-mapped
+     * segment of the file.
+     * @throws IOException if the file cannot be created.
+     * @since 2.0
+     */
+    public TTraceWriter(File traceFile, int segmentSizeInRecords) throws IOException {
+        if (segmentSizeInRecords < 1) {
+            segmentSizeInRecords = 1;
+        }
+        if (segmentSizeInRecords > MAXIMUM_SEGMENT_SIZE_IN_RECORDS) {
+            segmentSizeInRecords = MAXIMUM_SEGMENT_SIZE_IN_RECORDS;
+        }
+        this.segmentSizeInRecords = segmentSizeInRecords;
+        this.channel = FileChannel.open(traceFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+        this.claimedRecords = new AtomicLong(0);
+        this.activeWriters = new LongAdder();
+        this.lastInstant = new LongAccumulator(Math::max, Long.MIN_VALUE);
+        this.numberOfRecords = 0;
+        this.firstInstant = 0;
+        this.sortedByInstant = true;
+        this.closed = false;
+        this.subscribedSimulationEvents = TSimulationEvent.ALL_SIMULATION_EVENTS & ~TSimulationEvent.ANIMATION_SIMULATION_EVENTS;
+        this.writeHeader(false);
+        this.segments = new MappedByteBuffer[]{this.mapSegment(0)};
+    }
+
+    /**
+     * This method records the specified simulation event at the end of the
+     * trace. It can be called concurrently from several simulation threads:
+     * each call claims the position of its record with an atomic counter and
+     * writes it without blocking other threads. If the trace cannot be
+     * extended, the error is reported and no more simulation events are
+     * recorded.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent the simulation event to be recorded.
+     * @since 2.0
+     */
+    @Override
+    public void captureSimulationEvents(TSimulationEvent simulationEvent) {
+        this.activeWriters.increment();
+        try {
+            if (this.closed) {
+                return;
+            }
+            long instant = simulationEvent.getInstant();
+            int elementType = NO_ELEMENT_TYPE;
+            int elementID = NO_ELEMENT_ID;
+            if (simulationEvent.getSource() instanceof TNode) {
+                elementType = TTopologyElement.NODE;
+                elementID = ((TNode) simulationEvent.getSource()).getNodeID();
+            } else if (simulationEvent.getSource() instanceof TLink) {
+                elementType = TTopologyElement.LINK;
+                elementID = ((TLink) simulationEvent.getSource()).getID();
+            }
+            int packetType = NO_PACKET_TYPE;
+            long value = 0;
+            switch (simulationEvent.getSubtype()) {
+                case TSimulationEvent.PACKET_GENERATED: {
+                    packetType = ((TSimulationEventPacketGenerated) simulationEvent).getPacketType();
+                    value = ((TSimulationEventPacketGenerated) simulationEvent).getPacketSize();
+                    break;
+                }
+                case TSimulationEvent.PACKET_RECEIVED: {
+                    packetType = ((TSimulationEventPacketReceived) simulationEvent).getPacketType();
+                    value = ((TSimulationEventPacketReceived) simulationEvent).getPacketSize();
+                    break;
+                }
+                case TSimulationEvent.PACKET_ON_FLY: {
+                    packetType = ((TSimulationEventPacketOnFly) simulationEvent).getPacketType();
+                    value = ((TSimulationEventPacketOnFly) simulationEvent).getTransitPercentage();
+                    break;
+                }
+                case TSimulationEvent.PACKET_SENT: {
+                    packetType = ((TSimulationEventPacketSent) simulationEvent).getPacketType();
+                    break;
+                }
+                case TSimulationEvent.PACKET_SWITCHED: {
+                    packetType = ((TSimulationEventPacketSwitched) simulationEvent).getPacketType();
+                    break;
+                }
+                case TSimulationEvent.PACKET_ROUTED: {
+                    packetType = ((TSimulationEventPacketRouted) simulationEvent).getPacketType();
+                    break;
+                }
+                case TSimulationEvent.PACKET_DISCARDED: {
+                    packetType = ((TSimulationEventPacketDiscarded) simulationEvent).getPacketType();
+                    break;
+                }
+                case TSimulationEvent.NODE_CONGESTED: {
+                    value = ((TSimulationEventNodeCongested) simulationEvent).getCongestionLevel();
+                    break;
+                }
+            }
+            long record = this.claimedRecords.getAndIncrement();
+            MappedByteBuffer segmentAux = this.getSegment(record / this.segmentSizeInRecords);
+            if (segmentAux == null) {
+                return;
+            }
+            int offset = (int) (record % this.segmentSizeInRecords) * RECORD_SIZE;
+            this.lastInstant.accumulate(instant);
+            // Absolute puts do not touch the position of the segment, so
+            // several threads can write their own records at the same time.
+            segmentAux.putLong(offset + INSTANT_OFFSET, instant);
+            segmentAux.putLong(offset + EVENT_ID_OFFSET, simulationEvent.getEventID());
+            segmentAux.put(offset + SUBTYPE_OFFSET, (byte) simulationEvent.getSubtype());
+            segmentAux.put(offset + ELEMENT_TYPE_OFFSET, (byte) elementType);
+            segmentAux.putShort(offset + PACKET_TYPE_OFFSET, (short) packetType);
+            segmentAux.putInt(offset + ELEMENT_ID_OFFSET, elementID);
+            segmentAux.putLong(offset + VALUE_OFFSET, value);
+        } finally {
+            this.activeWriters.decrement();
+        }
+    }
+
+    /**
+     * This method sets the subtypes of the simulation events that will be
+     * recorded, as a bit mask built with TSimulationEvent.getSubscriptionMask().
+     * By default, every simulation event but packets on fly is recorded. It
+     * has to be called before the writer is added to a listener.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subscribedSimulationEvents the bit mask of simulation event
+     * subtypes to be recorded.
+     * @since 2.0
+     */
+    public void setSubscribedSimulationEvents(long subscribedSimulationEvents) {
+        this.subscribedSimulationEvents = subscribedSimulationEvents;
+    }
+
+    /**
+     * This method returns the subtypes of the simulation events that will be
+     * recorded.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the bit mask of subscribed simulation event subtypes.
+     * @since 2.0
+     */
+    @Override
+    public long getSubscribedSimulationEvents() {
+        return this.subscribedSimulationEvents;
+    }
+
+    /**
+     * This method gets the number of simulation events recorded up to now.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of simulation events recorded.
+     * @since 2.0
+     */
+    public long getNumberOfRecords() {
+        if (this.closed) {
+            synchronized (this) {
+                return this.numberOfRecords;
+            }
+        }
+        return this.claimedRecords.get();
+    }
+
+    /**
+     * This method completes the header of the trace, cuts the unused part of
+     * the last segment and closes the file. It waits for simulation threads
+     * that are still writing a record and then scans the records once to know
+     * the first and last instants and whether they are sorted by instant.
+     * Simulation events captured after closing the writer are ignored.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @throws IOException if the trace cannot be completed.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!this.channel.isOpen()) {
+            return;
+        }
+        this.closed = true;
+        while (this.activeWriters.sum() != 0) {
+            Thread.yield();
+        }
+        try {
+            this.numberOfRecords = Math.min(this.claimedRecords.get(), (long) this.segments.length * this.segmentSizeInRecords);
+            this.computeInstants();
+            for (MappedByteBuffer segmentAux : this.segments) {
+                segmentAux.force();
+            }
+            this.segments = new MappedByteBuffer[0];
+            this.writeHeader(true);
+            try {
+                this.channel.truncate(HEADER_SIZE + (this.numberOfRecords * RECORD_SIZE));
+            } catch (IOException e) {
+                // Some platforms do not allow truncating a file that is still
+                // mapped. The header has the number of records, so the unused
+                // part of the last segment is just ignored by readers.
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * This method gets the memory-mapped segment with the specified index.
+     * The array of segments is replaced, never modified, when a segment is
+     * added, so segments already mapped are got without holding any lock. If
+     * the segment is not mapped yet, it is mapped, together with any segment
+     * before it, and the header of the trace is updated.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param segmentIndex the index of the segment.
+     * @return the memory-mapped segment or null, if it cannot be mapped.
+     * @since 2.0
+     */
+    private MappedByteBuffer getSegment(long segmentIndex) {
+        MappedByteBuffer[] segmentsAux = this.segments;
+        if (segmentIndex < segmentsAux.length) {
+            return segmentsAux[(int) segmentIndex];
+        }
+        synchronized (this) {
+            segmentsAux = this.segments;
+            if (this.closed && (segmentIndex >= segmentsAux.length)) {
+                return null;
+            }
+            try {
+                while (segmentIndex >= segmentsAux.length) {
+                    this.numberOfRecords = (long) segmentsAux.length * this.segmentSizeInRecords;
+                    this.firstInstant = segmentsAux[0].getLong(INSTANT_OFFSET);
+                    this.writeHeader(false);
+                    MappedByteBuffer[] newSegments = new MappedByteBuffer[segmentsAux.length + 1];
+                    System.arraycopy(segmentsAux, 0, newSegments, 0, segmentsAux.length);
+                    newSegments[segmentsAux.length] = this.mapSegment(segmentsAux.length);
+                    segmentsAux = newSegments;
+                    this.segments = segmentsAux;
+                }
+            } catch (IOException e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+                this.closed = true;
+                return null;
+            }
+            return segmentsAux[(int) segmentIndex];
+        }
+    }
+
+    /**
+     * This method reads the instant of every record once the writer is closed
+     * and computes the first and last instants and whether records are sorted
+     * by instant. Simulation threads claim positions and instants in no
+     * particular order, so this cannot be known exactly while recording.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void computeInstants() {
+        this.firstInstant = 0;
+        this.sortedByInstant = true;
+        if (this.numberOfRecords == 0) {
+            return;
+        }
+        this.firstInstant = this.segments[0].getLong(INSTANT_OFFSET);
+        long previousInstant = this.firstInstant;
+        for (long record = 1; (record < this.numberOfRecords) && this.sortedByInstant; record++) {
+            MappedByteBuffer segmentAux = this.segments[(int) (record / this.segmentSizeInRecords)];
+            long instant = segmentAux.getLong((int) (record % this.segmentSizeInRecords) * RECORD_SIZE + INSTANT_OFFSET);
+            if (instant < previousInstant) {
+                this.sortedByInstant = false;
+            }
+            previousInstant = instant;
+        }
+    }
+
+    /**
+     * This method maps a new segment of the trace file for writing.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param segmentIndex the index of the segment.
+     * @return the memory-mapped segment.
+     * @throws IOException if the segment cannot be mapped.
+     * @since 2.0
+     */
+    private MappedByteBuffer mapSegment(long segmentIndex) throws IOException {
+        long segmentSizeInBytes = (long) this.segmentSizeInRecords * RECORD_SIZE;
+        MappedByteBuffer segmentAux = this.channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + (segmentIndex * segmentSizeInBytes), segmentSizeInBytes);
+        segmentAux.order(BYTE_ORDER);
+        return segmentAux;
+    }
+
+    /**
+     * This method writes the header of the trace with the number of records
+     * and time instants recorded up to now. While recording, records are not
+     * known to be sorted by instant until the writer is closed, so the header
+     * of an incomplete trace never claims they are.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param complete TRUE, if the trace is complete. Otherwise, FALSE.
+     * @throws IOException if the header cannot be written.
+     * @since 2.0
+     */
+    private void writeHeader(boolean complete) throws IOException {
+        int flags = 0;
+        if (complete) {
+            flags |= COMPLETE_FLAG;
+            if (this.sortedByInstant) {
+                flags |= SORTED_BY_INSTANT_FLAG;
+            }
+        }
+        long lastInstantAux = this.lastInstant.get();
+        if (lastInstantAux == Long.MIN_VALUE) {
+            lastInstantAux = 0;
+        }
+        this.header.clear();
+        this.header.putInt(MAGIC);
+        this.header.putInt(VERSION);
+        this.header.putInt(HEADER_SIZE);
+        this.header.putInt(RECORD_SIZE);
+        this.header.putLong(this.numberOfRecords);
+        this.header.putLong(this.firstInstant);
+        this.header.putLong(lastInstantAux);
+        this.header.putInt(flags);
+        while (this.header.hasRemaining()) {
+            this.header.put((byte) 0);
+        }
+        this.header.flip();
+        long position = 0;
+        while (this.header.hasRemaining()) {
+            position += this.channel.write(this.header, position);
+        }
+    }
+
+    public static final int MAGIC = 0x4F534D54;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 32;
+    public static final int SORTED_BY_INSTANT_FLAG = 1;
+    public static final int COMPLETE_FLAG = 2;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    public static final int NO_ELEMENT_TYPE = -1;
+    public static final int NO_ELEMENT_ID = -1;
+    public static final int NO_PACKET_TYPE = -1;
+    public static final int DEFAULT_SEGMENT_SIZE_IN_RECORDS = 1 << 21;
+
+    private static final int MAXIMUM_SEGMENT_SIZE_IN_RECORDS = Integer.MAX_VALUE / RECORD_SIZE;
+    private static final int INSTANT_OFFSET = 0;
+    private static final int EVENT_ID_OFFSET = 8;
+    private static final int SUBTYPE_OFFSET = 16;
+    private static final int ELEMENT_TYPE_OFFSET = 17;
+    private static final int PACKET_TYPE_OFFSET = 18;
+    private static final int ELEMENT_ID_OFFSET = 20;
+    private static final int VALUE_OFFSET = 24;
+
+    private final FileChannel channel;
+    private final ByteBuffer header;
+    private final int segmentSizeInRecords;
+    private final AtomicLong claimedRecords;
+    private final LongAdder activeWriters;
+    private final LongAccumulator lastInstant;
+    private volatile MappedByteBuffer[] segments;
+    private long numberOfRecords;
+    private long firstInstant;
+    private boolean sortedByInstant;
+    private volatile boolean closed;
+    private volatile long subscribedSimulationEvents;
+}
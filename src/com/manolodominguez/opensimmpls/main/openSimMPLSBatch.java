@@ -0,0 +1,398 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.main;
+
+import com.manolodominguez.opensimmpls.batch.TBatchSimulationResult;
+import com.manolodominguez.opensimmpls.batch.TBatchSimulationRunner;
+import com.manolodominguez.opensimmpls.batch.TParameterSweep;
+import com.manolodominguez.opensimmpls.batch.TPortWeight;
+import com.manolodominguez.opensimmpls.batch.TSweepParameter;
+import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
+import com.manolodominguez.opensimmpls.hardware.timer.TTimer;
+import com.manolodominguez.opensimmpls.scenario.TScenario;
+import com.manolodominguez.opensimmpls.scenario.TTopology;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class implements a command line entry point that simulates an OSM
+ * scenario without graphical user interface and writes the results as CSV.
+ * It does not depend on Swing, so it can be run on headless machines.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class openSimMPLSBatch {
+
+    /**
+     * This method starts a batch simulation of OpenSimMPLS.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param args Arguments specified at command line: the OSM file to be
+     * simulated, optionally the output CSV file (standard output if not
+     * specified) and options. If any sweep parameter is specified, every
+     * point of the grid is simulated and a consolidated table is written.
+     * @since 2.0
+     */
+    public static void main(String args[]) {
+        TBatchSimulationRunner runner = new TBatchSimulationRunner();
+        File inputFile = null;
+        File outputFile = null;
+        ArrayList<TSweepParameter> sweepParameters = new ArrayList<>();
+        int numberOfConcurrentSimulations = Runtime.getRuntime().availableProcessors();
+        boolean checkFastForward = false;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--mode=")) {
+                    runner.setSchedulingMode(parseSchedulingMode(arg.substring("--mode=".length())));
+                } else if (arg.startsWith("--threads=")) {
+                    runner.setNumberOfThreads(Integer.parseInt(arg.substring("--threads=".length())));
+                } else if (arg.startsWith("--partitions=")) {
+                    runner.setNumberOfPartitions(Integer.parseInt(arg.substring("--partitions=".length())));
+                } else if (arg.startsWith("--length=")) {
+                    runner.setSimulationLengthInNs(Long.parseLong(arg.substring("--length=".length())));
+                } else if (arg.startsWith("--tick=")) {
+                    runner.setTickDurationInNs(Integer.parseInt(arg.substring("--tick=".length())));
+                } else if (arg.startsWith("--sweep=")) {
+                    sweepParameters.add(parseSweepParameter(arg.substring("--sweep=".length())));
+                } else if (arg.startsWith("--concurrency=")) {
+                    numberOfConcurrentSimulations = Integer.parseInt(arg.substring("--concurrency=".length()));
+                } else if (arg.startsWith("--routing=")) {
+                    runner.setRoutingAlgorithm(parseRoutingAlgorithm(arg.substring("--routing=".length())));
+                } else if (arg.startsWith("--queueing=")) {
+                    runner.setQueueSchedulingDiscipline(parseQueueSchedulingDiscipline(arg.substring("--queueing=".length())));
+                } else if (arg.startsWith("--port-weight=")) {
+                    runner.addPortWeight(parsePortWeight(arg.substring("--port-weight=".length())));
+                } else if (arg.equals("--fast-forward")) {
+                    runner.setIdleTicksFastForward(true);
+                } else if (arg.equals("--check-fast-forward")) {
+                    checkFastForward = true;
+                } else if (arg.equals("--batch-switching")) {
+                    runner.setBatchSwitching(true);
+                } else if (arg.startsWith("--trace=")) {
+                    runner.setTraceFile(new File(arg.substring("--trace=".length())));
+                } else if (arg.equals("--no-animation-events")) {
+                    runner.setSubscribedSimulationEvents(TSimulationEvent.ALL_SIMULATION_EVENTS & ~TSimulationEvent.ANIMATION_SIMULATION_EVENTS);
+                } else if (arg.equals("--aggregate-events")) {
+                    runner.setEventAggregation(true);
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException(arg);
+                } else if (inputFile == null) {
+                    inputFile = new File(arg);
+                } else if (outputFile == null) {
+                    outputFile = new File(arg);
+                } else {
+                    throw new IllegalArgumentException(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException is an IllegalArgumentException too.
+            System.err.println("Invalid argument: " + e.getMessage());
+            printUsage();
+            System.exit(EXIT_WRONG_ARGUMENTS);
+        }
+        if (inputFile == null) {
+            printUsage();
+            System.exit(EXIT_WRONG_ARGUMENTS);
+        }
+        // FIX: I18N required
+        if (!sweepParameters.isEmpty() && (runner.getTraceFile() != null)) {
+            System.err.println("Invalid argument: --trace cannot be used together with --sweep");
+            printUsage();
+            System.exit(EXIT_WRONG_ARGUMENTS);
+        }
+        if (!sweepParameters.isEmpty()) {
+            runSweep(runner, inputFile, outputFile, sweepParameters, numberOfConcurrentSimulations);
+        }
+        if (checkFastForward) {
+            runFastForwardCheck(runner, inputFile);
+        }
+        TBatchSimulationResult result = runner.simulate(inputFile);
+        if (result == null) {
+            System.err.println("Cannot load scenario " + inputFile.getPath());
+            System.exit(EXIT_WRONG_SCENARIO);
+        }
+        try {
+            if (outputFile == null) {
+                result.write(new PrintWriter(System.out));
+            } else {
+                result.write(outputFile);
+                System.err.println("Simulated " + result.getSimulationLengthInNs() + " ns in " + result.getWallClockTimeInMs() + " ms. " + result.getEventCounter().getNumberOfEvents() + " events. Results written to " + outputFile.getPath());
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write results to " + outputFile.getPath() + ": " + e.toString());
+            System.exit(EXIT_OUTPUT_ERROR);
+        }
+        System.exit(EXIT_OK);
+    }
+
+    /**
+     * This method simulates every point of a parameter sweep and writes the
+     * consolidated results. It never returns; it exits the virtual machine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param runner the runner whose configuration every point will use.
+     * @param inputFile the OSM file where the base scenario is stored.
+     * @param outputFile the CSV file where results will be written, or null to
+     * write them to the standard output.
+     * @param sweepParameters the parameters of the sweep.
+     * @param numberOfConcurrentSimulations the number of points simulated at
+     * the same time.
+     * @since 2.0
+     */
+    private static void runSweep(TBatchSimulationRunner runner, File inputFile, File outputFile, ArrayList<TSweepParameter> sweepParameters, int numberOfConcurrentSimulations) {
+        TScenario baseScenario = runner.loadScenario(inputFile);
+        if (baseScenario == null) {
+            System.err.println("Cannot load scenario " + inputFile.getPath());
+            System.exit(EXIT_WRONG_SCENARIO);
+        }
+        TParameterSweep sweep = new TParameterSweep(baseScenario, runner);
+        for (TSweepParameter sweepParameter : sweepParameters) {
+            sweep.addParameter(sweepParameter);
+        }
+        sweep.setNumberOfConcurrentSimulations(numberOfConcurrentSimulations);
+        long wallClockStart = System.currentTimeMillis();
+        if (!sweep.run()) {
+            System.err.println("Some points of the sweep could not be simulated");
+        }
+        try {
+            if (outputFile == null) {
+                sweep.writeResults(new PrintWriter(System.out));
+            } else {
+                sweep.writeResults(outputFile);
+                System.err.println("Simulated " + sweep.getNumberOfPoints() + " points in " + (System.currentTimeMillis() - wallClockStart) + " ms. Results written to " + outputFile.getPath());
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write results to " + outputFile.getPath() + ": " + e.toString());
+            System.exit(EXIT_OUTPUT_ERROR);
+        }
+        System.exit(EXIT_OK);
+    }
+
+    /**
+     * This method simulates the scenario twice, simulating every tick and
+     * fast-forwarding idle ticks, and writes the results that differ between
+     * both simulations. It never returns; it exits the virtual machine. The
+     * check is only meaningful in the phased mode, as it is the only one that
+     * yields the same results run after run.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param runner the runner whose configuration both simulations will use.
+     * @param inputFile the OSM file where the scenario is stored.
+     * @since 2.0
+     */
+    private static void runFastForwardCheck(TBatchSimulationRunner runner, File inputFile) {
+        runner.setIdleTicksFastForward(false);
+        TBatchSimulationResult tickByTickResult = runner.simulate(inputFile);
+        runner.setIdleTicksFastForward(true);
+        TBatchSimulationResult fastForwardResult = runner.simulate(inputFile);
+        if ((tickByTickResult == null) || (fastForwardResult == null)) {
+            System.err.println("Cannot load scenario " + inputFile.getPath());
+            System.exit(EXIT_WRONG_SCENARIO);
+        }
+        List<String> differences = tickByTickResult.getDifferences(fastForwardResult);
+        for (String difference : differences) {
+            System.out.println(difference);
+        }
+        System.err.println("Tick by tick: " + tickByTickResult.getWallClockTimeInMs() + " ms. Fast-forward: " + fastForwardResult.getWallClockTimeInMs() + " ms. " + differences.size() + " differences.");
+        if (differences.isEmpty()) {
+            System.exit(EXIT_OK);
+        }
+        System.exit(EXIT_DIFFERENT_RESULTS);
+    }
+
+    /**
+     * This method translates a sweep parameter, as written in the command
+     * line (parameter[@node name]:value1,value2,...), to a TSweepParameter.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param sweepParameterDescription the sweep parameter, as written in the
+     * command line.
+     * @return the corresponding sweep parameter.
+     * @throws IllegalArgumentException if the description is not correct.
+     * @since 2.0
+     */
+    public static TSweepParameter parseSweepParameter(String sweepParameterDescription) {
+        int valuesSeparator = sweepParameterDescription.indexOf(':');
+        if (valuesSeparator < 0) {
+            throw new IllegalArgumentException(sweepParameterDescription);
+        }
+        String parameterName = sweepParameterDescription.substring(0, valuesSeparator);
+        String nodeName = null;
+        int nodeSeparator = parameterName.indexOf('@');
+        if (nodeSeparator >= 0) {
+            nodeName = parameterName.substring(nodeSeparator + 1);
+            parameterName = parameterName.substring(0, nodeSeparator);
+        }
+        int parameterType;
+        switch (parameterName) {
+            case "buffer":
+                parameterType = TSweepParameter.BUFFER_SIZE;
+                break;
+            case "power":
+                parameterType = TSweepParameter.SWITCHING_POWER;
+                break;
+            case "dmgp":
+                parameterType = TSweepParameter.DMGP_SIZE;
+                break;
+            case "rate":
+                parameterType = TSweepParameter.TRAFFIC_GENERATION_RATE;
+                break;
+            default:
+                throw new IllegalArgumentException(parameterName);
+        }
+        String[] valueStrings = sweepParameterDescription.substring(valuesSeparator + 1).split(",");
+        int[] values = new int[valueStrings.length];
+        for (int i = 0; i < valueStrings.length; i++) {
+            values[i] = Integer.parseInt(valueStrings[i].trim());
+        }
+        return new TSweepParameter(parameterType, nodeName, values);
+    }
+
+    /**
+     * This method translates a scheduling mode name, as written in the
+     * command line, to the corresponding TTimer constant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param schedulingModeName time, event, phased or partitioned.
+     * @return the corresponding scheduling constant of TTimer.
+     * @throws IllegalArgumentException if the name is not a scheduling mode.
+     * @since 2.0
+     */
+    public static int parseSchedulingMode(String schedulingModeName) {
+        switch (schedulingModeName) {
+            case "time":
+                return TTimer.TIME_DRIVEN_SCHEDULING;
+            case "event":
+                return TTimer.EVENT_DRIVEN_SCHEDULING;
+            case "phased":
+                return TTimer.PHASED_TIME_DRIVEN_SCHEDULING;
+            case "partitioned":
+                return TTimer.PARTITIONED_SCHEDULING;
+        }
+        throw new IllegalArgumentException(schedulingModeName);
+    }
+
+    /**
+     * This method translates a routing algorithm name, as written in the
+     * command line, to the corresponding TTopology constant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param routingAlgorithmName floyd or dijkstra.
+     * @return the corresponding routing constant of TTopology.
+     * @throws IllegalArgumentException if the name is not a routing
+     * algorithm.
+     * @since 2.0
+     */
+    public static int parseRoutingAlgorithm(String routingAlgorithmName) {
+        switch (routingAlgorithmName) {
+            case "floyd":
+                return TTopology.FLOYD_WARSHALL_ROUTING;
+            case "dijkstra":
+                return TTopology.DIJKSTRA_ROUTING;
+        }
+        throw new IllegalArgumentException(routingAlgorithmName);
+    }
+
+    /**
+     * This method translates a queue scheduling discipline name, as written in
+     * the command line, to the corresponding TPortSet constant.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param queueSchedulingDisciplineName default, drr, wfq or strict.
+     * @return the corresponding scheduling discipline constant of TPortSet.
+     * @throws IllegalArgumentException if the name is not a queue scheduling
+     * discipline.
+     * @since 2.0
+     */
+    public static int parseQueueSchedulingDiscipline(String queueSchedulingDisciplineName) {
+        switch (queueSchedulingDisciplineName) {
+            case "default":
+                return TPortSet.DEFAULT_SCHEDULING;
+            case "drr":
+                return TPortSet.DEFICIT_ROUND_ROBIN_SCHEDULING;
+            case "wfq":
+                return TPortSet.WEIGHTED_FAIR_QUEUEING_SCHEDULING;
+            case "strict":
+                return TPortSet.STRICT_PRIORITY_SCHEDULING;
+        }
+        throw new IllegalArgumentException(queueSchedulingDisciplineName);
+    }
+
+    /**
+     * This method translates a port weight, as written in the command line
+     * (node name@neighbour name:weight), to a TPortWeight.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param portWeightDescription the port weight, as written in the command
+     * line.
+     * @return the corresponding port weight.
+     * @throws IllegalArgumentException if the description is not correct.
+     * @since 2.0
+     */
+    public static TPortWeight parsePortWeight(String portWeightDescription) {
+        int weightSeparator = portWeightDescription.lastIndexOf(':');
+        int neighbourSeparator = portWeightDescription.indexOf('@');
+        if ((neighbourSeparator <= 0) || (weightSeparator <= neighbourSeparator + 1)) {
+            throw new IllegalArgumentException(portWeightDescription);
+        }
+        String nodeName = portWeightDescription.substring(0, neighbourSeparator);
+        String neighbourName = portWeightDescription.substring(neighbourSeparator + 1, weightSeparator);
+        int weight = Integer.parseInt(portWeightDescription.substring(weightSeparator + 1).trim());
+        return new TPortWeight(nodeName, neighbourName, weight);
+    }
+
+    /**
+     * This method prints how to use this entry point.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static void printUsage() {
+        System.err.println("Usage: openSimMPLSBatch <scenario.osm> [results.csv] [options]");
+        System.err.println("Options:");
+        System.err.println("  --mode=time|event|phased|partitioned  scheduling mode (default: phased)");
+        System.err.println("  --threads=N      worker threads, 0 for a thread per element and tick");
+        System.err.println("  --partitions=N   partitions used by the partitioned mode");
+        System.err.println("  --length=NS      simulated time in ns (default: the scenario's)");
+        System.err.println("  --tick=NS        tick duration in ns (default: the scenario's)");
+        System.err.println("  --routing=floyd|dijkstra  routing algorithm (default: the scenario's)");
+        System.err.println("  --queueing=default|drr|wfq|strict  port scheduling of every LER and LSR");
+        System.err.println("                   (default: the scenario's)");
+        System.err.println("  --port-weight=NODE@NEIGHBOUR:W  weight of the port of NODE linked to NEIGHBOUR:");
+        System.err.println("                   its share in drr and wfq, its priority in strict");
+        System.err.println("  --fast-forward   fast-forward idle ticks");
+        System.err.println("  --check-fast-forward  simulate with and without fast-forward and write the");
+        System.err.println("                   results that differ (exit status 4 if any)");
+        System.err.println("  --batch-switching  nodes switch incoming packets in batches");
+        System.err.println("  --no-animation-events  do not generate nor count packet on fly events");
+        System.err.println("  --aggregate-events  count packet events as per-tick summaries");
+        System.err.println("  --trace=FILE     record simulation events in a binary trace (not with --sweep)");
+        System.err.println("  --sweep=P[@node]:V1,V2,...  sweep parameter P (buffer, power, dmgp or rate)");
+        System.err.println("                   over the given values, in every node or in a single one");
+        System.err.println("  --concurrency=N  sweep points simulated at the same time");
+    }
+
+    private static final int EXIT_OK = 0;
+    private static final int EXIT_WRONG_ARGUMENTS = 1;
+    private static final int EXIT_WRONG_SCENARIO = 2;
+    private static final int EXIT_OUTPUT_ERROR = 3;
+    private static final int EXIT_DIFFERENT_RESULTS = 4;
+}
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
@@ -268,12 +269,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
     public void receiveTimerEvent(TTimerEvent timerEvent) {
         this.setTickDurationInNs(timerEvent.getTickDurationInNs());
         this.setCurrentTimeInstant(timerEvent.getUpperLimit());
-        if (this.getPorts().isThereAnyPacketToRoute()) {
-            this.availableNanoseconds += timerEvent.getTickDurationInNs();
-        } else {
-            this.resetTicksWithoutEmitting();
-            this.availableNanoseconds = timerEvent.getTickDurationInNs();
-        }
+        this.updateAvailableNanoseconds(timerEvent, this.getPorts().isThereAnyPacketToRoute());
         this.startOperation();
     }
 
@@ -288,12 +284,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
     @Override
     public void run() {
         // Actions to be done during the timer tick.
-        try {
-            this.generateSimulationEvent(new TSimulationEventNodeCongested(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
-        } catch (Exception e) {
-            // FIX: this is not a good practice. Avoid.
-            e.printStackTrace();
-        }
+        this.generateSimulationEvent(TSimulationEvent.NODE_CONGESTED, eventID -> new TSimulationEventNodeCongested(this, eventID, this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
         this.checkConnectivityStatus();
         this.decreaseCounters();
         this.routePackets();
@@ -450,6 +441,10 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
      * @since 2.0
      */
     public void routePackets() {
+        if (this.isBatchSwitching()) {
+            this.switchPacketsInBatches(this.getNsPerBit());
+            return;
+        }
         boolean atLeastOnePacketRouted = false;
         int readPort = 0;
         TAbstractPDU packet = null;
@@ -459,20 +454,9 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
             packet = this.ports.getNextPacket();
             readPort = this.ports.getReadPort();
             if (packet != null) {
-                // FIX: Convert to a switch statement
-                if (packet.getType() == TAbstractPDU.IPV4) {
-                    handleIPv4Packet((TIPv4PDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.TLDP) {
-                    handleTLDPPacket((TTLDPPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.MPLS) {
-                    handleMPLSPacket((TMPLSPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.GPSRP) {
-                    handleGPSRPPacket((TGPSRPPDU) packet, readPort);
-                } else {
-                    this.availableNanoseconds += getNsRequiredForAllOctets(packet.getSize());
-                    this.discardPacket(packet);
+                if (this.handleIncomingPacket(packet, readPort)) {
+                    this.availableNanoseconds -= this.getNsRequiredForAllOctets(packet.getSize());
                 }
-                this.availableNanoseconds -= getNsRequiredForAllOctets(packet.getSize());
                 routeableOctectsWithCurrentNs = this.getMaxRouteableOctectsWithCurrentNs();
             }
         }
@@ -483,6 +467,36 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
         }
     }
 
+    /**
+     * This method handles a packet read from the incoming ports of this node,
+     * depending on its type. Martian packets are discarded.
+     *
+     * @param packet the packet read from an incoming port.
+     * @param incomingPortID the port of this node where the packet has
+     * arrived.
+     * @return TRUE, if the packet has been handled. FALSE, if it has been
+     * discarded.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    protected boolean handleIncomingPacket(TAbstractPDU packet, int incomingPortID) {
+        // FIX: Convert to a switch statement
+        if (packet.getType() == TAbstractPDU.IPV4) {
+            this.handleIPv4Packet((TIPv4PDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.TLDP) {
+            this.handleTLDPPacket((TTLDPPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.MPLS) {
+            this.handleMPLSPacket((TMPLSPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.GPSRP) {
+            this.handleGPSRPPacket((TGPSRPPDU) packet, incomingPortID);
+        } else {
+            this.discardPacket(packet);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This method switchs an incoming GPDRP packet.
      *
@@ -514,12 +528,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                 outgoingPort = (TFIFOPort) this.ports.getLocalPortConnectedToANodeWithIPAddress(nextHopIPv4Address);
                 if (outgoingPort != null) {
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
                 } else {
                     this.discardPacket(packet);
                 }
@@ -828,12 +837,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                         this.dmgp.addPacket(mplsPacket);
                     }
                     outgoingPort.putPacketOnLink(mplsPacket, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: Avoid this. This is not a good practice.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     this.discardPacket(packet);
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
@@ -841,12 +845,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: Avoid this. This is not a good practice.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 discardPacket(packet);
@@ -978,12 +977,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                         this.dmgp.addPacket(packet);
                     }
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     if (packet.getLabelStack().getTop().getBoS()) {
                         TIPv4PDU ipv4Packet = this.createIPv4Packet(packet, switchingMatrixEntry);
@@ -997,12 +991,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                         TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                         outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
                     }
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
                     if (requireBackupLSP) {
                         requestTLDPForBackupLSP(switchingMatrixEntry);
@@ -1017,21 +1006,11 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
                         this.dmgp.addPacket(packet);
                     }
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 if (isLabeled) {
@@ -2269,13 +2248,12 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
     @Override
     public void discardPacket(TAbstractPDU packet) {
         try {
-            this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
+            this.generateSimulationEvent(TSimulationEvent.PACKET_DISCARDED, eventID -> new TSimulationEventPacketDiscarded(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
             this.stats.addStatEntry(packet, TStats.BEING_DISCARDED);
         } catch (Exception e) {
             // FIX: this is ugly. Avoid.
             e.printStackTrace();
         }
-        packet = null;
     }
 
     /**
@@ -2302,6 +2280,31 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
         return FECString.hashCode();
     }
 
+    /**
+     * This method computes how many nanoseconds have to elapse until this
+     * node has something to do: switching packets waiting in its ports,
+     * retrying a pending TLDP operation whose timeout expires or retrying a
+     * pending GPSRP retransmission request.
+     *
+     * @return the number of nanoseconds until the next pending event of this
+     * node, or TTopologyElement.NO_PENDING_EVENTS if there is not any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        long nanosecondsToNextEvent = super.getNanosecondsToNextEvent();
+        long nanosecondsToNextTimeOut = this.switchingMatrix.getNanosecondsToNextTimeOut();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        nanosecondsToNextTimeOut = this.gpsrpRequests.getNanosecondsToNextTimeout();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        return nanosecondsToNextEvent;
+    }
+
     /**
      * This gets the ports set of this node.
      *
@@ -2495,6 +2498,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
         serializedElement += "#";
         serializedElement += this.dmgp.getDMGPSizeInKB();
         serializedElement += "#";
+        serializedElement += this.marshallSchedulingDiscipline();
         return serializedElement;
     }
 
@@ -2514,7 +2518,7 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
         // FIX: All fixed values in this method should be implemented as class
         // constants instead of harcoded values.
         String[] elementFields = serializedLERA.split("#");
-        if (elementFields.length != 13) {
+        if ((elementFields.length != 13) && (elementFields.length != 14)) {
             return false;
         }
         this.setNodeID(Integer.parseInt(elementFields[2]));
@@ -2529,6 +2533,9 @@ public class TActiveLERNode extends TNode implements ITimerEventListener, Runnab
         this.routingPowerInMbps = Integer.parseInt(elementFields[10]);
         this.getPorts().setBufferSizeInMB(Integer.parseInt(elementFields[11]));
         this.dmgp.setDMGPSizeInKB(Integer.parseInt(elementFields[12]));
+        if (elementFields.length == 14) {
+            return this.unMarshallSchedulingDiscipline(elementFields[13]);
+        }
         return true;
     }
 
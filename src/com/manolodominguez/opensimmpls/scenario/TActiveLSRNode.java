@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
@@ -261,12 +262,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
     public void receiveTimerEvent(TTimerEvent timerEvent) {
         this.setTickDurationInNs(timerEvent.getTickDurationInNs());
         this.setCurrentTimeInstant(timerEvent.getUpperLimit());
-        if (this.getPorts().isAnyPacketToSwitch()) {
-            this.availableNanoseconds += timerEvent.getTickDurationInNs();
-        } else {
-            this.resetTicksWithoutEmitting();
-            this.availableNanoseconds = timerEvent.getTickDurationInNs();
-        }
+        this.updateAvailableNanoseconds(timerEvent, this.getPorts().isAnyPacketToSwitch());
         this.startOperation();
     }
 
@@ -280,12 +276,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
     @Override
     public void run() {
         // Actions to be done during the timer tick.
-        try {
-            this.generateSimulationEvent(new TSimulationEventNodeCongested(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
-        } catch (Exception e) {
-            // FIX: this is not a good practice. Avoid.
-            e.printStackTrace();
-        }
+        this.generateSimulationEvent(TSimulationEvent.NODE_CONGESTED, eventID -> new TSimulationEventNodeCongested(this, eventID, this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
         this.checkConnectivityStatus();
         this.decreaseCounters();
         this.switchPackets();
@@ -417,6 +408,10 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
      * @since 2.0
      */
     public void switchPackets() {
+        if (this.isBatchSwitching()) {
+            this.switchPacketsInBatches(this.getNsPerBit());
+            return;
+        }
         boolean atLeastOnePacketSwitched = false;
         // FIX: use class constant instead of hardcoded values
         int readPort = 0;
@@ -427,18 +422,9 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
             packet = this.ports.getNextPacket();
             readPort = this.ports.getReadPort();
             if (packet != null) {
-                // FIX: Convert to a switch statement
-                if (packet.getType() == TAbstractPDU.TLDP) {
-                    handleTLDPPacket((TTLDPPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.MPLS) {
-                    handleMPLSPacket((TMPLSPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.GPSRP) {
-                    handleGPSRPPacket((TGPSRPPDU) packet, readPort);
-                } else {
-                    this.availableNanoseconds += getNsRequiredForAllOctets(packet.getSize());
-                    discardPacket(packet);
+                if (this.handleIncomingPacket(packet, readPort)) {
+                    this.availableNanoseconds -= this.getNsRequiredForAllOctets(packet.getSize());
                 }
-                this.availableNanoseconds -= getNsRequiredForAllOctets(packet.getSize());
                 switchableOctectsWithCurrentNs = this.getMaxSwitchableOctectsWithCurrentNs();
             }
         }
@@ -449,6 +435,34 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
         }
     }
 
+    /**
+     * This method handles a packet read from the incoming ports of this node,
+     * depending on its type. Martian packets are discarded.
+     *
+     * @param packet the packet read from an incoming port.
+     * @param incomingPortID the port of this node where the packet has
+     * arrived.
+     * @return TRUE, if the packet has been handled. FALSE, if it has been
+     * discarded.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    protected boolean handleIncomingPacket(TAbstractPDU packet, int incomingPortID) {
+        // FIX: Convert to a switch statement
+        if (packet.getType() == TAbstractPDU.TLDP) {
+            this.handleTLDPPacket((TTLDPPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.MPLS) {
+            this.handleMPLSPacket((TMPLSPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.GPSRP) {
+            this.handleGPSRPPacket((TGPSRPPDU) packet, incomingPortID);
+        } else {
+            this.discardPacket(packet);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This method switchs an incoming GPDRP packet.
      *
@@ -480,12 +494,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
                 outgoingPort = (TActivePort) this.ports.getLocalPortConnectedToANodeWithIPAddress(nextHopIPv4Address);
                 if (outgoingPort != null) {
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
                 } else {
                     this.discardPacket(packet);
                 }
@@ -831,12 +840,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
                     }
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     packet.getLabelStack().popTop();
                     if (isLabeled) {
@@ -846,12 +850,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
                     }
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
                     if (requireBackupLSP) {
                         requestTLDPForBackupLSP(switchingMatrixEntry);
@@ -870,21 +869,11 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
                         internalLinkAux.unlinkFromABackupLSP();
                         switchingMatrixEntry.setEntryAsForBackupLSP(false);
                     }
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 if (isLabeled) {
@@ -1805,13 +1794,37 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
     @Override
     public void discardPacket(TAbstractPDU packet) {
         try {
-            this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
+            this.generateSimulationEvent(TSimulationEvent.PACKET_DISCARDED, eventID -> new TSimulationEventPacketDiscarded(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
             this.stats.addStatEntry(packet, TStats.BEING_DISCARDED);
         } catch (Exception e) {
             // FIX: this is ugly. Avoid.
             e.printStackTrace();
         }
-        packet = null;
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse until this
+     * node has something to do: switching packets waiting in its ports,
+     * retrying a pending TLDP operation whose timeout expires or retrying a
+     * pending GPSRP retransmission request.
+     *
+     * @return the number of nanoseconds until the next pending event of this
+     * node, or TTopologyElement.NO_PENDING_EVENTS if there is not any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        long nanosecondsToNextEvent = super.getNanosecondsToNextEvent();
+        long nanosecondsToNextTimeOut = this.switchingMatrix.getNanosecondsToNextTimeOut();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        nanosecondsToNextTimeOut = this.gpsrpRequests.getNanosecondsToNextTimeout();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        return nanosecondsToNextEvent;
     }
 
     /**
@@ -1974,6 +1987,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
         serializedElement += "#";
         serializedElement += this.dmgp.getDMGPSizeInKB();
         serializedElement += "#";
+        serializedElement += this.marshallSchedulingDiscipline();
         return serializedElement;
     }
 
@@ -1993,7 +2007,7 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
         // FIX: All fixed values in this method should be implemented as class
         // constants instead of harcoded values.
         String[] elementFields = serializedLSRA.split("#");
-        if (elementFields.length != 13) {
+        if ((elementFields.length != 13) && (elementFields.length != 14)) {
             return false;
         }
         this.setNodeID(Integer.parseInt(elementFields[2]));
@@ -2008,6 +2022,9 @@ public class TActiveLSRNode extends TNode implements ITimerEventListener, Runnab
         this.switchingPowerInMbps = Integer.parseInt(elementFields[10]);
         this.getPorts().setBufferSizeInMB(Integer.parseInt(elementFields[11]));
         this.dmgp.setDMGPSizeInKB(Integer.parseInt(elementFields[12]));
+        if (elementFields.length == 14) {
+            return this.unMarshallSchedulingDiscipline(elementFields[13]);
+        }
         return true;
     }
 
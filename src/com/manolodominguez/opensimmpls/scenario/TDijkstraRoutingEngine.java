@@ -0,0 +1,752 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * This class implements a routing engine for sparse topologies. The topology
+ * is stored as adjacency lists and routes are computed with Dijkstra algorithm
+ * from a single source, using a binary heap, so both memory and time depend on
+ * the number of links instead of the cube of the number of nodes. Shortest
+ * path trees are computed lazily, the first time a node needs them, and cached
+ * until the topology changes. RABAN weights change continuously, so the RABAN
+ * weight of each link is tracked and, when some of them change, cached RABAN
+ * trees, including those of backup routes that avoid a node, are repaired
+ * incrementally, in the way Ramalingam and Reps proposed: only nodes whose
+ * route could have changed are visited again.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TDijkstraRoutingEngine {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TDijkstraRoutingEngine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topology the topology whose routes will be computed.
+     * @since 2.0
+     */
+    public TDijkstraRoutingEngine(TTopology topology) {
+        this.topology = topology;
+        this.valid = false;
+        this.nodeIDs = new int[0];
+        this.nodeIndexes = new HashMap<>();
+        this.firstAdjacency = new int[1];
+        this.adjacentNodes = new int[0];
+        this.adjacencyLinkIndexes = new int[0];
+        this.links = new TLink[0];
+        this.linkHeads = new int[0];
+        this.linkTails = new int[0];
+        this.delayWeights = new long[0];
+        this.rabanWeights = new long[0];
+        this.linkedNodes = new HashSet<>();
+        this.delayDistances = new long[0][];
+        this.delayParents = new int[0][];
+        this.rabanDistances = new long[0][];
+        this.rabanParents = new int[0][];
+        this.rabanAvoidingDistances = new HashMap<>();
+        this.rabanAvoidingParents = new HashMap<>();
+        this.changedLinks = new int[0];
+        this.previousRABANWeights = new long[0];
+        this.numberOfChangedLinks = 0;
+        this.repairStates = new int[0];
+        this.repairStack = new int[0];
+        this.distances = new long[0];
+        this.heap = new int[0];
+        this.heapPositions = new int[0];
+        this.heapSize = 0;
+        this.computations = 0;
+        this.repairs = 0;
+        this.computationTimeInNs = 0;
+    }
+
+    /**
+     * This method discards the adjacency lists and every cached shortest path
+     * tree, so that they are computed again the next time they are needed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void invalidate() {
+        this.valid = false;
+    }
+
+    /**
+     * This method resets the counters of computations of this engine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void reset() {
+        this.valid = false;
+        this.computations = 0;
+        this.repairs = 0;
+        this.computationTimeInNs = 0;
+    }
+
+    /**
+     * This method gets the next hop node ID to reach the target node from the
+     * origin node through the route with minimum delay.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param originNodeID node ID of the origin node.
+     * @param targetNodeID node ID of the target/destination node.
+     * @return node ID of the next hop node, that is an adjacent node of the
+     * origin node. If there is not a route to reach the target node,
+     * TTopology.TARGET_UNREACHABLE is returned.
+     * @since 2.0
+     */
+    public int getNextHopID(int originNodeID, int targetNodeID) {
+        ensureAdjacencyLists();
+        Integer origin = this.nodeIndexes.get(originNodeID);
+        Integer target = this.nodeIndexes.get(targetNodeID);
+        int nextHop = TTopology.TARGET_UNREACHABLE;
+        if ((origin != null) && (target != null)) {
+            if (this.delayDistances[origin] == null) {
+                this.delayDistances[origin] = new long[this.nodeIDs.length];
+                this.delayParents[origin] = new int[this.nodeIDs.length];
+                computeShortestPathTree(origin, this.delayWeights, TDijkstraRoutingEngine.NONE, this.delayDistances[origin], this.delayParents[origin]);
+            }
+            int firstHop = getFirstHop(origin, target, this.delayDistances[origin], this.delayParents[origin]);
+            if (firstHop != TDijkstraRoutingEngine.NONE) {
+                nextHop = this.nodeIDs[firstHop];
+            }
+        }
+        return checkAdjacency(originNodeID, targetNodeID, nextHop);
+    }
+
+    /**
+     * This method gets the next hop node ID to reach the target node from the
+     * origin node through the route with minimum RABAN weight, optionally
+     * avoiding a node adjacent to the origin.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param originNodeID node ID of the origin node.
+     * @param targetNodeID node ID of the target/destination node.
+     * @param nodeToAvoidID node ID of the node that must not be used as next
+     * hop, or TTopology.TARGET_UNREACHABLE if no node has to be avoided.
+     * @return node ID of the next hop node, that is an adjacent node of the
+     * origin node. If there is not a route to reach the target node,
+     * TTopology.TARGET_UNREACHABLE is returned.
+     * @since 2.0
+     */
+    public int getRABANNextHopID(int originNodeID, int targetNodeID, int nodeToAvoidID) {
+        ensureAdjacencyLists();
+        updateRABANWeights();
+        Integer origin = this.nodeIndexes.get(originNodeID);
+        Integer target = this.nodeIndexes.get(targetNodeID);
+        int nextHop = TTopology.TARGET_UNREACHABLE;
+        if ((origin != null) && (target != null)) {
+            int nodeToAvoid = TDijkstraRoutingEngine.NONE;
+            Integer nodeToAvoidIndex = this.nodeIndexes.get(nodeToAvoidID);
+            if ((nodeToAvoidID != TTopology.TARGET_UNREACHABLE) && (nodeToAvoidIndex != null)) {
+                nodeToAvoid = nodeToAvoidIndex;
+            }
+            int firstHop;
+            if (nodeToAvoid == TDijkstraRoutingEngine.NONE) {
+                // Trees without restrictions are cached and repaired as RABAN
+                // weights change.
+                if (this.rabanDistances[origin] == null) {
+                    this.rabanDistances[origin] = new long[this.nodeIDs.length];
+                    this.rabanParents[origin] = new int[this.nodeIDs.length];
+                    computeShortestPathTree(origin, this.rabanWeights, TDijkstraRoutingEngine.NONE, this.rabanDistances[origin], this.rabanParents[origin]);
+                }
+                firstHop = getFirstHop(origin, target, this.rabanDistances[origin], this.rabanParents[origin]);
+            } else {
+                // Trees of backup routes are cached and repaired too, as the
+                // same origin looks for a backup route to several targets.
+                long avoidingTreeKey = toNodePairKey(origin, nodeToAvoid);
+                long[] treeDistances = this.rabanAvoidingDistances.get(avoidingTreeKey);
+                int[] treeParents = this.rabanAvoidingParents.get(avoidingTreeKey);
+                if (treeDistances == null) {
+                    treeDistances = new long[this.nodeIDs.length];
+                    treeParents = new int[this.nodeIDs.length];
+                    computeShortestPathTree(origin, this.rabanWeights, nodeToAvoid, treeDistances, treeParents);
+                    this.rabanAvoidingDistances.put(avoidingTreeKey, treeDistances);
+                    this.rabanAvoidingParents.put(avoidingTreeKey, treeParents);
+                }
+                firstHop = getFirstHop(origin, target, treeDistances, treeParents);
+            }
+            if (firstHop != TDijkstraRoutingEngine.NONE) {
+                nextHop = this.nodeIDs[firstHop];
+            }
+        }
+        return checkAdjacency(originNodeID, targetNodeID, nextHop);
+    }
+
+    /**
+     * This method gets how many shortest path trees have been computed from
+     * scratch or repaired since this engine was reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of shortest path trees computed or repaired.
+     * @since 2.0
+     */
+    public long getComputations() {
+        return this.computations + this.repairs;
+    }
+
+    /**
+     * This method gets how many times a cached RABAN shortest path tree has
+     * been repaired, instead of computed from scratch, since this engine was
+     * reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of shortest path trees repaired.
+     * @since 2.0
+     */
+    public long getRepairs() {
+        return this.repairs;
+    }
+
+    /**
+     * This method gets the total time spent computing adjacency lists and
+     * shortest path trees since this engine was reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the time spent computing routes, in nanoseconds.
+     * @since 2.0
+     */
+    public long getComputationTimeInNs() {
+        return this.computationTimeInNs;
+    }
+
+    /**
+     * This method applies the same rule Floyd-Warshall routing applies when no
+     * route has been found: if both nodes are joined by a link, the target
+     * node is returned as next hop.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param originNodeID node ID of the origin node.
+     * @param targetNodeID node ID of the target/destination node.
+     * @param nextHop the next hop found by Dijkstra algorithm.
+     * @return the next hop node ID.
+     * @since 2.0
+     */
+    private int checkAdjacency(int originNodeID, int targetNodeID, int nextHop) {
+        if (nextHop == TTopology.TARGET_UNREACHABLE) {
+            if (this.linkedNodes.contains(toNodePairKey(originNodeID, targetNodeID))) {
+                return targetNodeID;
+            }
+        }
+        return nextHop;
+    }
+
+    /**
+     * This method gets the first hop of the route from the source node to the
+     * target node following the parents of a shortest path tree.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source index of the source node of the tree.
+     * @param target index of the target node.
+     * @param treeDistances distances from the source node.
+     * @param treeParents parent of each node in the tree.
+     * @return index of the first hop, or NONE if the target is not reachable.
+     * @since 2.0
+     */
+    private int getFirstHop(int source, int target, long[] treeDistances, int[] treeParents) {
+        if ((source == target) || (treeDistances[target] >= TTopology.INFINITE_WEIGHT)) {
+            return TDijkstraRoutingEngine.NONE;
+        }
+        int node = target;
+        int steps = 0;
+        while ((treeParents[node] != source) && (steps < this.nodeIDs.length)) {
+            node = treeParents[node];
+            if (node == TDijkstraRoutingEngine.NONE) {
+                return TDijkstraRoutingEngine.NONE;
+            }
+            steps++;
+        }
+        return node;
+    }
+
+    /**
+     * This method builds the adjacency lists of the topology, in compressed
+     * form, if they are not up to date. Broken links are not included and, as
+     * in Floyd-Warshall routing, only the first link joining two nodes is
+     * taken into account.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void ensureAdjacencyLists() {
+        if (this.valid) {
+            return;
+        }
+        long computationStart = System.nanoTime();
+        // Marked as valid before building. If a link breaks meanwhile, lists
+        // will be invalidated again and rebuilt on next request.
+        this.valid = true;
+        TNode[] nodes = this.topology.getNodesAsArray();
+        int numberOfNodes = nodes.length;
+        int[] newNodeIDs = new int[numberOfNodes];
+        HashMap<Integer, Integer> newNodeIndexes = new HashMap<>();
+        int i = 0;
+        for (TNode node : nodes) {
+            newNodeIDs[i] = node.getNodeID();
+            newNodeIndexes.put(newNodeIDs[i], i);
+            i++;
+        }
+        // First pass: choose the link of each pair of nodes and count degrees.
+        HashSet<Long> newLinkedNodes = new HashSet<>();
+        HashSet<Long> joinedIndexes = new HashSet<>();
+        int[] degrees = new int[numberOfNodes];
+        TLink[] allLinks = this.topology.getLinksAsArray();
+        TLink[] usableLinks = new TLink[allLinks.length];
+        int[] usableHeads = new int[allLinks.length];
+        int[] usableTails = new int[allLinks.length];
+        int numberOfUsableLinks = 0;
+        for (TLink link : allLinks) {
+            int headEndNodeID = link.getHeadEndNode().getNodeID();
+            int tailEndNodeID = link.getTailEndNode().getNodeID();
+            newLinkedNodes.add(toNodePairKey(headEndNodeID, tailEndNodeID));
+            newLinkedNodes.add(toNodePairKey(tailEndNodeID, headEndNodeID));
+            Integer head = newNodeIndexes.get(headEndNodeID);
+            Integer tail = newNodeIndexes.get(tailEndNodeID);
+            if ((head == null) || (tail == null) || (head.intValue() == tail.intValue())) {
+                continue;
+            }
+            if (!joinedIndexes.add(toNodePairKey(Math.min(head, tail), Math.max(head, tail)))) {
+                // Another link already joins these nodes.
+                continue;
+            }
+            if (!link.isBroken()) {
+                usableLinks[numberOfUsableLinks] = link;
+                usableHeads[numberOfUsableLinks] = head;
+                usableTails[numberOfUsableLinks] = tail;
+                numberOfUsableLinks++;
+                degrees[head]++;
+                degrees[tail]++;
+            }
+        }
+        // Second pass: fill the compressed adjacency lists.
+        int[] newFirstAdjacency = new int[numberOfNodes + 1];
+        for (i = 0; i < numberOfNodes; i++) {
+            newFirstAdjacency[i + 1] = newFirstAdjacency[i] + degrees[i];
+        }
+        int[] nextFreeAdjacency = Arrays.copyOf(newFirstAdjacency, numberOfNodes);
+        int[] newAdjacentNodes = new int[newFirstAdjacency[numberOfNodes]];
+        int[] newAdjacencyLinkIndexes = new int[newFirstAdjacency[numberOfNodes]];
+        for (i = 0; i < numberOfUsableLinks; i++) {
+            int head = usableHeads[i];
+            int tail = usableTails[i];
+            newAdjacentNodes[nextFreeAdjacency[head]] = tail;
+            newAdjacencyLinkIndexes[nextFreeAdjacency[head]++] = i;
+            newAdjacentNodes[nextFreeAdjacency[tail]] = head;
+            newAdjacencyLinkIndexes[nextFreeAdjacency[tail]++] = i;
+        }
+        this.nodeIDs = newNodeIDs;
+        this.nodeIndexes = newNodeIndexes;
+        this.firstAdjacency = newFirstAdjacency;
+        this.adjacentNodes = newAdjacentNodes;
+        this.adjacencyLinkIndexes = newAdjacencyLinkIndexes;
+        this.links = Arrays.copyOf(usableLinks, numberOfUsableLinks);
+        this.linkHeads = Arrays.copyOf(usableHeads, numberOfUsableLinks);
+        this.linkTails = Arrays.copyOf(usableTails, numberOfUsableLinks);
+        this.delayWeights = new long[numberOfUsableLinks];
+        this.rabanWeights = new long[numberOfUsableLinks];
+        for (i = 0; i < numberOfUsableLinks; i++) {
+            this.delayWeights[i] = this.links[i].getWeight();
+            this.rabanWeights[i] = this.links[i].getRABANWeight();
+        }
+        this.linkedNodes = newLinkedNodes;
+        this.delayDistances = new long[numberOfNodes][];
+        this.delayParents = new int[numberOfNodes][];
+        this.rabanDistances = new long[numberOfNodes][];
+        this.rabanParents = new int[numberOfNodes][];
+        this.rabanAvoidingDistances.clear();
+        this.rabanAvoidingParents.clear();
+        this.changedLinks = new int[numberOfUsableLinks];
+        this.previousRABANWeights = new long[numberOfUsableLinks];
+        this.repairStates = new int[numberOfNodes];
+        this.repairStack = new int[numberOfNodes];
+        this.heap = new int[numberOfNodes];
+        this.heapPositions = new int[numberOfNodes];
+        Arrays.fill(this.heapPositions, TDijkstraRoutingEngine.NONE);
+        this.computationTimeInNs += System.nanoTime() - computationStart;
+    }
+
+    /**
+     * This method reads the current RABAN weight of every link and, if some
+     * of them have changed since the last time, repairs every cached RABAN
+     * shortest path tree at once. Links only change their RABAN weight once
+     * per tick, so trees are repaired at most once per tick whatever the
+     * number of requests.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void updateRABANWeights() {
+        this.numberOfChangedLinks = 0;
+        for (int i = 0; i < this.links.length; i++) {
+            long rabanWeight = this.links[i].getRABANWeight();
+            if (rabanWeight != this.rabanWeights[i]) {
+                this.changedLinks[this.numberOfChangedLinks] = i;
+                this.previousRABANWeights[this.numberOfChangedLinks] = this.rabanWeights[i];
+                this.numberOfChangedLinks++;
+                this.rabanWeights[i] = rabanWeight;
+            }
+        }
+        if (this.numberOfChangedLinks == 0) {
+            return;
+        }
+        long computationStart = System.nanoTime();
+        for (int source = 0; source < this.nodeIDs.length; source++) {
+            if (this.rabanDistances[source] != null) {
+                repairShortestPathTree(source, TDijkstraRoutingEngine.NONE, this.rabanDistances[source], this.rabanParents[source]);
+            }
+        }
+        for (Map.Entry<Long, long[]> avoidingTree : this.rabanAvoidingDistances.entrySet()) {
+            long avoidingTreeKey = avoidingTree.getKey();
+            repairShortestPathTree((int) (avoidingTreeKey >> 32), (int) avoidingTreeKey, avoidingTree.getValue(), this.rabanAvoidingParents.get(avoidingTreeKey));
+        }
+        this.computationTimeInNs += System.nanoTime() - computationStart;
+    }
+
+    /**
+     * This method repairs a cached RABAN shortest path tree after the RABAN
+     * weight of some links has changed. Nodes hanging from a tree link whose
+     * weight has increased lose their route and take the best one offered by
+     * their neighbours; nodes at the end of a link whose weight has decreased
+     * take the new route if it is better. Then, changes are propagated as in
+     * Dijkstra algorithm, visiting only nodes whose route improves.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source index of the source node of the tree.
+     * @param nodeToAvoid index of an adjacent node of the source that cannot
+     * be used as first hop in the tree, or NONE.
+     * @param treeDistances distances from the source node, to be repaired.
+     * @param treeParents parent of each node in the tree, to be repaired.
+     * @since 2.0
+     */
+    private void repairShortestPathTree(int source, int nodeToAvoid, long[] treeDistances, int[] treeParents) {
+        int numberOfNodes = this.nodeIDs.length;
+        this.distances = treeDistances;
+        this.heapSize = 0;
+        // Roots of the subtrees whose route has got longer.
+        boolean increases = false;
+        Arrays.fill(this.repairStates, TDijkstraRoutingEngine.UNKNOWN);
+        for (int c = 0; c < this.numberOfChangedLinks; c++) {
+            int link = this.changedLinks[c];
+            if (this.rabanWeights[link] > this.previousRABANWeights[c]) {
+                int head = this.linkHeads[link];
+                int tail = this.linkTails[link];
+                if (treeParents[tail] == head) {
+                    this.repairStates[tail] = TDijkstraRoutingEngine.AFFECTED;
+                    increases = true;
+                } else if (treeParents[head] == tail) {
+                    this.repairStates[head] = TDijkstraRoutingEngine.AFFECTED;
+                    increases = true;
+                }
+            }
+        }
+        if (increases) {
+            // Every node below those roots is affected too.
+            this.repairStates[source] = TDijkstraRoutingEngine.UNAFFECTED;
+            for (int node = 0; node < numberOfNodes; node++) {
+                if ((this.repairStates[node] == TDijkstraRoutingEngine.UNKNOWN) && (treeParents[node] == TDijkstraRoutingEngine.NONE)) {
+                    this.repairStates[node] = TDijkstraRoutingEngine.UNAFFECTED;
+                }
+            }
+            for (int node = 0; node < numberOfNodes; node++) {
+                int stackSize = 0;
+                int ancestor = node;
+                while (this.repairStates[ancestor] == TDijkstraRoutingEngine.UNKNOWN) {
+                    this.repairStack[stackSize++] = ancestor;
+                    ancestor = treeParents[ancestor];
+                }
+                while (stackSize > 0) {
+                    this.repairStates[this.repairStack[--stackSize]] = this.repairStates[ancestor];
+                }
+            }
+            for (int node = 0; node < numberOfNodes; node++) {
+                if (this.repairStates[node] == TDijkstraRoutingEngine.AFFECTED) {
+                    treeDistances[node] = TTopology.INFINITE_WEIGHT;
+                    treeParents[node] = TDijkstraRoutingEngine.NONE;
+                }
+            }
+            for (int node = 0; node < numberOfNodes; node++) {
+                if (this.repairStates[node] == TDijkstraRoutingEngine.AFFECTED) {
+                    for (int a = this.firstAdjacency[node]; a < this.firstAdjacency[node + 1]; a++) {
+                        if ((this.adjacentNodes[a] == source) && (node == nodeToAvoid)) {
+                            continue;
+                        }
+                        relax(this.adjacentNodes[a], node, this.rabanWeights[this.adjacencyLinkIndexes[a]], treeParents);
+                    }
+                }
+            }
+        }
+        // Nodes that can be reached through a cheaper link.
+        for (int c = 0; c < this.numberOfChangedLinks; c++) {
+            int link = this.changedLinks[c];
+            if (this.rabanWeights[link] < this.previousRABANWeights[c]) {
+                int head = this.linkHeads[link];
+                int tail = this.linkTails[link];
+                if ((head != source) || (tail != nodeToAvoid)) {
+                    relax(head, tail, this.rabanWeights[link], treeParents);
+                }
+                if ((tail != source) || (head != nodeToAvoid)) {
+                    relax(tail, head, this.rabanWeights[link], treeParents);
+                }
+            }
+        }
+        propagate(source, this.rabanWeights, nodeToAvoid, treeParents);
+        this.repairs++;
+    }
+
+    /**
+     * This method computes a shortest path tree from scratch with Dijkstra
+     * algorithm.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source index of the source node.
+     * @param linkWeights weight of each link.
+     * @param nodeToAvoid index of an adjacent node of the source that cannot
+     * be used as first hop, or NONE.
+     * @param treeDistances array where distances from the source node will be
+     * stored.
+     * @param treeParents array where the parent of each node in the tree will
+     * be stored.
+     * @since 2.0
+     */
+    private void computeShortestPathTree(int source, long[] linkWeights, int nodeToAvoid, long[] treeDistances, int[] treeParents) {
+        long computationStart = System.nanoTime();
+        Arrays.fill(treeDistances, TTopology.INFINITE_WEIGHT);
+        Arrays.fill(treeParents, TDijkstraRoutingEngine.NONE);
+        this.distances = treeDistances;
+        this.heapSize = 0;
+        treeDistances[source] = 0;
+        heapPush(source);
+        propagate(source, linkWeights, nodeToAvoid, treeParents);
+        this.computations++;
+        this.computationTimeInNs += System.nanoTime() - computationStart;
+    }
+
+    /**
+     * This method takes nodes from the heap, lowest distance first, and
+     * improves the route of their neighbours until the heap is empty.
+     * Distances are those of the array being used by the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source index of the source node.
+     * @param linkWeights weight of each link.
+     * @param nodeToAvoid index of an adjacent node of the source that cannot
+     * be used as first hop, or NONE.
+     * @param treeParents parent of each node in the tree.
+     * @since 2.0
+     */
+    private void propagate(int source, long[] linkWeights, int nodeToAvoid, int[] treeParents) {
+        while (this.heapSize > 0) {
+            int node = heapPop();
+            for (int a = this.firstAdjacency[node]; a < this.firstAdjacency[node + 1]; a++) {
+                int adjacentNode = this.adjacentNodes[a];
+                if ((node == source) && (adjacentNode == nodeToAvoid)) {
+                    continue;
+                }
+                relax(node, adjacentNode, linkWeights[this.adjacencyLinkIndexes[a]], treeParents);
+            }
+        }
+    }
+
+    /**
+     * This method checks whether a node can be reached through a shorter
+     * route using the specified link from another node and, if so, updates
+     * its distance and parent and puts it in the heap.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param from index of the node at the near end of the link.
+     * @param to index of the node at the far end of the link.
+     * @param linkWeight weight of the link.
+     * @param treeParents parent of each node in the tree.
+     * @since 2.0
+     */
+    private void relax(int from, int to, long linkWeight, int[] treeParents) {
+        if ((linkWeight >= TTopology.INFINITE_WEIGHT) || (this.distances[from] >= TTopology.INFINITE_WEIGHT)) {
+            return;
+        }
+        long distance = this.distances[from] + linkWeight;
+        if (distance < this.distances[to]) {
+            this.distances[to] = distance;
+            treeParents[to] = from;
+            if (this.heapPositions[to] == TDijkstraRoutingEngine.NONE) {
+                heapPush(to);
+            } else {
+                heapSiftUp(this.heapPositions[to]);
+            }
+        }
+    }
+
+    /**
+     * This method inserts a node in the binary heap of Dijkstra algorithm.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node index of the node.
+     * @since 2.0
+     */
+    private void heapPush(int node) {
+        this.heap[this.heapSize] = node;
+        this.heapPositions[node] = this.heapSize;
+        this.heapSize++;
+        heapSiftUp(this.heapSize - 1);
+    }
+
+    /**
+     * This method removes and returns the node with the lowest distance from
+     * the binary heap of Dijkstra algorithm.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return index of the node with the lowest distance.
+     * @since 2.0
+     */
+    private int heapPop() {
+        int node = this.heap[0];
+        this.heapSize--;
+        this.heapPositions[node] = TDijkstraRoutingEngine.NONE;
+        if (this.heapSize > 0) {
+            this.heap[0] = this.heap[this.heapSize];
+            this.heapPositions[this.heap[0]] = 0;
+            heapSiftDown(0);
+        }
+        return node;
+    }
+
+    /**
+     * This method moves a node up in the binary heap until its parent has a
+     * lower distance.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param position position of the node in the heap.
+     * @since 2.0
+     */
+    private void heapSiftUp(int position) {
+        int node = this.heap[position];
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            int parent = this.heap[parentPosition];
+            if (!isLower(node, parent)) {
+                break;
+            }
+            this.heap[position] = parent;
+            this.heapPositions[parent] = position;
+            position = parentPosition;
+        }
+        this.heap[position] = node;
+        this.heapPositions[node] = position;
+    }
+
+    /**
+     * This method moves a node down in the binary heap until its children
+     * have a higher distance.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param position position of the node in the heap.
+     * @since 2.0
+     */
+    private void heapSiftDown(int position) {
+        int node = this.heap[position];
+        while (true) {
+            int childPosition = (2 * position) + 1;
+            if (childPosition >= this.heapSize) {
+                break;
+            }
+            if (((childPosition + 1) < this.heapSize) && isLower(this.heap[childPosition + 1], this.heap[childPosition])) {
+                childPosition++;
+            }
+            int child = this.heap[childPosition];
+            if (!isLower(child, node)) {
+                break;
+            }
+            this.heap[position] = child;
+            this.heapPositions[child] = position;
+            position = childPosition;
+        }
+        this.heap[position] = node;
+        this.heapPositions[node] = position;
+    }
+
+    /**
+     * This method compares two nodes of the heap. Ties are broken by node
+     * index, so routes do not depend on the order of insertion.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node1 index of a node.
+     * @param node2 index of another node.
+     * @return TRUE, if node1 has to be settled before node2. Otherwise, FALSE.
+     * @since 2.0
+     */
+    private boolean isLower(int node1, int node2) {
+        if (this.distances[node1] != this.distances[node2]) {
+            return this.distances[node1] < this.distances[node2];
+        }
+        return node1 < node2;
+    }
+
+    /**
+     * This method combines two node IDs in a single key.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node1ID the first node ID.
+     * @param node2ID the second node ID.
+     * @return a key that is different for each ordered pair of node IDs.
+     * @since 2.0
+     */
+    private static long toNodePairKey(int node1ID, int node2ID) {
+        return (((long) node1ID) << 32) | (node2ID & 0xFFFFFFFFL);
+    }
+
+    private static final int NONE = -1;
+    private static final int UNKNOWN = 0;
+    private static final int AFFECTED = 1;
+    private static final int UNAFFECTED = 2;
+
+    private TTopology topology;
+    private volatile boolean valid;
+    private int[] nodeIDs;
+    private HashMap<Integer, Integer> nodeIndexes;
+    private int[] firstAdjacency;
+    private int[] adjacentNodes;
+    private int[] adjacencyLinkIndexes;
+    private TLink[] links;
+    private int[] linkHeads;
+    private int[] linkTails;
+    private long[] delayWeights;
+    private long[] rabanWeights;
+    private HashSet<Long> linkedNodes;
+    private long[][] delayDistances;
+    private int[][] delayParents;
+    private long[][] rabanDistances;
+    private int[][] rabanParents;
+    private HashMap<Long, long[]> rabanAvoidingDistances;
+    private HashMap<Long, int[]> rabanAvoidingParents;
+    private int[] changedLinks;
+    private long[] previousRABANWeights;
+    private int numberOfChangedLinks;
+    private int[] repairStates;
+    private int[] repairStack;
+    private long[] distances;
+    private int[] heap;
+    private int[] heapPositions;
+    private int heapSize;
+    private long computations;
+    private long repairs;
+    private long computationTimeInNs;
+}
@@ -18,6 +18,7 @@ package com.manolodominguez.opensimmpls.scenario;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLinkBroken;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLinkRecovered;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketOnFly;
 import java.util.Iterator;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
@@ -95,6 +96,7 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
     @Override
     public void setAsBrokenLink(boolean linkIsBroken) {
         this.linkIsBroken = linkIsBroken;
+        invalidateRoutingTable();
         if (this.linkIsBroken) {
             try {
                 this.generateSimulationEvent(new TSimulationEventLinkBroken(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant()));
@@ -116,8 +118,8 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
                             this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this.getHeadEndNode(), this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
                         }
                     }
-                    bufferedPacketEntriesIterator.remove();
                 }
+                this.buffer.clear();
                 this.packetsInTransitEntriesLock.unLock();
             } catch (EIDGeneratorOverflow e) {
                 // FIX: this is not a good practice
@@ -145,7 +147,9 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
     public void run() {
         this.updateTransitDelay();
         this.advancePacketInTransit();
-        this.deliverPacketsToDestination();
+        if (!this.phasedOperation) {
+            this.deliverPacketsToDestination();
+        }
     }
 
     /**
@@ -157,11 +161,15 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void updateTransitDelay() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            bufferedPacketEntry.substractStepFromRemainingDelay(this.stepLength);
-            long transitPercentage = this.getCurrentTransitPercentage(bufferedPacketEntry.getTotalTransitDelay(), bufferedPacketEntry.getRemainingTransitDelay());
+        this.buffer.advance(this.stepLength);
+        if (!this.isSubscribedTo(TSimulationEvent.PACKET_ON_FLY)) {
+            // PacketOnFly events are the only reason to visit every packet in
+            // transit on each tick.
+            this.packetsInTransitEntriesLock.unLock();
+            return;
+        }
+        for (TLinkBufferEntry bufferedPacketEntry : this.buffer) {
+            long transitPercentage = this.getCurrentTransitPercentage(bufferedPacketEntry.getTotalTransitDelay(), this.buffer.getRemainingTransitDelay(bufferedPacketEntry));
             // FIX: do not use harcoded values. Use constants class instead.
             if (bufferedPacketEntry.getPacketEnd() == 1) {
                 // FIX: do not use harcoded values. Use constants class instead.
@@ -187,24 +195,12 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void advancePacketInTransit() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            // FIX: Do not use harcoded values. Use constants class instead.
-            if (bufferedPacketEntry.getRemainingTransitDelay() <= 0) {
-                this.deliveredPacketEntriesLock.lock();
-                this.deliveredPacketsBuffer.add(bufferedPacketEntry);
-                this.deliveredPacketEntriesLock.unLock();
-            }
-        }
-        bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            // FIX: Do not use harcoded values. Use constants class instead.
-            if (bufferedPacketEntry.getRemainingTransitDelay() <= 0) {
-                bufferedPacketEntriesIterator.remove();
-            }
-        }
+        this.deliveredPacketEntriesLock.lock();
+        this.buffer.removeArrivedEntries(this.deliveredPacketsBuffer);
+        // The wheel returns entries slot by slot; packets are delivered in
+        // their natural order.
+        this.deliveredPacketsBuffer.sort(null);
+        this.deliveredPacketEntriesLock.unLock();
         this.packetsInTransitEntriesLock.unLock();
     }
 
@@ -217,9 +213,7 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void deliverPacketsToDestination() {
         this.deliveredPacketEntriesLock.lock();
-        Iterator deliveredPacketEntriesIterator = this.deliveredPacketsBuffer.iterator();
-        while (deliveredPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry deliveredBufferedPacketEntry = (TLinkBufferEntry) deliveredPacketEntriesIterator.next();
+        for (TLinkBufferEntry deliveredBufferedPacketEntry : this.deliveredPacketsBuffer) {
             if (deliveredBufferedPacketEntry.getPacketEnd() == TLink.HEAD_END_NODE) {
                 TNode nodeAux = this.getHeadEndNode();
                 nodeAux.putPacket(deliveredBufferedPacketEntry.getPacket(), this.getHeadEndNodePortID());
@@ -227,8 +221,8 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
                 TNode nodeAux = this.getTailEndNode();
                 nodeAux.putPacket(deliveredBufferedPacketEntry.getPacket(), this.getTailEndNodePortID());
             }
-            deliveredPacketEntriesIterator.remove();
         }
+        this.deliveredPacketsBuffer.clear();
         this.deliveredPacketEntriesLock.unLock();
     }
 
@@ -362,19 +356,12 @@ public class TExternalLink extends TLink implements ITimerEventListener, Runnabl
     @Override
     public void reset() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            bufferedPacketEntriesIterator.next();
-            bufferedPacketEntriesIterator.remove();
-        }
+        this.buffer.clear();
         this.packetsInTransitEntriesLock.unLock();
         this.deliveredPacketEntriesLock.lock();
-        Iterator deliveredPacketEntriesIterator = this.deliveredPacketsBuffer.iterator();
-        while (deliveredPacketEntriesIterator.hasNext()) {
-            deliveredPacketEntriesIterator.next();
-            deliveredPacketEntriesIterator.remove();
-        }
+        this.deliveredPacketsBuffer.clear();
         this.deliveredPacketEntriesLock.unLock();
+        this.discardPacketsFromNodes();
         this.setAsBrokenLink(false);
     }
 
@@ -0,0 +1,337 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class computes the cost and the first hop of the shortest route
+ * between every pair of nodes of a topology, using Floyd-Warshall algorithm
+ * over flat primitive arrays. Small topologies are computed sequentially,
+ * exactly as openSimMPLS has always done. Large ones are computed by blocks
+ * that fit in the processor cache, and blocks that do not depend on each other
+ * are computed in parallel in a fork-join pool, so the computation scales with
+ * the number of cores.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TFloydWarshallEngine {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TFloydWarshallEngine that uses the common fork-join pool.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TFloydWarshallEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TFloydWarshallEngine that uses the specified fork-join pool.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param pool the fork-join pool where blocks will be computed.
+     * @since 2.0
+     */
+    public TFloydWarshallEngine(ForkJoinPool pool) {
+        this.pool = pool;
+        this.parallelThreshold = TFloydWarshallEngine.DEFAULT_PARALLEL_THRESHOLD;
+        this.numberOfNodes = 0;
+        this.costs = new long[0];
+        this.firstHops = new int[0];
+    }
+
+    /**
+     * This method sets the number of nodes from which the blocked parallel
+     * algorithm is used instead of the sequential one. With the blocked
+     * algorithm, costs are the same but, when several routes have the same
+     * cost, a different one may be chosen.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param parallelThreshold the minimum number of nodes to use the blocked
+     * parallel algorithm.
+     * @since 2.0
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * This method gets the number of nodes from which the blocked parallel
+     * algorithm is used instead of the sequential one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the minimum number of nodes to use the blocked parallel
+     * algorithm.
+     * @since 2.0
+     */
+    public int getParallelThreshold() {
+        return this.parallelThreshold;
+    }
+
+    /**
+     * This method computes the shortest routes between every pair of nodes.
+     * Results of previous computations are not modified, so arrays obtained
+     * before remain valid.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param adjacencyMatrix the adjacency matrix. Each position holds the
+     * weight of the link that joins two nodes, or TTopology.INFINITE_WEIGHT if
+     * they are not joined.
+     * @since 2.0
+     */
+    public void compute(long[][] adjacencyMatrix) {
+        int n = adjacencyMatrix.length;
+        long[] newCosts = new long[n * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(adjacencyMatrix[i], 0, newCosts, i * n, n);
+        }
+        int[] newFirstHops;
+        if (n < this.parallelThreshold) {
+            newFirstHops = computeSequentially(newCosts, n);
+        } else {
+            newFirstHops = computeByBlocks(newCosts, n);
+        }
+        this.numberOfNodes = n;
+        this.costs = newCosts;
+        this.firstHops = newFirstHops;
+    }
+
+    /**
+     * This method gets the number of nodes of the last computation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nodes.
+     * @since 2.0
+     */
+    public int getNumberOfNodes() {
+        return this.numberOfNodes;
+    }
+
+    /**
+     * This method gets the costs of the last computation, as a flat array
+     * where the cost from node i to node j is at position i * n + j.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the costs matrix. TTopology.INFINITE_WEIGHT means that there is
+     * not a route.
+     * @since 2.0
+     */
+    public long[] getCosts() {
+        return this.costs;
+    }
+
+    /**
+     * This method gets the first hops of the last computation, as a flat
+     * array where the first hop from node i to node j is at position i * n +
+     * j. As it has always been in openSimMPLS, routes that go straight to the
+     * target through a single link have no first hop, and callers have to
+     * check whether both nodes are joined by a link.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the first hops matrix. Each position holds the index of the
+     * first intermediate node, or TTopology.TARGET_UNREACHABLE if there is
+     * not a route or it is a single link.
+     * @since 2.0
+     */
+    public int[] getFirstHops() {
+        return this.firstHops;
+    }
+
+    /**
+     * This method runs Floyd-Warshall algorithm sequentially, exactly as
+     * openSimMPLS has always done, and translates the resulting paths matrix
+     * to first hops.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param c the costs matrix, initialized with the adjacency matrix.
+     * @param n the number of nodes.
+     * @return the first hops matrix.
+     * @since 2.0
+     */
+    private int[] computeSequentially(long[] c, int n) {
+        int[] paths = new int[n * n];
+        Arrays.fill(paths, n);
+        for (int k = 0; k < n; k++) {
+            int kRow = k * n;
+            for (int i = 0; i < n; i++) {
+                int iRow = i * n;
+                long cik = c[iRow + k];
+                if (cik == TTopology.INFINITE_WEIGHT) {
+                    continue;
+                }
+                for (int j = 0; j < n; j++) {
+                    long ckj = c[kRow + j];
+                    if (ckj != TTopology.INFINITE_WEIGHT) {
+                        if ((cik + ckj) < c[iRow + j]) {
+                            c[iRow + j] = cik + ckj;
+                            paths[iRow + j] = k;
+                        }
+                    }
+                }
+            }
+        }
+        // If there is a route to destination host, this step get the first hop
+        // of this route, for every pair of nodes.
+        int[] hops = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            int iRow = i * n;
+            for (int j = 0; j < n; j++) {
+                int nextHop = TTopology.TARGET_UNREACHABLE;
+                int k = paths[iRow + j];
+                while (k != n) {
+                    nextHop = k;
+                    k = paths[iRow + k];
+                }
+                hops[iRow + j] = nextHop;
+            }
+        }
+        return hops;
+    }
+
+    /**
+     * This method runs the blocked version of Floyd-Warshall algorithm. For
+     * each diagonal block, the block itself is computed first; then, the rest
+     * of blocks of its row and column, in parallel; and, at last, the rest of
+     * blocks, in parallel too.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param c the costs matrix, initialized with the adjacency matrix.
+     * @param n the number of nodes.
+     * @return the first hops matrix.
+     * @since 2.0
+     */
+    private int[] computeByBlocks(long[] c, int n) {
+        // Next node of each route. Direct links are the initial routes.
+        int[] next = new int[n * n];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if ((i != j) && (c[i * n + j] != TTopology.INFINITE_WEIGHT)) {
+                    next[i * n + j] = j;
+                } else {
+                    next[i * n + j] = TTopology.TARGET_UNREACHABLE;
+                }
+            }
+        }
+        int numberOfBlocks = (n + TFloydWarshallEngine.BLOCK_SIZE - 1) / TFloydWarshallEngine.BLOCK_SIZE;
+        for (int kb = 0; kb < numberOfBlocks; kb++) {
+            final int kBlock = kb;
+            computeBlock(c, next, n, kBlock, kBlock, kBlock);
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int b = 0; b < numberOfBlocks; b++) {
+                if (b != kBlock) {
+                    final int block = b;
+                    tasks.add(ForkJoinTask.adapt(() -> computeBlock(c, next, n, kBlock, block, kBlock)));
+                    tasks.add(ForkJoinTask.adapt(() -> computeBlock(c, next, n, block, kBlock, kBlock)));
+                }
+            }
+            runInParallel(tasks);
+            tasks.clear();
+            for (int ib = 0; ib < numberOfBlocks; ib++) {
+                for (int jb = 0; jb < numberOfBlocks; jb++) {
+                    if ((ib != kBlock) && (jb != kBlock)) {
+                        final int iBlock = ib;
+                        final int jBlock = jb;
+                        tasks.add(ForkJoinTask.adapt(() -> computeBlock(c, next, n, iBlock, jBlock, kBlock)));
+                    }
+                }
+            }
+            runInParallel(tasks);
+        }
+        // Translation to first hops as they have always been: single link
+        // routes have no first hop.
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                if (next[i * n + j] == j) {
+                    next[i * n + j] = TTopology.TARGET_UNREACHABLE;
+                }
+            }
+        }
+        return next;
+    }
+
+    /**
+     * This method relaxes the routes of the nodes of a block through the
+     * intermediate nodes of another block.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param c the costs matrix.
+     * @param next the next node matrix.
+     * @param n the number of nodes.
+     * @param iBlock row of the block to be computed.
+     * @param jBlock column of the block to be computed.
+     * @param kBlock block of intermediate nodes.
+     * @since 2.0
+     */
+    private static void computeBlock(long[] c, int[] next, int n, int iBlock, int jBlock, int kBlock) {
+        int iStart = iBlock * TFloydWarshallEngine.BLOCK_SIZE;
+        int iEnd = Math.min(iStart + TFloydWarshallEngine.BLOCK_SIZE, n);
+        int jStart = jBlock * TFloydWarshallEngine.BLOCK_SIZE;
+        int jEnd = Math.min(jStart + TFloydWarshallEngine.BLOCK_SIZE, n);
+        int kStart = kBlock * TFloydWarshallEngine.BLOCK_SIZE;
+        int kEnd = Math.min(kStart + TFloydWarshallEngine.BLOCK_SIZE, n);
+        for (int k = kStart; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = iStart; i < iEnd; i++) {
+                int iRow = i * n;
+                long cik = c[iRow + k];
+                if (cik == TTopology.INFINITE_WEIGHT) {
+                    continue;
+                }
+                int nextOfIK = next[iRow + k];
+                for (int j = jStart; j < jEnd; j++) {
+                    long ckj = c[kRow + j];
+                    if ((ckj != TTopology.INFINITE_WEIGHT) && ((cik + ckj) < c[iRow + j])) {
+                        c[iRow + j] = cik + ckj;
+                        next[iRow + j] = nextOfIK;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method runs a set of tasks in the fork-join pool and waits until
+     * all of them have finished.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param tasks the tasks to be run.
+     * @since 2.0
+     */
+    private void runInParallel(ArrayList<ForkJoinTask<?>> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        this.pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 128;
+
+    private static final int BLOCK_SIZE = 64;
+
+    private ForkJoinPool pool;
+    private int parallelThreshold;
+    private int numberOfNodes;
+    private long[] costs;
+    private int[] firstHops;
+}
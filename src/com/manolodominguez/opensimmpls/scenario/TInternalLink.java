@@ -20,6 +20,7 @@ import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEven
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLSPRemoved;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventLinkRecovered;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketOnFly;
 import java.util.Iterator;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
@@ -54,6 +55,7 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
         this.numberOfLSPs = 0;
         this.numberOfBackupLSPs = 0;
         this.stepLength = 0;
+        this.rabanWeightSnapshot = 0;
     }
 
     /**
@@ -99,6 +101,7 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
     @Override
     public void setAsBrokenLink(boolean linkIsBroken) {
         this.linkIsBroken = linkIsBroken;
+        invalidateRoutingTable();
         if (this.linkIsBroken) {
             try {
                 // FIX: Use class contants instead of harcoded values
@@ -123,8 +126,8 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
                             this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this.getHeadEndNode(), this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
                         }
                     }
-                    bufferedPacketEntriesIterator.remove();
                 }
+                this.buffer.clear();
                 this.packetsInTransitEntriesLock.unLock();
             } catch (EIDGeneratorOverflow e) {
                 // FIX: this is not a good practice
@@ -153,7 +156,25 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
     public void run() {
         this.updateTransitDelay();
         this.advancePacketInTransit();
-        this.deliverPacketsToDestination();
+        if (!this.phasedOperation) {
+            this.deliverPacketsToDestination();
+        }
+        this.updateRABANWeightSnapshot();
+    }
+
+    /**
+     * This method computes the RABAN weight of this link that nodes will read
+     * until the next tick. It is computed once per tick, so RABAN routes
+     * change at most once per tick instead of whenever a node changes its
+     * state, and, as nodes switch in parallel, all of them read the same
+     * weight.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void updateRABANWeightSnapshot() {
+        this.rabanWeightSnapshot = this.computeRABANWeight();
     }
 
     /**
@@ -252,11 +273,15 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void updateTransitDelay() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            bufferedPacketEntry.substractStepFromRemainingDelay(this.stepLength);
-            long transitPercentage = this.getCurrentTransitPercentage(bufferedPacketEntry.getTotalTransitDelay(), bufferedPacketEntry.getRemainingTransitDelay());
+        this.buffer.advance(this.stepLength);
+        if (!this.isSubscribedTo(TSimulationEvent.PACKET_ON_FLY)) {
+            // PacketOnFly events are the only reason to visit every packet in
+            // transit on each tick.
+            this.packetsInTransitEntriesLock.unLock();
+            return;
+        }
+        for (TLinkBufferEntry bufferedPacketEntry : this.buffer) {
+            long transitPercentage = this.getCurrentTransitPercentage(bufferedPacketEntry.getTotalTransitDelay(), this.buffer.getRemainingTransitDelay(bufferedPacketEntry));
             // FIX: do not use harcoded values. Use constants class instead.
             if (bufferedPacketEntry.getPacketEnd() == 1) {
                 // FIX: do not use harcoded values. Use constants class instead.
@@ -288,24 +313,12 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void advancePacketInTransit() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            // FIX: Do not use harcoded values. Use constants class instead.
-            if (bufferedPacketEntry.getRemainingTransitDelay() <= 0) {
-                this.deliveredPacketEntriesLock.lock();
-                this.deliveredPacketsBuffer.add(bufferedPacketEntry);
-                this.deliveredPacketEntriesLock.unLock();
-            }
-        }
-        bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry bufferedPacketEntry = (TLinkBufferEntry) bufferedPacketEntriesIterator.next();
-            // FIX: Do not use harcoded values. Use constants class instead.
-            if (bufferedPacketEntry.getRemainingTransitDelay() <= 0) {
-                bufferedPacketEntriesIterator.remove();
-            }
-        }
+        this.deliveredPacketEntriesLock.lock();
+        this.buffer.removeArrivedEntries(this.deliveredPacketsBuffer);
+        // The wheel returns entries slot by slot; packets are delivered in
+        // their natural order.
+        this.deliveredPacketsBuffer.sort(null);
+        this.deliveredPacketEntriesLock.unLock();
         this.packetsInTransitEntriesLock.unLock();
     }
 
@@ -318,9 +331,7 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     public void deliverPacketsToDestination() {
         this.deliveredPacketEntriesLock.lock();
-        Iterator deliveredPacketEntriesIterator = this.deliveredPacketsBuffer.iterator();
-        while (deliveredPacketEntriesIterator.hasNext()) {
-            TLinkBufferEntry deliveredBufferedPacketEntry = (TLinkBufferEntry) deliveredPacketEntriesIterator.next();
+        for (TLinkBufferEntry deliveredBufferedPacketEntry : this.deliveredPacketsBuffer) {
             if (deliveredBufferedPacketEntry.getPacketEnd() == TLink.HEAD_END_NODE) {
                 TNode nodeAux = this.getHeadEndNode();
                 nodeAux.putPacket(deliveredBufferedPacketEntry.getPacket(), this.getHeadEndNodePortID());
@@ -328,8 +339,8 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
                 TNode nodeAux = this.getTailEndNode();
                 nodeAux.putPacket(deliveredBufferedPacketEntry.getPacket(), this.getTailEndNodePortID());
             }
-            deliveredPacketEntriesIterator.remove();
         }
+        this.deliveredPacketsBuffer.clear();
         this.deliveredPacketEntriesLock.unLock();
     }
 
@@ -463,23 +474,17 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
     @Override
     public void reset() {
         this.packetsInTransitEntriesLock.lock();
-        Iterator bufferedPacketEntriesIterator = this.buffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            bufferedPacketEntriesIterator.next();
-            bufferedPacketEntriesIterator.remove();
-        }
+        this.buffer.clear();
         this.packetsInTransitEntriesLock.unLock();
         this.deliveredPacketEntriesLock.lock();
-        bufferedPacketEntriesIterator = this.deliveredPacketsBuffer.iterator();
-        while (bufferedPacketEntriesIterator.hasNext()) {
-            bufferedPacketEntriesIterator.next();
-            bufferedPacketEntriesIterator.remove();
-        }
+        this.deliveredPacketsBuffer.clear();
         this.deliveredPacketEntriesLock.unLock();
+        this.discardPacketsFromNodes();
         // FIX: Do not use harcoded values. Use class constants instead.
         this.numberOfLSPs = 0;
         this.numberOfBackupLSPs = 0;
         setAsBrokenLink(false);
+        this.updateRABANWeightSnapshot();
     }
 
     /**
@@ -496,6 +501,19 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
      */
     @Override
     public long getRABANWeight() {
+        return this.rabanWeightSnapshot;
+    }
+
+    /**
+     * This method computes the current weight of this link to be used in the
+     * RABAN routing algorithm from the current status of the link and the
+     * nodes at both ends.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The RABAN weight measurement for this link.
+     * @since 2.0
+     */
+    private long computeRABANWeight() {
         // FIX: Do not use harcoded values. Use class constants instead.
         long rabanWeight = 0;
         long delayWeight = this.getDelay();
@@ -512,4 +530,5 @@ public class TInternalLink extends TLink implements ITimerEventListener, Runnabl
     private int numberOfLSPs;
     private int numberOfBackupLSPs;
     private long stepLength;
+    private volatile long rabanWeightSnapshot;
 }
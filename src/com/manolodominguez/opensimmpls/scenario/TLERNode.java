@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
@@ -233,12 +234,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
     public void receiveTimerEvent(TTimerEvent timerEvent) {
         this.setTickDurationInNs(timerEvent.getTickDurationInNs());
         this.setCurrentTimeInstant(timerEvent.getUpperLimit());
-        if (this.getPorts().isThereAnyPacketToRoute()) {
-            this.availableNanoseconds += timerEvent.getTickDurationInNs();
-        } else {
-            this.resetTicksWithoutEmitting();
-            this.availableNanoseconds = timerEvent.getTickDurationInNs();
-        }
+        this.updateAvailableNanoseconds(timerEvent, this.getPorts().isThereAnyPacketToRoute());
         this.startOperation();
     }
 
@@ -252,12 +248,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
     @Override
     public void run() {
         // Actions to be done during the timer tick.
-        try {
-            this.generateSimulationEvent(new TSimulationEventNodeCongested(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
-        } catch (Exception e) {
-            // FIX: this is not a good practice. Avoid.
-            e.printStackTrace();
-        }
+        this.generateSimulationEvent(TSimulationEvent.NODE_CONGESTED, eventID -> new TSimulationEventNodeCongested(this, eventID, this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
         this.checkConnectivityStatus();
         this.decreaseCounters();
         this.routePackets();
@@ -362,6 +353,10 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
      * @since 2.0
      */
     public void routePackets() {
+        if (this.isBatchSwitching()) {
+            this.switchPacketsInBatches(this.getNsPerBit());
+            return;
+        }
         boolean atLeastOnePacketRouted = false;
         int readPort = 0;
         TAbstractPDU packet = null;
@@ -371,20 +366,9 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
             packet = this.ports.getNextPacket();
             readPort = this.ports.getReadPort();
             if (packet != null) {
-                // FIX: Convert to a switch statement
-                if (packet.getType() == TAbstractPDU.IPV4) {
-                    this.handleIPv4Packet((TIPv4PDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.TLDP) {
-                    this.handleTLDPPacket((TTLDPPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.MPLS) {
-                    this.handleMPLSPacket((TMPLSPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.GPSRP) {
-                    this.handleGPSRPPacket((TGPSRPPDU) packet, readPort);
-                } else {
-                    this.availableNanoseconds += this.getNsRequiredForAllOctets(packet.getSize());
-                    this.discardPacket(packet);
+                if (this.handleIncomingPacket(packet, readPort)) {
+                    this.availableNanoseconds -= this.getNsRequiredForAllOctets(packet.getSize());
                 }
-                this.availableNanoseconds -= this.getNsRequiredForAllOctets(packet.getSize());
                 routeableOctectsWithCurrentNs = this.getMaxRouteableOctectsWithCurrentNs();
             }
         }
@@ -395,6 +379,36 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
         }
     }
 
+    /**
+     * This method handles a packet read from the incoming ports of this node,
+     * depending on its type. Martian packets are discarded.
+     *
+     * @param packet the packet read from an incoming port.
+     * @param incomingPortID the port of this node where the packet has
+     * arrived.
+     * @return TRUE, if the packet has been handled. FALSE, if it has been
+     * discarded.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    protected boolean handleIncomingPacket(TAbstractPDU packet, int incomingPortID) {
+        // FIX: Convert to a switch statement
+        if (packet.getType() == TAbstractPDU.IPV4) {
+            this.handleIPv4Packet((TIPv4PDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.TLDP) {
+            this.handleTLDPPacket((TTLDPPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.MPLS) {
+            this.handleMPLSPacket((TMPLSPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.GPSRP) {
+            this.handleGPSRPPacket((TGPSRPPDU) packet, incomingPortID);
+        } else {
+            this.discardPacket(packet);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This method switchs an incoming GPDRP packet.
      *
@@ -421,12 +435,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                 outgoingPort = (TFIFOPort) this.ports.getLocalPortConnectedToANodeWithIPAddress(nextHopIPv4Address);
                 if (outgoingPort != null) {
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
                 } else {
                     this.discardPacket(packet);
                 }
@@ -484,11 +493,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     TMPLSPDU mplsPacket = this.createMPLSPacket(packet, switchingMatrixEntry);
                     outgoingPort.putPacketOnLink(mplsPacket, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     this.discardPacket(packet);
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
@@ -496,12 +501,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: Avoid this. This is not a good practice.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 this.discardPacket(packet);
@@ -625,12 +625,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                     }
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     if (packet.getLabelStack().getTop().getBoS()) {
                         TIPv4PDU ipv4Packet = this.createIPv4Packet(packet, switchingMatrixEntry);
@@ -647,12 +642,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                         TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                         outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
                     }
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
                     packet.getLabelStack().getTop().setLabel(switchingMatrixEntry.getOutgoingLabel());
                     if (isLabeled) {
@@ -660,21 +650,11 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
                     }
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = this.ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 if (isLabeled) {
@@ -1595,13 +1575,12 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
     @Override
     public void discardPacket(TAbstractPDU packet) {
         try {
-            this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
+            this.generateSimulationEvent(TSimulationEvent.PACKET_DISCARDED, eventID -> new TSimulationEventPacketDiscarded(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
             this.stats.addStatEntry(packet, TStats.BEING_DISCARDED);
         } catch (Exception e) {
             // FIX: this is ugly. Avoid.
             e.printStackTrace();
         }
-        packet = null;
     }
 
     /**
@@ -1628,6 +1607,26 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
         return FECString.hashCode();
     }
 
+    /**
+     * This method computes how many nanoseconds have to elapse until this
+     * node has something to do: switching packets waiting in its ports or
+     * retrying a pending TLDP operation whose timeout expires.
+     *
+     * @return the number of nanoseconds until the next pending event of this
+     * node, or TTopologyElement.NO_PENDING_EVENTS if there is not any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        long nanosecondsToNextEvent = super.getNanosecondsToNextEvent();
+        long nanosecondsToNextTimeOut = this.switchingMatrix.getNanosecondsToNextTimeOut();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        return nanosecondsToNextEvent;
+    }
+
     /**
      * This gets the ports set of this node.
      *
@@ -1815,6 +1814,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
         serializedElement += "#";
         serializedElement += this.getPorts().getBufferSizeInMBytes();
         serializedElement += "#";
+        serializedElement += this.marshallSchedulingDiscipline();
         return serializedElement;
     }
 
@@ -1834,7 +1834,7 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
         // FIX: All fixed values in this method should be implemented as class
         // constants instead of harcoded values.
         String[] elementFields = serializedLER.split("#");
-        if (elementFields.length != 12) {
+        if ((elementFields.length != 12) && (elementFields.length != 13)) {
             return false;
         }
         this.setNodeID(Integer.parseInt(elementFields[2]));
@@ -1848,6 +1848,9 @@ public class TLERNode extends TNode implements ITimerEventListener, Runnable {
         this.setScreenPosition(new Point(posX + 24, posY + 24));
         this.routingPowerInMbps = Integer.parseInt(elementFields[10]);
         this.getPorts().setBufferSizeInMB(Integer.parseInt(elementFields[11]));
+        if (elementFields.length == 13) {
+            return this.unMarshallSchedulingDiscipline(elementFields[12]);
+        }
         return true;
     }
 
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
@@ -228,12 +229,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
     public void receiveTimerEvent(TTimerEvent timerEvent) {
         this.setTickDurationInNs(timerEvent.getTickDurationInNs());
         this.setCurrentTimeInstant(timerEvent.getUpperLimit());
-        if (this.getPorts().isAnyPacketToSwitch()) {
-            this.availableNanoseconds += timerEvent.getTickDurationInNs();
-        } else {
-            this.resetTicksWithoutEmitting();
-            this.availableNanoseconds = timerEvent.getTickDurationInNs();
-        }
+        this.updateAvailableNanoseconds(timerEvent, this.getPorts().isAnyPacketToSwitch());
         this.startOperation();
     }
 
@@ -247,12 +243,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
     @Override
     public void run() {
         // Actions to be done during the timer tick.
-        try {
-            this.generateSimulationEvent(new TSimulationEventNodeCongested(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
-        } catch (Exception e) {
-            // FIX: this is not a good practice. Avoid.
-            e.printStackTrace();
-        }
+        this.generateSimulationEvent(TSimulationEvent.NODE_CONGESTED, eventID -> new TSimulationEventNodeCongested(this, eventID, this.getCurrentTimeInstant(), this.getPorts().getCongestionLevel()));
         this.checkConnectivityStatus();
         this.decreaseCounters();
         this.switchPackets();
@@ -324,6 +315,10 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
      * @since 2.0
      */
     public void switchPackets() {
+        if (this.isBatchSwitching()) {
+            this.switchPacketsInBatches(this.getNsPerBit());
+            return;
+        }
         boolean atLeastOnePacketSwitched = false;
         // FIX: use class constant instead of hardcoded values
         int readPort = 0;
@@ -334,18 +329,9 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
             packet = this.ports.getNextPacket();
             readPort = this.ports.getReadPort();
             if (packet != null) {
-                // FIX: Convert to a switch statement
-                if (packet.getType() == TAbstractPDU.TLDP) {
-                    handleTLDPPacket((TTLDPPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.MPLS) {
-                    handleMPLSPacket((TMPLSPDU) packet, readPort);
-                } else if (packet.getType() == TAbstractPDU.GPSRP) {
-                    handleGPSRPPacket((TGPSRPPDU) packet, readPort);
-                } else {
-                    this.availableNanoseconds += getNsRequiredForAllOctets(packet.getSize());
-                    discardPacket(packet);
+                if (this.handleIncomingPacket(packet, readPort)) {
+                    this.availableNanoseconds -= this.getNsRequiredForAllOctets(packet.getSize());
                 }
-                this.availableNanoseconds -= getNsRequiredForAllOctets(packet.getSize());
                 switchableOctectsWithCurrentNs = this.getMaxSwitchableOctectsWithCurrentNs();
             }
         }
@@ -356,6 +342,34 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
         }
     }
 
+    /**
+     * This method handles a packet read from the incoming ports of this node,
+     * depending on its type. Martian packets are discarded.
+     *
+     * @param packet the packet read from an incoming port.
+     * @param incomingPortID the port of this node where the packet has
+     * arrived.
+     * @return TRUE, if the packet has been handled. FALSE, if it has been
+     * discarded.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    protected boolean handleIncomingPacket(TAbstractPDU packet, int incomingPortID) {
+        // FIX: Convert to a switch statement
+        if (packet.getType() == TAbstractPDU.TLDP) {
+            this.handleTLDPPacket((TTLDPPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.MPLS) {
+            this.handleMPLSPacket((TMPLSPDU) packet, incomingPortID);
+        } else if (packet.getType() == TAbstractPDU.GPSRP) {
+            this.handleGPSRPPacket((TGPSRPPDU) packet, incomingPortID);
+        } else {
+            this.discardPacket(packet);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * This method switchs an incoming GPDRP packet.
      *
@@ -382,12 +396,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
                 outgoingPort = (TFIFOPort) this.ports.getLocalPortConnectedToANodeWithIPAddress(nextHopIPv4Address);
                 if (outgoingPort != null) {
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketRouted(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_ROUTED, eventID -> new TSimulationEventPacketRouted(this, eventID, this.getCurrentTimeInstant(), TAbstractPDU.GPSRP));
                 } else {
                     this.discardPacket(packet);
                 }
@@ -496,12 +505,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
                     }
                     TPort outgoingPort = ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.POP_LABEL) {
                     packet.getLabelStack().popTop();
                     if (isLabeled) {
@@ -509,12 +513,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
                     }
                     TPort outgoingPort = ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.SWAP_LABEL) {
                     packet.getLabelStack().getTop().setLabel(switchingMatrixEntry.getOutgoingLabel());
                     if (isLabeled) {
@@ -528,21 +527,11 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
                         internalLinkAux.unlinkFromABackupLSP();
                         switchingMatrixEntry.setEntryAsForBackupLSP(false);
                     }
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 } else if (operation == TSwitchingMatrixEntry.NOOP) {
                     TPort outgoingPort = ports.getPort(switchingMatrixEntry.getOutgoingPortID());
                     outgoingPort.putPacketOnLink(packet, outgoingPort.getLink().getDestinationOfTrafficSentBy(this));
-                    try {
-                        this.generateSimulationEvent(new TSimulationEventPacketSwitched(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
-                    } catch (Exception e) {
-                        // FIX: This is not a good practice. Avoid.
-                        e.printStackTrace();
-                    }
+                    this.generateSimulationEvent(TSimulationEvent.PACKET_SWITCHED, eventID -> new TSimulationEventPacketSwitched(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
                 }
             } else {
                 if (isLabeled) {
@@ -1191,13 +1180,32 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
     @Override
     public void discardPacket(TAbstractPDU packet) {
         try {
-            this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
+            this.generateSimulationEvent(TSimulationEvent.PACKET_DISCARDED, eventID -> new TSimulationEventPacketDiscarded(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
             this.stats.addStatEntry(packet, TStats.BEING_DISCARDED);
         } catch (Exception e) {
             // FIX: this is ugly. Avoid.
             e.printStackTrace();
         }
-        packet = null;
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse until this
+     * node has something to do: switching packets waiting in its ports or
+     * retrying a pending TLDP operation whose timeout expires.
+     *
+     * @return the number of nanoseconds until the next pending event of this
+     * node, or TTopologyElement.NO_PENDING_EVENTS if there is not any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        long nanosecondsToNextEvent = super.getNanosecondsToNextEvent();
+        long nanosecondsToNextTimeOut = this.switchingMatrix.getNanosecondsToNextTimeOut();
+        if (nanosecondsToNextTimeOut < nanosecondsToNextEvent) {
+            nanosecondsToNextEvent = nanosecondsToNextTimeOut;
+        }
+        return nanosecondsToNextEvent;
     }
 
     /**
@@ -1358,6 +1366,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
         serializedElement += "#";
         serializedElement += this.getPorts().getBufferSizeInMBytes();
         serializedElement += "#";
+        serializedElement += this.marshallSchedulingDiscipline();
         return serializedElement;
     }
 
@@ -1377,7 +1386,7 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
         // FIX: All fixed values in this method should be implemented as class
         // constants instead of harcoded values.
         String[] elementFields = serializedLSR.split("#");
-        if (elementFields.length != 12) {
+        if ((elementFields.length != 12) && (elementFields.length != 13)) {
             return false;
         }
         this.setNodeID(Integer.parseInt(elementFields[2]));
@@ -1391,6 +1400,9 @@ public class TLSRNode extends TNode implements ITimerEventListener, Runnable {
         this.setScreenPosition(new Point(posX + 24, posY + 24));
         this.switchingPowerInMbps = Integer.parseInt(elementFields[10]);
         this.getPorts().setBufferSizeInMB(Integer.parseInt(elementFields[11]));
+        if (elementFields.length == 13) {
+            return this.unMarshallSchedulingDiscipline(elementFields[12]);
+        }
         return true;
     }
 
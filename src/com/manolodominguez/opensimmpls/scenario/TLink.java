@@ -18,13 +18,14 @@ package com.manolodominguez.opensimmpls.scenario;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
 import com.manolodominguez.opensimmpls.hardware.timer.TTimerEvent;
 import com.manolodominguez.opensimmpls.hardware.timer.ITimerEventListener;
+import com.manolodominguez.opensimmpls.hardware.timer.TEventScheduler;
 import com.manolodominguez.opensimmpls.hardware.ports.TPortSet;
 import com.manolodominguez.opensimmpls.commons.TLock;
 import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
 import java.awt.Point;
-import java.util.Collections;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * This class is an abstract class that will be implemented by subclasses. It is
@@ -57,12 +58,16 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
         this.delay = 1;
         this.headEndNodePortID = -1;
         this.tailEndNodePortID = -1;
-        this.buffer = Collections.synchronizedSortedSet(new TreeSet());
-        this.deliveredPacketsBuffer = new TreeSet();
+        this.buffer = new TLinkTransitWheel();
+        this.deliveredPacketsBuffer = new ArrayList<TLinkBufferEntry>();
         this.packetsInTransitEntriesLock = new TLock();
         this.deliveredPacketEntriesLock = new TLock();
         this.topology = topology;
         this.linkIsBroken = false;
+        this.phasedOperation = false;
+        this.boundaryLink = false;
+        this.packetsSentToHeadEndNode = new ArrayList<TLinkBufferEntry>();
+        this.packetsSentToTailEndNode = new ArrayList<TLinkBufferEntry>();
     }
 
     /**
@@ -256,6 +261,20 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
         } else {
             this.delay = delay;
         }
+        invalidateRoutingTable();
+    }
+
+    /**
+     * This method tells the topology this link belongs to that the routes
+     * computed so far are no longer valid, because this link has changed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected void invalidateRoutingTable() {
+        if (this.topology != null) {
+            this.topology.invalidateRoutingTable();
+        }
     }
 
     /**
@@ -359,6 +378,10 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
      */
     public void setHeadEndNode(TNode headEndNode) {
         this.headEndNode = headEndNode;
+        invalidateRoutingTable();
+        if (this.topology != null) {
+            this.topology.linkEndsChanged(this);
+        }
     }
 
     /**
@@ -381,6 +404,10 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
      */
     public void setTailEndNode(TNode tailEndNode) {
         this.tailEndNode = tailEndNode;
+        invalidateRoutingTable();
+        if (this.topology != null) {
+            this.topology.linkEndsChanged(this);
+        }
     }
 
     /**
@@ -509,9 +536,260 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
      * @since 2.0
      */
     public void deliverPacketToNode(TAbstractPDU packet, int endNode) {
+        long transitDelay = this.getDelay();
+        TEventScheduler eventScheduler = this.getEventScheduler();
+        if (eventScheduler != null) {
+            // In event-driven mode the link could have been idle for a while.
+            // The time elapsed since its last timer event will be subtracted
+            // from every entry on the next one, so it is added here.
+            transitDelay += eventScheduler.getCurrentInstant() - this.getCurrentTimeInstant();
+        }
+        if (this.phasedOperation) {
+            // Each list is only written by the node at the opposite end, so
+            // packets are kept in the order that node sent them until the
+            // links accept them.
+            TLinkBufferEntry linkBufferEntry = new TLinkBufferEntry(packet, transitDelay, endNode);
+            if (endNode == TLink.HEAD_END_NODE) {
+                if (this.boundaryLink) {
+                    linkBufferEntry.setDeliveryInstant(this.getTailEndNode().getCurrentTimeInstant() + transitDelay);
+                }
+                this.packetsSentToHeadEndNode.add(linkBufferEntry);
+            } else {
+                if (this.boundaryLink) {
+                    linkBufferEntry.setDeliveryInstant(this.getHeadEndNode().getCurrentTimeInstant() + transitDelay);
+                }
+                this.packetsSentToTailEndNode.add(linkBufferEntry);
+            }
+            return;
+        }
+        this.packetsInTransitEntriesLock.lock();
+        this.buffer.add(new TLinkBufferEntry(packet, transitDelay, endNode));
+        this.packetsInTransitEntriesLock.unLock();
+        this.scheduleEvent(this.getDelay());
+    }
+
+    /**
+     * This method puts on the link, at once, a set of packets sent by the same
+     * node. It does the same than calling deliverPacketToNode() for each one
+     * of them, but the buffer of packets in transit is locked only once.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param packets packets that have to reach the target node, in the order
+     * they were sent.
+     * @param endNode TLink.TAIL_END_NODE or TLink.HEAD_END_NODE, depending on
+     * whether the target node is connected to the tail end of the link or to
+     * the head end, respectively.
+     * @since 2.0
+     */
+    public void deliverPacketsToNode(List<TAbstractPDU> packets, int endNode) {
+        if (packets.isEmpty()) {
+            return;
+        }
+        if (this.phasedOperation) {
+            for (TAbstractPDU packet : packets) {
+                this.deliverPacketToNode(packet, endNode);
+            }
+            return;
+        }
+        long transitDelay = this.getDelay();
+        TEventScheduler eventScheduler = this.getEventScheduler();
+        if (eventScheduler != null) {
+            transitDelay += eventScheduler.getCurrentInstant() - this.getCurrentTimeInstant();
+        }
+        ArrayList<TLinkBufferEntry> linkBufferEntries = new ArrayList<TLinkBufferEntry>(packets.size());
+        for (TAbstractPDU packet : packets) {
+            linkBufferEntries.add(new TLinkBufferEntry(packet, transitDelay, endNode));
+        }
+        this.packetsInTransitEntriesLock.lock();
+        this.buffer.addAll(linkBufferEntries);
+        this.packetsInTransitEntriesLock.unLock();
+        this.scheduleEvent(this.getDelay());
+    }
+
+    /**
+     * This method moves into the link buffer the packets that nodes have put
+     * on the link during the current tick. It is used when the tick is
+     * executed in phases; packets sent to the head end node are accepted
+     * before those sent to the tail end node.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void acceptPacketsFromNodes() {
+        if (this.packetsSentToHeadEndNode.isEmpty() && this.packetsSentToTailEndNode.isEmpty()) {
+            return;
+        }
+        this.packetsInTransitEntriesLock.lock();
+        this.buffer.addAll(this.packetsSentToHeadEndNode);
+        this.buffer.addAll(this.packetsSentToTailEndNode);
+        this.packetsInTransitEntriesLock.unLock();
+        this.packetsSentToHeadEndNode.clear();
+        this.packetsSentToTailEndNode.clear();
+        this.scheduleEvent(this.getDelay());
+    }
+
+    /**
+     * This method synchronizes a link that joins two partitions of a
+     * partitioned simulation. Partitions are simulated independently between
+     * two synchronization instants, so this kind of link is not advanced tick
+     * by tick. Instead, it accepts here the packets sent by nodes since the
+     * previous synchronization and hands over to the delivery buffer every
+     * packet that will reach its target node before the next one. The link
+     * delay guarantees that no packet sent meanwhile could arrive earlier.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the current synchronization instant, in nanoseconds.
+     * @param nextSynchronizationInstant the next synchronization instant, in
+     * nanoseconds.
+     * @since 2.0
+     */
+    public void synchronizeBoundary(long instant, long nextSynchronizationInstant) {
+        this.packetsInTransitEntriesLock.lock();
+        // The transit wheel of a boundary link is not advanced tick by tick,
+        // so its clock is kept at the synchronization instant and entries
+        // are inserted by their delivery instant.
+        this.buffer.advance(instant - this.buffer.getCurrentInstant());
+        for (TLinkBufferEntry linkBufferEntry : this.packetsSentToHeadEndNode) {
+            this.buffer.add(linkBufferEntry, linkBufferEntry.getDeliveryInstant());
+        }
+        for (TLinkBufferEntry linkBufferEntry : this.packetsSentToTailEndNode) {
+            this.buffer.add(linkBufferEntry, linkBufferEntry.getDeliveryInstant());
+        }
+        this.packetsSentToHeadEndNode.clear();
+        this.packetsSentToTailEndNode.clear();
+        this.deliveredPacketEntriesLock.lock();
+        this.buffer.removeEntriesArrivingUntil(nextSynchronizationInstant, this.deliveredPacketsBuffer);
+        // The wheel returns entries slot by slot; packets are delivered in
+        // their natural order.
+        this.deliveredPacketsBuffer.sort(null);
+        this.deliveredPacketEntriesLock.unLock();
+        this.packetsInTransitEntriesLock.unLock();
+        this.updateRABANWeightSnapshot();
+    }
+
+    /**
+     * This method refreshes the RABAN weight that nodes read until the next
+     * tick. Subclasses that have such a weight override it; by default it
+     * does nothing.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void updateRABANWeightSnapshot() {
+        // Nothing to refresh by default.
+    }
+
+    /**
+     * This method discards the packets that nodes have put on the link during
+     * the current tick and that have not been accepted yet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected void discardPacketsFromNodes() {
+        this.packetsSentToHeadEndNode.clear();
+        this.packetsSentToTailEndNode.clear();
+    }
+
+    /**
+     * This method deposits in the corresponding port of the node connected to
+     * the specified end of the link those packets that have already reached
+     * it. It is used when the tick is executed in phases so that each node
+     * collects the packets of all its links by itself.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param endNode TLink.TAIL_END_NODE or TLink.HEAD_END_NODE, depending on
+     * whether packets have to be delivered to the node connected to the tail
+     * end of the link or to the head end, respectively.
+     * @param instant the end of the current tick, in nanoseconds. Packets that
+     * a boundary link will deliver later than this are kept in the link.
+     * @since 2.0
+     */
+    public void deliverPacketsToDestination(int endNode, long instant) {
+        this.deliveredPacketEntriesLock.lock();
+        Iterator<TLinkBufferEntry> deliveredPacketEntriesIterator = this.deliveredPacketsBuffer.iterator();
+        while (deliveredPacketEntriesIterator.hasNext()) {
+            TLinkBufferEntry deliveredBufferedPacketEntry = deliveredPacketEntriesIterator.next();
+            if ((deliveredBufferedPacketEntry.getPacketEnd() == endNode) && (deliveredBufferedPacketEntry.getDeliveryInstant() <= instant)) {
+                if (endNode == TLink.HEAD_END_NODE) {
+                    this.getHeadEndNode().putPacket(deliveredBufferedPacketEntry.getPacket(), this.getHeadEndNodePortID());
+                } else {
+                    this.getTailEndNode().putPacket(deliveredBufferedPacketEntry.getPacket(), this.getTailEndNodePortID());
+                }
+                deliveredPacketEntriesIterator.remove();
+            }
+        }
+        this.deliveredPacketEntriesLock.unLock();
+    }
+
+    /**
+     * This method sets whether the tick is being executed in phases or not.
+     * If so, the link does not deliver packets to nodes by itself and packets
+     * put on the link by nodes are not accepted until
+     * acceptPacketsFromNodes() is called.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param phasedOperation TRUE, if the tick is executed in phases.
+     * Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setPhasedOperation(boolean phasedOperation) {
+        this.phasedOperation = phasedOperation;
+    }
+
+    /**
+     * This method checks whether the tick is being executed in phases or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if the tick is executed in phases. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isPhasedOperation() {
+        return this.phasedOperation;
+    }
+
+    /**
+     * This method sets whether this link joins two partitions of a partitioned
+     * simulation or not. A boundary link is only synchronized through
+     * synchronizeBoundary() and does not receive timer events.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param boundaryLink TRUE, if the link joins two partitions. Otherwise,
+     * FALSE.
+     * @since 2.0
+     */
+    public void setBoundaryLink(boolean boundaryLink) {
+        this.boundaryLink = boundaryLink;
+    }
+
+    /**
+     * This method checks whether this link joins two partitions of a
+     * partitioned simulation or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if the link joins two partitions. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isBoundaryLink() {
+        return this.boundaryLink;
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse until the next
+     * packet in transit reaches the end of the link.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nanoseconds until the next packet in transit
+     * reaches the end of the link, or TTopologyElement.NO_PENDING_EVENTS if
+     * there are no packets in transit.
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
         this.packetsInTransitEntriesLock.lock();
-        this.buffer.add(new TLinkBufferEntry(packet, this.getDelay(), endNode));
+        long nanosecondsToNextEvent = this.buffer.getNanosecondsToNextArrival();
         this.packetsInTransitEntriesLock.unLock();
+        return nanosecondsToNextEvent;
     }
 
     /**
@@ -751,12 +1029,16 @@ public abstract class TLink extends TTopologyElement implements Comparable, ITim
     private boolean showName;
     private int delay;
 
-    protected SortedSet buffer;
-    protected TreeSet deliveredPacketsBuffer;
+    protected TLinkTransitWheel buffer;
+    protected ArrayList<TLinkBufferEntry> deliveredPacketsBuffer;
     protected TLock packetsInTransitEntriesLock;
     protected TLock deliveredPacketEntriesLock;
     protected TTopology topology;
     protected boolean linkIsBroken;
+    protected boolean phasedOperation;
+    protected boolean boundaryLink;
+    private ArrayList<TLinkBufferEntry> packetsSentToHeadEndNode;
+    private ArrayList<TLinkBufferEntry> packetsSentToTailEndNode;
 
     public static final int OK = 0;
     public static final int UNNAMED = 1;
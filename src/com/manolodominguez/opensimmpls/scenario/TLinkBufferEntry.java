@@ -45,6 +45,8 @@ public class TLinkBufferEntry implements Comparable {
         this.initialTotalTransitDelay = totalTransitDelay;
         this.packet = packet;
         this.packetEnd = packetEnd;
+        this.deliveryInstant = 0;
+        this.arrivalInstant = 0;
     }
 
     /**
@@ -179,8 +181,65 @@ public class TLinkBufferEntry implements Comparable {
         return this.packetEnd;
     }
 
+    /**
+     * This method sets the simulation instant at which the packet inside this
+     * link buffer entry reaches the end of the link. It is only used by links
+     * that join two partitions of a partitioned simulation.
+     *
+     * @param deliveryInstant the instant at which the packet reaches the end
+     * of the link, in nanoseconds.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setDeliveryInstant(long deliveryInstant) {
+        this.deliveryInstant = deliveryInstant;
+    }
+
+    /**
+     * This method gets the simulation instant at which the packet inside this
+     * link buffer entry reaches the end of the link.
+     *
+     * @return the instant at which the packet reaches the end of the link, in
+     * nanoseconds, or 0 if it has not been set.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public long getDeliveryInstant() {
+        return this.deliveryInstant;
+    }
+
+    /**
+     * This method sets the instant, measured by the clock of the transit wheel
+     * of the link, at which the packet inside this link buffer entry reaches
+     * the end of the link.
+     *
+     * @param arrivalInstant the instant at which the packet reaches the end of
+     * the link, in nanoseconds of the transit wheel clock.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setArrivalInstant(long arrivalInstant) {
+        this.arrivalInstant = arrivalInstant;
+    }
+
+    /**
+     * This method gets the instant, measured by the clock of the transit wheel
+     * of the link, at which the packet inside this link buffer entry reaches
+     * the end of the link.
+     *
+     * @return the instant at which the packet reaches the end of the link, in
+     * nanoseconds of the transit wheel clock.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public long getArrivalInstant() {
+        return this.arrivalInstant;
+    }
+
     private TAbstractPDU packet;
     private int packetEnd;
     private long remainingTransitDelay;
     private long initialTotalTransitDelay;
+    private long deliveryInstant;
+    private long arrivalInstant;
 }
@@ -0,0 +1,347 @@
+/*
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements the buffer of packets in transit through a link as a
+ * hashed timing wheel. Each link buffer entry is stored in the slot that
+ * corresponds to the instant it reaches the end of the link, so advancing the
+ * link only visits the slots elapsed since the previous advance and the
+ * entries stored in them, instead of every packet in transit.
+ *
+ * The wheel keeps its own clock, that is moved forward by advance().
+ * Remaining transit delays are computed from that clock and the arrival
+ * instant of each entry, so they do not need to be updated on each tick. The
+ * width of the slots is adjusted to the transit delay of the first entry
+ * inserted into an empty wheel. Entries arriving beyond the span of the
+ * wheel share slots with nearer ones and are just skipped until their round
+ * comes.
+ *
+ * This class is not thread safe. Links access it holding their lock of
+ * packets in transit.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TLinkTransitWheel implements Iterable<TLinkBufferEntry> {
+
+    /**
+     * This is the constructor of the class. It creates a new, empty, instance
+     * of TLinkTransitWheel whose clock is at instant zero.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TLinkTransitWheel() {
+        this.slots = new ArrayList<>(NUMBER_OF_SLOTS);
+        for (int i = 0; i < NUMBER_OF_SLOTS; i++) {
+            this.slots.add(new ArrayList<>());
+        }
+        this.slotWidthInNs = DEFAULT_SLOT_WIDTH_IN_NS;
+        this.currentInstant = 0;
+        this.firstPendingSlot = 0;
+        this.numberOfEntries = 0;
+    }
+
+    /**
+     * This method inserts a link buffer entry that starts its transit through
+     * the link at the current instant of the wheel. It will arrive when its
+     * remaining transit delay has elapsed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param linkBufferEntry the link buffer entry to be inserted.
+     * @since 2.0
+     */
+    public void add(TLinkBufferEntry linkBufferEntry) {
+        this.add(linkBufferEntry, this.currentInstant + linkBufferEntry.getRemainingTransitDelay());
+    }
+
+    /**
+     * This method inserts a link buffer entry that will arrive at the
+     * specified instant of the wheel clock.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param linkBufferEntry the link buffer entry to be inserted.
+     * @param arrivalInstant the instant at which the entry reaches the end of
+     * the link, in nanoseconds.
+     * @since 2.0
+     */
+    public void add(TLinkBufferEntry linkBufferEntry, long arrivalInstant) {
+        if (this.numberOfEntries == 0) {
+            this.adjustSlotWidth(arrivalInstant - this.currentInstant);
+        }
+        linkBufferEntry.setArrivalInstant(arrivalInstant);
+        long slot = Math.max(arrivalInstant / this.slotWidthInNs, this.firstPendingSlot);
+        this.slots.get((int) (slot & SLOTS_MASK)).add(linkBufferEntry);
+        this.numberOfEntries++;
+    }
+
+    /**
+     * This method inserts a set of link buffer entries that start their
+     * transit through the link at the current instant of the wheel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param linkBufferEntries the link buffer entries to be inserted.
+     * @since 2.0
+     */
+    public void addAll(Collection<TLinkBufferEntry> linkBufferEntries) {
+        for (TLinkBufferEntry linkBufferEntry : linkBufferEntries) {
+            this.add(linkBufferEntry);
+        }
+    }
+
+    /**
+     * This method moves forward the clock of the wheel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param nanoseconds the number of nanoseconds the clock has to be moved
+     * forward.
+     * @since 2.0
+     */
+    public void advance(long nanoseconds) {
+        this.currentInstant += nanoseconds;
+    }
+
+    /**
+     * This method gets the current instant of the clock of the wheel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the current instant of the wheel, in nanoseconds.
+     * @since 2.0
+     */
+    public long getCurrentInstant() {
+        return this.currentInstant;
+    }
+
+    /**
+     * This method computes the transit delay that a link buffer entry stored
+     * in the wheel still has to spend in the link.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param linkBufferEntry a link buffer entry stored in the wheel.
+     * @return the remaining transit delay of the entry, in nanoseconds, or zero
+     * if it has already arrived.
+     * @since 2.0
+     */
+    public long getRemainingTransitDelay(TLinkBufferEntry linkBufferEntry) {
+        return Math.max(0, linkBufferEntry.getArrivalInstant() - this.currentInstant);
+    }
+
+    /**
+     * This method removes from the wheel the link buffer entries that have
+     * already arrived at the current instant of the wheel clock.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param arrivedEntries collection where removed entries will be added.
+     * @since 2.0
+     */
+    public void removeArrivedEntries(Collection<TLinkBufferEntry> arrivedEntries) {
+        this.removeEntriesArrivingUntil(this.currentInstant, arrivedEntries);
+    }
+
+    /**
+     * This method removes from the wheel the link buffer entries that arrive
+     * at the specified instant or before. Only the slots between the first one
+     * that could hold pending entries and the one of the specified instant are
+     * visited.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the instant until which entries have to be removed, in
+     * nanoseconds.
+     * @param arrivedEntries collection where removed entries will be added.
+     * @since 2.0
+     */
+    public void removeEntriesArrivingUntil(long instant, Collection<TLinkBufferEntry> arrivedEntries) {
+        long lastSlot = instant / this.slotWidthInNs;
+        if (lastSlot < this.firstPendingSlot) {
+            return;
+        }
+        if (this.numberOfEntries > 0) {
+            long numberOfSlotsToVisit = Math.min(lastSlot - this.firstPendingSlot + 1, NUMBER_OF_SLOTS);
+            for (long i = 0; i < numberOfSlotsToVisit; i++) {
+                this.removeEntriesArrivingUntil(this.slots.get((int) ((this.firstPendingSlot + i) & SLOTS_MASK)), instant, arrivedEntries);
+            }
+        }
+        this.firstPendingSlot = lastSlot;
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse, from the
+     * current instant of the wheel clock, until the next entry arrives.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nanoseconds until the next entry arrives, zero if
+     * there are entries that have already arrived, or
+     * TTopologyElement.NO_PENDING_EVENTS if the wheel is empty.
+     * @since 2.0
+     */
+    public long getNanosecondsToNextArrival() {
+        if (this.numberOfEntries == 0) {
+            return TTopologyElement.NO_PENDING_EVENTS;
+        }
+        long nextArrivalInstant = Long.MAX_VALUE;
+        for (long slot = this.firstPendingSlot; slot < (this.firstPendingSlot + NUMBER_OF_SLOTS); slot++) {
+            for (TLinkBufferEntry linkBufferEntry : this.slots.get((int) (slot & SLOTS_MASK))) {
+                // Entries of later rounds are skipped; they cannot arrive
+                // before the ones of the current round.
+                if ((linkBufferEntry.getArrivalInstant() / this.slotWidthInNs) <= slot) {
+                    nextArrivalInstant = Math.min(nextArrivalInstant, linkBufferEntry.getArrivalInstant());
+                }
+            }
+            if (nextArrivalInstant != Long.MAX_VALUE) {
+                return Math.max(0, nextArrivalInstant - this.currentInstant);
+            }
+        }
+        // Every entry belongs to a later round.
+        for (TLinkBufferEntry linkBufferEntry : this) {
+            nextArrivalInstant = Math.min(nextArrivalInstant, linkBufferEntry.getArrivalInstant());
+        }
+        return Math.max(0, nextArrivalInstant - this.currentInstant);
+    }
+
+    /**
+     * This method gets the number of link buffer entries stored in the wheel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of entries in transit.
+     * @since 2.0
+     */
+    public int size() {
+        return this.numberOfEntries;
+    }
+
+    /**
+     * This method checks whether the wheel is empty or not.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if there are no entries in transit. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isEmpty() {
+        return this.numberOfEntries == 0;
+    }
+
+    /**
+     * This method removes every entry from the wheel and moves its clock back
+     * to instant zero.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void clear() {
+        for (int i = 0; i < NUMBER_OF_SLOTS; i++) {
+            this.slots.get(i).clear();
+        }
+        this.slotWidthInNs = DEFAULT_SLOT_WIDTH_IN_NS;
+        this.currentInstant = 0;
+        this.firstPendingSlot = 0;
+        this.numberOfEntries = 0;
+    }
+
+    /**
+     * This method returns an iterator over every entry stored in the wheel, in
+     * no particular order. It does not allow removing entries.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return an iterator over the entries in transit.
+     * @since 2.0
+     */
+    @Override
+    public Iterator<TLinkBufferEntry> iterator() {
+        return new Iterator<TLinkBufferEntry>() {
+            @Override
+            public boolean hasNext() {
+                while ((this.slotIndex < NUMBER_OF_SLOTS) && (this.entryIndex >= slots.get(this.slotIndex).size())) {
+                    this.slotIndex++;
+                    this.entryIndex = 0;
+                }
+                return this.slotIndex < NUMBER_OF_SLOTS;
+            }
+
+            @Override
+            public TLinkBufferEntry next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return slots.get(this.slotIndex).get(this.entryIndex++);
+            }
+
+            private int slotIndex = 0;
+            private int entryIndex = 0;
+        };
+    }
+
+    /**
+     * This method removes from a slot the entries that arrive at the specified
+     * instant or before, keeping the relative order of the remaining ones.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param slot the slot to be visited.
+     * @param instant the instant until which entries have to be removed, in
+     * nanoseconds.
+     * @param arrivedEntries collection where removed entries will be added.
+     * @since 2.0
+     */
+    private void removeEntriesArrivingUntil(ArrayList<TLinkBufferEntry> slot, long instant, Collection<TLinkBufferEntry> arrivedEntries) {
+        int keptEntries = 0;
+        int slotSize = slot.size();
+        for (int i = 0; i < slotSize; i++) {
+            TLinkBufferEntry linkBufferEntry = slot.get(i);
+            if (linkBufferEntry.getArrivalInstant() <= instant) {
+                arrivedEntries.add(linkBufferEntry);
+                this.numberOfEntries--;
+            } else {
+                slot.set(keptEntries, linkBufferEntry);
+                keptEntries++;
+            }
+        }
+        for (int i = slotSize - 1; i >= keptEntries; i--) {
+            slot.remove(i);
+        }
+    }
+
+    /**
+     * This method adjusts the width of the slots so that the specified transit
+     * delay spans half of the wheel. It must only be called while the wheel
+     * is empty.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param transitDelay a transit delay representative of the link, in
+     * nanoseconds.
+     * @since 2.0
+     */
+    private void adjustSlotWidth(long transitDelay) {
+        long slotWidth = Math.max(MINIMUM_SLOT_WIDTH_IN_NS, (2 * transitDelay) / NUMBER_OF_SLOTS);
+        this.slotWidthInNs = slotWidth;
+        this.firstPendingSlot = this.currentInstant / slotWidth;
+    }
+
+    private static final int NUMBER_OF_SLOTS = 512;
+    private static final long SLOTS_MASK = NUMBER_OF_SLOTS - 1;
+    private static final long DEFAULT_SLOT_WIDTH_IN_NS = 1000;
+    private static final long MINIMUM_SLOT_WIDTH_IN_NS = 1;
+
+    private ArrayList<ArrayList<TLinkBufferEntry>> slots;
+    private long slotWidthInNs;
+    private long currentInstant;
+    private long firstPendingSlot;
+    private volatile int numberOfEntries;
+}
@@ -61,6 +61,9 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
         this.availableNanoseconds = 0;
         this.tickNanoseconds = 0;
         this.ticksWithoutEmittingBeforeAlert = 0;
+        this.batchSwitching = false;
+        this.switchingBatch = null;
+        this.switchingBatchIncomingPortIDs = null;
     }
 
     /**
@@ -149,6 +152,9 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
      */
     public void setName(String name) {
         this.name = name;
+        if (this.topology != null) {
+            this.topology.nodeKeysChanged(this);
+        }
     }
 
     /**
@@ -171,6 +177,9 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
      */
     public void setNodeID(int nodeID) {
         this.nodeID = nodeID;
+        if (this.topology != null) {
+            this.topology.nodeKeysChanged(this);
+        }
     }
 
     /**
@@ -288,6 +297,9 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
      */
     public void setIPv4Address(String ipv4Address) {
         this.ipv4Address = ipv4Address;
+        if (this.topology != null) {
+            this.topology.nodeKeysChanged(this);
+        }
     }
 
     /**
@@ -311,6 +323,83 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
         lock.lock();
         this.ports.getPort(portID).addPacket(packet);
         lock.unLock();
+        this.scheduleEvent(0);
+    }
+
+    /**
+     * This method collects, port by port, the packets that have reached this
+     * node through the links connected to it. It is used when the tick is
+     * executed in phases, so that packets are always enqueued in the same
+     * order regardless of which link finishes its work first.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instant the end of the current tick, in nanoseconds.
+     * @since 2.0
+     */
+    public void receivePacketsFromLinks(long instant) {
+        TPortSet portSet = this.getPorts();
+        if (portSet != null) {
+            for (int portID = 0; portID < portSet.getNumberOfPorts(); portID++) {
+                TLink link = portSet.getPort(portID).getLink();
+                if (link != null) {
+                    if (link.getHeadEndNode() == this) {
+                        link.deliverPacketsToDestination(TLink.HEAD_END_NODE, instant);
+                    } else {
+                        link.deliverPacketsToDestination(TLink.TAIL_END_NODE, instant);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse until the node
+     * has something to do. A node with packets waiting in its ports has to
+     * work as soon as possible.
+     *
+     * @return 0, if there are packets waiting in the ports of the node.
+     * Otherwise, TTopologyElement.NO_PENDING_EVENTS.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        TPortSet portSet = this.getPorts();
+        if ((portSet != null) && (portSet.isAnyPacketToSwitch())) {
+            return 0;
+        }
+        return TTopologyElement.NO_PENDING_EVENTS;
+    }
+
+    /**
+     * This method updates the number of nanoseconds this node has available
+     * to switch or route packets when a timer event is received. Nanoseconds
+     * not used in a tick are kept while there are packets waiting; otherwise
+     * the node starts the tick with just the duration of the tick. When the
+     * timer event covers several ticks that were skipped because nothing
+     * happened in them, the node gets what it would have got receiving them
+     * one by one, instead of the whole skipped interval.
+     *
+     * @param timerEvent the timer event received.
+     * @param anyPacketWaiting TRUE, if there are packets waiting in the ports
+     * of the node. Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected void updateAvailableNanoseconds(TTimerEvent timerEvent, boolean anyPacketWaiting) {
+        int tickDurationInNs = timerEvent.getTickDurationInNs();
+        if (tickDurationInNs > timerEvent.getNominalTickDurationInNs()) {
+            // Idle ticks have been skipped. Each one of them would have left
+            // the node exactly one tick of available time.
+            tickDurationInNs = timerEvent.getNominalTickDurationInNs();
+            this.availableNanoseconds = tickDurationInNs;
+        }
+        if (anyPacketWaiting) {
+            this.availableNanoseconds += tickDurationInNs;
+        } else {
+            this.resetTicksWithoutEmitting();
+            this.availableNanoseconds = tickDurationInNs;
+        }
     }
 
     /**
@@ -366,6 +455,177 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
      */
     public abstract TPortSet getPorts();
 
+    /**
+     * This method sets the queue scheduling discipline used by the ports set
+     * of this node to decide which port has to be read next.
+     *
+     * @param schedulingDiscipline TPortSet.DEFAULT_SCHEDULING,
+     * TPortSet.DEFICIT_ROUND_ROBIN_SCHEDULING,
+     * TPortSet.WEIGHTED_FAIR_QUEUEING_SCHEDULING or
+     * TPortSet.STRICT_PRIORITY_SCHEDULING.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setSchedulingDiscipline(int schedulingDiscipline) {
+        this.getPorts().setSchedulingDiscipline(schedulingDiscipline);
+    }
+
+    /**
+     * This method gets the queue scheduling discipline used by the ports set
+     * of this node to decide which port has to be read next.
+     *
+     * @return The scheduling discipline, as defined in TPortSet.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public int getSchedulingDiscipline() {
+        return this.getPorts().getSchedulingDiscipline();
+    }
+
+    /**
+     * This method serializes the queue scheduling discipline of this node, to
+     * be appended to the serialized node. Nothing is serialized for the
+     * default discipline, so that scenarios not using this feature keep the
+     * format understood by previous versions.
+     *
+     * @return The serialized scheduling discipline followed by the field
+     * separator, or an empty string.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected String marshallSchedulingDiscipline() {
+        int schedulingDiscipline = this.getSchedulingDiscipline();
+        if ((schedulingDiscipline == TPortSet.DEFAULT_SCHEDULING) || (schedulingDiscipline == TPortSet.CUSTOM_SCHEDULING)) {
+            return "";
+        }
+        return schedulingDiscipline + "#";
+    }
+
+    /**
+     * This method deserializes the queue scheduling discipline of this node
+     * and configures the ports set accordingly.
+     *
+     * @param serializedSchedulingDiscipline The serialized scheduling
+     * discipline.
+     * @return TRUE, if the scheduling discipline is a valid one. Otherwise,
+     * FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected boolean unMarshallSchedulingDiscipline(String serializedSchedulingDiscipline) {
+        int schedulingDiscipline = Integer.parseInt(serializedSchedulingDiscipline);
+        if ((schedulingDiscipline < TPortSet.DEFAULT_SCHEDULING) || (schedulingDiscipline > TPortSet.STRICT_PRIORITY_SCHEDULING)) {
+            return false;
+        }
+        this.setSchedulingDiscipline(schedulingDiscipline);
+        return true;
+    }
+
+    /**
+     * This method sets whether the node has to switch incoming packets in
+     * batches or not. In batch mode, the node reads at once as many packets
+     * as fit in the remaining nanoseconds of the tick, handles them and puts
+     * those leaving through the same link on it at once. Packets re-enqueued
+     * while a batch is being handled are not read again until the next batch,
+     * so the order packets are handled in may differ from the one of the
+     * packet by packet mode.
+     *
+     * @param batchSwitching TRUE, if the node has to switch packets in
+     * batches. Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setBatchSwitching(boolean batchSwitching) {
+        this.batchSwitching = batchSwitching;
+        if (batchSwitching && (this.switchingBatch == null)) {
+            this.switchingBatch = new TAbstractPDU[TNode.SWITCHING_BATCH_SIZE];
+            this.switchingBatchIncomingPortIDs = new int[TNode.SWITCHING_BATCH_SIZE];
+        }
+    }
+
+    /**
+     * This method checks whether the node switches incoming packets in
+     * batches or not.
+     *
+     * @return TRUE, if the node switches packets in batches. Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public boolean isBatchSwitching() {
+        return this.batchSwitching;
+    }
+
+    /**
+     * This method gets the number of octets that the node can switch with the
+     * available number of nanoseconds it has, given the number of
+     * nanoseconds it needs to switch a bit. It is equivalent to the
+     * computation subclasses do for each packet, but allows computing the
+     * number of nanoseconds per bit only once for a whole batch.
+     *
+     * @param nsPerBit the number of nanoseconds the node needs to switch a
+     * bit.
+     * @return The number of octects that can be switched.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected int getMaxSwitchableOctects(double nsPerBit) {
+        return ((int) (this.availableNanoseconds / nsPerBit)) / 8;
+    }
+
+    /**
+     * This method handles a packet read from the incoming ports of the node:
+     * it is switched or routed if possible. Nodes that switch or route
+     * packets override it; by default the packet is discarded.
+     *
+     * @param packet the packet read from an incoming port.
+     * @param incomingPortID the port of this node where the packet has
+     * arrived.
+     * @return TRUE, if the packet has been handled and, therefore, the node
+     * has spent the nanoseconds needed to switch it. FALSE, if it has been
+     * discarded as a martian packet.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected boolean handleIncomingPacket(TAbstractPDU packet, int incomingPortID) {
+        this.discardPacket(packet);
+        return false;
+    }
+
+    /**
+     * This method reads incoming packets in batches and handles each of them
+     * through handleIncomingPacket(...). Each batch contains as many packets
+     * as this node can switch with the nanoseconds still available in the
+     * current tick. Packets leaving the node through the same link during a
+     * batch are put on it at once when the batch has been handled.
+     *
+     * @param nsPerBit the number of nanoseconds the node needs to switch a
+     * bit.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    protected void switchPacketsInBatches(double nsPerBit) {
+        boolean atLeastOnePacketSwitched = false;
+        int numberOfPackets = this.ports.getNextPackets(this.getMaxSwitchableOctects(nsPerBit), this.switchingBatch, this.switchingBatchIncomingPortIDs);
+        while (numberOfPackets > 0) {
+            atLeastOnePacketSwitched = true;
+            this.ports.holdOutgoingPackets();
+            for (int i = 0; i < numberOfPackets; i++) {
+                TAbstractPDU packet = this.switchingBatch[i];
+                this.switchingBatch[i] = null;
+                if (this.handleIncomingPacket(packet, this.switchingBatchIncomingPortIDs[i])) {
+                    this.availableNanoseconds -= nsPerBit * ((long) packet.getSize() * 8L);
+                }
+            }
+            this.ports.releaseOutgoingPackets();
+            numberOfPackets = this.ports.getNextPackets(this.getMaxSwitchableOctects(nsPerBit), this.switchingBatch, this.switchingBatchIncomingPortIDs);
+        }
+        if (atLeastOnePacketSwitched) {
+            this.resetTicksWithoutEmitting();
+        } else {
+            this.increaseTicksWithoutEmitting();
+        }
+    }
+
     /**
      * This method receives a timer event to do things. It should be implemented
      * by subclasses.
@@ -543,6 +803,7 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
     public static final int DEFAULT_NUM_PORTS_ACTIVE_LSR = 8;
 
     public static final int MAX_TICKS_WITHOUT_EMITTING_BEFORE_ALERTING = 25;
+    public static final int SWITCHING_BATCH_SIZE = 64;
 
     private int nodeID;
     private int selected;
@@ -558,4 +819,7 @@ public abstract class TNode extends TTopologyElement implements Comparable, ITim
     protected TPortSet ports;
     protected TTopology topology;
     protected int tickNanoseconds;
+    private boolean batchSwitching;
+    private TAbstractPDU[] switchingBatch;
+    private int[] switchingBatchIncomingPortIDs;
 }
@@ -40,6 +40,7 @@ public class TSimulation {
     public TSimulation(TScenario scenario) {
         this.parentScenario = scenario;
         this.simulationEventListener = new TSimulationEventListener();
+        this.parentScenario.getTopology().getTimer().setSimulationEventListener(this.simulationEventListener);
         // FIX: Use class constants instead of harcoded values.
         this.simulationLengthInNs = 500;
         this.simulationTickDurationInNs = 1;
@@ -58,6 +59,35 @@ public class TSimulation {
         this.simulationEventListener.setSimulationPanel(simulationPanel);
     }
 
+    /**
+     * This method sets the number of milliseconds each simulation tick is
+     * displayed in the simulation panel. It does not slow down the simulation
+     * itself.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param visualizationSpeedInMsPerTick the number of milliseconds each
+     * simulation tick is displayed.
+     * @since 2.0
+     */
+    public void setVisualizationSpeedInMsPerTick(int visualizationSpeedInMsPerTick) {
+        this.simulationEventListener.setVisualizationSpeedInMsPerTick(visualizationSpeedInMsPerTick);
+    }
+
+    /**
+     * This method sets whether packet related simulation events are displayed
+     * one by one or collapsed into per-tick summaries for every topology
+     * element. The latter is intended for topologies too large to display
+     * every packet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param eventAggregation TRUE, if packet related simulation events have
+     * to be displayed as per-tick summaries. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public void setEventAggregation(boolean eventAggregation) {
+        this.simulationEventListener.setEventAggregation(eventAggregation);
+    }
+
     /**
      * This method will reset the attributes of the instance as in the moment of
      * its creation.
@@ -22,6 +22,11 @@ import com.manolodominguez.opensimmpls.commons.TLock;
 import com.manolodominguez.opensimmpls.commons.TIDGenerator;
 import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
 import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.TreeSet;
 
@@ -45,8 +50,8 @@ public class TTopology {
      * @since 2.0
      */
     public TTopology(TScenario parentScenario) {
-        this.nodes = new TreeSet();
-        this.links = new TreeSet();
+        this.nodes = new TreeSet<TNode>();
+        this.links = new TreeSet<TLink>();
         this.timer = new TTimer();
         this.parentScenario = parentScenario;
         this.eventIDGenerator = new TLongIDGenerator();
@@ -54,6 +59,33 @@ public class TTopology {
         this.ipv4AddressGenerator = new TIPv4AddressGenerator();
         this.floydWarshallAlgorithmLock = new TLock();
         this.rabanAlgorithmLock = new TLock();
+        this.routingTableValid = false;
+        this.routingTableNodeIDs = new int[0];
+        this.routingTableNodeIndexes = new HashMap<>();
+        this.routingTableFirstHops = new int[0];
+        this.routingTableCosts = new long[0];
+        this.parallelRoutingThreshold = TFloydWarshallEngine.DEFAULT_PARALLEL_THRESHOLD;
+        this.routingTableAdjacentNodes = new HashSet<>();
+        this.routingTableComputations = 0;
+        this.routingTableComputationTimeInNs = 0;
+        this.routingAlgorithm = TTopology.FLOYD_WARSHALL_ROUTING;
+        this.dijkstraRoutingEngine = new TDijkstraRoutingEngine(this);
+        this.rabanAdjacencyValid = false;
+        this.rabanAdjacencyLinks = new TLink[0];
+        this.rabanAdjacencyRows = new int[0];
+        this.rabanAdjacencyColumns = new int[0];
+        this.rabanAdjacencyMatrix = new long[0][0];
+        this.rabanFirstHops = null;
+        this.rabanCosts = new long[0];
+        this.linksByNodePair = new HashMap<>();
+        this.linksByNode = new HashMap<>();
+        this.indexedLinkEnds = new HashMap<>();
+        this.nodesByID = new HashMap<>();
+        this.nodesByIPv4Address = new HashMap<>();
+        this.nodesByName = new HashMap<>();
+        this.indexedNodeIDs = new IdentityHashMap<>();
+        this.indexedNodeIPv4Addresses = new IdentityHashMap<>();
+        this.indexedNodeNames = new IdentityHashMap<>();
     }
 
     /**
@@ -79,6 +111,11 @@ public class TTopology {
         }
         this.timer.reset();
         this.eventIDGenerator.reset();
+        this.routingTableValid = false;
+        this.routingTableComputations = 0;
+        this.routingTableComputationTimeInNs = 0;
+        this.rabanAdjacencyValid = false;
+        this.dijkstraRoutingEngine.reset();
         this.floydWarshallAlgorithmLock.unLock();
         this.rabanAlgorithmLock.unLock();
     }
@@ -91,7 +128,10 @@ public class TTopology {
      * @since 2.0
      */
     public void addNode(TNode node) {
-        this.nodes.add(node);
+        if (this.nodes.add(node)) {
+            indexNode(node);
+        }
+        invalidateRoutingTable();
         this.timer.addTimerEventListener(node);
         try {
             node.addSimulationListener(this.parentScenario.getSimulation().getSimulationEventListener());
@@ -112,15 +152,17 @@ public class TTopology {
     private void removeNode(int nodeID) {
         boolean done = false;
         TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
+        Iterator<TNode> nodesIterator = this.nodes.iterator();
         while ((nodesIterator.hasNext()) && (!done)) {
-            node = (TNode) nodesIterator.next();
+            node = nodesIterator.next();
             if (node.getNodeID() == nodeID) {
                 node.markForDeletionAsTimerEventListener(true);
                 nodesIterator.remove();
+                unindexNode(node);
                 done = true;
             }
         }
+        invalidateRoutingTable();
         this.timer.purgeTimerEventListenersMarkedForDeletion();
     }
 
@@ -135,15 +177,7 @@ public class TTopology {
      * @since 2.0
      */
     public TNode getNode(int nodeID) {
-        TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            if (node.getNodeID() == nodeID) {
-                return node;
-            }
-        }
-        return null;
+        return this.nodesByID.get(nodeID);
     }
 
     /**
@@ -157,15 +191,11 @@ public class TTopology {
      * @since 2.0
      */
     public TNode getNode(String ipv4Address) {
-        TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            if (node.getIPv4Address().equals(ipv4Address)) {
-                return node;
-            }
+        ArrayList<TNode> nodesWithAddress = this.nodesByIPv4Address.get(ipv4Address);
+        if ((nodesWithAddress == null) || (nodesWithAddress.isEmpty())) {
+            return null;
         }
-        return null;
+        return nodesWithAddress.get(0);
     }
 
     /**
@@ -179,15 +209,13 @@ public class TTopology {
      * @since 2.0
      */
     public TNode getFirstNodeNamed(String nodeName) {
-        TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            if (node.getName().equals(nodeName)) {
-                return node;
-            }
+        ArrayList<TNode> nodesWithName = this.nodesByName.get(nodeName);
+        if ((nodesWithName == null) || (nodesWithName.isEmpty())) {
+            return null;
         }
-        return null;
+        // Nodes are sorted as in the set of nodes, so this is the node that a
+        // sequential search would find.
+        return nodesWithName.get(0);
     }
 
     /**
@@ -201,20 +229,9 @@ public class TTopology {
      * @since 2.0
      */
     public boolean isThereMoreThanANodeNamed(String nodeName) {
-        int nodesWithSameName = 0;
-        TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            if (node.getName().equals(nodeName)) {
-                nodesWithSameName++;
-            }
-            // FIX: Do not use harcoded values. Use class constants instead.
-            if (nodesWithSameName > 1) {
-                return true;
-            }
-        }
-        return false;
+        ArrayList<TNode> nodesWithName = this.nodesByName.get(nodeName);
+        // FIX: Do not use harcoded values. Use class constants instead.
+        return ((nodesWithName != null) && (nodesWithName.size() > 1));
     }
 
     /**
@@ -230,9 +247,9 @@ public class TTopology {
     public boolean isThereMoreThanALinkNamed(String linkName) {
         int linksWithSameName = 0;
         TLink link = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
+            link = linksIterator.next();
             if (link.getName().equals(linkName)) {
                 linksWithSameName++;
             }
@@ -260,9 +277,9 @@ public class TTopology {
     public boolean isThereAnyNodeGeneratingTrafficFor(TTrafficSinkNode trafficSinkNode) {
         TNode node = null;
         TTrafficGeneratorNode trafficeGeneratorNode = null;
-        Iterator nodesIterator = this.nodes.iterator();
+        Iterator<TNode> nodesIterator = this.nodes.iterator();
         while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
+            node = nodesIterator.next();
             if (node.getNodeType() == TNode.TRAFFIC_GENERATOR) {
                 trafficeGeneratorNode = (TTrafficGeneratorNode) node;
                 if (trafficeGeneratorNode.getTargetIPv4Address().equals(trafficSinkNode.getIPv4Address())) {
@@ -285,9 +302,9 @@ public class TTopology {
      */
     public TLink getFirstLinkNamed(String linkName) {
         TLink link = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
+            link = linksIterator.next();
             if (link.getName().equals(linkName)) {
                 return link;
             }
@@ -307,9 +324,9 @@ public class TTopology {
      */
     public TNode getNodeInScreenPosition(Point screenPosition) {
         TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
+        Iterator<TNode> nodesIterator = this.nodes.iterator();
         while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
+            node = nodesIterator.next();
             if (node.isInScreenPosition(screenPosition)) {
                 return node;
             }
@@ -325,7 +342,7 @@ public class TTopology {
      * @since 2.0
      */
     public TNode[] getNodesAsArray() {
-        return (TNode[]) this.nodes.toArray();
+        return this.nodes.toArray(new TNode[0]);
     }
 
     /**
@@ -340,9 +357,9 @@ public class TTopology {
     public void modifyNode(TNode modifiedNode) {
         boolean done = false;
         TNode node = null;
-        Iterator nodesIterator = this.nodes.iterator();
+        Iterator<TNode> nodesIterator = this.nodes.iterator();
         while ((nodesIterator.hasNext()) && (!done)) {
-            node = (TNode) nodesIterator.next();
+            node = nodesIterator.next();
             if (node.getNodeID() == modifiedNode.getNodeID()) {
                 if (modifiedNode.getNodeType() == TNode.TRAFFIC_GENERATOR) {
                     TTrafficGeneratorNode trafficGeneratorNode = (TTrafficGeneratorNode) node;
@@ -382,7 +399,10 @@ public class TTopology {
      * @since 2.0
      */
     public void addLink(TLink link) {
-        this.links.add(link);
+        if (this.links.add(link)) {
+            indexLink(link);
+        }
+        invalidateRoutingTable();
         this.timer.addTimerEventListener(link);
         try {
             link.addSimulationListener(this.parentScenario.getSimulation().getSimulationEventListener());
@@ -402,17 +422,19 @@ public class TTopology {
     public void removeLink(int linkID) {
         boolean done = false;
         TLink link = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while ((linksIterator.hasNext()) && (!done)) {
-            link = (TLink) linksIterator.next();
+            link = linksIterator.next();
             if (link.getID() == linkID) {
                 link.disconnectFromBothNodes();
                 // FIX: Do not use harcoded values; use class constants instead.
                 link.markForDeletionAsTimerEventListener(true);
                 linksIterator.remove();
+                unindexLink(link);
                 done = true;
             }
         }
+        invalidateRoutingTable();
         this.timer.purgeTimerEventListenersMarkedForDeletion();
     }
 
@@ -438,9 +460,9 @@ public class TTopology {
      */
     public TLink getLink(int linkID) {
         TLink link = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
+            link = linksIterator.next();
             if (link.getID() == linkID) {
                 return link;
             }
@@ -460,9 +482,9 @@ public class TTopology {
      */
     public TLink getLinkInScreenPosition(Point screenPosition) {
         TLink links = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while (linksIterator.hasNext()) {
-            links = (TLink) linksIterator.next();
+            links = linksIterator.next();
             if (links.crossesScreenPosition(screenPosition)) {
                 return links;
             }
@@ -478,7 +500,7 @@ public class TTopology {
      * @since 2.0
      */
     public TLink[] getLinksAsArray() {
-        return (TLink[]) this.links.toArray();
+        return this.links.toArray(new TLink[0]);
     }
 
     /**
@@ -493,10 +515,11 @@ public class TTopology {
     public void modifyLink(TLink modifiedLink) {
         boolean done = false;
         TLink link = null;
-        Iterator linksIterator = this.links.iterator();
+        Iterator<TLink> linksIterator = this.links.iterator();
         while ((linksIterator.hasNext()) && (!done)) {
-            link = (TLink) linksIterator.next();
+            link = linksIterator.next();
             if (link.getID() == modifiedLink.getID()) {
+                // Setting the ends of the link updates the index of links too.
                 if (link.getLinkType() == TLink.EXTERNAL_LINK) {
                     TExternalLink externalLink = (TExternalLink) link;
                     externalLink.setHeadEndNode(modifiedLink.getHeadEndNode());
@@ -509,6 +532,7 @@ public class TTopology {
                 done = true;
             }
         }
+        invalidateRoutingTable();
     }
 
     /**
@@ -571,17 +595,16 @@ public class TTopology {
      * @since 2.0
      */
     public void disconnectNodeAndRemove(int nodeID) {
-        TLink link = null;
-        Iterator linksIterator = this.links.iterator();
-        while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
-            if (link.isConnectedTo(nodeID)) {
-                link.disconnectFromBothNodes();
-                link.markForDeletionAsTimerEventListener(true);
-                linksIterator.remove();
-            }
+        // Only links connected to the node are visited, through the per-node
+        // index of links.
+        for (TLink link : getLinksConnectedTo(nodeID)) {
+            link.disconnectFromBothNodes();
+            link.markForDeletionAsTimerEventListener(true);
+            this.links.remove(link);
+            unindexLink(link);
         }
         TTopology.this.removeNode(nodeID);
+        invalidateRoutingTable();
         this.timer.purgeTimerEventListenersMarkedForDeletion();
     }
 
@@ -635,12 +658,22 @@ public class TTopology {
             link.markForDeletionAsTimerEventListener(true);
             elementsIterator.remove();
         }
+        this.linksByNodePair.clear();
+        this.linksByNode.clear();
+        this.indexedLinkEnds.clear();
         elementsIterator = this.getNodesIterator();
         while (elementsIterator.hasNext()) {
             node = (TNode) elementsIterator.next();
             node.markForDeletionAsTimerEventListener(true);
             elementsIterator.remove();
         }
+        this.nodesByID.clear();
+        this.nodesByIPv4Address.clear();
+        this.nodesByName.clear();
+        this.indexedNodeIDs.clear();
+        this.indexedNodeIPv4Addresses.clear();
+        this.indexedNodeNames.clear();
+        invalidateRoutingTable();
         this.timer.purgeTimerEventListenersMarkedForDeletion();
     }
 
@@ -726,22 +759,8 @@ public class TTopology {
      * @since 2.0
      */
     public boolean isThereAnyLinkThatJoins(int node1ID, int node2ID) {
-        TLink link = null;
-        Iterator linksIterator = this.links.iterator();
-        TNode node1;
-        TNode node2;
-        while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
-            node1 = link.getHeadEndNode();
-            node2 = link.getTailEndNode();
-            if ((node2.getNodeID() == node1ID) && (node1.getNodeID() == node2ID)) {
-                return true;
-            }
-            if ((node2.getNodeID() == node2ID) && (node1.getNodeID() == node1ID)) {
-                return true;
-            }
-        }
-        return false;
+        ArrayList<TLink> joiningLinks = this.linksByNodePair.get(toUnorderedNodePairKey(node1ID, node2ID));
+        return ((joiningLinks != null) && (!joiningLinks.isEmpty()));
     }
 
     /**
@@ -757,22 +776,13 @@ public class TTopology {
      * @since 2.0
      */
     public TLink getLinkThatJoins(int node1ID, int node2ID) {
-        TLink link = null;
-        Iterator linksIterator = this.links.iterator();
-        TNode node1;
-        TNode node2;
-        while (linksIterator.hasNext()) {
-            link = (TLink) linksIterator.next();
-            node1 = link.getHeadEndNode();
-            node2 = link.getTailEndNode();
-            if ((node2.getNodeID() == node1ID) && (node1.getNodeID() == node2ID)) {
-                return link;
-            }
-            if ((node2.getNodeID() == node2ID) && (node1.getNodeID() == node1ID)) {
-                return link;
-            }
+        ArrayList<TLink> joiningLinks = this.linksByNodePair.get(toUnorderedNodePairKey(node1ID, node2ID));
+        if ((joiningLinks == null) || (joiningLinks.isEmpty())) {
+            return null;
         }
-        return null;
+        // Links are sorted as in the set of links, so this is the link that
+        // a sequential search would find.
+        return joiningLinks.get(0);
     }
 
     /**
@@ -831,11 +841,13 @@ public class TTopology {
     }
 
     /**
-     * This method runs Floyd-Warshall algorithm to compute the next hop node ID
-     * to reach the target node (whose node ID is specified as an argument) from
-     * a given origin node (whose node ID is specified as an argument, too).
-     * This algorithm is the "traditional" one where link delay are used to
-     * route packets through a network.
+     * This method gets the next hop node ID to reach the target node (whose
+     * node ID is specified as an argument) from a given origin node (whose
+     * node ID is specified as an argument, too), according to Floyd-Warshall
+     * algorithm. This algorithm is the "traditional" one where link delay are
+     * used to route packets through a network. Floyd-Warshall is not run on
+     * each call; the next hop of every pair of nodes is computed once and
+     * cached until the topology changes or a link is broken or recovered.
      *
      * @param originNodeID node ID of the origin node.
      * @param targetNodeID node ID of the target/destination node.
@@ -847,97 +859,326 @@ public class TTopology {
      * @since 2.0
      */
     public synchronized int getFloydWarshallNextHopID(int originNodeID, int targetNodeID) {
+        if (this.routingAlgorithm == TTopology.DIJKSTRA_ROUTING) {
+            return this.dijkstraRoutingEngine.getNextHopID(originNodeID, targetNodeID);
+        }
         this.floydWarshallAlgorithmLock.lock();
-        int currentNumberOfNodes = this.nodes.size();
+        if (!this.routingTableValid) {
+            computeFloydWarshallRoutingTable();
+        }
+        // Index translation, exactly as it has always been done: unknown
+        // nodes, and the target when it is the origin itself, map to the
+        // first index.
         int tmpOrigin = 0;
         int tmpDestination = 0;
+        Integer nodeIndex = this.routingTableNodeIndexes.get(originNodeID);
+        if (nodeIndex != null) {
+            tmpOrigin = nodeIndex;
+        }
+        if (targetNodeID != originNodeID) {
+            nodeIndex = this.routingTableNodeIndexes.get(targetNodeID);
+            if (nodeIndex != null) {
+                tmpDestination = nodeIndex;
+            }
+        }
+        int nextHop = TTopology.TARGET_UNREACHABLE;
+        if (this.routingTableNodeIDs.length > 0) {
+            int firstHop = this.routingTableFirstHops[(tmpOrigin * this.routingTableNodeIDs.length) + tmpDestination];
+            if (firstHop != TTopology.TARGET_UNREACHABLE) {
+                nextHop = this.routingTableNodeIDs[firstHop];
+            }
+        }
+        // We check wether there is not route to host or they are adjacents
+        if (nextHop == TTopology.TARGET_UNREACHABLE) {
+            if (this.routingTableAdjacentNodes.contains(toNodePairKey(originNodeID, targetNodeID))) {
+                nextHop = targetNodeID;
+            }
+        }
+        this.floydWarshallAlgorithmLock.unLock();
+        return nextHop;
+    }
+
+    /**
+     * This method discards the cached Floyd-Warshall routing table, so that it
+     * is computed again the next time it is needed. It has to be called
+     * whenever nodes or links are added, removed or modified and whenever a
+     * link is broken or recovered.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void invalidateRoutingTable() {
+        this.routingTableValid = false;
+        this.rabanAdjacencyValid = false;
+        this.dijkstraRoutingEngine.invalidate();
+    }
+
+    /**
+     * This method makes this topology use the Floyd-Warshall routing table of
+     * another topology with the same nodes and links, instead of computing
+     * its own one. The table of the other topology is computed first, if
+     * needed. Tables are never modified once computed, so both topologies can
+     * share them; if a link of this topology is broken, recovered or
+     * modified later, this topology computes its own table again. It is used,
+     * for instance, by parameter sweeps, whose variants only differ in
+     * parameters that do not affect routes.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param sourceTopology the topology whose routing table will be used.
+     * @return TRUE, if the routing table has been copied. FALSE, if both
+     * topologies do not have the same nodes and links.
+     * @since 2.0
+     */
+    public boolean copyFloydWarshallRoutingTable(TTopology sourceTopology) {
+        if ((sourceTopology == this) || (sourceTopology.nodes.size() != this.nodes.size()) || (sourceTopology.links.size() != this.links.size())) {
+            return false;
+        }
+        sourceTopology.floydWarshallAlgorithmLock.lock();
+        if (!sourceTopology.routingTableValid) {
+            sourceTopology.computeFloydWarshallRoutingTable();
+        }
+        int[] nodeIDs = sourceTopology.routingTableNodeIDs;
+        HashMap<Integer, Integer> nodeIndexes = sourceTopology.routingTableNodeIndexes;
+        int[] firstHops = sourceTopology.routingTableFirstHops;
+        long[] costs = sourceTopology.routingTableCosts;
+        HashSet<Long> adjacentNodes = sourceTopology.routingTableAdjacentNodes;
+        sourceTopology.floydWarshallAlgorithmLock.unLock();
+        for (TNode node : this.getNodesAsArray()) {
+            if (!nodeIndexes.containsKey(node.getNodeID())) {
+                return false;
+            }
+        }
+        this.floydWarshallAlgorithmLock.lock();
+        this.routingTableNodeIDs = nodeIDs;
+        this.routingTableNodeIndexes = nodeIndexes;
+        this.routingTableFirstHops = firstHops;
+        this.routingTableCosts = costs;
+        this.routingTableAdjacentNodes = adjacentNodes;
+        this.routingTableValid = true;
+        this.floydWarshallAlgorithmLock.unLock();
+        return true;
+    }
+
+    /**
+     * This method gets how many times the Floyd-Warshall routing table has been
+     * computed since the topology was reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of times the routing table has been computed.
+     * @since 2.0
+     */
+    public long getRoutingTableComputations() {
+        return this.routingTableComputations + this.dijkstraRoutingEngine.getComputations();
+    }
+
+    /**
+     * This method gets the total time spent computing the Floyd-Warshall
+     * routing table since the topology was reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the time spent computing the routing table, in nanoseconds.
+     * @since 2.0
+     */
+    public long getRoutingTableComputationTimeInNs() {
+        return this.routingTableComputationTimeInNs + this.dijkstraRoutingEngine.getComputationTimeInNs();
+    }
+
+    /**
+     * This method sets the algorithm that will be used to compute routes in
+     * this topology.
+     *
+     * @param routingAlgorithm TTopology.FLOYD_WARSHALL_ROUTING, to compute the
+     * routes of every pair of nodes at once, or TTopology.DIJKSTRA_ROUTING, to
+     * compute them from each origin node as needed, which is faster for large
+     * and sparse topologies. RABAN routes are always computed from each origin
+     * node, because their trees can be repaired as RABAN weights change.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void setRoutingAlgorithm(int routingAlgorithm) {
+        if ((routingAlgorithm == TTopology.FLOYD_WARSHALL_ROUTING) || (routingAlgorithm == TTopology.DIJKSTRA_ROUTING)) {
+            this.routingAlgorithm = routingAlgorithm;
+            invalidateRoutingTable();
+        }
+    }
+
+    /**
+     * This method gets the algorithm that is used to compute routes in this
+     * topology.
+     *
+     * @return TTopology.FLOYD_WARSHALL_ROUTING or TTopology.DIJKSTRA_ROUTING.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public int getRoutingAlgorithm() {
+        return this.routingAlgorithm;
+    }
+
+    /**
+     * This method serializes the routing parameters of this topology.
+     *
+     * @return the serialized version of the routing parameters of this
+     * topology.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public String marshallRoutingParameters() {
+        String serializedRoutingParameters = "#Encaminamiento#";
+        serializedRoutingParameters += this.routingAlgorithm + "#";
+        return serializedRoutingParameters;
+    }
+
+    /**
+     * This method deserializes the routing parameters of this topology.
+     *
+     * @param serializedRoutingParameters the serialized version of the routing
+     * parameters of this topology.
+     * @return TRUE, if the routing parameters can be deserialized correctly.
+     * Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public boolean unmarshallRoutingParameters(String serializedRoutingParameters) {
+        String[] routingParametersFields = serializedRoutingParameters.split("#");
+        if (routingParametersFields.length != 3) {
+            return false;
+        }
+        try {
+            int serializedRoutingAlgorithm = Integer.parseInt(routingParametersFields[2]);
+            if ((serializedRoutingAlgorithm != TTopology.FLOYD_WARSHALL_ROUTING) && (serializedRoutingAlgorithm != TTopology.DIJKSTRA_ROUTING)) {
+                return false;
+            }
+            setRoutingAlgorithm(serializedRoutingAlgorithm);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method runs Floyd-Warshall algorithm over the current topology and
+     * caches, for each pair of nodes, the first hop of the shortest route
+     * between them. Link delays are used as weights and broken links are
+     * ignored. The caller must hold floydWarshallAlgorithmLock.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void computeFloydWarshallRoutingTable() {
+        long computationStart = System.nanoTime();
+        // Marked as valid before computing. If a link breaks meanwhile, the
+        // table will be invalidated again and recomputed on next lookup.
+        this.routingTableValid = true;
+        int currentNumberOfNodes = this.nodes.size();
         // We compute equivalences betweeen indexes and node IDs to be used 
         // when computing the adjacency matrix. This is needed because node IDs 
         // cannot be used as indexes of the adjacency matrix. It's an index 
         // translation.
         int[] equivalenceMatrix = new int[currentNumberOfNodes];
+        HashMap<Integer, Integer> nodeIndexes = new HashMap<>();
         int i = 0;
         TNode node = null;
         Iterator nodesIterator = this.getNodesIterator();
         while (nodesIterator.hasNext()) {
             node = (TNode) nodesIterator.next();
             equivalenceMatrix[i] = node.getNodeID();
-            if (equivalenceMatrix[i] == originNodeID) {
-                tmpOrigin = i;
-            } else if (equivalenceMatrix[i] == targetNodeID) {
-                tmpDestination = i;
+            if (!nodeIndexes.containsKey(equivalenceMatrix[i])) {
+                nodeIndexes.put(equivalenceMatrix[i], i);
             }
             i++;
         }
-        // We compute adjacency matrix
-        TLink link = null;
+        // We compute adjacency matrix. As when looking for the link that joins
+        // two nodes, only the first link joining them is taken into account.
         long[][] adjacencyMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
+        boolean[][] alreadyJoined = new boolean[currentNumberOfNodes][currentNumberOfNodes];
+        HashSet<Long> adjacentNodes = new HashSet<>();
         int j = 0;
         for (i = 0; i < currentNumberOfNodes; i++) {
             for (j = 0; j < currentNumberOfNodes; j++) {
-                link = getLinkThatJoins(equivalenceMatrix[i], equivalenceMatrix[j]);
-                if ((link == null) || ((link != null) && (link.isBroken()))) {
-                    // If there is not a link joining node i and j. Or if this
-                    // link exists but is down at this moment:
-                    if (i == j) {
-                        // It's the same node.
-                        adjacencyMatrix[i][j] = 0;
-                    } else {
-                        // It's impossible to reach i from j or viceversa.
-                        adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
-                    }
-                } else if (link.getLinkType() == TLink.EXTERNAL_LINK) {
-                    // We put the link weight in the adjacency matrix
-                    TExternalLink externalLink = (TExternalLink) link;
-                    adjacencyMatrix[i][j] = externalLink.getWeight();
+                if (i == j) {
+                    // It's the same node.
+                    adjacencyMatrix[i][j] = 0;
                 } else {
-                    // We put the link weight in the adjacency matrix
-                    TInternalLink internalLink = (TInternalLink) link;
-                    adjacencyMatrix[i][j] = internalLink.getWeight();
+                    // It's impossible to reach i from j or viceversa.
+                    adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
                 }
             }
         }
-        // We compute costs matrix and paths matrix
-        long[][] costsMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
-        int[][] pathsMatrix = new int[currentNumberOfNodes][currentNumberOfNodes];
-        int k = 0;
-        for (i = 0; i < currentNumberOfNodes; i++) {
-            for (j = 0; j < currentNumberOfNodes; j++) {
-                costsMatrix[i][j] = adjacencyMatrix[i][j];
-                pathsMatrix[i][j] = currentNumberOfNodes;
-            }
-        }
-        for (k = 0; k < currentNumberOfNodes; k++) {
-            for (i = 0; i < currentNumberOfNodes; i++) {
-                for (j = 0; j < currentNumberOfNodes; j++) {
-                    if (!((costsMatrix[i][k] == TTopology.INFINITE_WEIGHT) || (costsMatrix[k][j] == TTopology.INFINITE_WEIGHT))) {
-                        if ((costsMatrix[i][k] + costsMatrix[k][j]) < costsMatrix[i][j]) {
-                            costsMatrix[i][j] = costsMatrix[i][k] + costsMatrix[k][j];
-                            pathsMatrix[i][j] = k;
-                        }
-                    }
-                }
+        TLink link = null;
+        Iterator linksIterator = this.getLinksIterator();
+        while (linksIterator.hasNext()) {
+            link = (TLink) linksIterator.next();
+            int headEndNodeID = link.getHeadEndNode().getNodeID();
+            int tailEndNodeID = link.getTailEndNode().getNodeID();
+            adjacentNodes.add(toNodePairKey(headEndNodeID, tailEndNodeID));
+            adjacentNodes.add(toNodePairKey(tailEndNodeID, headEndNodeID));
+            Integer headEndIndex = nodeIndexes.get(headEndNodeID);
+            Integer tailEndIndex = nodeIndexes.get(tailEndNodeID);
+            if ((headEndIndex != null) && (tailEndIndex != null)) {
+                setAdjacencyWeight(adjacencyMatrix, alreadyJoined, headEndIndex, tailEndIndex, link);
+                setAdjacencyWeight(adjacencyMatrix, alreadyJoined, tailEndIndex, headEndIndex, link);
             }
         }
-        // If there is a route to destination host, this step get the first hop
-        // of this route.
-        int nextHop = TTopology.TARGET_UNREACHABLE;
-        k = pathsMatrix[tmpOrigin][tmpDestination];
-        while (k != currentNumberOfNodes) {
-            nextHop = k;
-            k = pathsMatrix[tmpOrigin][k];
+        // We compute the first hop of the route between every pair of nodes.
+        TFloydWarshallEngine engine = new TFloydWarshallEngine();
+        engine.setParallelThreshold(this.parallelRoutingThreshold);
+        engine.compute(adjacencyMatrix);
+        this.routingTableNodeIDs = equivalenceMatrix;
+        this.routingTableNodeIndexes = nodeIndexes;
+        this.routingTableFirstHops = engine.getFirstHops();
+        this.routingTableCosts = engine.getCosts();
+        this.routingTableAdjacentNodes = adjacentNodes;
+        this.routingTableComputations++;
+        this.routingTableComputationTimeInNs += System.nanoTime() - computationStart;
+    }
+
+    /**
+     * This method puts the weight of a link in the adjacency matrix used by
+     * Floyd-Warshall algorithm, unless another link joining the same nodes was
+     * already found.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param adjacencyMatrix the adjacency matrix.
+     * @param alreadyJoined which pairs of nodes already have a link.
+     * @param i index of a link end.
+     * @param j index of the other link end.
+     * @param link the link that joins both nodes.
+     * @since 2.0
+     */
+    private void setAdjacencyWeight(long[][] adjacencyMatrix, boolean[][] alreadyJoined, int i, int j, TLink link) {
+        if (alreadyJoined[i][j]) {
+            return;
         }
-        // We check wether there is not route to host or they are adjacents
-        if (nextHop == TTopology.TARGET_UNREACHABLE) {
-            TLink linkAux = this.getLinkThatJoins(originNodeID, targetNodeID);
-            if (linkAux != null) {
-                nextHop = targetNodeID;
+        alreadyJoined[i][j] = true;
+        if (link.isBroken()) {
+            // If this link exists but is down at this moment:
+            if (i == j) {
+                adjacencyMatrix[i][j] = 0;
+            } else {
+                adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
             }
+        } else if (link.getLinkType() == TLink.EXTERNAL_LINK) {
+            // We put the link weight in the adjacency matrix
+            TExternalLink externalLink = (TExternalLink) link;
+            adjacencyMatrix[i][j] = externalLink.getWeight();
         } else {
-            nextHop = equivalenceMatrix[nextHop];
+            // We put the link weight in the adjacency matrix
+            TInternalLink internalLink = (TInternalLink) link;
+            adjacencyMatrix[i][j] = internalLink.getWeight();
         }
-        this.floydWarshallAlgorithmLock.unLock();
-        return nextHop;
+    }
+
+    /**
+     * This method combines two node IDs in a single key.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node1ID the first node ID.
+     * @param node2ID the second node ID.
+     * @return a key that is different for each ordered pair of node IDs.
+     * @since 2.0
+     */
+    private static long toNodePairKey(int node1ID, int node2ID) {
+        return (((long) node1ID) << 32) | (node2ID & 0xFFFFFFFFL);
     }
 
     /**
@@ -1031,13 +1272,14 @@ public class TTopology {
     }
 
     /**
-     * This method runs RABAN algorithm (a variant of Floyd-Warsall algorithm)
-     * to compute the next hop node ID to reach the target node (whose node ID
-     * is specified as an argument) from a given origin node (whose node ID is
-     * specified as an argument, too). This algorithm takes into account lots of
-     * data instead of only "delay", to balance the traffic through a network.
-     * See "Guarentee of Service (GoS) support over MPLS using Active
-     * Techniques" proposal so know more of RABAN.
+     * This method runs RABAN algorithm to compute the next hop node ID to
+     * reach the target node (whose node ID is specified as an argument) from a
+     * given origin node (whose node ID is specified as an argument, too). This
+     * algorithm takes into account lots of data instead of only "delay", to
+     * balance the traffic through a network. See "Guarentee of Service (GoS)
+     * support over MPLS using Active Techniques" proposal so know more of
+     * RABAN. Routes are computed by the Dijkstra routing engine, that repairs
+     * them incrementally when RABAN weights change.
      *
      * @param originNodeID node ID of the origin node.
      * @param targetNodeID node ID of the target/destination node.
@@ -1049,220 +1291,513 @@ public class TTopology {
      * @since 2.0
      */
     public synchronized int getRABANNextHopID(int originNodeID, int targetNodeID) {
-        this.rabanAlgorithmLock.lock();
-        int currentNumberOfNodes = this.nodes.size();
-        int tmpOrigin = 0;
-        int tmpDestination = 0;
-        // We compute equivalences betweeen indexes and node IDs to be used 
-        // when computing the adjacency matrix. This is needed because node IDs 
-        // cannot be used as indexes of the adjacency matrix. It's an index 
-        // translation.
-        int[] equivalenceMatrix = new int[currentNumberOfNodes];
-        int i = 0;
-        TNode node = null;
-        Iterator nodesIterator = this.getNodesIterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            equivalenceMatrix[i] = node.getNodeID();
-            if (equivalenceMatrix[i] == originNodeID) {
-                tmpOrigin = i;
-            } else if (equivalenceMatrix[i] == targetNodeID) {
-                tmpDestination = i;
+        return this.dijkstraRoutingEngine.getRABANNextHopID(originNodeID, targetNodeID, TTopology.TARGET_UNREACHABLE);
+    }
+
+    /**
+     * This method runs RABAN algorithm to compute the next hop node ID to
+     * reach the target node (whose node ID is specified as an argument) from a
+     * given origin node (whose node ID is specified as an argument, too);
+     * also, it avoid choosing the node specified by nodeToAvoidID node ID as
+     * next hop. This algorithm takes into account lots of data instead of only
+     * "delay", to balance the traffic through a network. See "Guarentee of
+     * Service (GoS) support over MPLS using Active Techniques" proposal so
+     * know more of RABAN. Routes are computed by the Dijkstra routing engine,
+     * that keeps the tree of each origin and node to avoid and repairs it
+     * incrementally when RABAN weights change.
+     *
+     * @param originNodeID node ID of the origin node.
+     * @param targetNodeID node ID of the target/destination node.
+     * @param nodeToAvoidID node ID that has not to be taken into account to
+     * compute the next hop. The corresponding node is avoided.
+     * @return node ID of the next hop node, that is an adjacent node of the
+     * origin node, to reach the target node with a minimum RABAN weight,
+     * according to RABAN algorithm. If there is not a route to reach the target
+     * node, TTopology.TARGET_UNREACHABLE is returned.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized int getNextHopIDUsingRABAN(int originNodeID, int targetNodeID, int nodeToAvoidID) {
+        return this.dijkstraRoutingEngine.getRABANNextHopID(originNodeID, targetNodeID, nodeToAvoidID);
+    }
+
+    /**
+     * This method keeps the RABAN adjacency matrix used by
+     * getAllPairsCosts(true) up to date. Next hops requested by nodes do not
+     * use it; they are computed by the Dijkstra routing engine. The matrix
+     * layout, that is, which link joins each pair of nodes, is only computed
+     * again when the topology changes. Then, the current RABAN weight of each
+     * link is read and compared to the one in the matrix; if any of them has
+     * changed, the costs computed previously are discarded. The caller must
+     * hold rabanAlgorithmLock.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void updateRABANAdjacencyMatrix() {
+        if (!this.rabanAdjacencyValid) {
+            // Marked as valid before computing. If a link breaks meanwhile,
+            // the matrix will be invalidated again and recomputed on next
+            // lookup.
+            this.rabanAdjacencyValid = true;
+            int currentNumberOfNodes = this.nodes.size();
+            HashMap<Integer, Integer> nodeIndexes = new HashMap<>();
+            int i = 0;
+            Iterator nodesIterator = this.getNodesIterator();
+            while (nodesIterator.hasNext()) {
+                TNode node = (TNode) nodesIterator.next();
+                if (!nodeIndexes.containsKey(node.getNodeID())) {
+                    nodeIndexes.put(node.getNodeID(), i);
+                }
+                i++;
             }
-            i++;
-        }
-        // We compute adjacency matrix
-        TLink link = null;
-        long[][] adjacencyMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
-        int j = 0;
-        for (i = 0; i < currentNumberOfNodes; i++) {
-            for (j = 0; j < currentNumberOfNodes; j++) {
-                link = getLinkThatJoins(equivalenceMatrix[i], equivalenceMatrix[j]);
-                if ((link == null) || ((link != null) && (link.isBroken()))) {
-                    if (i == j) {
-                        adjacencyMatrix[i][j] = 0;
-                    } else {
-                        adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
+            long[][] adjacencyMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
+            for (i = 0; i < currentNumberOfNodes; i++) {
+                Arrays.fill(adjacencyMatrix[i], TTopology.INFINITE_WEIGHT);
+                adjacencyMatrix[i][i] = 0;
+            }
+            // As when looking for the link that joins two nodes, only the
+            // first link joining them is taken into account.
+            boolean[][] alreadyJoined = new boolean[currentNumberOfNodes][currentNumberOfNodes];
+            ArrayList<TLink> adjacencyLinks = new ArrayList<>();
+            ArrayList<Integer> adjacencyIndexes = new ArrayList<>();
+            Iterator linksIterator = this.getLinksIterator();
+            while (linksIterator.hasNext()) {
+                TLink link = (TLink) linksIterator.next();
+                int headEndNodeID = link.getHeadEndNode().getNodeID();
+                int tailEndNodeID = link.getTailEndNode().getNodeID();
+                Integer headEndIndex = nodeIndexes.get(headEndNodeID);
+                Integer tailEndIndex = nodeIndexes.get(tailEndNodeID);
+                if ((headEndIndex != null) && (tailEndIndex != null)) {
+                    if (!alreadyJoined[headEndIndex][tailEndIndex]) {
+                        alreadyJoined[headEndIndex][tailEndIndex] = true;
+                        adjacencyLinks.add(link);
+                        adjacencyIndexes.add(headEndIndex * currentNumberOfNodes + tailEndIndex);
+                    }
+                    if (!alreadyJoined[tailEndIndex][headEndIndex]) {
+                        alreadyJoined[tailEndIndex][headEndIndex] = true;
+                        adjacencyLinks.add(link);
+                        adjacencyIndexes.add(tailEndIndex * currentNumberOfNodes + headEndIndex);
                     }
-                } else if (link.getLinkType() == TLink.EXTERNAL_LINK) {
-                    TExternalLink externalLink = (TExternalLink) link;
-                    adjacencyMatrix[i][j] = externalLink.getRABANWeight();
-                } else {
-                    TInternalLink internalLink = (TInternalLink) link;
-                    adjacencyMatrix[i][j] = internalLink.getRABANWeight();
                 }
             }
-        }
-        // We compute costs matrix and paths matrix
-        long[][] costsMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
-        int[][] pathsMatrix = new int[currentNumberOfNodes][currentNumberOfNodes];
-        int k = 0;
-        for (i = 0; i < currentNumberOfNodes; i++) {
-            for (j = 0; j < currentNumberOfNodes; j++) {
-                costsMatrix[i][j] = adjacencyMatrix[i][j];
-                pathsMatrix[i][j] = currentNumberOfNodes;
+            this.rabanAdjacencyLinks = adjacencyLinks.toArray(new TLink[0]);
+            this.rabanAdjacencyRows = new int[adjacencyIndexes.size()];
+            this.rabanAdjacencyColumns = new int[adjacencyIndexes.size()];
+            for (i = 0; i < adjacencyIndexes.size(); i++) {
+                this.rabanAdjacencyRows[i] = adjacencyIndexes.get(i) / currentNumberOfNodes;
+                this.rabanAdjacencyColumns[i] = adjacencyIndexes.get(i) % currentNumberOfNodes;
             }
+            this.rabanAdjacencyMatrix = adjacencyMatrix;
+            this.rabanFirstHops = null;
         }
-        for (k = 0; k < currentNumberOfNodes; k++) {
-            for (i = 0; i < currentNumberOfNodes; i++) {
-                for (j = 0; j < currentNumberOfNodes; j++) {
-                    if (!((costsMatrix[i][k] == TTopology.INFINITE_WEIGHT) || (costsMatrix[k][j] == TTopology.INFINITE_WEIGHT))) {
-                        if ((costsMatrix[i][k] + costsMatrix[k][j]) < costsMatrix[i][j]) {
-                            costsMatrix[i][j] = costsMatrix[i][k] + costsMatrix[k][j];
-                            pathsMatrix[i][j] = k;
-                        }
-                    }
+        boolean weightsChanged = false;
+        for (int l = 0; l < this.rabanAdjacencyLinks.length; l++) {
+            TLink link = this.rabanAdjacencyLinks[l];
+            int i = this.rabanAdjacencyRows[l];
+            int j = this.rabanAdjacencyColumns[l];
+            long weight;
+            if (link.isBroken()) {
+                if (i == j) {
+                    weight = 0;
+                } else {
+                    weight = TTopology.INFINITE_WEIGHT;
                 }
+            } else {
+                weight = link.getRABANWeight();
+            }
+            if (this.rabanAdjacencyMatrix[i][j] != weight) {
+                this.rabanAdjacencyMatrix[i][j] = weight;
+                weightsChanged = true;
             }
         }
-        // If there is a route to destination host, this step get the first hop
-        // of this route.
-        int nextHop = TTopology.TARGET_UNREACHABLE;
-        k = pathsMatrix[tmpOrigin][tmpDestination];
-        while (k != currentNumberOfNodes) {
-            nextHop = k;
-            k = pathsMatrix[tmpOrigin][k];
+        if (weightsChanged) {
+            this.rabanFirstHops = null;
         }
-        // We check wether there is not route to host or they are adjacents
-        if (nextHop == TTopology.TARGET_UNREACHABLE) {
-            TLink linkAux = this.getLinkThatJoins(originNodeID, targetNodeID);
-            if (linkAux != null) {
-                nextHop = targetNodeID;
+    }
+
+    /**
+     * This method runs RABAN algorithm (a variant of Floyd-Warsall algorithm)
+     * over the specified adjacency matrix. It is only used to study the costs
+     * between every pair of nodes; nodes get their RABAN next hops from the
+     * Dijkstra routing engine.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param adjacencyMatrix the adjacency matrix, with RABAN weights.
+     * @return the engine that holds the costs and first hops of the routes
+     * between every pair of nodes.
+     * @since 2.0
+     */
+    private TFloydWarshallEngine computeRABANRoutes(long[][] adjacencyMatrix) {
+        long computationStart = System.nanoTime();
+        TFloydWarshallEngine engine = new TFloydWarshallEngine();
+        engine.setParallelThreshold(this.parallelRoutingThreshold);
+        engine.compute(adjacencyMatrix);
+        this.routingTableComputations++;
+        this.routingTableComputationTimeInNs += System.nanoTime() - computationStart;
+        return engine;
+    }
+
+    /**
+     * This method computes the RABAN costs between every pair of nodes using
+     * the current RABAN adjacency matrix, for getAllPairsCosts(true). The
+     * caller must hold rabanAlgorithmLock.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void computeRABANRoutingTable() {
+        TFloydWarshallEngine engine = computeRABANRoutes(this.rabanAdjacencyMatrix);
+        this.rabanFirstHops = engine.getFirstHops();
+        this.rabanCosts = engine.getCosts();
+    }
+
+    /**
+     * This method gets the cost of the shortest route between every pair of
+     * nodes, computing it if needed. It is intended for studies that need to
+     * compare routes over the whole topology.
+     *
+     * @param useRABANWeights TRUE, to use the current RABAN weights of links.
+     * FALSE, to use link delays.
+     * @return a flat matrix where the cost from the node i to the node j is
+     * at position i * n + j, being n the number of nodes and nodes sorted as
+     * in getNodesAsArray(). TTopology.INFINITE_WEIGHT means that there is not
+     * a route.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized long[] getAllPairsCosts(boolean useRABANWeights) {
+        long[] allPairsCosts;
+        if (useRABANWeights) {
+            this.rabanAlgorithmLock.lock();
+            updateRABANAdjacencyMatrix();
+            if (this.rabanFirstHops == null) {
+                computeRABANRoutingTable();
             }
+            allPairsCosts = this.rabanCosts.clone();
+            this.rabanAlgorithmLock.unLock();
         } else {
-            nextHop = equivalenceMatrix[nextHop];
+            this.floydWarshallAlgorithmLock.lock();
+            if (!this.routingTableValid) {
+                computeFloydWarshallRoutingTable();
+            }
+            allPairsCosts = this.routingTableCosts.clone();
+            this.floydWarshallAlgorithmLock.unLock();
         }
-        this.rabanAlgorithmLock.unLock();
-        return nextHop;
+        return allPairsCosts;
     }
 
     /**
-     * This method runs RABAN algorithm (a variant of Floyd-Warsall algorithm)
-     * to compute the next hop node ID to reach the target node (whose node ID
-     * is specified as an argument) from a given origin node (whose node ID is
-     * specified as an argument, too); also, it avoid choosing the node
-     * specified by nodeToAvoidID node ID as next hop. This algorithm takes into
-     * account lots of data instead of only "delay", to balance the traffic
-     * through a network. See "Guarentee of Service (GoS) support over MPLS
-     * using Active Techniques" proposal so know more of RABAN.
+     * This method sets the number of nodes from which routes between every
+     * pair of nodes are computed by blocks and in parallel, instead of
+     * sequentially. Costs are the same, but when several routes have the
+     * same cost, a different one may be chosen.
      *
-     * @param originNodeID node ID of the origin node.
-     * @param targetNodeID node ID of the target/destination node.
-     * @param nodeToAvoidID node ID that has not to be taken into account to
-     * compute the next hop. The corresponding node is avoided.
-     * @return node ID of the next hop node, that is an adjacent node of the
-     * origin node, to reach the target node with a minimum RABAN weight,
-     * according to RABAN algorithm. If there is not a route to reach the target
-     * node, TTopology.TARGET_UNREACHABLE is returned.
+     * @param parallelRoutingThreshold the minimum number of nodes to compute
+     * routes in parallel.
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      */
-    public synchronized int getNextHopIDUsingRABAN(int originNodeID, int targetNodeID, int nodeToAvoidID) {
-        this.rabanAlgorithmLock.lock();
-        int currentNumberOfNodes = this.nodes.size();
-        int tmpOrigin = 0;
-        int tmpDestination = 0;
-        int tmpNodeToAvoidID = 0;
-        // We compute equivalences betweeen indexes and node IDs to be used 
-        // when computing the adjacency matrix. This is needed because node IDs 
-        // cannot be used as indexes of the adjacency matrix. It's an index 
-        // translation.
-        int[] equivalenceMatrix = new int[currentNumberOfNodes];
-        int i = 0;
-        TNode node = null;
-        Iterator nodesIterator = this.getNodesIterator();
-        while (nodesIterator.hasNext()) {
-            node = (TNode) nodesIterator.next();
-            equivalenceMatrix[i] = node.getNodeID();
-            if (equivalenceMatrix[i] == originNodeID) {
-                tmpOrigin = i;
-            } else if (equivalenceMatrix[i] == targetNodeID) {
-                tmpDestination = i;
-            } else if (equivalenceMatrix[i] == nodeToAvoidID) {
-                tmpNodeToAvoidID = i;
+    public void setParallelRoutingThreshold(int parallelRoutingThreshold) {
+        this.parallelRoutingThreshold = parallelRoutingThreshold;
+        invalidateRoutingTable();
+    }
+
+    /**
+     * This method gets the number of nodes from which routes between every
+     * pair of nodes are computed by blocks and in parallel.
+     *
+     * @return the minimum number of nodes to compute routes in parallel.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public int getParallelRoutingThreshold() {
+        return this.parallelRoutingThreshold;
+    }
+
+    /**
+     * This method updates the indexes of nodes when the node ID, the IPv4
+     * address or the name of a node have changed. Nodes that do not belong to
+     * this topology are ignored.
+     *
+     * @param node the node whose node ID, IPv4 address or name have changed.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    void nodeKeysChanged(TNode node) {
+        if (!this.indexedNodeIDs.containsKey(node)) {
+            return;
+        }
+        unindexNode(node);
+        indexNode(node);
+    }
+
+    /**
+     * This method adds a node to the indexes of nodes by node ID, IPv4
+     * address and name.
+     *
+     * @param node the node to be indexed.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void indexNode(TNode node) {
+        this.indexedNodeIDs.put(node, node.getNodeID());
+        this.indexedNodeIPv4Addresses.put(node, node.getIPv4Address());
+        this.indexedNodeNames.put(node, node.getName());
+        this.nodesByID.put(node.getNodeID(), node);
+        ArrayList<TNode> sameKeyNodes = this.nodesByIPv4Address.get(node.getIPv4Address());
+        if (sameKeyNodes == null) {
+            sameKeyNodes = new ArrayList<>(1);
+            this.nodesByIPv4Address.put(node.getIPv4Address(), sameKeyNodes);
+        }
+        insertSortedByNodeID(sameKeyNodes, node);
+        sameKeyNodes = this.nodesByName.get(node.getName());
+        if (sameKeyNodes == null) {
+            sameKeyNodes = new ArrayList<>(1);
+            this.nodesByName.put(node.getName(), sameKeyNodes);
+        }
+        insertSortedByNodeID(sameKeyNodes, node);
+    }
+
+    /**
+     * This method removes a node from the indexes of nodes by node ID, IPv4
+     * address and name, using the values the node had when it was indexed.
+     *
+     * @param node the node to be removed from the indexes.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void unindexNode(TNode node) {
+        if (!this.indexedNodeIDs.containsKey(node)) {
+            return;
+        }
+        Integer nodeID = this.indexedNodeIDs.remove(node);
+        String ipv4Address = this.indexedNodeIPv4Addresses.remove(node);
+        String name = this.indexedNodeNames.remove(node);
+        if (this.nodesByID.get(nodeID) == node) {
+            this.nodesByID.remove(nodeID);
+        }
+        ArrayList<TNode> sameKeyNodes = this.nodesByIPv4Address.get(ipv4Address);
+        if (sameKeyNodes != null) {
+            sameKeyNodes.remove(node);
+            if (sameKeyNodes.isEmpty()) {
+                this.nodesByIPv4Address.remove(ipv4Address);
             }
-            i++;
         }
-        // We compute adjacency matrix
-        TLink link = null;
-        long[][] adjacencyMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
-        int j = 0;
-        for (i = 0; i < currentNumberOfNodes; i++) {
-            for (j = 0; j < currentNumberOfNodes; j++) {
-                link = getLinkThatJoins(equivalenceMatrix[i], equivalenceMatrix[j]);
-                if ((link == null) || ((link != null) && (link.isBroken()))) {
-                    if (i == j) {
-                        adjacencyMatrix[i][j] = 0;
-                    } else {
-                        adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
-                    }
-                } else if (link.getLinkType() == TLink.EXTERNAL_LINK) {
-                    TExternalLink externalLink = (TExternalLink) link;
-                    adjacencyMatrix[i][j] = externalLink.getRABANWeight();
-                } else {
-                    TInternalLink internalLink = (TInternalLink) link;
-                    adjacencyMatrix[i][j] = internalLink.getRABANWeight();
-                }
-                // He we avoid to choose the specified undesired node as next
-                // hop. Let's say, we avoid to include the undesired node in
-                // the computed route to destination.
-                if ((i == tmpOrigin) && (j == tmpNodeToAvoidID)) {
-                    adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
-                }
-                if ((i == tmpNodeToAvoidID) && (j == tmpOrigin)) {
-                    adjacencyMatrix[i][j] = TTopology.INFINITE_WEIGHT;
-                }
+        sameKeyNodes = this.nodesByName.get(name);
+        if (sameKeyNodes != null) {
+            sameKeyNodes.remove(node);
+            if (sameKeyNodes.isEmpty()) {
+                this.nodesByName.remove(name);
             }
         }
-        // We compute costs matrix and paths matrix
-        long[][] costsMatrix = new long[currentNumberOfNodes][currentNumberOfNodes];
-        int[][] pathsMatrix = new int[currentNumberOfNodes][currentNumberOfNodes];
-        int k = 0;
-        for (i = 0; i < currentNumberOfNodes; i++) {
-            for (j = 0; j < currentNumberOfNodes; j++) {
-                costsMatrix[i][j] = adjacencyMatrix[i][j];
-                pathsMatrix[i][j] = currentNumberOfNodes;
+    }
+
+    /**
+     * This method inserts a node in a list of nodes sorted by node ID, the
+     * same order nodes have in the set of nodes of the topology.
+     *
+     * @param sortedNodes the list of nodes.
+     * @param node the node to be inserted.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static void insertSortedByNodeID(ArrayList<TNode> sortedNodes, TNode node) {
+        int position = sortedNodes.size();
+        while ((position > 0) && (sortedNodes.get(position - 1).getNodeID() > node.getNodeID())) {
+            position--;
+        }
+        sortedNodes.add(position, node);
+    }
+
+    /**
+     * This method gets the links that are connected to the specified node.
+     *
+     * @param nodeID the node ID of the node.
+     * @return the links connected to the node, sorted by link ID. An empty
+     * array if there is not any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TLink[] getLinksConnectedTo(int nodeID) {
+        ArrayList<TLink> connectedLinks = this.linksByNode.get(nodeID);
+        if (connectedLinks == null) {
+            return new TLink[0];
+        }
+        return connectedLinks.toArray(new TLink[0]);
+    }
+
+    /**
+     * This method updates the index of links when the ends of a link have
+     * changed. Links that do not belong to this topology are ignored.
+     *
+     * @param link the link whose ends have changed.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    void linkEndsChanged(TLink link) {
+        Long linkEnds = this.indexedLinkEnds.get(link.getID());
+        if (linkEnds == null) {
+            return;
+        }
+        ArrayList<TLink> joiningLinks = this.linksByNodePair.get(toUnorderedNodePairKey((int) (linkEnds >> 32), (int) (long) linkEnds));
+        if ((joiningLinks == null) || (!containsSameLink(joiningLinks, link))) {
+            // It is a copy of an indexed link, not the indexed link itself.
+            return;
+        }
+        unindexLink(link);
+        indexLink(link);
+    }
+
+    /**
+     * This method adds a link to the indexes of links by pair of nodes and by
+     * node.
+     *
+     * @param link the link to be indexed.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void indexLink(TLink link) {
+        if ((link.getHeadEndNode() == null) || (link.getTailEndNode() == null)) {
+            return;
+        }
+        int headEndNodeID = link.getHeadEndNode().getNodeID();
+        int tailEndNodeID = link.getTailEndNode().getNodeID();
+        this.indexedLinkEnds.put(link.getID(), toNodePairKey(headEndNodeID, tailEndNodeID));
+        long nodePairKey = toUnorderedNodePairKey(headEndNodeID, tailEndNodeID);
+        ArrayList<TLink> joiningLinks = this.linksByNodePair.get(nodePairKey);
+        if (joiningLinks == null) {
+            joiningLinks = new ArrayList<>(1);
+            this.linksByNodePair.put(nodePairKey, joiningLinks);
+        }
+        insertSortedByID(joiningLinks, link);
+        ArrayList<TLink> connectedLinks = this.linksByNode.get(headEndNodeID);
+        if (connectedLinks == null) {
+            connectedLinks = new ArrayList<>();
+            this.linksByNode.put(headEndNodeID, connectedLinks);
+        }
+        insertSortedByID(connectedLinks, link);
+        if (tailEndNodeID != headEndNodeID) {
+            connectedLinks = this.linksByNode.get(tailEndNodeID);
+            if (connectedLinks == null) {
+                connectedLinks = new ArrayList<>();
+                this.linksByNode.put(tailEndNodeID, connectedLinks);
             }
+            insertSortedByID(connectedLinks, link);
         }
-        for (k = 0; k < currentNumberOfNodes; k++) {
-            for (i = 0; i < currentNumberOfNodes; i++) {
-                for (j = 0; j < currentNumberOfNodes; j++) {
-                    if (!((costsMatrix[i][k] == TTopology.INFINITE_WEIGHT) || (costsMatrix[k][j] == TTopology.INFINITE_WEIGHT))) {
-                        if ((costsMatrix[i][k] + costsMatrix[k][j]) < costsMatrix[i][j]) {
-                            costsMatrix[i][j] = costsMatrix[i][k] + costsMatrix[k][j];
-                            pathsMatrix[i][j] = k;
-                        }
-                    }
-                }
+    }
+
+    /**
+     * This method removes a link from the indexes of links by pair of nodes
+     * and by node, using the ends the link had when it was indexed.
+     *
+     * @param link the link to be removed from the indexes.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void unindexLink(TLink link) {
+        Long linkEnds = this.indexedLinkEnds.remove(link.getID());
+        if (linkEnds == null) {
+            return;
+        }
+        int headEndNodeID = (int) (linkEnds >> 32);
+        int tailEndNodeID = (int) (long) linkEnds;
+        long nodePairKey = toUnorderedNodePairKey(headEndNodeID, tailEndNodeID);
+        removeSameLink(this.linksByNodePair.get(nodePairKey), link);
+        if (this.linksByNodePair.get(nodePairKey).isEmpty()) {
+            this.linksByNodePair.remove(nodePairKey);
+        }
+        removeSameLink(this.linksByNode.get(headEndNodeID), link);
+        if (this.linksByNode.get(headEndNodeID).isEmpty()) {
+            this.linksByNode.remove(headEndNodeID);
+        }
+        if ((tailEndNodeID != headEndNodeID) && (this.linksByNode.get(tailEndNodeID) != null)) {
+            removeSameLink(this.linksByNode.get(tailEndNodeID), link);
+            if (this.linksByNode.get(tailEndNodeID).isEmpty()) {
+                this.linksByNode.remove(tailEndNodeID);
             }
         }
-        // If there is a route to destination host, this step get the first hop
-        // of this route.
-        int nextHop = TTopology.TARGET_UNREACHABLE;
-        k = pathsMatrix[tmpOrigin][tmpDestination];
-        while (k != currentNumberOfNodes) {
-            nextHop = k;
-            k = pathsMatrix[tmpOrigin][k];
+    }
+
+    /**
+     * This method inserts a link in a list of links sorted by link ID, the
+     * same order links have in the set of links of the topology.
+     *
+     * @param sortedLinks the list of links.
+     * @param link the link to be inserted.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static void insertSortedByID(ArrayList<TLink> sortedLinks, TLink link) {
+        int position = sortedLinks.size();
+        while ((position > 0) && (sortedLinks.get(position - 1).getID() > link.getID())) {
+            position--;
         }
-        // We check wether there is not route to host or they are adjacents
-        if (nextHop == TTopology.TARGET_UNREACHABLE) {
-            TLink linkAux = this.getLinkThatJoins(originNodeID, targetNodeID);
-            if (linkAux != null) {
-                nextHop = targetNodeID;
+        sortedLinks.add(position, link);
+    }
+
+    /**
+     * This method checks whether a list of links contains the very same
+     * instance of a link, not only a link with the same ID.
+     *
+     * @param someLinks the list of links.
+     * @param link the link to be found.
+     * @return TRUE, if the instance is in the list. Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static boolean containsSameLink(ArrayList<TLink> someLinks, TLink link) {
+        for (TLink linkAux : someLinks) {
+            if (linkAux == link) {
+                return true;
             }
-        } else {
-            nextHop = equivalenceMatrix[nextHop];
         }
-        this.rabanAlgorithmLock.unLock();
-        return nextHop;
+        return false;
+    }
+
+    /**
+     * This method removes the very same instance of a link from a list of
+     * links.
+     *
+     * @param someLinks the list of links. It can be null.
+     * @param link the link to be removed.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static void removeSameLink(ArrayList<TLink> someLinks, TLink link) {
+        if (someLinks == null) {
+            return;
+        }
+        for (int i = 0; i < someLinks.size(); i++) {
+            if (someLinks.get(i) == link) {
+                someLinks.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * This method combines two node IDs in a single key that does not depend
+     * on the order of the nodes.
+     *
+     * @param node1ID the first node ID.
+     * @param node2ID the second node ID.
+     * @return a key that is the same for both orders of the node IDs.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private static long toUnorderedNodePairKey(int node1ID, int node2ID) {
+        return toNodePairKey(Math.min(node1ID, node2ID), Math.max(node1ID, node2ID));
     }
 
     public static final long INFINITE_WEIGHT = 9223372036854775806L;
-    public static final long VERY_HIGH_WEIGHT = (long) INFINITE_WEIGHT / 2;
+    public static final long VERY_HIGH_WEIGHT = INFINITE_WEIGHT / 2;
     public static final int TARGET_UNREACHABLE = -1;
+    public static final int FLOYD_WARSHALL_ROUTING = 0;
+    public static final int DIJKSTRA_ROUTING = 1;
 
-    private TreeSet nodes;
-    private TreeSet links;
+    private TreeSet<TNode> nodes;
+    private TreeSet<TLink> links;
     private TTimer timer;
     private TScenario parentScenario;
     private TLongIDGenerator eventIDGenerator;
@@ -1270,4 +1805,31 @@ public class TTopology {
     private TIPv4AddressGenerator ipv4AddressGenerator;
     private TLock floydWarshallAlgorithmLock;
     private TLock rabanAlgorithmLock;
+    private volatile boolean routingTableValid;
+    private int[] routingTableNodeIDs;
+    private HashMap<Integer, Integer> routingTableNodeIndexes;
+    private int[] routingTableFirstHops;
+    private long[] routingTableCosts;
+    private int parallelRoutingThreshold;
+    private HashSet<Long> routingTableAdjacentNodes;
+    private long routingTableComputations;
+    private long routingTableComputationTimeInNs;
+    private int routingAlgorithm;
+    private TDijkstraRoutingEngine dijkstraRoutingEngine;
+    private volatile boolean rabanAdjacencyValid;
+    private TLink[] rabanAdjacencyLinks;
+    private int[] rabanAdjacencyRows;
+    private int[] rabanAdjacencyColumns;
+    private long[][] rabanAdjacencyMatrix;
+    private int[] rabanFirstHops;
+    private long[] rabanCosts;
+    private HashMap<Long, ArrayList<TLink>> linksByNodePair;
+    private HashMap<Integer, ArrayList<TLink>> linksByNode;
+    private HashMap<Integer, Long> indexedLinkEnds;
+    private HashMap<Integer, TNode> nodesByID;
+    private HashMap<String, ArrayList<TNode>> nodesByIPv4Address;
+    private HashMap<String, ArrayList<TNode>> nodesByName;
+    private IdentityHashMap<TNode, Integer> indexedNodeIDs;
+    private IdentityHashMap<TNode, String> indexedNodeIPv4Addresses;
+    private IdentityHashMap<TNode, String> indexedNodeNames;
 }
@@ -16,11 +16,15 @@
 package com.manolodominguez.opensimmpls.scenario;
 
 import com.manolodominguez.opensimmpls.scenario.simulationevents.ESimulationSingleSubscriber;
+import com.manolodominguez.opensimmpls.scenario.simulationevents.ISimulationEventFactory;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.hardware.timer.TTimerEvent;
 import com.manolodominguez.opensimmpls.hardware.timer.ITimerEventListener;
+import com.manolodominguez.opensimmpls.hardware.timer.IExecutionEngine;
+import com.manolodominguez.opensimmpls.hardware.timer.TEventScheduler;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventListener;
 import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
+import com.manolodominguez.opensimmpls.commons.EIDGeneratorOverflow;
 
 /**
  * This is an abstract class that is the super class of all elements of a
@@ -45,6 +49,8 @@ public abstract class TTopologyElement implements ITimerEventListener, Runnable
         this.elementType = elementType;
         this.markForDeletionAsTimerEventListener = false;
         this.elementThread = null;
+        this.executionEngine = null;
+        this.eventScheduler = null;
         this.simulationEventsListener = null;
         this.eventIdentifierGenerator = eventIdentifierGenerator;
         this.availableNanoseconds = 0;
@@ -206,15 +212,106 @@ public abstract class TTopologyElement implements ITimerEventListener, Runnable
         }
     }
 
+    /**
+     * This method sets the execution engine that will run the work of this
+     * topology element on each timer tick. If no execution engine is set, the
+     * topology element runs in its own independent thread.
+     *
+     * @param executionEngine the execution engine that will run the work of
+     * this topology element, or NULL to use its own thread.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setExecutionEngine(IExecutionEngine executionEngine) {
+        this.executionEngine = executionEngine;
+    }
+
+    /**
+     * This method gets the execution engine that runs the work of this
+     * topology element on each timer tick.
+     *
+     * @return the execution engine that runs the work of this topology
+     * element, or NULL if it runs in its own thread.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public IExecutionEngine getExecutionEngine() {
+        return this.executionEngine;
+    }
+
+    /**
+     * This method sets the event scheduler of the timer when it works in
+     * event-driven mode. The topology element will use it to tell the timer
+     * when it has something to do.
+     *
+     * @param eventScheduler the event scheduler of the timer, or NULL if the
+     * timer works in time-driven mode.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void setEventScheduler(TEventScheduler eventScheduler) {
+        this.eventScheduler = eventScheduler;
+    }
+
+    /**
+     * This method gets the event scheduler of the timer when it works in
+     * event-driven mode.
+     *
+     * @return the event scheduler of the timer, or NULL if the timer works in
+     * time-driven mode.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TEventScheduler getEventScheduler() {
+        return this.eventScheduler;
+    }
+
+    /**
+     * This method asks the timer to wake up this topology element after the
+     * specified number of nanoseconds. It does nothing if the timer works in
+     * time-driven mode, because in that case the element is woken up on every
+     * tick.
+     *
+     * @param nanosecondsFromNow number of nanoseconds, from the current
+     * simulated instant, after which the element has to be woken up.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void scheduleEvent(long nanosecondsFromNow) {
+        TEventScheduler currentEventScheduler = this.eventScheduler;
+        if (currentEventScheduler != null) {
+            currentEventScheduler.scheduleAfter(this, nanosecondsFromNow);
+        }
+    }
+
+    /**
+     * This method computes how many nanoseconds have to elapse, from the
+     * current simulated instant, until this topology element has something
+     * to do again if nothing else happens in the meantime. Subclasses
+     * override it; by default the element never has pending work.
+     *
+     * @return the number of nanoseconds until the next pending event of this
+     * topology element, or TTopologyElement.NO_PENDING_EVENTS if there is not
+     * any.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public long getNanosecondsToNextEvent() {
+        return TTopologyElement.NO_PENDING_EVENTS;
+    }
+
     /**
      * This method starts the independent thread that governs the topology
-     * element.
+     * element or, if an execution engine has been set, hands the work of the
+     * topology element to that execution engine.
      *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      */
     public synchronized void startOperation() {
-        if (elementThread == null) {
+        if (this.executionEngine != null) {
+            this.executionEngine.execute(this);
+        } else if (elementThread == null) {
             elementThread = new Thread(this);
             this.elementThread.start();
         } else if (!elementThread.isAlive()) {
@@ -288,6 +385,53 @@ public abstract class TTopologyElement implements ITimerEventListener, Runnable
         }
     }
 
+    /**
+     * This method creates a simulation event of the specified subtype and
+     * sends it to the simulation event listener of this topology element,
+     * only if anybody is subscribed to simulation events of this subtype.
+     * Otherwise, neither the simulation event nor its identifier are created,
+     * so callers do not need to check isSubscribedTo() before calling it.
+     *
+     * @param simulationEventSubtype One of the simulation event subtypes
+     * defined in TSimulationEvent.
+     * @param simulationEventFactory the factory that creates the simulation
+     * event, given its identifier.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void generateSimulationEvent(int simulationEventSubtype, ISimulationEventFactory simulationEventFactory) {
+        TSimulationEventListener simulationEventsListenerAux = this.simulationEventsListener;
+        if ((simulationEventsListenerAux != null) && (simulationEventsListenerAux.isSubscribedTo(simulationEventSubtype))) {
+            try {
+                simulationEventsListenerAux.captureSimulationEvents(simulationEventFactory.createSimulationEvent(this.eventIdentifierGenerator.getNextIdentifier()));
+            } catch (EIDGeneratorOverflow e) {
+                // FIX: This is ugly
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * This method checks whether anybody is subscribed to simulation events of
+     * the specified subtype generated by this topology element. It allows
+     * skipping work that is only needed to build simulation events nobody is
+     * going to receive.
+     *
+     * @param simulationEventSubtype One of the simulation event subtypes
+     * defined in TSimulationEvent.
+     * @return TRUE, if simulation events of the specified subtype have to be
+     * generated. Otherwise, FALSE.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public boolean isSubscribedTo(int simulationEventSubtype) {
+        TSimulationEventListener simulationEventsListenerAux = this.simulationEventsListener;
+        if (simulationEventsListenerAux == null) {
+            return false;
+        }
+        return simulationEventsListenerAux.isSubscribedTo(simulationEventSubtype);
+    }
+
     /**
      * This is an abstract method that once implemented will check whether the
      * topology element is alive or not.
@@ -395,10 +539,13 @@ public abstract class TTopologyElement implements ITimerEventListener, Runnable
 
     public static final int LINK = 0;
     public static final int NODE = 1;
+    public static final long NO_PENDING_EVENTS = TEventScheduler.NO_PENDING_EVENTS;
 
     private int elementType;
     private boolean markForDeletionAsTimerEventListener;
     private Thread elementThread;
+    private IExecutionEngine executionEngine;
+    private TEventScheduler eventScheduler;
     public TSimulationEventListener simulationEventsListener;
     public TLongIDGenerator eventIdentifierGenerator;
     // FIX: put this attribute as private, not protected.
@@ -0,0 +1,114 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario;
+
+import java.util.ArrayList;
+
+/**
+ * This class implements a partition of the topology, that is, a region of
+ * nodes that is simulated by its own logical process in a partitioned
+ * simulation, together with the links that join nodes of the region.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTopologyPartition {
+
+    /**
+     * This method is the constructor of the class. It creates a new empty
+     * partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param partitionID the identifier of the partition.
+     * @since 2.0
+     */
+    public TTopologyPartition(int partitionID) {
+        this.partitionID = partitionID;
+        this.nodes = new ArrayList<>();
+        this.links = new ArrayList<>();
+    }
+
+    /**
+     * This method gets the identifier of the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the identifier of the partition.
+     * @since 2.0
+     */
+    public int getPartitionID() {
+        return this.partitionID;
+    }
+
+    /**
+     * This method adds a node to the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param node the node to be added.
+     * @since 2.0
+     */
+    public void addNode(TNode node) {
+        this.nodes.add(node);
+    }
+
+    /**
+     * This method adds to the partition a link whose both ends are nodes of
+     * the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param link the link to be added.
+     * @since 2.0
+     */
+    public void addLink(TLink link) {
+        this.links.add(link);
+    }
+
+    /**
+     * This method gets the nodes of the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the nodes of the partition.
+     * @since 2.0
+     */
+    public ArrayList<TNode> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * This method gets the links whose both ends are nodes of the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the links of the partition.
+     * @since 2.0
+     */
+    public ArrayList<TLink> getLinks() {
+        return this.links;
+    }
+
+    /**
+     * This method gets the number of nodes of the partition.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of nodes of the partition.
+     * @since 2.0
+     */
+    public int getNumberOfNodes() {
+        return this.nodes.size();
+    }
+
+    private final int partitionID;
+    private final ArrayList<TNode> nodes;
+    private final ArrayList<TLink> links;
+}
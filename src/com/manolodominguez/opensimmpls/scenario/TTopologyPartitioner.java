@@ -0,0 +1,330 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+
+/**
+ * This class implements an automatic partitioner of the topology for
+ * partitioned simulations. It splits nodes into a number of balanced regions
+ * trying to minimize the cost of the links that join different regions. The
+ * cost of cutting a link is inversely proportional to its delay, so links with
+ * high delay are preferred as cut links. This way, the minimum delay of the
+ * cut links, that is the lookahead that partitions can simulate without
+ * synchronizing, is as high as possible.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TTopologyPartitioner {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance
+     * of TTopologyPartitioner.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TTopologyPartitioner() {
+        this.partitions = new ArrayList<>();
+        this.cutLinks = new ArrayList<>();
+        this.minimumCutLinkDelay = TTopologyPartitioner.NO_CUT_LINKS;
+    }
+
+    /**
+     * This method splits the specified nodes into, at most, the specified
+     * number of partitions. First, nodes are clustered by joining them through
+     * the links with lowest delay, as long as clusters do not exceed the size
+     * of a balanced partition. Then, clusters are packed into partitions and,
+     * finally, nodes are moved between partitions while that reduces the cost
+     * of the cut links without unbalancing the partitions.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param nodes the nodes of the topology.
+     * @param links the links of the topology.
+     * @param numberOfPartitions the wanted number of partitions.
+     * @since 2.0
+     */
+    public void partition(Collection<TNode> nodes, Collection<TLink> links, int numberOfPartitions) {
+        this.partitions = new ArrayList<>();
+        this.cutLinks = new ArrayList<>();
+        this.minimumCutLinkDelay = TTopologyPartitioner.NO_CUT_LINKS;
+        ArrayList<TNode> nodesList = new ArrayList<>(nodes);
+        int numberOfNodes = nodesList.size();
+        if (numberOfNodes == 0) {
+            return;
+        }
+        int maxPartitions = Math.max(1, Math.min(numberOfPartitions, numberOfNodes));
+        int maxNodesPerPartition = (numberOfNodes + maxPartitions - 1) / maxPartitions;
+        IdentityHashMap<TNode, Integer> nodeIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < numberOfNodes; i++) {
+            nodeIndexes.put(nodesList.get(i), i);
+        }
+        ArrayList<TLink> linksList = new ArrayList<>();
+        for (TLink link : links) {
+            if (nodeIndexes.containsKey(link.getHeadEndNode()) && nodeIndexes.containsKey(link.getTailEndNode())) {
+                linksList.add(link);
+            }
+        }
+        linksList.sort((link1, link2) -> {
+            if (link1.getDelay() != link2.getDelay()) {
+                return Integer.compare(link1.getDelay(), link2.getDelay());
+            }
+            return Integer.compare(link1.getID(), link2.getID());
+        });
+        int[] headEnds = new int[linksList.size()];
+        int[] tailEnds = new int[linksList.size()];
+        for (int i = 0; i < linksList.size(); i++) {
+            headEnds[i] = nodeIndexes.get(linksList.get(i).getHeadEndNode());
+            tailEnds[i] = nodeIndexes.get(linksList.get(i).getTailEndNode());
+        }
+        int[] partitionOfNode = this.packClusters(this.clusterNodes(numberOfNodes, headEnds, tailEnds, maxNodesPerPartition), maxPartitions);
+        this.refinePartitions(partitionOfNode, linksList, headEnds, tailEnds, maxPartitions, maxNodesPerPartition);
+        // Partitions are built in the order of their first node, and empty
+        // ones are discarded.
+        int[] partitionIDs = new int[maxPartitions];
+        for (int i = 0; i < maxPartitions; i++) {
+            partitionIDs[i] = -1;
+        }
+        for (int i = 0; i < numberOfNodes; i++) {
+            int partition = partitionOfNode[i];
+            if (partitionIDs[partition] == -1) {
+                partitionIDs[partition] = this.partitions.size();
+                this.partitions.add(new TTopologyPartition(this.partitions.size()));
+            }
+            this.partitions.get(partitionIDs[partition]).addNode(nodesList.get(i));
+        }
+        for (int i = 0; i < linksList.size(); i++) {
+            TLink link = linksList.get(i);
+            if (partitionOfNode[headEnds[i]] == partitionOfNode[tailEnds[i]]) {
+                this.partitions.get(partitionIDs[partitionOfNode[headEnds[i]]]).addLink(link);
+            } else {
+                this.cutLinks.add(link);
+                this.minimumCutLinkDelay = Math.min(this.minimumCutLinkDelay, link.getDelay());
+            }
+        }
+    }
+
+    /**
+     * This method joins nodes into clusters through the links with lowest
+     * delay first. Links must be sorted by delay.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfNodes the number of nodes.
+     * @param headEnds the index of the head end node of each link.
+     * @param tailEnds the index of the tail end node of each link.
+     * @param maxNodesPerCluster the maximum size of a cluster.
+     * @return the clusters, as lists of node indexes.
+     * @since 2.0
+     */
+    private ArrayList<ArrayList<Integer>> clusterNodes(int numberOfNodes, int[] headEnds, int[] tailEnds, int maxNodesPerCluster) {
+        int[] parents = new int[numberOfNodes];
+        int[] clusterSizes = new int[numberOfNodes];
+        for (int i = 0; i < numberOfNodes; i++) {
+            parents[i] = i;
+            clusterSizes[i] = 1;
+        }
+        for (int i = 0; i < headEnds.length; i++) {
+            int headEndCluster = this.findCluster(parents, headEnds[i]);
+            int tailEndCluster = this.findCluster(parents, tailEnds[i]);
+            if ((headEndCluster != tailEndCluster) && ((clusterSizes[headEndCluster] + clusterSizes[tailEndCluster]) <= maxNodesPerCluster)) {
+                parents[tailEndCluster] = headEndCluster;
+                clusterSizes[headEndCluster] += clusterSizes[tailEndCluster];
+            }
+        }
+        LinkedHashMap<Integer, ArrayList<Integer>> clusters = new LinkedHashMap<>();
+        for (int i = 0; i < numberOfNodes; i++) {
+            int cluster = this.findCluster(parents, i);
+            if (!clusters.containsKey(cluster)) {
+                clusters.put(cluster, new ArrayList<>());
+            }
+            clusters.get(cluster).add(i);
+        }
+        return new ArrayList<>(clusters.values());
+    }
+
+    /**
+     * This method finds the cluster a node belongs to, compressing the path
+     * on the way.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param parents the parent of each node in the cluster tree.
+     * @param node the index of the node.
+     * @return the index of the node that represents the cluster.
+     * @since 2.0
+     */
+    private int findCluster(int[] parents, int node) {
+        int root = node;
+        while (parents[root] != root) {
+            root = parents[root];
+        }
+        while (parents[node] != root) {
+            int next = parents[node];
+            parents[node] = root;
+            node = next;
+        }
+        return root;
+    }
+
+    /**
+     * This method packs clusters into partitions, biggest clusters first and
+     * always into the partition with fewer nodes.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param clusters the clusters, as lists of node indexes.
+     * @param numberOfPartitions the number of partitions.
+     * @return the partition assigned to each node.
+     * @since 2.0
+     */
+    private int[] packClusters(ArrayList<ArrayList<Integer>> clusters, int numberOfPartitions) {
+        int numberOfNodes = 0;
+        for (ArrayList<Integer> cluster : clusters) {
+            numberOfNodes += cluster.size();
+        }
+        int[] partitionOfNode = new int[numberOfNodes];
+        int[] partitionSizes = new int[numberOfPartitions];
+        clusters.sort((cluster1, cluster2) -> Integer.compare(cluster2.size(), cluster1.size()));
+        for (ArrayList<Integer> cluster : clusters) {
+            int smallestPartition = 0;
+            for (int i = 1; i < numberOfPartitions; i++) {
+                if (partitionSizes[i] < partitionSizes[smallestPartition]) {
+                    smallestPartition = i;
+                }
+            }
+            for (int node : cluster) {
+                partitionOfNode[node] = smallestPartition;
+            }
+            partitionSizes[smallestPartition] += cluster.size();
+        }
+        return partitionOfNode;
+    }
+
+    /**
+     * This method moves nodes, one by one, to the neighbour partition they are
+     * most strongly connected to, as long as that reduces the cost of the cut
+     * links and the target partition is not full. The cost of cutting a link is
+     * the inverse of its delay.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param partitionOfNode the partition assigned to each node. It is
+     * updated by this method.
+     * @param links the links between nodes.
+     * @param headEnds the index of the head end node of each link.
+     * @param tailEnds the index of the tail end node of each link.
+     * @param numberOfPartitions the number of partitions.
+     * @param maxNodesPerPartition the maximum size of a partition.
+     * @since 2.0
+     */
+    private void refinePartitions(int[] partitionOfNode, ArrayList<TLink> links, int[] headEnds, int[] tailEnds, int numberOfPartitions, int maxNodesPerPartition) {
+        int numberOfNodes = partitionOfNode.length;
+        int[] partitionSizes = new int[numberOfPartitions];
+        ArrayList<ArrayList<Integer>> linksOfNode = new ArrayList<>();
+        for (int i = 0; i < numberOfNodes; i++) {
+            partitionSizes[partitionOfNode[i]]++;
+            linksOfNode.add(new ArrayList<>());
+        }
+        double[] cutCosts = new double[links.size()];
+        for (int i = 0; i < links.size(); i++) {
+            cutCosts[i] = 1.0 / Math.max(1, links.get(i).getDelay());
+            linksOfNode.get(headEnds[i]).add(i);
+            linksOfNode.get(tailEnds[i]).add(i);
+        }
+        double[] connectivity = new double[numberOfPartitions];
+        boolean improved = true;
+        int pass = 0;
+        while ((improved) && (pass < TTopologyPartitioner.MAX_REFINEMENT_PASSES)) {
+            improved = false;
+            pass++;
+            for (int node = 0; node < numberOfNodes; node++) {
+                int currentPartition = partitionOfNode[node];
+                if (partitionSizes[currentPartition] <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < numberOfPartitions; i++) {
+                    connectivity[i] = 0;
+                }
+                for (int link : linksOfNode.get(node)) {
+                    int neighbour = (headEnds[link] == node) ? tailEnds[link] : headEnds[link];
+                    connectivity[partitionOfNode[neighbour]] += cutCosts[link];
+                }
+                int bestPartition = currentPartition;
+                double bestGain = 0;
+                for (int i = 0; i < numberOfPartitions; i++) {
+                    if ((i != currentPartition) && (partitionSizes[i] < maxNodesPerPartition)) {
+                        double gain = connectivity[i] - connectivity[currentPartition];
+                        if (gain > bestGain) {
+                            bestGain = gain;
+                            bestPartition = i;
+                        }
+                    }
+                }
+                if (bestPartition != currentPartition) {
+                    partitionOfNode[node] = bestPartition;
+                    partitionSizes[currentPartition]--;
+                    partitionSizes[bestPartition]++;
+                    improved = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * This method gets the partitions computed by the last call to
+     * partition().
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the partitions of the topology.
+     * @since 2.0
+     */
+    public ArrayList<TTopologyPartition> getPartitions() {
+        return this.partitions;
+    }
+
+    /**
+     * This method gets the links that join nodes of different partitions.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the cut links.
+     * @since 2.0
+     */
+    public ArrayList<TLink> getCutLinks() {
+        return this.cutLinks;
+    }
+
+    /**
+     * This method gets the minimum delay of the links that join nodes of
+     * different partitions. This is the lookahead of the partitioned
+     * simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the minimum delay of the cut links, in nanoseconds, or
+     * TTopologyPartitioner.NO_CUT_LINKS if there are no cut links.
+     * @since 2.0
+     */
+    public long getMinimumCutLinkDelay() {
+        return this.minimumCutLinkDelay;
+    }
+
+    public static final long NO_CUT_LINKS = Long.MAX_VALUE;
+    private static final int MAX_REFINEMENT_PASSES = 10;
+
+    private ArrayList<TTopologyPartition> partitions;
+    private ArrayList<TLink> cutLinks;
+    private long minimumCutLinkDelay;
+}
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketSent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketGenerated;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketDiscarded;
@@ -72,6 +73,8 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
         this.sendingLabel = (16 + randomNumberGenerator.nextInt(1000000));
         this.constantPayloadSizeInBytes = 0;
         this.variablePayloadSizeInBytes = 0;
+        this.nextPacketTotalSizeInBytes = 0;
+        this.reproducible = false;
         this.stats = new TTrafficGeneratorStats();
         // FIX: This method is overridable. Avoid using this method to update
         // the number of ports or make it final.
@@ -338,18 +341,14 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
     @Override
     public void run() {
         // Actions to be done during the timer tick.
-        try {
-            this.generateSimulationEvent(new TSimulationEventNodeCongested(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), 0));
-        } catch (Exception e) {
-            // FIX: this is not a good practice. Avoid.
-            e.printStackTrace();
-        }
+        this.generateSimulationEvent(TSimulationEvent.NODE_CONGESTED, eventID -> new TSimulationEventNodeCongested(this, eventID, this.getCurrentTimeInstant(), 0));
         TAbstractPDU packetAux = createEmptyPacket();
         boolean aPacketWasGenerated = false;
         while (getMaxTransmittableOctetsWithCurrentAvailableNs() > getNextPacketTotalSizeInBytes(packetAux)) {
             aPacketWasGenerated = true;
             generateAndSendPacket();
         }
+        this.nextPacketTotalSizeInBytes = getNextPacketTotalSizeInBytes(packetAux);
         packetAux = null;
         if (aPacketWasGenerated) {
             this.resetTicksWithoutEmitting();
@@ -444,8 +443,10 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
                             TIPv4PDU ipv4Packet = (TIPv4PDU) packetWithPayload;
                             packetType = ipv4Packet.getSubtype();
                         }
-                        this.generateSimulationEvent(new TSimulationEventPacketGenerated(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packetType, packetWithPayload.getSize()));
-                        this.generateSimulationEvent(new TSimulationEventPacketSent(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packetType));
+                        final int generatedPacketType = packetType;
+                        final int generatedPacketSize = packetWithPayload.getSize();
+                        this.generateSimulationEvent(TSimulationEvent.PACKET_GENERATED, eventID -> new TSimulationEventPacketGenerated(this, eventID, this.getCurrentTimeInstant(), generatedPacketType, generatedPacketSize));
+                        this.generateSimulationEvent(TSimulationEvent.PACKET_SENT, eventID -> new TSimulationEventPacketSent(this, eventID, this.getCurrentTimeInstant(), generatedPacketType));
                     } catch (Exception e) {
                         // FIX: this is not a good practice. Avoid.
                         e.printStackTrace();
@@ -707,13 +708,12 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
     @Override
     public void discardPacket(TAbstractPDU packet) {
         try {
-            this.generateSimulationEvent(new TSimulationEventPacketDiscarded(this, this.eventIdentifierGenerator.getNextIdentifier(), this.getCurrentTimeInstant(), packet.getSubtype()));
+            this.generateSimulationEvent(TSimulationEvent.PACKET_DISCARDED, eventID -> new TSimulationEventPacketDiscarded(this, eventID, this.getCurrentTimeInstant(), packet.getSubtype()));
             this.stats.addStatEntry(packet, TStats.BEING_DISCARDED);
         } catch (Exception e) {
             // FIX: This is ugly. Avoid.
             e.printStackTrace();
         }
-        packet = null;
     }
 
     /**
@@ -728,6 +728,33 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
         return this.ports.hasAvailablePorts();
     }
 
+    /**
+     * This method computes how many nanoseconds have to elapse until this
+     * sender node has accumulated enough time to generate its next packet.
+     *
+     * @return the number of nanoseconds until the next packet can be
+     * generated, or TTopologyElement.NO_PENDING_EVENTS if this sender node
+     * cannot generate traffic.
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public long getNanosecondsToNextEvent() {
+        // FIX: avoid using harcoded values. Use class constants instead.
+        TPort port = this.ports.getPort(0);
+        if ((port == null) || (port.isAvailable()) || (this.trafficGenerationRate <= 0)) {
+            return TTopologyElement.NO_PENDING_EVENTS;
+        }
+        // A packet is generated when the number of transmittable octets is
+        // strictly greater than the size of the next packet.
+        double requiredNs = getNsRequiredForAllOctets(this.nextPacketTotalSizeInBytes + 1);
+        long nanosecondsToNextEvent = (long) Math.ceil(requiredNs - this.availableNanoseconds);
+        if (nanosecondsToNextEvent < 0) {
+            nanosecondsToNextEvent = 0;
+        }
+        return nanosecondsToNextEvent;
+    }
+
     /**
      * This gets the ports set of this node.
      *
@@ -941,6 +968,41 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
         this.stats.reset();
         this.stats.setStatsEnabled(this.isGeneratingStats());
         this.resetTicksWithoutEmitting();
+        this.nextPacketTotalSizeInBytes = 0;
+        if (this.reproducible) {
+            this.randomNumberGenerator.setSeed(this.getNodeID());
+        }
+    }
+
+    /**
+     * This method sets whether the variable traffic of this node has to be the
+     * same on every simulation or not. If so, the random number generator of
+     * the node is seeded with the node identifier each time the node is
+     * reset.
+     *
+     * @param reproducible TRUE, if the generated traffic has to be the same on
+     * every simulation. Otherwise, FALSE.
+     * @since 2.0
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     */
+    public void setReproducible(boolean reproducible) {
+        if ((reproducible) && (!this.reproducible)) {
+            this.randomNumberGenerator.setSeed(this.getNodeID());
+        }
+        this.reproducible = reproducible;
+    }
+
+    /**
+     * This method checks whether the variable traffic of this node is the same
+     * on every simulation or not.
+     *
+     * @return TRUE, if the generated traffic is the same on every simulation.
+     * Otherwise, FALSE.
+     * @since 2.0
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     */
+    public boolean isReproducible() {
+        return this.reproducible;
     }
 
     /**
@@ -987,10 +1049,12 @@ public class TTrafficGeneratorNode extends TNode implements ITimerEventListener,
     private int gosLevel;
     private boolean requestBackupLSP;
     private Random randomNumberGenerator;
+    private boolean reproducible;
     private int sendingLabel;
     private TRotaryIDGenerator packetGoSdentifierGenerator;
     private int constantPayloadSizeInBytes;
     private int variablePayloadSizeInBytes;
+    private int nextPacketTotalSizeInBytes;
     private TLongIDGenerator packetIdentifierGenerator;
 
     public TTrafficGeneratorStats stats;
@@ -15,6 +15,7 @@
  */
 package com.manolodominguez.opensimmpls.scenario;
 
+import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEvent;
 import com.manolodominguez.opensimmpls.scenario.simulationevents.TSimulationEventPacketReceived;
 import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
 import com.manolodominguez.opensimmpls.protocols.TMPLSPDU;
@@ -126,20 +127,25 @@ public class TTrafficSinkNode extends TNode implements ITimerEventListener, Runn
         TAbstractPDU incomingPacket = null;
         TSimulationEventPacketReceived packetReceivedEvent = null;
         if (incomingPort != null) {
+            boolean packetReceivedEventSubscribed = this.isSubscribedTo(TSimulationEvent.PACKET_RECEIVED);
             while (incomingPort.thereIsAPacketWaiting()) {
                 incomingPacket = incomingPort.getPacket();
-                try {
-                    eventID = this.eventIdentifierGenerator.getNextIdentifier();
-                } catch (Exception e) {
-                    // FIX: This is ugly
-                    e.printStackTrace();
+                if (packetReceivedEventSubscribed) {
+                    try {
+                        eventID = this.eventIdentifierGenerator.getNextIdentifier();
+                    } catch (Exception e) {
+                        // FIX: This is ugly
+                        e.printStackTrace();
+                    }
                 }
                 // FIX: The following line has no effects as the method called
                 // does nothing. Check whether it is needed or not. If needed, 
                 // do not use harcoded values. Use class constants instead.
                 this.accountPacket(incomingPacket, true);
-                packetReceivedEvent = new TSimulationEventPacketReceived(this, eventID, this.getCurrentTimeInstant(), eventType, incomingPacket.getSize());
-                this.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+                if (packetReceivedEventSubscribed) {
+                    packetReceivedEvent = new TSimulationEventPacketReceived(this, eventID, this.getCurrentTimeInstant(), eventType, incomingPacket.getSize());
+                    this.simulationEventsListener.captureSimulationEvents(packetReceivedEvent);
+                }
                 incomingPacket = null;
             }
         }
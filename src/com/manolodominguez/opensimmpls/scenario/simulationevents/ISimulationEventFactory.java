@@ -0,0 +1,38 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario.simulationevents;
+
+/**
+ * This interface has to be implemented by classes that create simulation
+ * events on behalf of a topology element. It allows topology elements to
+ * defer the construction of a simulation event until they know somebody is
+ * subscribed to it.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public interface ISimulationEventFactory {
+
+    /**
+     * This method, when implemented, will create a simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     * @param eventID The identifier of the simulation event.
+     * @return The simulation event.
+     */
+    public TSimulationEvent createSimulationEvent(long eventID);
+}
@@ -34,4 +34,18 @@ public interface ISimulationEventListener extends EventListener {
      * @param simulationEvent The simulation event received.
      */
     public void captureSimulationEvents(TSimulationEvent simulationEvent);
+
+    /**
+     * This method, when implemented, will return the subtypes of the
+     * simulation events the listener wants to receive, as a bit mask where
+     * each subtype is represented by the bit returned by
+     * TSimulationEvent.getSubscriptionMask(). Topology elements check it
+     * before constructing simulation events, so events nobody is subscribed
+     * to are never created.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     * @return The bit mask of subscribed simulation event subtypes.
+     */
+    public long getSubscribedSimulationEvents();
 }
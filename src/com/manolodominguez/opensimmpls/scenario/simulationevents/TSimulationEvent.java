@@ -122,6 +122,20 @@ public abstract class TSimulationEvent extends TOpenSimMPLSEvent {
         return (TTopologyElement) super.source;
     }
 
+    /**
+     * This method gets the bit that represents the specified simulation event
+     * subtype in a subscription mask.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subtype One of the simulation event subtypes defined in this
+     * class.
+     * @return The bit mask that contains only the specified subtype.
+     * @since 2.0
+     */
+    public static long getSubscriptionMask(int subtype) {
+        return 1L << subtype;
+    }
+
     public static final int PACKET_GENERATED = 0;
     public static final int PACKET_SENT = 1;
     public static final int PACKET_RECEIVED = 2;
@@ -154,4 +168,10 @@ public abstract class TSimulationEvent extends TOpenSimMPLSEvent {
     public static final int RETRANSMISSION_RESPONSED_DENIED = 28;
     public static final int RETRANSMISSION_RECEIVED = 29;
     public static final int PACKET_ROUTED = 30;
+    public static final int PACKETS_AGGREGATED = 31;
+
+    public static final long NO_SIMULATION_EVENTS = 0L;
+    public static final long ALL_SIMULATION_EVENTS = -1L;
+    public static final long ANIMATION_SIMULATION_EVENTS = 1L << PACKET_ON_FLY;
+    public static final long PACKET_SIMULATION_EVENTS = (1L << PACKET_GENERATED) | (1L << PACKET_SENT) | (1L << PACKET_RECEIVED) | (1L << PACKET_SWITCHED) | (1L << PACKET_DISCARDED) | (1L << PACKET_ON_FLY) | (1L << PACKET_ROUTED);
 }
@@ -0,0 +1,390 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario.simulationevents;
+
+import com.manolodominguez.opensimmpls.commons.EIDGeneratorOverflow;
+import com.manolodominguez.opensimmpls.commons.TLongIDGenerator;
+import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * This class implements a stage that sits between the topology elements and
+ * another simulation event listener and collapses per-packet simulation events
+ * into per-tick, per-element and per-packet-type counters. Counters are kept
+ * by the instant of the simulation events they account, so a simulation event
+ * that arrives late, as usual in partitioned mode, is summarized with its own
+ * instant. When the simulation moves to a later tick, the counters of every
+ * previous instant are delivered to the next listener as
+ * TSimulationEventPacketsAggregated events. The rest of
+ * simulation events are delivered as they are received. This way, a topology
+ * with thousands of nodes produces, at most, one summary per element, subtype
+ * and packet type each tick, instead of one simulation event per packet.
+ *
+ * Simulation threads do not share a single lock: counters are split into
+ * stripes, every topology element always being accounted in the same stripe,
+ * and each stripe has its own lock. Only the thread that moves the
+ * aggregator to a later tick locks every stripe, to deliver the summaries of
+ * the previous ones.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TSimulationEventAggregator implements ISimulationEventListener {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSimulationEventAggregator.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventListener the listener that will receive the
+     * summaries and the rest of simulation events. Per-packet simulation
+     * events are aggregated only if it is subscribed to
+     * TSimulationEvent.PACKETS_AGGREGATED; otherwise they are delivered as
+     * they are received.
+     * @since 2.0
+     */
+    public TSimulationEventAggregator(ISimulationEventListener simulationEventListener) {
+        this.simulationEventListener = simulationEventListener;
+        int numberOfStripesAux = 1;
+        while (numberOfStripesAux < (Runtime.getRuntime().availableProcessors() * TSimulationEventAggregator.STRIPES_PER_PROCESSOR)) {
+            numberOfStripesAux <<= 1;
+        }
+        this.stripeMask = numberOfStripesAux - 1;
+        this.countersByStripe = new ArrayList<>();
+        this.lastCountersByStripe = new ArrayList<>();
+        this.freeCountersByStripe = new ArrayList<>();
+        this.freeCountersByElementByStripe = new ArrayList<>();
+        for (int stripe = 0; stripe < numberOfStripesAux; stripe++) {
+            this.countersByStripe.add(new TreeMap<>());
+            this.lastCountersByStripe.add(null);
+            this.freeCountersByStripe.add(new ArrayList<>());
+            this.freeCountersByElementByStripe.add(new ArrayList<>());
+        }
+        this.lastInstantByStripe = new long[numberOfStripesAux];
+        this.numberOfAggregatedSimulationEventsByStripe = new long[numberOfStripesAux];
+        this.eventIdentifierGenerator = new TLongIDGenerator();
+        this.currentInstant = TSimulationEventAggregator.NO_INSTANT;
+        this.numberOfGeneratedSummaries = 0;
+    }
+
+    /**
+     * This method captures a simulation event. If it is a per-packet
+     * simulation event, the corresponding counter of its instant is
+     * increased; otherwise, it is delivered to the next listener. Simulation
+     * events that arrive late, with an instant previous to the current tick,
+     * are accounted with their own instant and delivered when the simulation
+     * moves to a later tick or the aggregator is flushed. It may be called
+     * concurrently from several simulation threads; only the stripe of the
+     * source element is locked, unless the simulation event belongs to a
+     * later tick.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent The simulation event received.
+     * @since 2.0
+     */
+    @Override
+    public void captureSimulationEvents(TSimulationEvent simulationEvent) {
+        long instant = simulationEvent.getInstant();
+        if (instant > this.currentInstant) {
+            synchronized (this) {
+                if (instant > this.currentInstant) {
+                    this.flushTicksBefore(instant);
+                    this.currentInstant = instant;
+                }
+            }
+        }
+        long subscribedSimulationEvents = this.simulationEventListener.getSubscribedSimulationEvents();
+        int counterIndex = TSimulationEventAggregator.NO_COUNTER;
+        if ((subscribedSimulationEvents & TSimulationEvent.getSubscriptionMask(TSimulationEvent.PACKETS_AGGREGATED)) != 0) {
+            counterIndex = getCounterIndex(simulationEvent);
+        }
+        if (counterIndex == TSimulationEventAggregator.NO_COUNTER) {
+            if ((subscribedSimulationEvents & TSimulationEvent.getSubscriptionMask(simulationEvent.getSubtype())) != 0) {
+                this.simulationEventListener.captureSimulationEvents(simulationEvent);
+            }
+            return;
+        }
+        TTopologyElement source = simulationEvent.getSource();
+        int stripe = this.getStripe(source);
+        TreeMap<Long, LinkedHashMap<TTopologyElement, long[]>> countersByInstant = this.countersByStripe.get(stripe);
+        synchronized (countersByInstant) {
+            LinkedHashMap<TTopologyElement, long[]> countersByElement = this.lastCountersByStripe.get(stripe);
+            if ((countersByElement == null) || (this.lastInstantByStripe[stripe] != instant)) {
+                countersByElement = countersByInstant.get(instant);
+                if (countersByElement == null) {
+                    ArrayList<LinkedHashMap<TTopologyElement, long[]>> freeCountersByElement = this.freeCountersByElementByStripe.get(stripe);
+                    if (freeCountersByElement.isEmpty()) {
+                        countersByElement = new LinkedHashMap<>();
+                    } else {
+                        countersByElement = freeCountersByElement.remove(freeCountersByElement.size() - 1);
+                    }
+                    countersByInstant.put(instant, countersByElement);
+                }
+                this.lastCountersByStripe.set(stripe, countersByElement);
+                this.lastInstantByStripe[stripe] = instant;
+            }
+            long[] counters = countersByElement.get(source);
+            if (counters == null) {
+                ArrayList<long[]> freeCounters = this.freeCountersByStripe.get(stripe);
+                if (freeCounters.isEmpty()) {
+                    counters = new long[TSimulationEventAggregator.NUMBER_OF_COUNTERS];
+                } else {
+                    counters = freeCounters.remove(freeCounters.size() - 1);
+                }
+                countersByElement.put(source, counters);
+            }
+            counters[counterIndex]++;
+            this.numberOfAggregatedSimulationEventsByStripe[stripe]++;
+        }
+    }
+
+    /**
+     * This method delivers to the next listener the summaries of the current
+     * tick and of any simulation event that arrived late, without waiting for
+     * a simulation event of a later tick. It should be called when the
+     * simulation finishes.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void flush() {
+        this.flushTicksBefore(TSimulationEventAggregator.NO_INSTANT_LIMIT);
+    }
+
+    /**
+     * This method returns the subtypes of the simulation events this
+     * aggregator wants to receive. They are the same the next listener is
+     * subscribed to, so per-packet simulation events are aggregated only for
+     * the subtypes the next listener wants to know about.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The bit mask of subscribed simulation event subtypes.
+     * @since 2.0
+     */
+    @Override
+    public long getSubscribedSimulationEvents() {
+        return this.simulationEventListener.getSubscribedSimulationEvents();
+    }
+
+    /**
+     * This method gets the number of per-packet simulation events that have
+     * been aggregated since this instance was created or reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of per-packet simulation events aggregated.
+     * @since 2.0
+     */
+    public long getNumberOfAggregatedSimulationEvents() {
+        long numberOfAggregatedSimulationEvents = 0;
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            synchronized (this.countersByStripe.get(stripe)) {
+                numberOfAggregatedSimulationEvents += this.numberOfAggregatedSimulationEventsByStripe[stripe];
+            }
+        }
+        return numberOfAggregatedSimulationEvents;
+    }
+
+    /**
+     * This method gets the number of summaries that have been delivered to
+     * the next listener since this instance was created or reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of TSimulationEventPacketsAggregated events delivered.
+     * @since 2.0
+     */
+    public synchronized long getNumberOfGeneratedSummaries() {
+        return this.numberOfGeneratedSummaries;
+    }
+
+    /**
+     * This method reset to value of the class attributes to their original
+     * values, as when created by the constructor. Counters not delivered yet
+     * are discarded.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void reset() {
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            synchronized (this.countersByStripe.get(stripe)) {
+                this.countersByStripe.get(stripe).clear();
+                this.lastCountersByStripe.set(stripe, null);
+                this.numberOfAggregatedSimulationEventsByStripe[stripe] = 0;
+            }
+        }
+        this.eventIdentifierGenerator.reset();
+        this.currentInstant = TSimulationEventAggregator.NO_INSTANT;
+        this.numberOfGeneratedSummaries = 0;
+    }
+
+    /**
+     * This method delivers to the next listener a summary for every non zero
+     * counter of every instant previous to the specified one. The arrays of
+     * counters are kept to be reused in the following ticks. It must be called
+     * holding the lock of this instance.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param instantLimit the first instant whose counters are not delivered.
+     * @since 2.0
+     */
+    private void flushTicksBefore(long instantLimit) {
+        for (int stripe = 0; stripe <= this.stripeMask; stripe++) {
+            synchronized (this.countersByStripe.get(stripe)) {
+                this.flushTicksBefore(stripe, instantLimit);
+            }
+        }
+    }
+
+    /**
+     * This method delivers to the next listener a summary for every non zero
+     * counter of every instant previous to the specified one accounted in the
+     * specified stripe, and keeps the arrays of counters to be reused. It must
+     * be called holding the lock of this instance and the lock of the stripe.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param stripe the stripe whose counters are delivered.
+     * @param instantLimit the first instant whose counters are not delivered.
+     * @since 2.0
+     */
+    private void flushTicksBefore(int stripe, long instantLimit) {
+        TreeMap<Long, LinkedHashMap<TTopologyElement, long[]>> countersByInstant = this.countersByStripe.get(stripe);
+        ArrayList<long[]> freeCounters = this.freeCountersByStripe.get(stripe);
+        Iterator<Map.Entry<Long, LinkedHashMap<TTopologyElement, long[]>>> instantsIterator = countersByInstant.headMap(instantLimit).entrySet().iterator();
+        while (instantsIterator.hasNext()) {
+            Map.Entry<Long, LinkedHashMap<TTopologyElement, long[]>> countersOfInstant = instantsIterator.next();
+            long instant = countersOfInstant.getKey();
+            LinkedHashMap<TTopologyElement, long[]> countersByElement = countersOfInstant.getValue();
+            for (Map.Entry<TTopologyElement, long[]> countersOfElement : countersByElement.entrySet()) {
+                long[] counters = countersOfElement.getValue();
+                for (int counterIndex = 0; counterIndex < TSimulationEventAggregator.NUMBER_OF_COUNTERS; counterIndex++) {
+                    if (counters[counterIndex] != 0) {
+                        int aggregatedSubtype = TSimulationEventAggregator.AGGREGATED_SUBTYPES[counterIndex / TSimulationEventAggregator.NUMBER_OF_PACKET_TYPES];
+                        int packetType = counterIndex % TSimulationEventAggregator.NUMBER_OF_PACKET_TYPES;
+                        try {
+                            this.simulationEventListener.captureSimulationEvents(new TSimulationEventPacketsAggregated(countersOfElement.getKey(), this.eventIdentifierGenerator.getNextIdentifier(), instant, aggregatedSubtype, packetType, counters[counterIndex]));
+                            this.numberOfGeneratedSummaries++;
+                        } catch (EIDGeneratorOverflow e) {
+                            // FIX: This is ugly
+                            e.printStackTrace();
+                        }
+                        counters[counterIndex] = 0;
+                    }
+                }
+                freeCounters.add(counters);
+            }
+            countersByElement.clear();
+            this.freeCountersByElementByStripe.get(stripe).add(countersByElement);
+            if (countersByElement == this.lastCountersByStripe.get(stripe)) {
+                this.lastCountersByStripe.set(stripe, null);
+            }
+            instantsIterator.remove();
+        }
+    }
+
+    /**
+     * This method gets the stripe where the counters of a topology element are
+     * accounted. Every simulation event of the same element is accounted in
+     * the same stripe.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param element the topology element.
+     * @return the stripe where the counters of the element are accounted.
+     * @since 2.0
+     */
+    private int getStripe(TTopologyElement element) {
+        int hash = element.hashCode();
+        return (hash ^ (hash >>> 16)) & this.stripeMask;
+    }
+
+    /**
+     * This method gets the position, in the array of counters of an element,
+     * of the counter that accounts the specified simulation event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent the simulation event.
+     * @return the position of the counter, or
+     * TSimulationEventAggregator.NO_COUNTER if the simulation event is not a
+     * per-packet simulation event and has to be delivered as is.
+     * @since 2.0
+     */
+    private int getCounterIndex(TSimulationEvent simulationEvent) {
+        int packetType = TSimulationEventAggregator.NO_COUNTER;
+        switch (simulationEvent.getSubtype()) {
+            case TSimulationEvent.PACKET_GENERATED: {
+                packetType = ((TSimulationEventPacketGenerated) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_SENT: {
+                packetType = ((TSimulationEventPacketSent) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_RECEIVED: {
+                packetType = ((TSimulationEventPacketReceived) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_SWITCHED: {
+                packetType = ((TSimulationEventPacketSwitched) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_DISCARDED: {
+                packetType = ((TSimulationEventPacketDiscarded) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_ON_FLY: {
+                packetType = ((TSimulationEventPacketOnFly) simulationEvent).getPacketType();
+                break;
+            }
+            case TSimulationEvent.PACKET_ROUTED: {
+                packetType = ((TSimulationEventPacketRouted) simulationEvent).getPacketType();
+                break;
+            }
+        }
+        if ((packetType < 0) || (packetType >= TSimulationEventAggregator.NUMBER_OF_PACKET_TYPES)) {
+            return TSimulationEventAggregator.NO_COUNTER;
+        }
+        for (int i = 0; i < TSimulationEventAggregator.AGGREGATED_SUBTYPES.length; i++) {
+            if (TSimulationEventAggregator.AGGREGATED_SUBTYPES[i] == simulationEvent.getSubtype()) {
+                return (i * TSimulationEventAggregator.NUMBER_OF_PACKET_TYPES) + packetType;
+            }
+        }
+        return TSimulationEventAggregator.NO_COUNTER;
+    }
+
+    private static final long NO_INSTANT = Long.MIN_VALUE;
+    private static final long NO_INSTANT_LIMIT = Long.MAX_VALUE;
+    private static final int NO_COUNTER = -1;
+    private static final int[] AGGREGATED_SUBTYPES = {TSimulationEvent.PACKET_GENERATED, TSimulationEvent.PACKET_SENT, TSimulationEvent.PACKET_RECEIVED, TSimulationEvent.PACKET_SWITCHED, TSimulationEvent.PACKET_DISCARDED, TSimulationEvent.PACKET_ON_FLY, TSimulationEvent.PACKET_ROUTED};
+    private static final int NUMBER_OF_PACKET_TYPES = TAbstractPDU.RLPRP + 1;
+    private static final int NUMBER_OF_COUNTERS = AGGREGATED_SUBTYPES.length * NUMBER_OF_PACKET_TYPES;
+    private static final int STRIPES_PER_PROCESSOR = 4;
+
+    private final ISimulationEventListener simulationEventListener;
+    private final int stripeMask;
+    private final ArrayList<TreeMap<Long, LinkedHashMap<TTopologyElement, long[]>>> countersByStripe;
+    private final ArrayList<LinkedHashMap<TTopologyElement, long[]>> lastCountersByStripe;
+    private final long[] lastInstantByStripe;
+    private final ArrayList<ArrayList<long[]>> freeCountersByStripe;
+    private final ArrayList<ArrayList<LinkedHashMap<TTopologyElement, long[]>>> freeCountersByElementByStripe;
+    private final long[] numberOfAggregatedSimulationEventsByStripe;
+    private final TLongIDGenerator eventIdentifierGenerator;
+    private volatile long currentInstant;
+    private long numberOfGeneratedSummaries;
+}
@@ -0,0 +1,448 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario.simulationevents;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This class implements a bounded event bus that decouples the threads that
+ * generate simulation events from the one that displays them. Simulation
+ * events are published in a preallocated ring buffer by any number of
+ * producers, that claim a sequence number and never block: if the ring buffer
+ * is full, the simulation event is dropped. A single consumer thread reads
+ * simulation events in sequence order, applies the overflow policy when it is
+ * behind the simulation and delivers them to a simulation event listener,
+ * waiting the configured visualization time each time a new tick is
+ * delivered. When the consumer is behind the simulation, FALL_BEHIND_POLICY
+ * still displays every tick, DROP_POLICY skips the ticks in between and
+ * COALESCE_POLICY skips them but merges their simulation events, except
+ * packets on fly, into the next displayed tick.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TSimulationEventBus implements Runnable {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSimulationEventBus with the default capacity and the coalesce policy.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventConsumer the simulation event listener that will
+     * receive, from the consumer thread, the simulation events published in
+     * the bus.
+     * @since 2.0
+     */
+    public TSimulationEventBus(ISimulationEventListener simulationEventConsumer) {
+        this(simulationEventConsumer, TSimulationEventBus.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSimulationEventBus with the coalesce policy.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventConsumer the simulation event listener that will
+     * receive, from the consumer thread, the simulation events published in
+     * the bus.
+     * @param capacity the maximum number of simulation events that can be
+     * waiting in the bus. It is rounded up to a power of two.
+     * @since 2.0
+     */
+    public TSimulationEventBus(ISimulationEventListener simulationEventConsumer, int capacity) {
+        int capacityAux = MINIMUM_CAPACITY;
+        while (capacityAux < capacity) {
+            capacityAux <<= 1;
+        }
+        this.simulationEventConsumer = simulationEventConsumer;
+        this.capacity = capacityAux;
+        this.sequenceMask = capacityAux - 1;
+        this.ringBuffer = new TSimulationEvent[capacityAux];
+        this.publishedSequences = new AtomicLongArray(capacityAux);
+        for (int i = 0; i < capacityAux; i++) {
+            this.publishedSequences.set(i, NO_SEQUENCE);
+        }
+        this.drainedSimulationEvents = new TSimulationEvent[capacityAux];
+        this.claimedSequence = new AtomicLong(0);
+        this.consumedSequence = 0;
+        this.droppedSimulationEvents = new AtomicLong(0);
+        this.overflowPolicy = TSimulationEventBus.COALESCE_POLICY;
+        this.visualizationSpeedInMsPerTick = 0;
+        this.lastDeliveredInstant = NO_INSTANT;
+        this.clearRequested = false;
+        this.running = false;
+        this.consumerThread = null;
+    }
+
+    /**
+     * This method starts the consumer thread, if it is not already running.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void start() {
+        if (this.consumerThread == null) {
+            this.running = true;
+            this.consumerThread = new Thread(this);
+            this.consumerThread.setDaemon(true);
+            this.consumerThread.start();
+        }
+    }
+
+    /**
+     * This method stops the consumer thread. Simulation events that are still
+     * waiting in the bus are not delivered.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void stop() {
+        if (this.consumerThread != null) {
+            this.running = false;
+            LockSupport.unpark(this.consumerThread);
+            this.consumerThread = null;
+        }
+    }
+
+    /**
+     * This method publishes a simulation event in the bus. It can be called
+     * concurrently from any number of threads and never blocks.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent the simulation event to be published.
+     * @return TRUE, if the simulation event has been published. FALSE, if it
+     * has been dropped because the bus is full.
+     * @since 2.0
+     */
+    public boolean publish(TSimulationEvent simulationEvent) {
+        long sequence;
+        do {
+            sequence = this.claimedSequence.get();
+            if ((sequence - this.consumedSequence) >= this.capacity) {
+                this.droppedSimulationEvents.incrementAndGet();
+                return false;
+            }
+        } while (!this.claimedSequence.compareAndSet(sequence, sequence + 1));
+        int slot = (int) (sequence & this.sequenceMask);
+        this.ringBuffer[slot] = simulationEvent;
+        // The volatile write of the sequence makes the simulation event
+        // visible to the consumer thread.
+        this.publishedSequences.set(slot, sequence);
+        return true;
+    }
+
+    /**
+     * This method is the consumer thread. It drains the simulation events
+     * published in the bus and delivers them according to the overflow
+     * policy.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    @Override
+    public void run() {
+        while (this.running) {
+            if (this.clearRequested) {
+                this.discardPublishedSimulationEvents();
+            }
+            int numberOfSimulationEvents = this.drainPublishedSimulationEvents();
+            if (numberOfSimulationEvents == 0) {
+                LockSupport.parkNanos(this, IDLE_WAIT_IN_NS);
+            } else {
+                this.deliverDrainedSimulationEvents(numberOfSimulationEvents);
+            }
+        }
+    }
+
+    /**
+     * This method moves to the consumer side, in sequence order, all
+     * simulation events that have been published and not consumed yet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of simulation events drained.
+     * @since 2.0
+     */
+    private int drainPublishedSimulationEvents() {
+        int numberOfSimulationEvents = 0;
+        long sequence = this.consumedSequence;
+        int slot = (int) (sequence & this.sequenceMask);
+        while ((numberOfSimulationEvents < this.capacity) && (this.publishedSequences.get(slot) == sequence)) {
+            this.drainedSimulationEvents[numberOfSimulationEvents] = this.ringBuffer[slot];
+            this.ringBuffer[slot] = null;
+            numberOfSimulationEvents++;
+            sequence++;
+            slot = (int) (sequence & this.sequenceMask);
+        }
+        // The volatile write frees the drained slots for producers.
+        this.consumedSequence = sequence;
+        return numberOfSimulationEvents;
+    }
+
+    /**
+     * This method discards all simulation events published in the bus up to
+     * now, waiting for those that have been claimed but not published yet.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void discardPublishedSimulationEvents() {
+        this.clearRequested = false;
+        long lastSequence = this.claimedSequence.get();
+        long sequence = this.consumedSequence;
+        while (this.running && (sequence < lastSequence)) {
+            int slot = (int) (sequence & this.sequenceMask);
+            if (this.publishedSequences.get(slot) == sequence) {
+                this.ringBuffer[slot] = null;
+                sequence++;
+            } else {
+                Thread.yield();
+            }
+        }
+        this.consumedSequence = sequence;
+        this.lastDeliveredInstant = NO_INSTANT;
+    }
+
+    /**
+     * This method delivers the drained simulation events to the consumer.
+     * Simulation events of the tick being displayed are always delivered. If
+     * the drained simulation events belong to more than one new tick, the
+     * consumer is behind the simulation and the overflow policy decides what
+     * is done with the oldest ones.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param numberOfSimulationEvents the number of drained simulation
+     * events.
+     * @since 2.0
+     */
+    private void deliverDrainedSimulationEvents(int numberOfSimulationEvents) {
+        long currentInstant = this.lastDeliveredInstant;
+        long latestInstant = NO_INSTANT;
+        long previousInstant = NO_INSTANT;
+        for (int i = 0; i < numberOfSimulationEvents; i++) {
+            long instant = this.drainedSimulationEvents[i].getInstant();
+            if (instant > latestInstant) {
+                if (latestInstant > currentInstant) {
+                    previousInstant = latestInstant;
+                }
+                latestInstant = instant;
+            } else if ((instant < latestInstant) && (instant > previousInstant) && (instant > currentInstant)) {
+                previousInstant = instant;
+            }
+        }
+        int policy = this.overflowPolicy;
+        if ((policy == TSimulationEventBus.FALL_BEHIND_POLICY) || (previousInstant == NO_INSTANT)) {
+            for (int i = 0; i < numberOfSimulationEvents; i++) {
+                this.deliver(this.drainedSimulationEvents[i]);
+            }
+        } else {
+            // The consumer is behind. Complete the tick being displayed, show
+            // the tick previous to the latest one and let the latest one be
+            // completed by the next simulation events, dropping or coalescing
+            // the ticks in between.
+            for (int i = 0; i < numberOfSimulationEvents; i++) {
+                if (this.drainedSimulationEvents[i].getInstant() <= currentInstant) {
+                    this.deliver(this.drainedSimulationEvents[i]);
+                }
+            }
+            for (int i = 0; i < numberOfSimulationEvents; i++) {
+                if (this.drainedSimulationEvents[i].getInstant() == previousInstant) {
+                    this.deliver(this.drainedSimulationEvents[i]);
+                }
+            }
+            for (int i = 0; i < numberOfSimulationEvents; i++) {
+                TSimulationEvent simulationEvent = this.drainedSimulationEvents[i];
+                long instant = simulationEvent.getInstant();
+                if ((instant > currentInstant) && (instant < previousInstant)) {
+                    // Packets on fly of skipped ticks are superseded by the
+                    // ones of later ticks; other simulation events are merged
+                    // into the tick previous to the latest one.
+                    if ((policy == TSimulationEventBus.COALESCE_POLICY) && (simulationEvent.getSubtype() != TSimulationEvent.PACKET_ON_FLY)) {
+                        this.deliver(simulationEvent);
+                    } else {
+                        this.droppedSimulationEvents.incrementAndGet();
+                    }
+                }
+            }
+            for (int i = 0; i < numberOfSimulationEvents; i++) {
+                if (this.drainedSimulationEvents[i].getInstant() == latestInstant) {
+                    this.deliver(this.drainedSimulationEvents[i]);
+                }
+            }
+        }
+        for (int i = 0; i < numberOfSimulationEvents; i++) {
+            this.drainedSimulationEvents[i] = null;
+        }
+    }
+
+    /**
+     * This method delivers a simulation event to the consumer. If it belongs
+     * to a tick later than the last one delivered, the previous tick is
+     * displayed the configured visualization time before.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent the simulation event to be delivered.
+     * @since 2.0
+     */
+    private void deliver(TSimulationEvent simulationEvent) {
+        if (!this.running || this.clearRequested) {
+            return;
+        }
+        if (simulationEvent.getInstant() > this.lastDeliveredInstant) {
+            if ((this.lastDeliveredInstant != NO_INSTANT) && (this.visualizationSpeedInMsPerTick > 0)) {
+                try {
+                    Thread.sleep(this.visualizationSpeedInMsPerTick);
+                } catch (InterruptedException e) {
+                    // FIX: This is ugly
+                    e.printStackTrace();
+                }
+            }
+            this.lastDeliveredInstant = simulationEvent.getInstant();
+        }
+        this.simulationEventConsumer.captureSimulationEvents(simulationEvent);
+    }
+
+    /**
+     * This method discards all simulation events waiting in the bus. It
+     * should be called when no simulation is running, for instance, when the
+     * scenario is reset.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void clear() {
+        this.clearRequested = true;
+        this.droppedSimulationEvents.set(0);
+        Thread consumerThreadAux = this.consumerThread;
+        if (consumerThreadAux != null) {
+            LockSupport.unpark(consumerThreadAux);
+        }
+    }
+
+    /**
+     * This method sets the overflow policy applied when the consumer is behind
+     * the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param overflowPolicy One of the policies defined in this class.
+     * @since 2.0
+     */
+    public void setOverflowPolicy(int overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * This method gets the overflow policy applied when the consumer is behind
+     * the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return One of the policies defined in this class.
+     * @since 2.0
+     */
+    public int getOverflowPolicy() {
+        return this.overflowPolicy;
+    }
+
+    /**
+     * This method sets the number of milliseconds each tick is displayed
+     * before delivering simulation events of the next one. It only paces the
+     * consumer thread; simulation threads are never delayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param visualizationSpeedInMsPerTick the number of milliseconds each
+     * tick is displayed.
+     * @since 2.0
+     */
+    public void setVisualizationSpeedInMsPerTick(int visualizationSpeedInMsPerTick) {
+        this.visualizationSpeedInMsPerTick = visualizationSpeedInMsPerTick;
+    }
+
+    /**
+     * This method gets the number of milliseconds each tick is displayed
+     * before delivering simulation events of the next one.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of milliseconds each tick is displayed.
+     * @since 2.0
+     */
+    public int getVisualizationSpeedInMsPerTick() {
+        return this.visualizationSpeedInMsPerTick;
+    }
+
+    /**
+     * This method gets the capacity of the bus.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the maximum number of simulation events that can be waiting in
+     * the bus.
+     * @since 2.0
+     */
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * This method gets the number of simulation events that are waiting in
+     * the bus to be consumed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of simulation events waiting in the bus.
+     * @since 2.0
+     */
+    public int getNumberOfPendingSimulationEvents() {
+        return (int) (this.claimedSequence.get() - this.consumedSequence);
+    }
+
+    /**
+     * This method gets the number of simulation events that have not been
+     * delivered to the consumer since the bus was created or cleared, either
+     * because the bus was full or because of the overflow policy.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of dropped simulation events.
+     * @since 2.0
+     */
+    public long getDroppedSimulationEvents() {
+        return this.droppedSimulationEvents.get();
+    }
+
+    public static final int FALL_BEHIND_POLICY = 0;
+    public static final int DROP_POLICY = 1;
+    public static final int COALESCE_POLICY = 2;
+    public static final int DEFAULT_CAPACITY = 65536;
+
+    private static final int MINIMUM_CAPACITY = 2;
+    private static final long NO_SEQUENCE = -1L;
+    private static final long NO_INSTANT = -1L;
+    private static final long IDLE_WAIT_IN_NS = 1000000L;
+
+    private final ISimulationEventListener simulationEventConsumer;
+    private final int capacity;
+    private final int sequenceMask;
+    private final TSimulationEvent[] ringBuffer;
+    private final AtomicLongArray publishedSequences;
+    private final TSimulationEvent[] drainedSimulationEvents;
+    private final AtomicLong claimedSequence;
+    private volatile long consumedSequence;
+    private final AtomicLong droppedSimulationEvents;
+    private volatile int overflowPolicy;
+    private volatile int visualizationSpeedInMsPerTick;
+    private long lastDeliveredInstant;
+    private volatile boolean clearRequested;
+    private volatile boolean running;
+    private Thread consumerThread;
+}
@@ -0,0 +1,302 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario.simulationevents;
+
+import com.manolodominguez.opensimmpls.scenario.TLink;
+import com.manolodominguez.opensimmpls.scenario.TNode;
+import com.manolodominguez.opensimmpls.scenario.TTopologyElement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * This class implements a simulation event listener that does not store
+ * simulation events but counts them, globally and per topology element. It is
+ * designed to summarize a simulation when there is no simulation panel to
+ * display events, for instance, in batch simulations. Summaries of packets
+ * produced by TSimulationEventAggregator are accounted as the per-packet
+ * simulation events they summarize.
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TSimulationEventCounter implements ISimulationEventListener {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSimulationEventCounter.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public TSimulationEventCounter() {
+        this.eventsBySubtype = new TreeMap<>();
+        this.eventsByElement = new HashMap<>();
+        this.subtypeNames = new TreeMap<>();
+        this.numberOfEvents = 0;
+        this.subscribedSimulationEvents = TSimulationEvent.ALL_SIMULATION_EVENTS;
+    }
+
+    /**
+     * This method captures a simulation event and updates the corresponding
+     * counters. A TSimulationEventPacketsAggregated event increases the
+     * counters of the subtype it summarizes by its number of packets.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEvent The simulation event received.
+     * @since 2.0
+     */
+    @Override
+    public synchronized void captureSimulationEvents(TSimulationEvent simulationEvent) {
+        Integer subtype = simulationEvent.getSubtype();
+        long amount = 1;
+        TSimulationEventPacketsAggregated simulationEventPacketsAggregated = null;
+        if (simulationEvent.getSubtype() == TSimulationEvent.PACKETS_AGGREGATED) {
+            simulationEventPacketsAggregated = (TSimulationEventPacketsAggregated) simulationEvent;
+            subtype = simulationEventPacketsAggregated.getAggregatedSubtype();
+            amount = simulationEventPacketsAggregated.getNumberOfPackets();
+        }
+        if (!this.subtypeNames.containsKey(subtype)) {
+            String subtypeName = simulationEvent.getClass().getSimpleName();
+            if (simulationEventPacketsAggregated != null) {
+                subtypeName = simulationEventPacketsAggregated.getAggregatedSubtypeName();
+            } else if (subtypeName.startsWith(EVENT_CLASS_PREFIX)) {
+                subtypeName = subtypeName.substring(EVENT_CLASS_PREFIX.length());
+            }
+            this.subtypeNames.put(subtype, subtypeName);
+        }
+        increase(this.eventsBySubtype, subtype, amount);
+        TTopologyElement source = simulationEvent.getSource();
+        TreeMap<Integer, Long> elementCounters = this.eventsByElement.get(source);
+        if (elementCounters == null) {
+            elementCounters = new TreeMap<>();
+            this.eventsByElement.put(source, elementCounters);
+        }
+        increase(elementCounters, subtype, amount);
+        this.numberOfEvents += amount;
+    }
+
+    /**
+     * This method sets the subtypes of the simulation events this counter
+     * wants to receive. Events of other subtypes are not counted and, if
+     * nobody else is subscribed to them, not even generated. It has to be set
+     * before the counter is added to a simulation event listener.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subscribedSimulationEvents The bit mask of subscribed simulation
+     * event subtypes, built from TSimulationEvent.getSubscriptionMask().
+     * @since 2.0
+     */
+    public void setSubscribedSimulationEvents(long subscribedSimulationEvents) {
+        this.subscribedSimulationEvents = subscribedSimulationEvents;
+    }
+
+    /**
+     * This method gets the subtypes of the simulation events this counter
+     * wants to receive. By default, it is subscribed to every simulation
+     * event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return The bit mask of subscribed simulation event subtypes.
+     * @since 2.0
+     */
+    @Override
+    public long getSubscribedSimulationEvents() {
+        return this.subscribedSimulationEvents;
+    }
+
+    /**
+     * This method gets the total number of simulation events that have been
+     * captured.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the total number of simulation events captured.
+     * @since 2.0
+     */
+    public synchronized long getNumberOfEvents() {
+        return this.numberOfEvents;
+    }
+
+    /**
+     * This method gets the number of simulation events of the specified
+     * subtype that have been captured.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subtype the subtype of the simulation events. One of the
+     * constants defined in TSimulationEvent.
+     * @return the number of simulation events of the specified subtype.
+     * @since 2.0
+     */
+    public synchronized long getNumberOfEvents(int subtype) {
+        Long counter = this.eventsBySubtype.get(subtype);
+        if (counter == null) {
+            return 0;
+        }
+        return counter;
+    }
+
+    /**
+     * This method gets the number of simulation events of the specified
+     * subtype that have been generated by the specified topology element.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topologyElement the topology element that generated the events.
+     * @param subtype the subtype of the simulation events. One of the
+     * constants defined in TSimulationEvent.
+     * @return the number of simulation events of the specified subtype
+     * generated by the specified topology element.
+     * @since 2.0
+     */
+    public synchronized long getNumberOfEvents(TTopologyElement topologyElement, int subtype) {
+        TreeMap<Integer, Long> elementCounters = this.eventsByElement.get(topologyElement);
+        if (elementCounters == null) {
+            return 0;
+        }
+        Long counter = elementCounters.get(subtype);
+        if (counter == null) {
+            return 0;
+        }
+        return counter;
+    }
+
+    /**
+     * This method gets the subtypes of the simulation events that have been
+     * captured, in ascending order.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the subtypes of the simulation events captured, in ascending
+     * order.
+     * @since 2.0
+     */
+    public synchronized List<Integer> getCapturedSubtypes() {
+        return new ArrayList<>(this.eventsBySubtype.keySet());
+    }
+
+    /**
+     * This method gets a human readable name for the specified subtype of
+     * simulation event. It is obtained from the class of the first event of
+     * this subtype that was captured.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param subtype the subtype of the simulation events. One of the
+     * constants defined in TSimulationEvent.
+     * @return a human readable name for the specified subtype.
+     * @since 2.0
+     */
+    public synchronized String getSubtypeName(int subtype) {
+        String subtypeName = this.subtypeNames.get(subtype);
+        if (subtypeName == null) {
+            return String.valueOf(subtype);
+        }
+        return subtypeName;
+    }
+
+    /**
+     * This method gets the topology elements that have generated at least one
+     * simulation event. Nodes are returned first and then links, both of them
+     * sorted by their identifiers, so that the output is always the same for
+     * the same simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the topology elements that have generated at least one
+     * simulation event, sorted.
+     * @since 2.0
+     */
+    public synchronized List<TTopologyElement> getCapturedElements() {
+        List<TTopologyElement> elements = new ArrayList<>(this.eventsByElement.keySet());
+        elements.sort((element1, element2) -> {
+            if (element1.getElementType() != element2.getElementType()) {
+                return Integer.compare(element2.getElementType(), element1.getElementType());
+            }
+            return Integer.compare(getElementID(element1), getElementID(element2));
+        });
+        return elements;
+    }
+
+    /**
+     * This method gets the identifier of a topology element, regardless it is
+     * a node or a link.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topologyElement the topology element.
+     * @return the identifier of the topology element.
+     * @since 2.0
+     */
+    public static int getElementID(TTopologyElement topologyElement) {
+        if (topologyElement.getElementType() == TTopologyElement.NODE) {
+            return ((TNode) topologyElement).getNodeID();
+        }
+        return ((TLink) topologyElement).getID();
+    }
+
+    /**
+     * This method gets the name of a topology element, regardless it is a node
+     * or a link.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param topologyElement the topology element.
+     * @return the name of the topology element.
+     * @since 2.0
+     */
+    public static String getElementName(TTopologyElement topologyElement) {
+        if (topologyElement.getElementType() == TTopologyElement.NODE) {
+            return ((TNode) topologyElement).getName();
+        }
+        return ((TLink) topologyElement).getName();
+    }
+
+    /**
+     * This method will reset all counters of the instance as in the moment of
+     * its creation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public synchronized void reset() {
+        this.eventsBySubtype.clear();
+        this.eventsByElement.clear();
+        this.subtypeNames.clear();
+        this.numberOfEvents = 0;
+    }
+
+    /**
+     * This method increases by the specified amount the counter associated to
+     * the specified subtype in the specified set of counters.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param counters the set of counters.
+     * @param subtype the subtype whose counter has to be increased.
+     * @param amount the amount the counter has to be increased by.
+     * @since 2.0
+     */
+    private void increase(TreeMap<Integer, Long> counters, Integer subtype, long amount) {
+        Long counter = counters.get(subtype);
+        if (counter == null) {
+            counters.put(subtype, amount);
+        } else {
+            counters.put(subtype, counter + amount);
+        }
+    }
+
+    private static final String EVENT_CLASS_PREFIX = "TSimulationEvent";
+
+    private TreeMap<Integer, Long> eventsBySubtype;
+    private HashMap<TTopologyElement, TreeMap<Integer, Long>> eventsByElement;
+    private TreeMap<Integer, String> subtypeNames;
+    private long numberOfEvents;
+    private volatile long subscribedSimulationEvents;
+}
@@ -17,12 +17,17 @@ package com.manolodominguez.opensimmpls.scenario.simulationevents;
 
 import java.util.Iterator;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
 import com.manolodominguez.opensimmpls.gui.simulator.JSimulationPanel;
 import com.manolodominguez.opensimmpls.commons.TLock;
 
 /**
  * This class implements a simulation event listener that will receive
- * simulation events.
+ * simulation events. Simulation events are delivered synchronously to
+ * additional listeners and published in a TSimulationEventBus to be displayed
+ * in the simulation panel, if any, so that simulation threads never wait for
+ * the GUI. Optionally, per-packet simulation events can be collapsed into per
+ * tick summaries before they are published, for large topologies.
  *
  * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
  * @version 2.0
@@ -40,103 +45,373 @@ public class TSimulationEventListener implements ISimulationEventListener {
         this.simulationEventsBuffer = new TreeSet();
         this.eventsLock = new TLock();
         this.simulationPanel = null;
+        this.additionalSimulationEventListeners = new CopyOnWriteArrayList<>();
+        this.subscribedSimulationEvents = TSimulationEvent.NO_SIMULATION_EVENTS;
+        this.simulationEventBus = null;
+        this.visualizationSpeedInMsPerTick = 0;
+        this.overflowPolicy = TSimulationEventBus.COALESCE_POLICY;
+        this.eventAggregation = false;
+        this.simulationEventAggregator = null;
     }
 
     /**
      * This method establishes the simulation panel where collected simulation
-     * events will be displayed. It connects the generated events to the GUI.
+     * events will be displayed. It connects the generated events to the GUI
+     * through a new simulation event bus, whose consumer thread is the only
+     * one that delivers simulation events to the panel.
      *
      * @since 2.0
      * @param simulationPanel The simulation panel where collected simulation
      * events will be displayed.
      */
     public synchronized void setSimulationPanel(JSimulationPanel simulationPanel) {
+        if (this.simulationEventBus != null) {
+            this.simulationEventBus.stop();
+            this.simulationEventBus = null;
+        }
         this.simulationPanel = simulationPanel;
+        if (simulationPanel != null) {
+            TSimulationEventBus simulationEventBusAux = new TSimulationEventBus(new ISimulationEventListener() {
+                @Override
+                public void captureSimulationEvents(TSimulationEvent simulationEvent) {
+                    displaySimulationEvent(simulationPanel, simulationEvent);
+                }
+
+                @Override
+                public long getSubscribedSimulationEvents() {
+                    return TSimulationEvent.ALL_SIMULATION_EVENTS;
+                }
+            });
+            simulationEventBusAux.setVisualizationSpeedInMsPerTick(this.visualizationSpeedInMsPerTick);
+            simulationEventBusAux.setOverflowPolicy(this.overflowPolicy);
+            simulationEventBusAux.start();
+            this.simulationEventBus = simulationEventBusAux;
+        }
+        this.updateSimulationEventAggregator();
+        this.updateSubscribedSimulationEvents();
+    }
+
+    /**
+     * This method sets whether per-packet simulation events are collapsed into
+     * per-tick, per-element and per-packet-type summaries before being
+     * displayed in the simulation panel. Additional listeners keep receiving
+     * every simulation event they are subscribed to, so full per-packet
+     * fidelity is still available for them.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param eventAggregation TRUE, if per-packet simulation events have to be
+     * aggregated before being displayed. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public synchronized void setEventAggregation(boolean eventAggregation) {
+        this.eventAggregation = eventAggregation;
+        this.updateSimulationEventAggregator();
+    }
+
+    /**
+     * This method checks whether per-packet simulation events are collapsed
+     * into per-tick summaries before being displayed in the simulation panel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return TRUE, if per-packet simulation events are aggregated before
+     * being displayed. Otherwise, FALSE.
+     * @since 2.0
+     */
+    public boolean isEventAggregationEnabled() {
+        return this.eventAggregation;
+    }
+
+    /**
+     * This method creates or removes the aggregation stage in front of the
+     * simulation event bus, depending on whether aggregation is enabled and
+     * there is a simulation panel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void updateSimulationEventAggregator() {
+        TSimulationEventBus simulationEventBusAux = this.simulationEventBus;
+        if ((this.eventAggregation) && (simulationEventBusAux != null)) {
+            this.simulationEventAggregator = new TSimulationEventAggregator(new ISimulationEventListener() {
+                @Override
+                public void captureSimulationEvents(TSimulationEvent simulationEvent) {
+                    simulationEventBusAux.publish(simulationEvent);
+                }
+
+                @Override
+                public long getSubscribedSimulationEvents() {
+                    return TSimulationEvent.ALL_SIMULATION_EVENTS;
+                }
+            });
+        } else {
+            this.simulationEventAggregator = null;
+        }
+    }
+
+    /**
+     * This method sets the number of milliseconds each simulation tick is
+     * displayed in the simulation panel. Only the thread that feeds the panel
+     * waits; simulation threads are not delayed.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param visualizationSpeedInMsPerTick the number of milliseconds each
+     * simulation tick is displayed.
+     * @since 2.0
+     */
+    public synchronized void setVisualizationSpeedInMsPerTick(int visualizationSpeedInMsPerTick) {
+        this.visualizationSpeedInMsPerTick = visualizationSpeedInMsPerTick;
+        if (this.simulationEventBus != null) {
+            this.simulationEventBus.setVisualizationSpeedInMsPerTick(visualizationSpeedInMsPerTick);
+        }
+    }
+
+    /**
+     * This method sets what is done with the simulation events waiting to be
+     * displayed when the simulation panel is behind the simulation.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param overflowPolicy One of the policies defined in
+     * TSimulationEventBus.
+     * @since 2.0
+     */
+    public synchronized void setOverflowPolicy(int overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        if (this.simulationEventBus != null) {
+            this.simulationEventBus.setOverflowPolicy(overflowPolicy);
+        }
+    }
+
+    /**
+     * This method gets the simulation event bus that feeds the simulation
+     * panel.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the simulation event bus that feeds the simulation panel, or
+     * null if there is no simulation panel.
+     * @since 2.0
+     */
+    public TSimulationEventBus getSimulationEventBus() {
+        return this.simulationEventBus;
+    }
+
+    /**
+     * This method adds a new listener that will receive a copy of every
+     * simulation event captured by this instance. This allows collecting
+     * simulation events when there is no simulation panel, for instance, in
+     * batch simulations.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventListener the listener that will receive a copy of
+     * every simulation event.
+     * @since 2.0
+     */
+    public synchronized void addSimulationEventListener(ISimulationEventListener simulationEventListener) {
+        if (!this.additionalSimulationEventListeners.contains(simulationEventListener)) {
+            this.additionalSimulationEventListeners.add(simulationEventListener);
+        }
+        this.updateSubscribedSimulationEvents();
+    }
+
+    /**
+     * This method removes a listener that was previously added to receive a
+     * copy of every simulation event captured by this instance.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param simulationEventListener the listener to be removed.
+     * @since 2.0
+     */
+    public synchronized void removeSimulationEventListener(ISimulationEventListener simulationEventListener) {
+        this.additionalSimulationEventListeners.remove(simulationEventListener);
+        this.updateSubscribedSimulationEvents();
     }
 
     /**
      * This method, when implemented, will capture simulation events. It also
-     * delivers them to the simulation panel to be displayed.
+     * delivers them to every additional simulation event listener and
+     * publishes them, aggregated or not, to be displayed in the simulation
+     * panel, if any. It may be called concurrently from several simulation
+     * threads and never waits for the GUI.
      *
      * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
      * @since 2.0
      * @param simulationEvent The simulation event received.
      */
     @Override
-    public synchronized void captureSimulationEvents(TSimulationEvent simulationEvent) {
+    public void captureSimulationEvents(TSimulationEvent simulationEvent) {
+        long subscriptionMask = TSimulationEvent.getSubscriptionMask(simulationEvent.getSubtype());
+        for (ISimulationEventListener additionalSimulationEventListener : this.additionalSimulationEventListeners) {
+            if ((additionalSimulationEventListener.getSubscribedSimulationEvents() & subscriptionMask) != 0) {
+                additionalSimulationEventListener.captureSimulationEvents(simulationEvent);
+            }
+        }
+        TSimulationEventAggregator simulationEventAggregatorAux = this.simulationEventAggregator;
+        if (simulationEventAggregatorAux != null) {
+            simulationEventAggregatorAux.captureSimulationEvents(simulationEvent);
+            return;
+        }
+        TSimulationEventBus simulationEventBusAux = this.simulationEventBus;
+        if (simulationEventBusAux != null) {
+            simulationEventBusAux.publish(simulationEvent);
+        }
+    }
+
+    /**
+     * This method delivers to the simulation panel the summaries of the last
+     * tick that are still held by the aggregation stage, if any, without
+     * waiting for a simulation event of a later tick. It should be called when
+     * the simulation ends or is stopped.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    public void flush() {
+        TSimulationEventAggregator simulationEventAggregatorAux = this.simulationEventAggregator;
+        if (simulationEventAggregatorAux != null) {
+            simulationEventAggregatorAux.flush();
+        }
+    }
+
+    /**
+     * This method delivers a simulation event to the simulation panel to be
+     * displayed. It is called only from the consumer thread of the simulation
+     * event bus.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     * @param simulationPanel The simulation panel where the simulation event
+     * will be displayed.
+     * @param simulationEvent The simulation event to be displayed.
+     */
+    private void displaySimulationEvent(JSimulationPanel simulationPanel, TSimulationEvent simulationEvent) {
         // FIX: If nothing different is done... is it neccesary a switch?
         switch (simulationEvent.getSubtype()) {
             case TSimulationEvent.PACKET_GENERATED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_SENT: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_RECEIVED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_SWITCHED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_DISCARDED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_ON_FLY: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.PACKET_ROUTED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LSP_ESTABLISHED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LSP_REMOVED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LABEL_ASSIGNED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LABEL_DENIED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LABEL_REMOVED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LABEL_RECEIVED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LABEL_REQUESTED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.NODE_CONGESTED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LINK_BROKEN: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
             case TSimulationEvent.LINK_RECOVERED: {
-                this.simulationPanel.addEvent(simulationEvent);
+                simulationPanel.addEvent(simulationEvent);
+                break;
+            }
+            case TSimulationEvent.PACKETS_AGGREGATED: {
+                simulationPanel.addEvent(simulationEvent);
                 break;
             }
         }
     }
 
+    /**
+     * This method returns the subtypes of the simulation events this listener
+     * wants to receive. The simulation panel, if any, is subscribed to every
+     * simulation event; additional listeners are subscribed to those they
+     * declared when they were added.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     * @return The bit mask of subscribed simulation event subtypes.
+     */
+    @Override
+    public long getSubscribedSimulationEvents() {
+        return this.subscribedSimulationEvents;
+    }
+
+    /**
+     * This method checks whether anybody is subscribed, through this
+     * listener, to simulation events of the specified subtype. Topology
+     * elements use it to avoid constructing simulation events that would be
+     * ignored.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     * @param subtype One of the simulation event subtypes defined in
+     * TSimulationEvent.
+     * @return TRUE, if simulation events of the specified subtype have to be
+     * generated. Otherwise, FALSE.
+     */
+    public boolean isSubscribedTo(int subtype) {
+        return (this.subscribedSimulationEvents & TSimulationEvent.getSubscriptionMask(subtype)) != 0;
+    }
+
+    /**
+     * This method recomputes the subtypes of the simulation events this
+     * listener is subscribed to, from the simulation panel and the additional
+     * listeners currently registered. The subscription of an additional
+     * listener is read when it is added, so it should be set before.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @since 2.0
+     */
+    private void updateSubscribedSimulationEvents() {
+        long subscribedSimulationEventsAux = TSimulationEvent.NO_SIMULATION_EVENTS;
+        if (this.simulationPanel != null) {
+            subscribedSimulationEventsAux = TSimulationEvent.ALL_SIMULATION_EVENTS;
+        }
+        for (ISimulationEventListener additionalSimulationEventListener : this.additionalSimulationEventListeners) {
+            subscribedSimulationEventsAux |= additionalSimulationEventListener.getSubscribedSimulationEvents();
+        }
+        this.subscribedSimulationEvents = subscribedSimulationEventsAux;
+    }
+
     /**
      * This method reset to value of the class attributes to their original
      * values, as when created by the constructor.
@@ -146,6 +421,14 @@ public class TSimulationEventListener implements ISimulationEventListener {
      *
      */
     public void reset() {
+        TSimulationEventAggregator simulationEventAggregatorAux = this.simulationEventAggregator;
+        if (simulationEventAggregatorAux != null) {
+            simulationEventAggregatorAux.reset();
+        }
+        TSimulationEventBus simulationEventBusAux = this.simulationEventBus;
+        if (simulationEventBusAux != null) {
+            simulationEventBusAux.clear();
+        }
         this.eventsLock.lock();
         Iterator iterator = this.simulationEventsBuffer.iterator();
         while (iterator.hasNext()) {
@@ -158,4 +441,11 @@ public class TSimulationEventListener implements ISimulationEventListener {
     private TLock eventsLock;
     private TreeSet simulationEventsBuffer;
     private JSimulationPanel simulationPanel;
+    private CopyOnWriteArrayList<ISimulationEventListener> additionalSimulationEventListeners;
+    private volatile long subscribedSimulationEvents;
+    private volatile TSimulationEventBus simulationEventBus;
+    private int visualizationSpeedInMsPerTick;
+    private int overflowPolicy;
+    private volatile boolean eventAggregation;
+    private volatile TSimulationEventAggregator simulationEventAggregator;
 }
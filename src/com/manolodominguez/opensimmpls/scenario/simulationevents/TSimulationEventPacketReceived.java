@@ -57,6 +57,17 @@ public class TSimulationEventPacketReceived extends TSimulationEvent {
         return this.packetType;
     }
 
+    /**
+     * This method gets the size of the packet received by the source node.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the size of the packet received by the source node, in octets.
+     * @since 2.0
+     */
+    public int getPacketSize() {
+        return this.packetSize;
+    }
+
     /**
      * This method gets the subtype of this simulation event. One of the
      * constants of TSimulationEvent.
@@ -0,0 +1,253 @@
+/* 
+ * Copyright (C) Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.manolodominguez.opensimmpls.scenario.simulationevents;
+
+import com.manolodominguez.opensimmpls.protocols.TAbstractPDU;
+
+/**
+ * This class implements a simulation event that summarizes, for a given tick,
+ * every per-packet simulation event of the same subtype and packet type that
+ * a topology element has generated. For instance, "node 17 has switched 4312
+ * MPLS with GoS packets".
+ *
+ * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+ * @version 2.0
+ */
+public class TSimulationEventPacketsAggregated extends TSimulationEvent {
+
+    /**
+     * This method is the constructor of the class. It creates a new instance of
+     * TSimulationEventPacketsAggregated.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @param source The object that generates the event.
+     * @param eventID The event unique identifier.
+     * @param timeInstant The time instant when the event was generated.
+     * @param aggregatedSubtype the subtype of the per-packet simulation events
+     * that are summarized. One of the constants defined in TSimulationEvent.
+     * @param packetType the type of the packets. One of the constants defined
+     * in TAbstractPDU.
+     * @param numberOfPackets the number of per-packet simulation events that
+     * are summarized.
+     * @since 2.0
+     */
+    public TSimulationEventPacketsAggregated(Object source, long eventID, long timeInstant, int aggregatedSubtype, int packetType, long numberOfPackets) {
+        super(source, eventID, timeInstant);
+        this.aggregatedSubtype = aggregatedSubtype;
+        this.packetType = packetType;
+        this.numberOfPackets = numberOfPackets;
+    }
+
+    /**
+     * This method gets the subtype of the per-packet simulation events that
+     * are summarized by this event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the subtype of the per-packet simulation events that are
+     * summarized. One of the constants defined in TSimulationEvent.
+     * @since 2.0
+     */
+    public int getAggregatedSubtype() {
+        return this.aggregatedSubtype;
+    }
+
+    /**
+     * This method gets the type of the packets summarized by this event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the type of the packets summarized by this event. One of the
+     * constants defined in TAbstractPDU.
+     * @since 2.0
+     */
+    public int getPacketType() {
+        return this.packetType;
+    }
+
+    /**
+     * This method gets the number of per-packet simulation events that are
+     * summarized by this event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the number of per-packet simulation events that are summarized.
+     * @since 2.0
+     */
+    public long getNumberOfPackets() {
+        return this.numberOfPackets;
+    }
+
+    /**
+     * This method gets the subtype of this simulation event. One of the
+     * constants of TSimulationEvent.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the subtype of this simulation event.
+     * TSimulationEvent.PACKETS_AGGREGATED.
+     * @since 2.0
+     */
+    @Override
+    public int getSubtype() {
+        return TSimulationEvent.PACKETS_AGGREGATED;
+    }
+
+    /**
+     * This method gets a name for the subtype of the per-packet simulation
+     * events that are summarized by this event. It is the name of the class
+     * of those simulation events without the common prefix, so that it can be
+     * shown together with the name of non aggregated simulation events.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return a name for the subtype of the per-packet simulation events that
+     * are summarized.
+     * @since 2.0
+     */
+    public String getAggregatedSubtypeName() {
+        String strAggregatedSubtype = String.valueOf(this.aggregatedSubtype);
+        switch (this.aggregatedSubtype) {
+            case TSimulationEvent.PACKET_GENERATED: {
+                strAggregatedSubtype = "PacketGenerated";
+                break;
+            }
+            case TSimulationEvent.PACKET_SENT: {
+                strAggregatedSubtype = "PacketSent";
+                break;
+            }
+            case TSimulationEvent.PACKET_RECEIVED: {
+                strAggregatedSubtype = "PacketReceived";
+                break;
+            }
+            case TSimulationEvent.PACKET_SWITCHED: {
+                strAggregatedSubtype = "PacketSwitched";
+                break;
+            }
+            case TSimulationEvent.PACKET_DISCARDED: {
+                strAggregatedSubtype = "PacketDiscarded";
+                break;
+            }
+            case TSimulationEvent.PACKET_ON_FLY: {
+                strAggregatedSubtype = "PacketOnFly";
+                break;
+            }
+            case TSimulationEvent.PACKET_ROUTED: {
+                strAggregatedSubtype = "PacketRouted";
+                break;
+            }
+        }
+        return strAggregatedSubtype;
+    }
+
+    /**
+     * This method gets the type of the packets summarized by this event, as
+     * String.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return the type of the packets summarized by this event, as String.
+     * @since 2.0
+     */
+    public String getPacketTypeAsString() {
+        String strPacketType = "";
+        switch (this.packetType) {
+            case TAbstractPDU.IPV4: {
+                // FIX: i18N required
+                strPacketType = "IPv4";
+                break;
+            }
+            case TAbstractPDU.IPV4_GOS: {
+                // FIX: i18N required
+                strPacketType = "IPv4 con GoS";
+                break;
+            }
+            case TAbstractPDU.MPLS: {
+                // FIX: i18N required
+                strPacketType = "MPLS";
+                break;
+            }
+            case TAbstractPDU.MPLS_GOS: {
+                // FIX: i18N required
+                strPacketType = "MPLS con GoS";
+                break;
+            }
+            case TAbstractPDU.TLDP: {
+                // FIX: i18N required
+                strPacketType = "LDP";
+                break;
+            }
+            case TAbstractPDU.GPSRP: {
+                // FIX: i18N required
+                strPacketType = "GPSRP";
+                break;
+            }
+        }
+        return (strPacketType);
+    }
+
+    /**
+     * This method gets a human readable explanation of this event.
+     *
+     * @author Manuel Domínguez Dorado - ingeniero@ManoloDominguez.com
+     * @return a human readable explanation of this event.
+     * @since 2.0
+     */
+    @Override
+    public String toString() {
+        String string = "";
+        string += "[";
+        string += this.getSourceTypeAsString();
+        string += " ";
+        string += this.getSourceName();
+        string += "] ";
+        // FIX: i18N needed
+        switch (this.aggregatedSubtype) {
+            case TSimulationEvent.PACKET_GENERATED: {
+                string += "ha generado ";
+                break;
+            }
+            case TSimulationEvent.PACKET_SENT: {
+                string += "ha enviado ";
+                break;
+            }
+            case TSimulationEvent.PACKET_RECEIVED: {
+                string += "ha recibido ";
+                break;
+            }
+            case TSimulationEvent.PACKET_SWITCHED: {
+                string += "ha conmutado ";
+                break;
+            }
+            case TSimulationEvent.PACKET_DISCARDED: {
+                string += "ha descartado ";
+                break;
+            }
+            case TSimulationEvent.PACKET_ON_FLY: {
+                string += "transporta ";
+                break;
+            }
+            case TSimulationEvent.PACKET_ROUTED: {
+                string += "ha encaminado ";
+                break;
+            }
+        }
+        string += this.numberOfPackets;
+        string += " paquetes ";
+        string += this.getPacketTypeAsString();
+        return (string);
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private int aggregatedSubtype;
+    private int packetType;
+    private long numberOfPackets;
+}